@@ -0,0 +1,168 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a BatchRecommendationJob. They are updated by the threads of
+ * the job, so they can be read by another thread while the job runs to 
+ * follow its throughput.
+ */
+public class BatchMetrics {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private volatile int numberOfUsers = 0;
+        private volatile int numberOfChunks = 0;
+        private volatile int resumedChunks = 0;
+        private final AtomicLong processedUsers = new AtomicLong();
+        private final AtomicLong skippedUsers = new AtomicLong();
+        private final AtomicLong recommendations = new AtomicLong();
+        private final AtomicInteger completedChunks = new AtomicInteger();
+        private volatile long startTime = 0;
+        //0 while the job runs.
+        private volatile long endTime = 0;
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Returns the number of users of the batch, including the ones of
+         * the chunks completed by a previous run.
+         * @return 
+         */
+        public int getNumberOfUsers() {
+                return numberOfUsers;
+        }
+
+        /**
+         * Returns the number of chunks of the batch.
+         * @return 
+         */
+        public int getNumberOfChunks() {
+                return numberOfChunks;
+        }
+
+        /**
+         * Returns the number of chunks which were completed by a previous 
+         * run and have been skipped.
+         * @return 
+         */
+        public int getResumedChunks() {
+                return resumedChunks;
+        }
+
+        /**
+         * Returns the number of chunks completed by this run.
+         * @return 
+         */
+        public int getCompletedChunks() {
+                return completedChunks.get();
+        }
+
+        /**
+         * Returns the number of users whose recommendations have been 
+         * written by this run.
+         * @return 
+         */
+        public long getProcessedUsers() {
+                return processedUsers.get();
+        }
+
+        /**
+         * Returns the number of users without recommendations because they 
+         * are unknown or have no profile.
+         * @return 
+         */
+        public long getSkippedUsers() {
+                return skippedUsers.get();
+        }
+
+        /**
+         * Returns the number of recommendations written by this run.
+         * @return 
+         */
+        public long getRecommendations() {
+                return recommendations.get();
+        }
+
+        /**
+         * Returns the time in ms since the start of the run, until its end if
+         * it has ended.
+         * @return 
+         */
+        public long getElapsedTime() {
+                if (startTime == 0) {
+                        return 0;
+                }
+                return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+        }
+
+        /**
+         * Returns the number of users processed per second.
+         * @return 
+         */
+        public double getUsersPerSecond() {
+                return perSecond(processedUsers.get());
+        }
+
+        /**
+         * Returns the number of recommendations written per second.
+         * @return 
+         */
+        public double getRecommendationsPerSecond() {
+                return perSecond(recommendations.get());
+        }
+
+        @Override
+        public String toString() {
+                long time = getElapsedTime();
+                return processedUsers.get() + " users (" + skippedUsers.get() + " skipped, "
+                        + recommendations.get() + " recommendations) in " + time + "ms (ca. " 
+                        + time / 1000 + " secs), " + Math.round(getUsersPerSecond()) + " users/sec, "
+                        + completedChunks.get() + " of " + numberOfChunks + " chunks (" 
+                        + resumedChunks + " resumed)";
+        }
+
+        void start(int numberOfUsers, int numberOfChunks, int resumedChunks) {
+                this.numberOfUsers = numberOfUsers;
+                this.numberOfChunks = numberOfChunks;
+                this.resumedChunks = resumedChunks;
+                processedUsers.set(0);
+                skippedUsers.set(0);
+                completedChunks.set(0);
+                recommendations.set(0);
+                endTime = 0;
+                startTime = System.currentTimeMillis();
+        }
+
+        void userProcessed(int numberOfRecommendations) {
+                processedUsers.incrementAndGet();
+                recommendations.addAndGet(numberOfRecommendations);
+        }
+
+        void userSkipped() {
+                skippedUsers.incrementAndGet();
+        }
+
+        void chunkCompleted() {
+                completedChunks.incrementAndGet();
+        }
+
+        void finish() {
+                endTime = System.currentTimeMillis();
+        }
+
+        private double perSecond(long count) {
+                long time = getElapsedTime();
+                return time == 0 ? 0.0 : count * 1000.0 / time;
+        }
+}
@@ -0,0 +1,160 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.BitSet;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+
+/**
+ * Completed chunks of a batch, kept in a file so that a job which was 
+ * stopped can be resumed without computing them again. The first line of
+ * the file identifies the batch (number of users, chunk size and a 
+ * fingerprint of the users), followed by one line with the number of each
+ * completed chunk, in the order they were completed. A line is appended
+ * and flushed when a chunk is completed, a last line which was not
+ * terminated (the job stopped while writing it) is ignored.
+ */
+public class BatchProgress {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final String fileName;
+        private final BitSet completedChunks;
+        private Writer writer;
+
+        /*-------------*
+	 * Constructor *
+	 *-------------*/
+
+        private BatchProgress(String fileName, BitSet completedChunks, Writer writer) {
+                this.fileName = fileName;
+                this.completedChunks = completedChunks;
+                this.writer = writer;
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Opens the progress of a batch. If the file exists, the completed
+         * chunks are read from it, otherwise it is created. An exception is
+         * thrown if the file belongs to a different batch.
+         * @param fileName
+         * @param numberOfUsers
+         * @param chunkSize
+         * @param fingerprint
+         * @return
+         * @throws RecommenderException 
+         */
+        public static BatchProgress open(String fileName, int numberOfUsers, int chunkSize,
+                        long fingerprint) throws RecommenderException {
+                String header = numberOfUsers + "\t" + chunkSize + "\t" + fingerprint;
+                int numberOfChunks = (int)(((long)numberOfUsers + chunkSize - 1) / chunkSize);
+                BitSet completedChunks = new BitSet(numberOfChunks);
+                try {
+                        File file = new File(fileName);
+                        if (file.exists()) {
+                                String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                                //Only terminated lines.
+                                String[] lines = content.substring(0, content.lastIndexOf('\n') + 1).split("\n");
+                                if (lines.length > 0 && !lines[0].isEmpty()) {
+                                        if (!lines[0].equals(header)) {
+                                                throw new RecommenderException("THE PROGRESS FILE " + fileName 
+                                                        + " BELONGS TO A DIFFERENT BATCH");
+                                        }
+                                        for (int i = 1; i < lines.length; i++) {
+                                                int chunk = Integer.parseInt(lines[i]);
+                                                if (chunk < 0 || chunk >= numberOfChunks) {
+                                                        throw new RecommenderException("THE PROGRESS FILE " + fileName
+                                                                + " IS CORRUPTED");
+                                                }
+                                                completedChunks.set(chunk);
+                                        }
+                                }
+                        }
+                        //The file is written again, without an unterminated line.
+                        Writer writer = new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8);
+                        StringBuilder content = new StringBuilder(header).append('\n');
+                        for (int chunk = completedChunks.nextSetBit(0); chunk >= 0; chunk = completedChunks.nextSetBit(chunk + 1)) {
+                                content.append(chunk).append('\n');
+                        }
+                        writer.write(content.toString());
+                        writer.flush();
+                        return new BatchProgress(fileName, completedChunks, writer);
+                } catch (NumberFormatException ex) {
+                        throw new RecommenderException("THE PROGRESS FILE " + fileName + " IS CORRUPTED", ex);
+                } catch (IOException ex) {
+                        throw new RecommenderException(ex);
+                }
+        }
+
+        /**
+         * Checks whether a chunk has been completed.
+         * @param chunk
+         * @return 
+         */
+        public synchronized boolean isCompleted(int chunk) {
+                return completedChunks.get(chunk);
+        }
+
+        /**
+         * Returns the number of completed chunks.
+         * @return 
+         */
+        public synchronized int getNumberOfCompletedChunks() {
+                return completedChunks.cardinality();
+        }
+
+        /**
+         * Records that a chunk has been completed. An exception is thrown if
+         * the progress has been closed.
+         * @param chunk
+         * @throws RecommenderException 
+         */
+        public synchronized void markCompleted(int chunk) throws RecommenderException {
+                if (writer == null) {
+                        throw new RecommenderException("THE PROGRESS FILE " + fileName + " IS CLOSED");
+                }
+                completedChunks.set(chunk);
+                try {
+                        writer.write(chunk + "\n");
+                        writer.flush();
+                } catch (IOException ex) {
+                        throw new RecommenderException(ex);
+                }
+        }
+
+        /**
+         * Closes the file.
+         * @throws RecommenderException 
+         */
+        public synchronized void close() throws RecommenderException {
+                if (writer == null) {
+                        return;
+                }
+                try {
+                        writer.close();
+                } catch (IOException ex) {
+                        throw new RecommenderException(ex);
+                } finally {
+                        writer = null;
+                }
+        }
+
+        public String getFileName() {
+                return fileName;
+        }
+}
@@ -0,0 +1,378 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import org.eclipse.rdf4j.recommender.config.CfRecConfig;
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.repository.SailRecommenderRepository;
+import org.eclipse.rdf4j.recommender.storage.IndexBasedStorage;
+import org.eclipse.rdf4j.recommender.util.RecommendationScratch;
+import org.eclipse.rdf4j.recommender.util.UserPartitionExecutor;
+
+/**
+ * Computes the top-k recommendations of a set of users, or of all users, 
+ * and streams them to a RecommendationSink, so that the recommendations of
+ * all users are never held in memory.
+ * 
+ * The users are sorted and split into chunks of consecutive users, which
+ * are handed out to the threads of the job. When a thread has written all
+ * the users of a chunk, the sink is flushed and, if a progress file is
+ * set, the chunk is recorded as completed. A job which is run again with
+ * the same users, chunk size and progress file skips the completed chunks,
+ * so it can be resumed after a failure. The users of a chunk which was not
+ * completed may have been written to the sink before the failure and are
+ * written again.
+ * 
+ * Users are processed in parallel only if the recommender is index-based
+ * (see SailRecommenderRepository.isIndexBased()), otherwise on a single 
+ * thread. Users which are unknown or have no profile are skipped, any 
+ * other exception of the recommender stops the job. The recommender must
+ * not be modified while the job runs.
+ * 
+ * Usage:
+ *   BatchRecommendationJob job = new BatchRecommendationJob(recRepository, 10);
+ *   job.setProgressFile("recommendations.progress");
+ *   RecommendationSink sink = new OutputRecommendationSink(RecOutput.EXTERNAL_FILE,
+ *           "recommendations.tsv", true);
+ *   try {
+ *           BatchMetrics metrics = job.run(sink);
+ *   } finally {
+ *           sink.close();
+ *   }
+ */
+public class BatchRecommendationJob {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Default number of users of a chunk.
+         */
+        public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final SailRecommenderRepository repository;
+        private final int size;
+        private boolean includeConsumedItems = false;//DEFAULT
+        //null for all users.
+        private Set<String> userURIs = null;
+        private int parallelism;
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private String progressFileName = null;
+        private final BatchMetrics metrics = new BatchMetrics();
+
+        /*-------------*
+	 * Constructor *
+	 *-------------*/
+
+        /**
+         * Creates a job which computes the top-k recommendations of all users
+         * of the repository, with k = size. The parallelism is the one of the
+         * loaded configuration.
+         * @param repository
+         * @param size 
+         */
+        public BatchRecommendationJob(SailRecommenderRepository repository, int size) {
+                this.repository = repository;
+                this.size = size;
+                if (repository.getCurrentLoadedConfig() instanceof CfRecConfig) {
+                        parallelism = ((CfRecConfig)repository.getCurrentLoadedConfig()).getParallelism();
+                } else {
+                        parallelism = Runtime.getRuntime().availableProcessors();
+                }
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Sets the URIs of the users of the batch, null for all users (only
+         * supported by index-based recommenders).
+         * @param userURIs 
+         */
+        public void setUsers(Set<String> userURIs) {
+                this.userURIs = userURIs;
+        }
+
+        /**
+         * If true, resources which the users have already consumed are 
+         * candidates for recommendations.
+         * @param includeConsumedItems 
+         */
+        public void setIncludeConsumedItems(boolean includeConsumedItems) {
+                this.includeConsumedItems = includeConsumedItems;
+        }
+
+        public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+        }
+
+        public int getParallelism() {
+                return parallelism;
+        }
+
+        /**
+         * Sets the number of users of a chunk. Larger chunks flush the sink 
+         * and write the progress less often, but more users are written
+         * again when a job is resumed.
+         * @param chunkSize 
+         */
+        public void setChunkSize(int chunkSize) {
+                this.chunkSize = chunkSize;
+        }
+
+        public int getChunkSize() {
+                return chunkSize;
+        }
+
+        /**
+         * Sets the file where the completed chunks are recorded, null (the
+         * default) to not record them. Delete the file to start the batch
+         * from scratch.
+         * @param progressFileName 
+         */
+        public void setProgressFile(String progressFileName) {
+                this.progressFileName = progressFileName;
+        }
+
+        /**
+         * Returns the metrics of the current or last run.
+         * @return 
+         */
+        public BatchMetrics getMetrics() {
+                return metrics;
+        }
+
+        /**
+         * Computes the recommendations of the users of the batch, skipping 
+         * the completed chunks of the progress file, and writes them to the
+         * sink. It returns when all of them have been written.
+         * @param sink
+         * @return
+         * @throws RecommenderException 
+         */
+        public BatchMetrics run(final RecommendationSink sink) throws RecommenderException {
+                if (sink == null) {
+                        throw new RecommenderException("THE SINK OF THE BATCH IS NULL");
+                }
+                if (size < 1) {
+                        throw new RecommenderException("THE NUMBER OF RECOMMENDATIONS MUST BE GREATER THAN 0");
+                }
+                if (chunkSize < 1) {
+                        throw new RecommenderException("THE CHUNK SIZE MUST BE GREATER THAN 0");
+                }
+                final boolean isIndexBased = repository.isIndexBased();
+                if (!isIndexBased && userURIs == null) {
+                        throw new RecommenderException("THE USERS OF THE BATCH ARE REQUIRED IF THE "
+                                + "RECOMMENDER IS NOT INDEX-BASED");
+                }
+                
+                //Sorted users, so that the chunks are the same when resuming.
+                int numberOfUnknownUsers = 0;
+                final int[] userIndexes;
+                final String[] sortedURIs;
+                if (isIndexBased && userURIs == null) {
+                        userIndexes = repository.getUserIndexes();
+                        sortedURIs = null;
+                } else if (isIndexBased) {
+                        int[] indexes = new int[userURIs.size()];
+                        int numberOfUsers = 0;
+                        for (String userURI: userURIs) {
+                                int index = repository.getIndexOf(userURI);
+                                if (index == -1) {
+                                        numberOfUnknownUsers++;
+                                } else {
+                                        indexes[numberOfUsers] = index;
+                                        numberOfUsers++;
+                                }
+                        }
+                        userIndexes = Arrays.copyOf(indexes, numberOfUsers);
+                        Arrays.sort(userIndexes);
+                        sortedURIs = null;
+                } else {
+                        userIndexes = null;
+                        sortedURIs = new TreeSet<String>(userURIs).toArray(new String[0]);
+                }
+                int numberOfUsers = isIndexBased ? userIndexes.length : sortedURIs.length;
+                int numberOfChunks = (int)(((long)numberOfUsers + chunkSize - 1) / chunkSize);
+                
+                final BatchProgress progress;
+                if (progressFileName != null) {
+                        //Fingerprint of the users in the order of the chunks.
+                        long fingerprint = 0;
+                        for (int position = 0; position < numberOfUsers; position++) {
+                                String userURI = isIndexBased ? repository.getURI(userIndexes[position]) : sortedURIs[position];
+                                fingerprint = 31 * fingerprint + userURI.hashCode();
+                        }
+                        progress = BatchProgress.open(progressFileName, numberOfUsers, chunkSize, fingerprint);
+                } else {
+                        progress = null;
+                }
+                
+                try {
+                        //Positions of the users of the chunks which are not completed.
+                        //Only the last chunk can be shorter, so the partitions of the 
+                        //executor are the chunks.
+                        int[] positions = new int[numberOfUsers];
+                        int numberOfPositions = 0;
+                        int resumedChunks = 0;
+                        for (int chunk = 0; chunk < numberOfChunks; chunk++) {
+                                if (progress != null && progress.isCompleted(chunk)) {
+                                        resumedChunks++;
+                                        continue;
+                                }
+                                int end = (int)Math.min((long)(chunk + 1) * chunkSize, numberOfUsers);
+                                for (int position = chunk * chunkSize; position < end; position++) {
+                                        positions[numberOfPositions] = position;
+                                        numberOfPositions++;
+                                }
+                        }
+                        positions = Arrays.copyOf(positions, numberOfPositions);
+                        
+                        metrics.start(numberOfUsers, numberOfChunks, resumedChunks);
+                        for (int i = 0; i < numberOfUnknownUsers; i++) {
+                                metrics.userSkipped();
+                        }
+                        UserPartitionExecutor executor = new UserPartitionExecutor(
+                                isIndexBased ? parallelism : 1, chunkSize, "Batch of recommendations");
+                        //Used to find the users without profile, null if the storage 
+                        //is not index-based.
+                        final IndexBasedStorage storage = repository.getRecommender().getDataManager()
+                                .getStorage() instanceof IndexBasedStorage 
+                                ? (IndexBasedStorage)repository.getRecommender().getDataManager().getStorage() 
+                                : null;
+                        executor.execute(positions, new UserPartitionExecutor.WorkerFactory() {
+                                @Override
+                                public UserPartitionExecutor.Worker createWorker() {
+                                        return new BatchWorker(sink, progress, storage, userIndexes, sortedURIs);
+                                }
+                        });
+                } finally {
+                        metrics.finish();
+                        if (progress != null) {
+                                progress.close();
+                        }
+                }
+                System.out.println("Batch of recommendations: " + metrics + ".");
+                return metrics;
+        }
+
+        /**
+         * Runs the job on a new thread and returns a sink to iterate over the
+         * recommendations while they are computed. At most one chunk of users
+         * is queued. If the iteration is not completed it has to be cancelled
+         * (see IteratorRecommendationSink.cancel()).
+         * @return 
+         */
+        public IteratorRecommendationSink iterator() {
+                final IteratorRecommendationSink sink = new IteratorRecommendationSink(chunkSize);
+                Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                                try {
+                                        BatchRecommendationJob.this.run(sink);
+                                        sink.close();
+                                } catch (RuntimeException ex) {
+                                        sink.fail(ex);
+                                }
+                        }
+                }, "Batch of recommendations");
+                thread.setDaemon(true);
+                thread.start();
+                return sink;
+        }
+
+        /**
+         * Computes the recommendations of the users of the chunks handed out 
+         * to one thread.
+         */
+        private class BatchWorker implements UserPartitionExecutor.PartitionWorker {
+                private final RecommendationSink sink;
+                private final BatchProgress progress;
+                private final IndexBasedStorage storage;
+                private final int[] userIndexes;
+                private final String[] sortedURIs;
+                //Buffers reused for all the users of the thread, null for the
+                //recommenders which are not index-based.
+                private final RecommendationScratch scratch;
+
+                private BatchWorker(RecommendationSink sink, BatchProgress progress, 
+                                IndexBasedStorage storage, int[] userIndexes, String[] sortedURIs) {
+                        this.sink = sink;
+                        this.progress = progress;
+                        this.storage = storage;
+                        this.userIndexes = userIndexes;
+                        this.sortedURIs = sortedURIs;
+                        this.scratch = userIndexes != null 
+                                ? new RecommendationScratch(storage.getResourceDictionary().size()) : null;
+                }
+
+                @Override
+                public void process(int position) {
+                        UserRecommendations recommendations;
+                        if (userIndexes != null) {
+                                int indexOfUser = userIndexes[position];
+                                if (!hasProfile(indexOfUser)) {
+                                        metrics.userSkipped();
+                                        return;
+                                }
+                                IndexedRatedRes[] topK = repository.getTopRecommendations(
+                                        indexOfUser, size, includeConsumedItems, scratch);
+                                int length = 0;
+                                while (length < topK.length && topK[length] != null) {
+                                        length++;
+                                }
+                                RatedResource[] ratedResources = new RatedResource[length];
+                                for (int i = 0; i < length; i++) {
+                                        ratedResources[i] = new RatedResource(
+                                                repository.getURI(topK[i].getResourceId()), topK[i].getRating());
+                                }
+                                recommendations = new UserRecommendations(repository.getURI(indexOfUser), ratedResources);
+                        } else {
+                                //Without an index-based storage unknown users cannot be found
+                                //before, the recommender fails for them.
+                                if (storage != null && !hasProfile(storage.getIndexOf(sortedURIs[position]))) {
+                                        metrics.userSkipped();
+                                        return;
+                                }
+                                RatedResource[] topK = repository.getTopRecommendations(
+                                        sortedURIs[position], size, includeConsumedItems);
+                                int length = 0;
+                                while (length < topK.length && topK[length] != null) {
+                                        length++;
+                                }
+                                recommendations = new UserRecommendations(sortedURIs[position], 
+                                        Arrays.copyOf(topK, length));
+                        }
+                        sink.write(recommendations);
+                        metrics.userProcessed(recommendations.getRecommendations().length);
+                }
+
+                //False if the user is unknown (-1) or has not rated any resource.
+                private boolean hasProfile(int indexOfUser) {
+                        return indexOfUser != -1 && storage.getUserProfiles().size(indexOfUser) >= 1;
+                }
+
+                @Override
+                public void partitionProcessed(int[] positions, int start, int end) {
+                        sink.flush();
+                        if (progress != null) {
+                                progress.markCompleted(positions[start] / chunkSize);
+                        }
+                        metrics.chunkCompleted();
+                }
+        }
+}
@@ -0,0 +1,64 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+
+/**
+ * Sink which hands the recommendations of every user to a callback. The
+ * callback is invoked by one thread at a time, so it does not need to be
+ * thread-safe, but it should return quickly since it holds up the threads
+ * of the job.
+ */
+public class CallbackRecommendationSink implements RecommendationSink {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Receives the recommendations of the users.
+         */
+        public interface Callback {
+
+                /**
+                 * Invoked once per user.
+                 * @param recommendations 
+                 */
+                public void recommendationsComputed(UserRecommendations recommendations);
+        }
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final Callback callback;
+
+        /*-------------*
+	 * Constructor *
+	 *-------------*/
+
+        public CallbackRecommendationSink(Callback callback) {
+                this.callback = callback;
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        @Override
+        public synchronized void write(UserRecommendations recommendations) throws RecommenderException {
+                callback.recommendationsComputed(recommendations);
+        }
+
+        @Override
+        public void flush() throws RecommenderException {
+        }
+
+        @Override
+        public void close() throws RecommenderException {
+        }
+}
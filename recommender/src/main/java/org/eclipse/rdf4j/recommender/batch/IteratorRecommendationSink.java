@@ -0,0 +1,149 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+
+/**
+ * Sink which lets another thread iterate over the recommendations while
+ * they are computed (see BatchRecommendationJob.iterator()). At most
+ * capacity users are queued, threads of the job which write to a full 
+ * queue wait until the iterator takes users out, so the memory does not
+ * depend on the number of users.
+ * The iteration ends when the sink is closed. If the job failed, next() 
+ * and hasNext() throw its exception. An iteration which is abandoned has
+ * to be cancelled, otherwise the job waits forever.
+ */
+public class IteratorRecommendationSink implements RecommendationSink, 
+                Iterator<UserRecommendations> {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        //Marks the end of the iteration in the queue.
+        private static final UserRecommendations END = new UserRecommendations(null, null);
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final BlockingQueue<UserRecommendations> queue;
+        private volatile boolean cancelled = false;
+        private volatile RuntimeException failure = null;
+        //Next element of the iteration, null if it has not been taken yet.
+        private UserRecommendations next = null;
+
+        /*-------------*
+	 * Constructor *
+	 *-------------*/
+
+        /**
+         * Creates a sink which queues at most capacity users.
+         * @param capacity 
+         */
+        public IteratorRecommendationSink(int capacity) {
+                this.queue = new ArrayBlockingQueue<UserRecommendations>(Math.max(1, capacity));
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        @Override
+        public void write(UserRecommendations recommendations) throws RecommenderException {
+                put(recommendations);
+        }
+
+        @Override
+        public void flush() throws RecommenderException {
+        }
+
+        /**
+         * Ends the iteration once the queued users have been taken.
+         * @throws RecommenderException 
+         */
+        @Override
+        public void close() throws RecommenderException {
+                put(END);
+        }
+
+        /**
+         * Ends the iteration with the exception of the job.
+         * @param ex 
+         */
+        public void fail(RuntimeException ex) {
+                failure = ex;
+                close();
+        }
+
+        /**
+         * Stops the iteration. The users which are queued are dropped and 
+         * the next write fails, which stops the job.
+         */
+        public void cancel() {
+                cancelled = true;
+                queue.clear();
+        }
+
+        @Override
+        public boolean hasNext() {
+                if (next == null) {
+                        if (cancelled) {
+                                return false;
+                        }
+                        try {
+                                next = queue.take();
+                        } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                                throw new RecommenderException("ITERATION OF RECOMMENDATIONS WAS INTERRUPTED", ex);
+                        }
+                }
+                if (next == END) {
+                        if (failure != null) {
+                                throw failure;
+                        }
+                        return false;
+                }
+                return true;
+        }
+
+        @Override
+        public UserRecommendations next() {
+                if (!hasNext()) {
+                        throw new NoSuchElementException();
+                }
+                UserRecommendations recommendations = next;
+                next = null;
+                return recommendations;
+        }
+
+        @Override
+        public void remove() {
+                throw new UnsupportedOperationException();
+        }
+
+        private void put(UserRecommendations recommendations) throws RecommenderException {
+                try {
+                        while (!cancelled) {
+                                if (queue.offer(recommendations, 100, TimeUnit.MILLISECONDS)) {
+                                        return;
+                                }
+                        }
+                } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new RecommenderException("BATCH OF RECOMMENDATIONS WAS INTERRUPTED", ex);
+                }
+                if (recommendations != END) {
+                        throw new RecommenderException("ITERATION OF RECOMMENDATIONS WAS CANCELLED");
+                }
+        }
+}
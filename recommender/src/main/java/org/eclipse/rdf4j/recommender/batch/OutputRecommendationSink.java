@@ -0,0 +1,132 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.parameter.RecOutput;
+
+/**
+ * Sink which writes the recommendations as text to an external file or to
+ * the console, as selected by a RecOutput. There is one line per 
+ * recommendation, with the user, the rank (starting at 1), the resource
+ * and the predicted rating separated by tabs. Lines are buffered and only
+ * the complete lines of a user are written, so that lines of different
+ * threads are never mixed.
+ */
+public class OutputRecommendationSink implements RecommendationSink {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Size of the buffer of the file in chars.
+         */
+        public static final int BUFFER_SIZE = 1 << 16;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final RecOutput output;
+        private final Writer writer;
+        private boolean closed = false;
+
+        /*-------------*
+	 * Constructor *
+	 *-------------*/
+
+        /**
+         * Creates a sink for the given output. The file name is required for
+         * EXTERNAL_FILE and ignored for CONSOLE. If append is true the
+         * recommendations are added at the end of an existing file, which is
+         * the way to resume a job.
+         * @param output
+         * @param fileName
+         * @param append
+         * @throws RecommenderException 
+         */
+        public OutputRecommendationSink(RecOutput output, String fileName, boolean append)
+                        throws RecommenderException {
+                if (output == null) {
+                        throw new RecommenderException("THE OUTPUT OF THE SINK IS NULL");
+                }
+                this.output = output;
+                if (output == RecOutput.CONSOLE) {
+                        this.writer = new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE);
+                        return;
+                }
+                if (fileName == null) {
+                        throw new RecommenderException("A FILE NAME IS REQUIRED FOR AN EXTERNAL FILE");
+                }
+                try {
+                        this.writer = new BufferedWriter(new OutputStreamWriter(
+                                new FileOutputStream(fileName, append), StandardCharsets.UTF_8), BUFFER_SIZE);
+                } catch (IOException ex) {
+                        throw new RecommenderException(ex);
+                }
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        @Override
+        public void write(UserRecommendations recommendations) throws RecommenderException {
+                RatedResource[] ratedResources = recommendations.getRecommendations();
+                StringBuilder lines = new StringBuilder(ratedResources.length * 64);
+                for (int i = 0; i < ratedResources.length; i++) {
+                        lines.append(recommendations.getUserURI()).append('\t')
+                                .append(i + 1).append('\t')
+                                .append(ratedResources[i].getResource()).append('\t')
+                                .append(ratedResources[i].getRating()).append('\n');
+                }
+                synchronized (this) {
+                        try {
+                                writer.write(lines.toString());
+                        } catch (IOException ex) {
+                                throw new RecommenderException(ex);
+                        }
+                }
+        }
+
+        @Override
+        public synchronized void flush() throws RecommenderException {
+                try {
+                        writer.flush();
+                } catch (IOException ex) {
+                        throw new RecommenderException(ex);
+                }
+        }
+
+        /**
+         * Flushes the buffer and closes the file. The console is not closed.
+         * @throws RecommenderException 
+         */
+        @Override
+        public synchronized void close() throws RecommenderException {
+                if (closed) {
+                        return;
+                }
+                closed = true;
+                try {
+                        if (output == RecOutput.CONSOLE) {
+                                writer.flush();
+                        } else {
+                                writer.close();
+                        }
+                } catch (IOException ex) {
+                        throw new RecommenderException(ex);
+                }
+        }
+}
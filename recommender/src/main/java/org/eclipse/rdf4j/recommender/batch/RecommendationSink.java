@@ -0,0 +1,39 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+
+/**
+ * Destination of the recommendations computed by a BatchRecommendationJob.
+ * The recommendations of a user are written as soon as they are computed,
+ * by the threads of the job, so implementations have to be thread-safe.
+ * Users are not written in any particular order.
+ * The job does not close the sink, whoever created it has to.
+ */
+public interface RecommendationSink {
+
+        /**
+         * Receives the recommendations of one user.
+         * @param recommendations
+         * @throws RecommenderException 
+         */
+        public void write(UserRecommendations recommendations) throws RecommenderException;
+
+        /**
+         * Makes everything written so far durable. It is invoked after every
+         * chunk of users, before the chunk is recorded as completed in the
+         * progress of the job.
+         * @throws RecommenderException 
+         */
+        public void flush() throws RecommenderException;
+
+        /**
+         * Releases the resources of the sink.
+         * @throws RecommenderException 
+         */
+        public void close() throws RecommenderException;
+}
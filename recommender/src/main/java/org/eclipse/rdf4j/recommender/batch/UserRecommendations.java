@@ -0,0 +1,47 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+
+/**
+ * Top-k recommendations of one user computed by a batch job.
+ */
+public class UserRecommendations {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final String userURI;
+        private final RatedResource[] recommendations;
+
+        /*-------------*
+	 * Constructor *
+	 *-------------*/
+
+        public UserRecommendations(String userURI, RatedResource[] recommendations) {
+                this.userURI = userURI;
+                this.recommendations = recommendations;
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        public String getUserURI() {
+                return userURI;
+        }
+
+        /**
+         * Returns the recommendations, best first. Unlike the arrays returned
+         * by getTopRecommendations(...) there are no null positions.
+         * @return 
+         */
+        public RatedResource[] getRecommendations() {
+                return recommendations;
+        }
+}
@@ -7,6 +7,7 @@ package org.eclipse.rdf4j.recommender.config;
 
 import org.eclipse.rdf4j.recommender.datamanager.DataManager;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.parameter.RecNeighborhoodStrategy;
 
 /**
  * This abstract class represents a configuration of a collaborative 
@@ -20,6 +21,11 @@ public abstract class CfRecConfig extends GenericRecConfig {
 	 *-------------------------*/
         
         private int neighborhoodSize = 20;//DEFAULT       
+        private RecNeighborhoodStrategy neighborhoodStrategy = RecNeighborhoodStrategy.MERGE;//DEFAULT
+        //Number of threads used to build the inverted lists.
+        private int parallelism = Runtime.getRuntime().availableProcessors();//DEFAULT
+        //Size in bytes of the cache of top-k lists, 0 disables it.
+        private long recommendationCacheSize = 0;//DEFAULT
         
         /*--------------*
 	 * Constructors *
@@ -32,6 +38,9 @@ public abstract class CfRecConfig extends GenericRecConfig {
         public CfRecConfig (CfRecConfig config) {
                 super(config);
                 neighborhoodSize = config.getNeighborhoodSize();
+                neighborhoodStrategy = config.getNeighborhoodStrategy();
+                parallelism = config.getParallelism();
+                recommendationCacheSize = config.getRecommendationCacheSize();
         }
         
         /*---------*
@@ -54,6 +63,58 @@ public abstract class CfRecConfig extends GenericRecConfig {
                 return this.neighborhoodSize;
         }
         
+        /**
+         * Sets how neighborhoods are computed with inverted lists.
+         * @param neighborhoodStrategy 
+         */
+        public void setNeighborhoodStrategy(RecNeighborhoodStrategy neighborhoodStrategy) {
+                this.neighborhoodStrategy = neighborhoodStrategy;
+        }
+        
+        /**
+         * Gets how neighborhoods are computed with inverted lists.
+         * @return 
+         */
+        public RecNeighborhoodStrategy getNeighborhoodStrategy() {
+                return this.neighborhoodStrategy;
+        }
+        
+        /**
+         * Sets the number of threads used to build, compact and sort the
+         * inverted lists and to compute the neighborhoods of all users. 1 
+         * runs everything on the calling thread.
+         * @param parallelism 
+         */
+        public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+        }
+        
+        /**
+         * Gets the number of threads used to build the inverted lists and
+         * the neighborhoods.
+         * @return 
+         */
+        public int getParallelism() {
+                return this.parallelism;
+        }
+        
+        /**
+         * Sets the size in bytes of the LRU cache of top-k recommendations of
+         * the repository. With 0 (default) top-k lists are always computed.
+         * @param recommendationCacheSize 
+         */
+        public void setRecommendationCacheSize(long recommendationCacheSize) {
+                this.recommendationCacheSize = recommendationCacheSize;
+        }
+        
+        /**
+         * Gets the size in bytes of the cache of top-k recommendations.
+         * @return 
+         */
+        public long getRecommendationCacheSize() {
+                return this.recommendationCacheSize;
+        }
+        
         @Override
         public DataManager validateConfiguration() throws RecommenderException{
                 super.validateConfiguration();
@@ -62,6 +123,12 @@ public abstract class CfRecConfig extends GenericRecConfig {
                         throw new RecommenderException("CONFIGURATION NOT VALID. NEIGHBORHOOD CANNOT BE NEGATIVE");
                 if (neighborhoodSize > 100)
                         throw new RecommenderException("CONFIGURATION NOT VALID. TOO MANY NEIGHBORHOODS");
+                if (neighborhoodStrategy == null)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. NEIGHBORHOOD STRATEGY IS NOT VALID");
+                if (parallelism < 1)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. PARALLELISM MUST BE POSITIVE");
+                if (recommendationCacheSize < 0)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. RECOMMENDATION CACHE SIZE CANNOT BE NEGATIVE");
                 return null;
         }
 }
@@ -8,6 +8,7 @@ package org.eclipse.rdf4j.recommender.config;
 import org.eclipse.rdf4j.recommender.datamanager.DataManager;
 import org.eclipse.rdf4j.recommender.datamanager.impl.IndexBasedDataManager;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.parameter.RecSimMetric;
 import org.eclipse.rdf4j.recommender.parameter.RecStorage;
 
 /**
@@ -23,6 +24,10 @@ public class SilVsmUcfRecConfig extends VsmCfRecConfig {
 	 *-------------------------*/
     
         private int numberOfTopRatings = 0; //DEFAULT
+        private double ratingQuantizationError = 0; //DEFAULT, exact ratings
+        private long topListsMemoryBudget = -1; //DEFAULT, no planning
+        private int topListsMinSupport = 2; //DEFAULT
+        private long scaledListsCacheSize = 0; //DEFAULT, lists scaled on the fly
         
         /*--------------*
 	 * Constructors *
@@ -35,6 +40,10 @@ public class SilVsmUcfRecConfig extends VsmCfRecConfig {
         public SilVsmUcfRecConfig (SilVsmUcfRecConfig config) {
                 super(config);
                 numberOfTopRatings = config.getNumberOfTopRatings();
+                ratingQuantizationError = config.getRatingQuantizationError();
+                topListsMemoryBudget = config.getTopListsMemoryBudget();
+                topListsMinSupport = config.getTopListsMinSupport();
+                scaledListsCacheSize = config.getScaledListsCacheSize();
         }
         
         /*---------*
@@ -57,6 +66,85 @@ public class SilVsmUcfRecConfig extends VsmCfRecConfig {
                 this.numberOfTopRatings = numberOfTopRatings;
         }
         
+        /**
+         * Gets the maximum absolute error of a rating stored in the scaled
+         * lists. A product with scale s has an error of at most s times 
+         * this value.
+         * @return
+         */
+        public double getRatingQuantizationError() {
+                return ratingQuantizationError;
+        }
+
+        /**
+         * Sets the maximum absolute error of a rating stored in the scaled
+         * lists. With 0 (default) ratings are stored exactly; ratings are 
+         * only quantized if there are more than 65536 distinct values.
+         * @param ratingQuantizationError
+         */
+        public void setRatingQuantizationError(double ratingQuantizationError) {
+                this.ratingQuantizationError = ratingQuantizationError;
+        }
+        
+        /**
+         * Gets the memory budget (in bytes) of the merged lists of top 
+         * ratings. A negative value means that every set of top ratings of
+         * a user is merged.
+         * @return
+         */
+        public long getTopListsMemoryBudget() {
+                return topListsMemoryBudget;
+        }
+        
+        /**
+         * Sets the memory budget (in bytes) of the merged lists of top 
+         * ratings. With a budget, the sets of top ratings to merge are 
+         * chosen by their expected saving of merge work (see 
+         * TopListPlanner); with a negative value (default) every set of top
+         * ratings of a user is merged.
+         * @param topListsMemoryBudget
+         */
+        public void setTopListsMemoryBudget(long topListsMemoryBudget) {
+                this.topListsMemoryBudget = topListsMemoryBudget;
+        }
+        
+        /**
+         * Gets the minimum number of users who have to share a set of top
+         * ratings to merge their lists.
+         * @return
+         */
+        public int getTopListsMinSupport() {
+                return topListsMinSupport;
+        }
+        
+        /**
+         * Sets the minimum number of users who have to share a set of top
+         * ratings to merge their lists. Only used with a memory budget.
+         * @param topListsMinSupport
+         */
+        public void setTopListsMinSupport(int topListsMinSupport) {
+                this.topListsMinSupport = topListsMinSupport;
+        }
+        
+        /**
+         * Gets the size in bytes of the LRU cache of materialized scaled 
+         * lists.
+         * @return
+         */
+        public long getScaledListsCacheSize() {
+                return scaledListsCacheSize;
+        }
+        
+        /**
+         * Sets the size in bytes of the LRU cache of materialized scaled 
+         * lists. The lists of hot items are kept scaled while the others are
+         * scaled on the fly. With 0 (default) all lists are scaled on the fly.
+         * @param scaledListsCacheSize
+         */
+        public void setScaledListsCacheSize(long scaledListsCacheSize) {
+                this.scaledListsCacheSize = scaledListsCacheSize;
+        }
+        
         @Override
         public DataManager validateConfiguration() throws RecommenderException{
                 super.validateConfiguration();
@@ -70,6 +158,19 @@ public class SilVsmUcfRecConfig extends VsmCfRecConfig {
                       
                 if (numberOfTopRatings < 0)
                         throw new RecommenderException("CONFIGURATION NOT VALID. NUMBER OF TOP RATINGS CANNOT BE NEGATIVE");
+                
+                //Precomputed top lists only keep sums of products.
+                if (getSimMetric() == RecSimMetric.PEARSON_CORRELATION && numberOfTopRatings > 0)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. PEARSON CORRELATION DOES NOT SUPPORT TOP RATINGS");
+                
+                if (topListsMinSupport < 1)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. MINIMUM SUPPORT OF TOP LISTS HAS TO BE POSITIVE");
+                
+                if (scaledListsCacheSize < 0)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. SIZE OF THE CACHE OF SCALED LISTS CANNOT BE NEGATIVE");
+                
+                if (ratingQuantizationError < 0)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. RATING QUANTIZATION ERROR CANNOT BE NEGATIVE");
                 return new IndexBasedDataManager(this);
         }
 }
@@ -8,7 +8,9 @@ package org.eclipse.rdf4j.recommender.config;
 import org.eclipse.rdf4j.recommender.datamanager.DataManager;
 import org.eclipse.rdf4j.recommender.datamanager.impl.IndexBasedDataManager;
 import org.eclipse.rdf4j.recommender.datamanager.impl.SparkDataManager;
+import org.eclipse.rdf4j.recommender.datamanager.model.SimHashIndex;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.parameter.RecEntity;
 import org.eclipse.rdf4j.recommender.parameter.RecParadigm;
 import org.eclipse.rdf4j.recommender.parameter.RecSimMetric;
 import org.eclipse.rdf4j.recommender.parameter.RecStorage;
@@ -24,6 +26,10 @@ public class VsmCfRecConfig extends CfRecConfig {
 	 *-------------------------*/   
     
         private RecSimMetric simMetric = null;
+        private String invertedIndexFile = null; //DEFAULT, temporary file
+        private int lshNumberOfBands = 16; //DEFAULT
+        private int lshRowsPerBand = 8; //DEFAULT
+        private int lshRecallSampleSize = 100; //DEFAULT
         
         /*--------------*
 	 * Constructors *
@@ -36,6 +42,10 @@ public class VsmCfRecConfig extends CfRecConfig {
         public VsmCfRecConfig (VsmCfRecConfig config) {
                 super(config);
                 simMetric = config.getSimMetric();
+                invertedIndexFile = config.getInvertedIndexFile();
+                lshNumberOfBands = config.getLshNumberOfBands();
+                lshRowsPerBand = config.getLshRowsPerBand();
+                lshRecallSampleSize = config.getLshRecallSampleSize();
         }
         
         /*---------*
@@ -57,6 +67,81 @@ public class VsmCfRecConfig extends CfRecConfig {
         public RecSimMetric getSimMetric() {
                 return this.simMetric;
         }              
+        
+        /**
+         * Gets the path of the file in which the inverted lists are stored
+         * when MAPPED_INVERTED_LISTS is the storage.
+         * @return 
+         */
+        public String getInvertedIndexFile() {
+                return invertedIndexFile;
+        }
+
+        /**
+         * Sets the path of the file in which the inverted lists are stored
+         * when MAPPED_INVERTED_LISTS is the storage. With null (default) a
+         * temporary file is used.
+         * @param invertedIndexFile 
+         */
+        public void setInvertedIndexFile(String invertedIndexFile) {
+                this.invertedIndexFile = invertedIndexFile;
+        }
+
+        /**
+         * Gets the number of bands of the signatures when LSH_SIGNATURES is
+         * the storage.
+         * @return 
+         */
+        public int getLshNumberOfBands() {
+                return lshNumberOfBands;
+        }
+
+        /**
+         * Sets the number of bands of the signatures when LSH_SIGNATURES is
+         * the storage. More bands give more candidates, i.e. a higher recall
+         * and a slower computation of the neighborhoods.
+         * @param lshNumberOfBands 
+         */
+        public void setLshNumberOfBands(int lshNumberOfBands) {
+                this.lshNumberOfBands = lshNumberOfBands;
+        }
+
+        /**
+         * Gets the number of bits of each band when LSH_SIGNATURES is the
+         * storage.
+         * @return 
+         */
+        public int getLshRowsPerBand() {
+                return lshRowsPerBand;
+        }
+
+        /**
+         * Sets the number of bits of each band (at most 32) when
+         * LSH_SIGNATURES is the storage. More bits give smaller buckets,
+         * i.e. fewer candidates.
+         * @param lshRowsPerBand 
+         */
+        public void setLshRowsPerBand(int lshRowsPerBand) {
+                this.lshRowsPerBand = lshRowsPerBand;
+        }
+
+        /**
+         * Gets the number of users whose neighborhoods are compared with the
+         * exact ones to report the recall of LSH_SIGNATURES.
+         * @return 
+         */
+        public int getLshRecallSampleSize() {
+                return lshRecallSampleSize;
+        }
+
+        /**
+         * Sets the number of users whose neighborhoods are compared with the
+         * exact ones to report the recall of LSH_SIGNATURES, 0 to skip it.
+         * @param lshRecallSampleSize 
+         */
+        public void setLshRecallSampleSize(int lshRecallSampleSize) {
+                this.lshRecallSampleSize = lshRecallSampleSize;
+        }
 
         
         @Override
@@ -70,6 +155,10 @@ public class VsmCfRecConfig extends CfRecConfig {
                 
                 if (getRecStorage() != RecStorage.INVERTED_LISTS 
                         && getRecStorage() != RecStorage.SCALED_INVERTED_LISTS
+                        && getRecStorage() != RecStorage.COMPRESSED_INVERTED_LISTS
+                        && getRecStorage() != RecStorage.MAPPED_INVERTED_LISTS
+                        && getRecStorage() != RecStorage.BITMAP_INVERTED_LISTS
+                        && getRecStorage() != RecStorage.LSH_SIGNATURES
                         && getRecStorage() != RecStorage.SPARK) {
                         throw new RecommenderException("THIS CONFIGURATION DOES NOT SUPPORT CHOSEN RECOMMENDATION'S STORAGE");
                 }
@@ -80,6 +169,28 @@ public class VsmCfRecConfig extends CfRecConfig {
                 if (simMetric == null)
                         throw new RecommenderException("CONFIGURATION NOT VALID. SIM FUNCTION IS NOT VALID");
                 
+                //Bitmaps keep no ratings, cosine is computed over likes.
+                if (getRecStorage() == RecStorage.BITMAP_INVERTED_LISTS
+                        && (getRecEntity(RecEntity.RATING) != null || simMetric != RecSimMetric.COSINE))
+                        throw new RecommenderException("CONFIGURATION NOT VALID. BITMAP INVERTED LISTS REQUIRE LIKES AND COSINE");
+                
+                //Pearson needs the original ratings of both users in the merge.
+                if (simMetric == RecSimMetric.PEARSON_CORRELATION
+                        && getRecStorage() != RecStorage.INVERTED_LISTS
+                        && getRecStorage() != RecStorage.SCALED_INVERTED_LISTS)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. PEARSON CORRELATION REQUIRES INVERTED LISTS OR SCALED INVERTED LISTS");
+                
+                if (simMetric == RecSimMetric.PEARSON_CORRELATION && getRecEntity(RecEntity.RATING) == null)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. PEARSON CORRELATION REQUIRES RATINGS");
+                
+                //Random hyperplanes approximate the angle between users.
+                if (getRecStorage() == RecStorage.LSH_SIGNATURES && simMetric != RecSimMetric.COSINE)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. LSH SIGNATURES REQUIRE COSINE");
+                
+                if (lshNumberOfBands < 1 || lshRowsPerBand < 1 
+                        || lshRowsPerBand > SimHashIndex.MAX_ROWS_PER_BAND || lshRecallSampleSize < 0)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. LSH PARAMETERS ARE NOT VALID");
+                
                 if( getRecStorage() == RecStorage.SPARK ) {
                     return new SparkDataManager(this);
                 }
@@ -0,0 +1,84 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.config;
+
+import org.eclipse.rdf4j.recommender.datamanager.DataManager;
+import org.eclipse.rdf4j.recommender.datamanager.impl.IndexBasedDataManager;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.parameter.RecParadigm;
+import org.eclipse.rdf4j.recommender.parameter.RecSimMetric;
+import org.eclipse.rdf4j.recommender.parameter.RecStorage;
+
+/**
+ * This class represents a configuration of an item-based collaborative
+ * recommender based on the VSM. The neighborhoods are the most similar 
+ * items of every item, computed from the inverted lists (the users who 
+ * rated an item). Predictions aggregate the ratings of the user on the
+ * neighbors of the item.
+ */
+public class VsmIcfRecConfig extends CfRecConfig {
+                
+        /*-------------------------*
+	 * Configuration variables *
+	 *-------------------------*/   
+    
+        private RecSimMetric simMetric = null;
+        
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+        
+        public VsmIcfRecConfig (String configName) {
+            super(configName);
+        }
+        
+        public VsmIcfRecConfig (VsmIcfRecConfig config) {
+                super(config);
+                simMetric = config.getSimMetric();
+        }
+        
+        /*---------*
+	 * Methods *
+	 *---------*/                
+        
+        /**
+         * Sets a similarity metric to be used between items.
+         * @param simMetric
+         */
+        public void setSimMetric(RecSimMetric simMetric) {
+                this.simMetric = simMetric;
+        }
+        
+        /**
+         * Gets the selected similarity function between items.
+         * @return 
+         */
+        public RecSimMetric getSimMetric() {
+                return this.simMetric;
+        }              
+        
+        @Override
+        public DataManager validateConfiguration() throws RecommenderException{
+                super.validateConfiguration();     
+                
+                //Supported paradigms
+                if (getRecParadigm() != RecParadigm.ITEM_COLLABORATIVE_FILTERING) {
+                        throw new RecommenderException("THIS CONFIGURATION DOES NOT SUPPORT CHOSEN RECOMMENDATION'S APPROACH");
+                }
+                
+                if (getRecStorage() != RecStorage.INVERTED_LISTS) {
+                        throw new RecommenderException("THIS CONFIGURATION DOES NOT SUPPORT CHOSEN RECOMMENDATION'S STORAGE");
+                }
+                
+                if (hasToPreprocess() == false) 
+                        throw new RecommenderException("THIS APPROACH REQUIRES PREPROCESSING");
+                        
+                if (simMetric != RecSimMetric.COSINE)
+                        throw new RecommenderException("CONFIGURATION NOT VALID. SIM FUNCTION IS NOT VALID");
+                
+                return new IndexBasedDataManager(this);
+        }
+}
@@ -6,8 +6,8 @@
 package org.eclipse.rdf4j.recommender.datamanager;
 
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.MalformedQueryException;
@@ -17,8 +17,11 @@ import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.recommender.config.RecConfig;
 import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserStatistics;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
 import org.eclipse.rdf4j.recommender.parameter.RecEntity;
+import org.eclipse.rdf4j.recommender.parameter.RecRatingsNormalization;
 import org.eclipse.rdf4j.recommender.storage.IndexBasedStorage;
 import org.eclipse.rdf4j.recommender.storage.Storage;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
@@ -250,76 +253,46 @@ public abstract class AbstractIndexBasedDataManager implements DataManager{
         @Override
         public void normalizeRatings() {
                 //Normalization:
-                //We need to normalize the ratings according to the strategy selected:
-                Set<Integer> keySet = null;
-                Iterator<Integer> keySetIt = null;
+                //We need to normalize the ratings according to the strategy selected.
+                //Ratings are replaced in place in the profiles of the users.
+                //The means and deviations are those of the statistics of the 
+                //users, which are computed again on the normalized ratings.
+                UserProfileMatrix userProfiles = storage.getUserProfiles();
+                storage.computeUserStatistics();
+                UserStatistics userStatistics = storage.getUserStatistics();
 
                 switch(config.getRecRatingNormStrategy()) {
                         case MEAN_CENTERING:                                    
-                                //we need to iterate over UserRatedItemsMap
-                                keySet = storage.getAllUserIndexes();
-                                keySetIt = keySet.iterator();
-                                while (keySetIt.hasNext()){
-                                        Integer currentUserId = keySetIt.next();
-                                        Double ratingSum = 0.0;
-                                        Integer numberOfRatings = 0;
-                                        Double userRatingAverage = 0.0;
-                                        IndexedRatedRes newRes = null;
-                                        Set<IndexedRatedRes> resSet = storage.getIndexedRatedResOfUser(currentUserId);
-                                        Set<IndexedRatedRes> normResSet =  new HashSet<IndexedRatedRes>(resSet.size());
+                                for (int currentUserId: userProfiles.getUserIds()) {
+                                        int start = userProfiles.getStart(currentUserId);
+                                        int end = userProfiles.getEnd(currentUserId);
+                                        double[] ratings = userProfiles.getRatings();
+                                        double userRatingAverage = userStatistics.getMean(currentUserId);
 
-                                        for (IndexedRatedRes currentRes : resSet){
-                                                ratingSum = ratingSum + currentRes.getRating();
-                                                numberOfRatings++;
+                                        for (int i = start; i < end; i++){
+                                                //ratings[i] = RoundingUtility.round((ratings[i] - userRatingAverage), config.getDecimalPlaces());
+                                                ratings[i] = ratings[i] - userRatingAverage;
                                         }
-                                        userRatingAverage = ratingSum / numberOfRatings;
-                                        for (IndexedRatedRes currentRes : resSet){
-                                                //newRes = new IndexedRatedRes(currentRes.getResourceId(), 
-                                                //        RoundingUtility.round((currentRes.getRating() - userRatingAverage), config.getDecimalPlaces()));
-                                                newRes = new IndexedRatedRes(currentRes.getResourceId(), 
-                                                        (currentRes.getRating() - userRatingAverage));
-                                                normResSet.add(newRes);
-                                        }
-                                        //finally we replace the list with the normalized list
-                                        storage.storeRatedResources(currentUserId, normResSet);
                                 }
                         break;
                         case Z_SCORE:
-                                //we need to iterate over UserRatedItemsMap
-                                keySet = storage.getAllUserIndexes();
-                                keySetIt = keySet.iterator();
-                                while (keySetIt.hasNext()){
-                                        Integer currentUserId = keySetIt.next();
-                                        Double ratingSum = 0.0;
-                                        Double sumOfSquares = 0.0;
-                                        Integer numberOfRatings = 0;
-                                        Double userRatingAverage = 0.0;                                                       
-                                        Double standardDeviation = 0.0;
-                                        IndexedRatedRes newRes = null;
-                                        Set<IndexedRatedRes> resSet = storage.getIndexedRatedResOfUser(currentUserId);
-                                        Set<IndexedRatedRes> normResSet =  new HashSet<IndexedRatedRes>(resSet.size());
+                                for (int currentUserId: userProfiles.getUserIds()) {
+                                        int start = userProfiles.getStart(currentUserId);
+                                        int end = userProfiles.getEnd(currentUserId);
+                                        double[] ratings = userProfiles.getRatings();
+                                        double userRatingAverage = userStatistics.getMean(currentUserId);
+                                        double standardDeviation = userStatistics.getStandardDeviation(currentUserId);
 
-                                        for (IndexedRatedRes currentRes : resSet){
-                                                ratingSum = ratingSum + currentRes.getRating();
-                                                numberOfRatings++;
-                                        }
-                                        userRatingAverage = ratingSum / numberOfRatings;                                                        
-                                        for (IndexedRatedRes currentRes : resSet){
-                                                sumOfSquares = sumOfSquares + Math.pow(currentRes.getRating() - userRatingAverage, 2);
-                                        }
-                                        standardDeviation = Math.sqrt(sumOfSquares / numberOfRatings);                                                       
-                                        for (IndexedRatedRes currentRes : resSet){
-                                                //newRes = new IndexedRatedRes(currentRes.getResourceId(), 
-                                                //        RoundingUtility.round(((currentRes.getRating() - userRatingAverage) / standardDeviation), config.getDecimalPlaces()));
-                                                newRes = new IndexedRatedRes(currentRes.getResourceId(), 
-                                                        ((currentRes.getRating() - userRatingAverage) / standardDeviation));
-                                                normResSet.add(newRes);
+                                        for (int i = start; i < end; i++){
+                                                //ratings[i] = RoundingUtility.round(((ratings[i] - userRatingAverage) / standardDeviation), config.getDecimalPlaces());
+                                                ratings[i] = (ratings[i] - userRatingAverage) / standardDeviation;
                                         }
-                                        //finally we replace the list with the normalized list
-                                        storage.storeRatedResources(currentUserId, normResSet);
                                 }
                         break;
                 }
+                if (config.getRecRatingNormStrategy() != RecRatingsNormalization.NONE) {
+                        storage.computeUserStatistics();
+                }
         }
         
         
@@ -344,7 +317,8 @@ public abstract class AbstractIndexBasedDataManager implements DataManager{
         }
         
                 
-        //TODO Computing average should be also pushed to the preprocessing phase
+        //The average is computed with the other statistics of the user, when
+        //the ratings are normalized or after the profile has changed.
         @Override
         public double getRatingAverageOfUser(String userURI) throws RecommenderException{
                 int indexOfUser = storage.getIndexOf(userURI);
@@ -353,16 +327,7 @@ public abstract class AbstractIndexBasedDataManager implements DataManager{
                         throw new RecommenderException("User resource was not found");
                 }
                 
-                int numberOfRatedRes = 0;
-                double ratingSum = 0.0;
-                Set<IndexedRatedRes> ratResources = storage.getIndexedRatedResOfUser(indexOfUser);
-                
-                for (IndexedRatedRes rr: ratResources) {
-                        ratingSum = ratingSum + rr.getRating();
-                        numberOfRatedRes++;
-                }
-                if (numberOfRatedRes == 0) return 0;
-                return ratingSum / (double)numberOfRatedRes;
+                return storage.getRatingAverageOfUser(indexOfUser);
         }
         
         @Override
@@ -376,19 +341,40 @@ public abstract class AbstractIndexBasedDataManager implements DataManager{
                         throw new RecommenderException("User resource was not found");
                 }                                 
                 
-                Set<IndexedRatedRes> indexedConsumedRes 
-                        = getStorage().getIndexedRatedResOfUser(indexOfUser);
-                
-                if (indexedConsumedRes == null || indexedConsumedRes.size() < 1){
-                        throw new RecommenderException("User has not explicit ratings");                        
-                }  
-                
-                for (IndexedRatedRes irr: indexedConsumedRes) {
-                        consumedResources.add(getStorage().getURI(irr.getResourceId()));
+                for (int indexOfRes: getConsumedResources(indexOfUser)) {
+                        consumedResources.add(getStorage().getURI(indexOfRes));
                 }
                 return consumedResources;
         }                                
         
+        /**
+         * Same as getConsumedResources(String) for the index of a user. The
+         * indexes of the resources are in ascending order, without 
+         * repetitions.
+         * @param indexOfUser
+         * @return
+         * @throws RecommenderException 
+         */
+        public int[] getConsumedResources(int indexOfUser) throws RecommenderException {
+                UserProfileMatrix userProfiles = getStorage().getUserProfiles();
+                if (userProfiles.size(indexOfUser) < 1){
+                        throw new RecommenderException("User has not explicit ratings");                        
+                }
+                int start = userProfiles.getStart(indexOfUser);
+                int end = userProfiles.getEnd(indexOfUser);
+                int[] itemIds = userProfiles.getItemIds();
+                //Profiles are sorted by item, an item may have several ratings.
+                int[] consumedResources = new int[end - start];
+                int numberOfResources = 0;
+                for (int i = start; i < end; i++) {
+                        if (numberOfResources == 0 || consumedResources[numberOfResources - 1] != itemIds[i]) {
+                                consumedResources[numberOfResources] = itemIds[i];
+                                numberOfResources++;
+                        }
+                }
+                return Arrays.copyOf(consumedResources, numberOfResources);
+        }
+        
         @Override
         public RecConfig getRecConfig(){
                 return config;
@@ -5,12 +5,15 @@
  */
 package org.eclipse.rdf4j.recommender.datamanager.impl;
 
+import org.eclipse.rdf4j.recommender.datamanager.model.BitmapPostingList;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
 import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
-import com.google.common.collect.MinMaxPriorityQueue;
-import org.eclipse.rdf4j.recommender.util.IndexedRatedResRatingComparator;
-import java.util.Arrays;
-import java.util.Comparator;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.ScaledListCache;
+import org.eclipse.rdf4j.recommender.datamanager.model.SimHashIndex;
+import org.eclipse.rdf4j.recommender.datamanager.model.UriDictionary;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+import java.io.File;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -29,29 +32,31 @@ import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
 import org.eclipse.rdf4j.recommender.storage.index.invlist.InvListBasedStorage;
 import org.eclipse.rdf4j.recommender.parameter.RecEntity;
+import org.eclipse.rdf4j.recommender.parameter.RecNeighborhoodStrategy;
 import org.eclipse.rdf4j.recommender.parameter.RecParadigm;
 import org.eclipse.rdf4j.recommender.parameter.RecSimMetric;
 import org.eclipse.rdf4j.recommender.parameter.RecStorage;
 import org.eclipse.rdf4j.recommender.storage.index.CfIndexBasedStorage;
 import org.eclipse.rdf4j.recommender.storage.index.invlist.ScaledInvListBasedStorage;
+import org.eclipse.rdf4j.recommender.storage.index.invlist.impl.CfBitmapInvListBasedStorage;
+import org.eclipse.rdf4j.recommender.storage.index.invlist.impl.CfCompressedInvListBasedStorage;
 import org.eclipse.rdf4j.recommender.storage.index.invlist.impl.CfInvListBasedStorage;
+import org.eclipse.rdf4j.recommender.storage.index.invlist.impl.CfItemInvListBasedStorage;
+import org.eclipse.rdf4j.recommender.storage.index.invlist.impl.CfLshInvListBasedStorage;
+import org.eclipse.rdf4j.recommender.storage.index.invlist.impl.CfMappedInvListBasedStorage;
 import org.eclipse.rdf4j.recommender.storage.index.invlist.impl.CfScaledInvListBasedStorage;
+import org.eclipse.rdf4j.recommender.util.BlockedAllPairsSearcher;
+import org.eclipse.rdf4j.recommender.util.CandidateMarker;
 import org.eclipse.rdf4j.recommender.util.ListOperations;
+import org.eclipse.rdf4j.recommender.util.MaxScoreSearcher;
+import org.eclipse.rdf4j.recommender.util.ScoreAccumulator;
+import org.eclipse.rdf4j.recommender.util.TopKHeap;
+import org.eclipse.rdf4j.recommender.util.TopListPlanner;
+import org.eclipse.rdf4j.recommender.util.UserPartitionExecutor;
 import org.eclipse.rdf4j.repository.RepositoryException;
 
 
 public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
-        /*--------*
-	 * Fields *
-	 *--------*/
-    
-        /**
-         * To compare Indexed rated resources only based on the 
-         * "rating" without taking into account the rated item.
-         */ 
-        private final Comparator<IndexedRatedRes> comparatorOfIrrBasedOnRating = new IndexedRatedResRatingComparator();
-
-
         /*-------------*
 	 * Constructor *
 	 *-------------*/
@@ -76,8 +81,23 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
                                         case SCALED_INVERTED_LISTS:
                                                 setStorage(new CfScaledInvListBasedStorage());
                                         break;
+                                        case COMPRESSED_INVERTED_LISTS:
+                                                setStorage(new CfCompressedInvListBasedStorage());
+                                        break;
+                                        case MAPPED_INVERTED_LISTS:
+                                                setStorage(new CfMappedInvListBasedStorage());
+                                        break;
+                                        case BITMAP_INVERTED_LISTS:
+                                                setStorage(new CfBitmapInvListBasedStorage());
+                                        break;
+                                        case LSH_SIGNATURES:
+                                                setStorage(new CfLshInvListBasedStorage());
+                                        break;
                                 }
                         break;
+                        case ITEM_COLLABORATIVE_FILTERING:
+                                setStorage(new CfItemInvListBasedStorage());
+                        break;
                 }                            
         }
         
@@ -119,7 +139,11 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
                 
                 
                 if (getRecConfig().getRecStorage() == RecStorage.INVERTED_LISTS ||
-                        getRecConfig().getRecStorage() == RecStorage.SCALED_INVERTED_LISTS) {
+                        getRecConfig().getRecStorage() == RecStorage.SCALED_INVERTED_LISTS ||
+                        getRecConfig().getRecStorage() == RecStorage.COMPRESSED_INVERTED_LISTS ||
+                        getRecConfig().getRecStorage() == RecStorage.MAPPED_INVERTED_LISTS ||
+                        getRecConfig().getRecStorage() == RecStorage.BITMAP_INVERTED_LISTS ||
+                        getRecConfig().getRecStorage() == RecStorage.LSH_SIGNATURES) {
                         //builds the inverted index from the stored and preprocessed data
                         //this applies to both kinds of storage, inv lists and scaled
                         //inverted lists.
@@ -142,6 +166,16 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
                                 + " secs).");
                         System.out.println("OPTIMIZATION OF INV LISTS... COMPLETED");                    
                 }                
+                
+                //All resources have been indexed (including the new resources
+                //of the top lists), the dictionary is only read from now on.
+                UriDictionary resourceDictionary = getStorage().getResourceDictionary();
+                resourceDictionary.freeze();
+                System.out.println("Size of the URI dictionary: "
+                        + resourceDictionary.getSizeInBytes() + " bytes (ca. " 
+                        + resourceDictionary.getSizeInBytes() / (1024 * 1024) + " MB), "
+                        + resourceDictionary.size() + " URIs in "
+                        + resourceDictionary.getNumberOfNamespaces() + " namespaces.");
         }                
 
         @Override
@@ -162,6 +196,16 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
                                 + (connectionTime) + "ms (ca. " + (connectionTime) / 1000 
                                 + " secs).");
                         System.out.println("COMPUTATION OF NEIGHBORHOODS... COMPLETED");                               
+                }
+                if (getRecConfig().getRecParadigm()== RecParadigm.ITEM_COLLABORATIVE_FILTERING) {
+                        start = System.currentTimeMillis();
+                        buildItemNeighborhood();
+                        end = System.currentTimeMillis();
+                        connectionTime = end - start;
+                        System.out.println("Time to compute the item neighborhoods: "
+                                + (connectionTime) + "ms (ca. " + (connectionTime) / 1000 
+                                + " secs).");
+                        System.out.println("COMPUTATION OF ITEM NEIGHBORHOODS... COMPLETED");
                 }                   
         }
         
@@ -183,6 +227,16 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
                                 + " secs).");
                         System.out.println("COMPUTATION OF NEIGHBORHOODS... COMPLETED");                               
                 }
+                if (getRecConfig().getRecParadigm()== RecParadigm.ITEM_COLLABORATIVE_FILTERING) {
+                        start = System.currentTimeMillis();
+                        buildItemNeighborhood();
+                        end = System.currentTimeMillis();
+                        connectionTime = end - start;
+                        System.out.println("Time to compute the item neighborhoods: "
+                                + (connectionTime) + "ms (ca. " + (connectionTime) / 1000 
+                                + " secs).");
+                        System.out.println("COMPUTATION OF ITEM NEIGHBORHOODS... COMPLETED");
+                }
         }
         
         @Override
@@ -254,32 +308,25 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
         //TODO does this applies to content-based too?
         protected void computeL2Norm() {
                 VsmCfRecConfig vsmConfig = (VsmCfRecConfig)getRecConfig();
-                Set<Integer> keySet = null;
-                Iterator<Integer> keySetIt = null;
+                UserProfileMatrix userProfiles = getStorage().getUserProfiles();
                 
                 switch(vsmConfig.getSimMetric()) {
                         case COSINE:
-                                //we need to iterate over UserRatedItemsMap and divide each of the ratings
-                                //by the l-2 norm of the vector
-                                keySet = getStorage().getAllUserIndexes();
-                                keySetIt = keySet.iterator();
-                                
-                                while (keySetIt.hasNext()){
-                                        Integer currentUserId = keySetIt.next();
-                                        Double ratingSquareSum = 0.0;
-                                        Double l2Norm = 0.0;
-                                        IndexedRatedRes newRes = null;
-                                        Set<IndexedRatedRes> resSet = getStorage().getIndexedRatedResOfUser(currentUserId);
-
-                                        for (IndexedRatedRes currentRes : resSet){
-                                                ratingSquareSum = ratingSquareSum + Math.pow(currentRes.getRating(), 2);
+                                //The l-2 norm of each vector is kept with the other
+                                //statistics of the user. They were computed when the
+                                //ratings were normalized, unless profiles changed since.
+                                for (int currentUserId: userProfiles.getUserIds()){
+                                        if (getStorage().getUserStatistics().isStale(currentUserId)) {
+                                                getStorage().computeUserStatistics();
+                                                break;
                                         }
-                                        l2Norm = Math.sqrt(ratingSquareSum);
-                                        //finally we replace the list with the normalized list
-                                        getStorage().storeL2NormOfUser(currentUserId, l2Norm);
-                                }                                
+                                }
+                        break;
+                        case PEARSON_CORRELATION:
+                                //Nothing to precompute: the means and deviations
+                                //depend on the co-rated items, so the sums are
+                                //gathered while merging the lists.
                         break;
-                        //TODO cased PEARSON CORRELATION                        //TODO cased PEARSON CORRELATION                        //TODO cased PEARSON CORRELATION                        //TODO cased PEARSON CORRELATION
                 }     
         }
         
@@ -313,7 +360,8 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
                                         storage.storeRatedResources(currentUserId, normResSet);
                                 }                                
                         break;
-                        //TODO cased PEARSON CORRELATION
+                        //PEARSON CORRELATION is computed over the co-rated items
+                        //during the merge, ratings are not normalized.
                 }              
         }
         */
@@ -323,18 +371,11 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
          */
         protected void buildInvertedLists() {
                 InvListBasedStorage invStorage = (InvListBasedStorage)getStorage();
-                Set<Integer> keySet = null;
-                Iterator<Integer> keySetIt = null;
-                
-                //we need to iterate over UserRatedItemsMap
-                keySet = getStorage().getAllUserIndexes();
-                keySetIt = keySet.iterator();
-
-                //for each user.
-                while (keySetIt.hasNext()){
-                        Integer currentUserId = keySetIt.next();                        
-                        invStorage.createInvertedListForUser(currentUserId);
+                if (getRecConfig() instanceof CfRecConfig) {
+                        invStorage.setParallelism(((CfRecConfig)getRecConfig()).getParallelism());
                 }
+                //All lists are built at once from the user profiles.
+                invStorage.buildInvertedLists();
         }
         
         /**
@@ -344,7 +385,61 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
                 compactAndSortInvertedLists();
                 if (getRecConfig().getRecStorage() == RecStorage.SCALED_INVERTED_LISTS) {
                         ScaledInvListBasedStorage silStorage = (ScaledInvListBasedStorage)getStorage();
+                        if (getRecConfig() instanceof SilVsmUcfRecConfig) {
+                                SilVsmUcfRecConfig silConfig = (SilVsmUcfRecConfig)getRecConfig();
+                                silStorage.setTopListsBudget(silConfig.getTopListsMemoryBudget(),
+                                        silConfig.getTopListsMinSupport());
+                        }
+                        long start = System.currentTimeMillis();
                         silStorage.precomputeInvListsPartialDotProducts();
+                        long connectionTime = System.currentTimeMillis() - start;
+                        TopListPlanner.Plan plan = silStorage.getTopListPlan();
+                        if (plan != null) {
+                                System.out.println("Time to plan and merge the top lists: "
+                                        + (connectionTime) + "ms (ca. " + (connectionTime) / 1000 
+                                        + " secs).");
+                                System.out.println("Merged top lists: " + plan.getSets().length 
+                                        + " of " + plan.getNumberOfFrequentSets() + " frequent sets of top lists ("
+                                        + plan.getSizeInBytes() + " bytes estimated).");
+                                System.out.println("Expected postings saved by the merged top lists: "
+                                        + plan.getSavedPostings() + " of " + plan.getTotalPostings() 
+                                        + " (ca. " + (plan.getTotalPostings() == 0 ? 0 
+                                        : 100 * plan.getSavedPostings() / plan.getTotalPostings()) + "%).");
+                        }
+                        System.out.println("Size of the scaled inverted lists: "
+                                + silStorage.getSizeInBytes() + " bytes (ca. " 
+                                + silStorage.getSizeInBytes() / (1024 * 1024) + " MB).");
+                }
+                if (getRecConfig().getRecStorage() == RecStorage.COMPRESSED_INVERTED_LISTS) {
+                        CfCompressedInvListBasedStorage cilStorage = (CfCompressedInvListBasedStorage)getStorage();
+                        System.out.println("Size of the compressed inverted lists: "
+                                + cilStorage.getSizeInBytes() + " bytes (ca. " 
+                                + cilStorage.getSizeInBytes() / (1024 * 1024) + " MB).");
+                }
+                if (getRecConfig().getRecStorage() == RecStorage.BITMAP_INVERTED_LISTS) {
+                        CfBitmapInvListBasedStorage bilStorage = (CfBitmapInvListBasedStorage)getStorage();
+                        System.out.println("Size of the bitmap inverted lists: "
+                                + bilStorage.getSizeInBytes() + " bytes (ca. " 
+                                + bilStorage.getSizeInBytes() / (1024 * 1024) + " MB).");
+                }
+                if (getRecConfig().getRecStorage() == RecStorage.MAPPED_INVERTED_LISTS) {
+                        CfMappedInvListBasedStorage milStorage = (CfMappedInvListBasedStorage)getStorage();
+                        System.out.println("Size of the inverted index file: "
+                                + milStorage.getSizeInBytes() + " bytes (ca. " 
+                                + milStorage.getSizeInBytes() / (1024 * 1024) + " MB).");
+                }
+                if (getRecConfig().getRecStorage() == RecStorage.LSH_SIGNATURES) {
+                        CfLshInvListBasedStorage lshStorage = (CfLshInvListBasedStorage)getStorage();
+                        VsmCfRecConfig vsmConfig = (VsmCfRecConfig)getRecConfig();
+                        long start = System.currentTimeMillis();
+                        lshStorage.buildSimHashIndex(vsmConfig.getLshNumberOfBands(), vsmConfig.getLshRowsPerBand());
+                        long connectionTime = System.currentTimeMillis() - start;
+                        System.out.println("Time to build the LSH signatures and tables: "
+                                + (connectionTime) + "ms (ca. " + (connectionTime) / 1000 
+                                + " secs).");
+                        System.out.println("Size of the LSH signatures and tables: "
+                                + lshStorage.getSizeInBytes() + " bytes (ca. " 
+                                + lshStorage.getSizeInBytes() / (1024 * 1024) + " MB).");
                 }
         }
         
@@ -353,110 +448,405 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
          */
         protected void compactAndSortInvertedLists() {
                 InvListBasedStorage ilStorage = (InvListBasedStorage)getStorage();
+                if (getRecConfig() instanceof SilVsmUcfRecConfig) {
+                        ((ScaledInvListBasedStorage)ilStorage).setRatingQuantizationError(
+                                ((SilVsmUcfRecConfig)getRecConfig()).getRatingQuantizationError());
+                        ((ScaledInvListBasedStorage)ilStorage).setScaledListsCacheSize(
+                                ((SilVsmUcfRecConfig)getRecConfig()).getScaledListsCacheSize());
+                }
+                if (getRecConfig().getRecStorage() == RecStorage.MAPPED_INVERTED_LISTS
+                        && ((VsmCfRecConfig)getRecConfig()).getInvertedIndexFile() != null) {
+                        ((CfMappedInvListBasedStorage)ilStorage).setIndexFile(
+                                new File(((VsmCfRecConfig)getRecConfig()).getInvertedIndexFile()));
+                }
                 ilStorage.compactAndSortInvertedLists();
         }
         
         /** 
-         * K-nearest-algorithm to compute the neighborhood.
+         * K-nearest-algorithm to compute the neighborhood. Users are
+         * independent, so they are processed by CfRecConfig.getParallelism()
+         * threads, each one with its own heap, accumulator and counters.
          */
-        //TODO the code is not compact enough
         protected void buildUserNeiborhood() {
-                CfRecConfig cfConfig = (CfRecConfig)getRecConfig();
+                final CfRecConfig cfConfig = (CfRecConfig)getRecConfig();
                 
-                Set<Integer> usersIdSet = null;
-                Iterator<Integer> usersIdIt = null;
-                Integer currentUserId;
-                //User's rated resources
-                Set<IndexedRatedRes> userRatedResSet = null;
-                Iterator<IndexedRatedRes> userRatedResIt = null;
-                IndexedRatedRes currentRatRes = null;
-                InvertedList invList = null;
-                //Neighborhood
-                IndexedRatedRes neighbor = null;
-                MinMaxPriorityQueue<IndexedRatedRes> neighborhood = null;   
-                //To compute neighborhood
-                InvertedList[] invListsOfUser = null;
-                InvertedList[] invListsUser = null;
-                double[] userRatings = null;
-                IndexedRatedRes[] neighborhoodArray =  null; 
-                        
-                if (getRecConfig().getRecStorage() == RecStorage.INVERTED_LISTS) {
-                        CfInvListBasedStorage cfSilStorage = (CfInvListBasedStorage) getStorage();
-                        //Classic neighborhood computed with inverted indexes
-                        //I need to iterate over all users and over all rated items
-                        //of each user.
+                UserProfileMatrix userProfiles = getStorage().getUserProfiles();
+                //Merges pending ratings before the profiles are read by several threads.
+                userProfiles.compact();
+                final int[] userIds = userProfiles.getUserIds();
+                //Pearson is always computed with the merge.
+                final boolean isPearson = cfConfig instanceof VsmCfRecConfig
+                        && ((VsmCfRecConfig)cfConfig).getSimMetric() == RecSimMetric.PEARSON_CORRELATION;
+                
+                if (cfConfig.getNeighborhoodStrategy() == RecNeighborhoodStrategy.ALL_PAIRS && !isPearson
+                        && (cfConfig.getRecStorage() == RecStorage.INVERTED_LISTS
+                        || cfConfig.getRecStorage() == RecStorage.COMPRESSED_INVERTED_LISTS
+                        || cfConfig.getRecStorage() == RecStorage.MAPPED_INVERTED_LISTS)) {
+                        buildAllPairsNeighborhoods(userProfiles, cfConfig.getNeighborhoodSize());
+                        return;
+                }
+                
+                //Likes only: the dot product of two users is the number of
+                //items both liked and the l2-norm of a user is the square
+                //root of the number of likes.
+                double[] likesL2Norms = null;
+                if (cfConfig.getRecStorage() == RecStorage.BITMAP_INVERTED_LISTS) {
+                        int numberOfUserSlots = userIds.length == 0 ? 0 : userIds[userIds.length - 1] + 1;
+                        likesL2Norms = new double[numberOfUserSlots];
+                        for (int userId: userIds) {
+                                likesL2Norms[userId] = Math.sqrt(userProfiles.size(userId));
+                        }
+                }
+                final double[] sharedLikesL2Norms = likesL2Norms;
+                
+                //MaxScore bounds of the inverted lists, indexed by item id.
+                double[] itemBounds = null;
+                if (cfConfig.getNeighborhoodStrategy() == RecNeighborhoodStrategy.MAX_SCORE && !isPearson
+                        && getStorage() instanceof CfInvListBasedStorage
+                        && !(getStorage() instanceof CfBitmapInvListBasedStorage)) {
+                        itemBounds = computeItemBounds(userProfiles);
+                }
+                final double[] sharedItemBounds = itemBounds;
+                
+                UserPartitionExecutor executor = new UserPartitionExecutor(
+                        cfConfig.getParallelism(), "Computation of neighborhoods");
+                executor.execute(userIds, new UserPartitionExecutor.WorkerFactory() {
+                        @Override
+                        public UserPartitionExecutor.Worker createWorker() {
+                                return new NeighborhoodWorker(cfConfig, isPearson, sharedLikesL2Norms, sharedItemBounds);
+                        }
+                });
+                
+                if (getStorage() instanceof ScaledInvListBasedStorage
+                        && ((ScaledInvListBasedStorage)getStorage()).getScaledListCache() != null) {
+                        ScaledListCache cache = ((ScaledInvListBasedStorage)getStorage()).getScaledListCache();
+                        System.out.println("Cache of scaled lists: " + cache.getHits() + " hits, "
+                                + cache.getMisses() + " misses, " + cache.getEvictions() + " evictions, "
+                                + cache.getNumberOfLists() + " lists of " + cache.getSizeInBytes() 
+                                + " bytes (ca. " + cache.getSizeInBytes() / (1024 * 1024) + " MB).");
+                }
+                
+                if (cfConfig.getRecStorage() == RecStorage.LSH_SIGNATURES
+                        && ((VsmCfRecConfig)cfConfig).getLshRecallSampleSize() > 0) {
+                        long start = System.currentTimeMillis();
+                        int sampleSize = Math.min(userIds.length, ((VsmCfRecConfig)cfConfig).getLshRecallSampleSize());
+                        double recall = measureLshRecall(userIds, sampleSize);
+                        long connectionTime = System.currentTimeMillis() - start;
+                        System.out.println("Recall@" + cfConfig.getNeighborhoodSize() 
+                                + " of the LSH neighborhoods against the exact ones: " 
+                                + recall + " (" + sampleSize + " users sampled in "
+                                + (connectionTime) + "ms).");
+                }
+        }
+        
+        /**
+         * Computes the most similar items of every item from the item
+         * profiles (the transposed inverted lists). Each similarity is
+         * computed once for both items (see BlockedAllPairsSearcher).
+         */
+        protected void buildItemNeighborhood() {
+                CfItemInvListBasedStorage cfIlStorage = (CfItemInvListBasedStorage) getStorage();
+                cfIlStorage.buildItemProfiles();
+                UserProfileMatrix itemProfiles = cfIlStorage.getItemProfiles();
+                BlockedAllPairsSearcher searcher = new BlockedAllPairsSearcher();
+                TopKHeap[] neighborhoods = searcher.computeNeighborhoods(itemProfiles,
+                        cfIlStorage.getItemsL2Norms(), ((CfRecConfig)getRecConfig()).getNeighborhoodSize());
+                for (int itemId: itemProfiles.getUserIds()) {
+                        //Sorted and emptied.
+                        cfIlStorage.storeNeighborhood(itemId, neighborhoods[itemId].toSortedArray());
+                        neighborhoods[itemId] = null;
+                }
+        }
+        
+        /**
+         * Computes the neighborhoods of all users with a single blocked
+         * product of the rating matrix with its transpose and stores them.
+         * @param userProfiles
+         * @param neighborhoodSize 
+         */
+        private void buildAllPairsNeighborhoods(UserProfileMatrix userProfiles, int neighborhoodSize) {
+                CfInvListBasedStorage cfIlStorage = (CfInvListBasedStorage) getStorage();
+                BlockedAllPairsSearcher searcher = new BlockedAllPairsSearcher();
+                TopKHeap[] neighborhoods = searcher.computeNeighborhoods(userProfiles,
+                        getStorage().getUsersL2Norms(), neighborhoodSize);
+                for (int userId: userProfiles.getUserIds()) {
+                        //Sorted and emptied.
+                        cfIlStorage.storeNeighborhood(userId, neighborhoods[userId].toSortedArray());
+                        neighborhoods[userId] = null;
+                }
+                System.out.println("Number of pairs of users with common items: "
+                        + searcher.getNumberOfPairs() + ".");
+        }
+        
+        /**
+         * Compares the stored neighborhoods of sampleSize users, evenly
+         * spread over the user ids, with the exact ones computed by merging
+         * their inverted lists, and returns the average recall (the fraction
+         * of the exact neighbors which were found). Users without exact
+         * neighbors are not counted.
+         * @param userIds
+         * @param sampleSize
+         * @return 
+         */
+        protected double measureLshRecall(int[] userIds, int sampleSize) {
+                CfInvListBasedStorage cfIlStorage = (CfInvListBasedStorage) getStorage();
+                UserProfileMatrix userProfiles = getStorage().getUserProfiles();
+                double[] usersL2Norms = getStorage().getUsersL2Norms();
+                int[] itemIds = userProfiles.getItemIds();
+                double[] ratings = userProfiles.getRatings();
+                TopKHeap exactNeighborhood = new TopKHeap(((CfRecConfig)getRecConfig()).getNeighborhoodSize());
+                int[] exactIds = new int[exactNeighborhood.capacity()];
+                double[] exactScores = new double[exactNeighborhood.capacity()];
+                Set<Integer> foundIds = new HashSet<Integer>();
+                double recallSum = 0;
+                int numberOfMeasures = 0;
+                
+                for (int sample = 0; sample < sampleSize; sample++) {
+                        int userId = userIds[(int)((long)userIds.length * sample / sampleSize)];
+                        int start = userProfiles.getStart(userId);
+                        int numberOfLists = userProfiles.getEnd(userId) - start;
+                        PostingList[] invListsOfUser = new PostingList[numberOfLists];
+                        double[] userRatings = new double[numberOfLists];
+                        for (int i = 0; i < numberOfLists; i++) {
+                                invListsOfUser[i] = cfIlStorage.getInvertedListOfItem(itemIds[start + i]);
+                                userRatings[i] = ratings[start + i];
+                        }
+                        ListOperations.computeNeighborhood(userId, userRatings, usersL2Norms,
+                                invListsOfUser, exactNeighborhood);
+                        int numberOfNeighbors = exactNeighborhood.drainSorted(exactIds, exactScores);
+                        if (numberOfNeighbors == 0) {
+                                continue;
+                        }
+                        foundIds.clear();
+                        for (IndexedRatedRes neighbor: cfIlStorage.getNeighborhood(userId)) {
+                                foundIds.add(neighbor.getResourceId());
+                        }
+                        int numberOfFound = 0;
+                        for (int i = 0; i < numberOfNeighbors; i++) {
+                                if (foundIds.contains(exactIds[i])) {
+                                        numberOfFound++;
+                                }
+                        }
+                        recallSum = recallSum + (double)numberOfFound / numberOfNeighbors;
+                        numberOfMeasures++;
+                }
+                return numberOfMeasures == 0 ? 1.0 : recallSum / numberOfMeasures;
+        }
+        
+        /**
+         * Computes the MaxScore bound of the inverted list of every rated
+         * item (see MaxScoreSearcher.computeListBound).
+         * @param userProfiles
+         * @return 
+         */
+        private double[] computeItemBounds(UserProfileMatrix userProfiles) {
+                CfInvListBasedStorage cfIlStorage = (CfInvListBasedStorage) getStorage();
+                double[] usersL2Norms = getStorage().getUsersL2Norms();
+                int[] itemIds = userProfiles.getItemIds();
+                int maxItemId = -1;
+                for (int userId: userProfiles.getUserIds()) {
+                        for (int i = userProfiles.getStart(userId); i < userProfiles.getEnd(userId); i++) {
+                                maxItemId = Math.max(maxItemId, itemIds[i]);
+                        }
+                }
+                double[] itemBounds = new double[maxItemId + 1];
+                boolean[] isComputed = new boolean[maxItemId + 1];
+                for (int userId: userProfiles.getUserIds()) {
+                        for (int i = userProfiles.getStart(userId); i < userProfiles.getEnd(userId); i++) {
+                                if (!isComputed[itemIds[i]]) {
+                                        PostingList invList = cfIlStorage.getInvertedListOfItem(itemIds[i]);
+                                        itemBounds[itemIds[i]] = invList == null ? 0
+                                                : MaxScoreSearcher.computeListBound(invList, usersL2Norms);
+                                        isComputed[itemIds[i]] = true;
+                                }
+                        }
+                }
+                return itemBounds;
+        }
+        
+        /**
+         * Computes and stores the neighborhoods of the users handed out to one
+         * thread. The heap, the accumulator and the counters are reused for
+         * all of them.
+         */
+        private class NeighborhoodWorker implements UserPartitionExecutor.Worker {
+                private final RecStorage recStorage;
+                private final int neighborhoodSize;
+                private final UserProfileMatrix userProfiles;
+                private final double[] usersL2Norms;
+                //Pearson correlation over the co-rated items instead of cosine.
+                private final boolean isPearson;
+                //Neighborhood, the heap is reused for all users.
+                private final TopKHeap neighborhood;
+                //Only for the ACCUMULATOR strategy.
+                private final ScoreAccumulator accumulator;
+                //Only for bitmaps, counters of co-occurrences.
+                private final int[] counters;
+                private final double[] likesL2Norms;
+                //Only for the MAX_SCORE strategy.
+                private final MaxScoreSearcher maxScoreSearcher;
+                private final double[] itemBounds;
+                //Only for LSH, the candidates of a user and their marks.
+                private final SimHashIndex simHashIndex;
+                private final int[] candidates;
+                private final boolean[] isCandidate;
+                
+                private NeighborhoodWorker(CfRecConfig cfConfig, boolean isPearson, double[] likesL2Norms, double[] itemBounds) {
+                        this.recStorage = cfConfig.getRecStorage();
+                        this.neighborhoodSize = cfConfig.getNeighborhoodSize();
+                        this.userProfiles = getStorage().getUserProfiles();
+                        this.usersL2Norms = getStorage().getUsersL2Norms();
+                        this.isPearson = isPearson;
+                        this.neighborhood = new TopKHeap(neighborhoodSize);
+                        this.accumulator = cfConfig.getNeighborhoodStrategy() == RecNeighborhoodStrategy.ACCUMULATOR && !isPearson
+                                ? new ScoreAccumulator(usersL2Norms.length) : null;
+                        this.likesL2Norms = likesL2Norms;
+                        this.counters = likesL2Norms != null ? new int[likesL2Norms.length] : null;
+                        this.itemBounds = itemBounds;
+                        this.maxScoreSearcher = itemBounds != null ? new MaxScoreSearcher() : null;
+                        this.simHashIndex = getStorage() instanceof CfLshInvListBasedStorage
+                                ? ((CfLshInvListBasedStorage) getStorage()).getSimHashIndex() : null;
+                        this.candidates = simHashIndex != null ? new int[simHashIndex.getNumberOfUserSlots()] : null;
+                        this.isCandidate = simHashIndex != null ? new boolean[simHashIndex.getNumberOfUserSlots()] : null;
+                }
+                
+                @Override
+                public void process(int userId) {
+                        switch (recStorage) {
+                                case INVERTED_LISTS:
+                                case COMPRESSED_INVERTED_LISTS:
+                                case MAPPED_INVERTED_LISTS:
+                                        processWithInvertedLists(userId);
+                                break;
+                                case BITMAP_INVERTED_LISTS:
+                                        processWithBitmaps(userId);
+                                break;
+                                case SCALED_INVERTED_LISTS:
+                                        processWithScaledLists(userId);
+                                break;
+                                case LSH_SIGNATURES:
+                                        processWithLsh(userId);
+                                break;
+                        }
+                }
+                
+                //Classic neighborhood computed with inverted indexes
+                private void processWithInvertedLists(int userId) {
+                        CfInvListBasedStorage cfIlStorage = (CfInvListBasedStorage) getStorage();
+                        int[] itemIds = userProfiles.getItemIds();
+                        double[] ratings = userProfiles.getRatings();
+                        //I load the rated items.
+                        int start = userProfiles.getStart(userId);
+                        int numberOfLists = userProfiles.getEnd(userId) - start;
+                        PostingList[] invListsOfUser = new PostingList[numberOfLists];
+                        double[] userRatings = new double[numberOfLists];
+                        for (int i = 0; i < numberOfLists; i++) {
+                                invListsOfUser[i] = cfIlStorage.getInvertedListOfItem(itemIds[start + i]);
+                                userRatings[i] = ratings[start + i];
+                        }
                         
-                        //We start getting all users
-                        usersIdSet = getStorage().getAllUserIndexes();                
-                        usersIdIt = usersIdSet.iterator();
-
-                        //For each user...
-                        while (usersIdIt.hasNext()) {
-                                currentUserId = usersIdIt.next();
-                                //I load the set of rated items.
-                                userRatedResSet = getStorage().getIndexedRatedResOfUser(currentUserId);
-                                invListsOfUser = new InvertedList[userRatedResSet.size()];
-                                userRatings = new double[userRatedResSet.size()];
-                                userRatedResIt = userRatedResSet.iterator();
-
-                                int numberOfLists = 0;
-                                while (userRatedResIt.hasNext()) {
-                                        currentRatRes = userRatedResIt.next();
-                                        invList = cfSilStorage.getInvertedListOfItem(currentRatRes.getResourceId());
-                                        invListsOfUser[numberOfLists] = invList;
-                                        userRatings[numberOfLists] = currentRatRes.getRating();
-                                        numberOfLists++;
+                        if (isPearson) {
+                                ListOperations.computePearsonNeighborhood(
+                                        userId, userRatings,
+                                        invListsOfUser,
+                                        neighborhood);
+                        } else if (maxScoreSearcher != null) {
+                                double[] listBounds = new double[numberOfLists];
+                                for (int i = 0; i < numberOfLists; i++) {
+                                        listBounds[i] = itemBounds[itemIds[start + i]];
                                 }
-
-                                //long startForUser = System.currentTimeMillis();                        
-                                neighborhood =  ListOperations.computeNeighborhood(
-                                        currentUserId, userRatings,
-                                        getStorage().getUsersL2NormsMap(),
+                                maxScoreSearcher.computeNeighborhood(
+                                        userId, userRatings,
+                                        usersL2Norms,
                                         invListsOfUser,
-                                        cfConfig.getNeighborhoodSize(),
-                                        getRecConfig().getDecimalPlaces());
-                                //long endForUser = System.currentTimeMillis();
-
-                                neighborhoodArray = neighborhood.toArray(new IndexedRatedRes[neighborhood.size()]);
-                                Arrays.sort(neighborhoodArray, comparatorOfIrrBasedOnRating);
-                                cfSilStorage.storeNeighborhood(currentUserId, neighborhoodArray);                        
+                                        listBounds, neighborhood);
+                        } else if (accumulator != null) {
+                                ListOperations.computeAccumulatedNeighborhood(
+                                        userId, userRatings,
+                                        usersL2Norms,
+                                        invListsOfUser,
+                                        accumulator, neighborhood);
+                        } else {
+                                ListOperations.computeNeighborhood(
+                                        userId, userRatings,
+                                        usersL2Norms,
+                                        invListsOfUser,
+                                        neighborhood);
                         }
+                        //Sorted and emptied.
+                        cfIlStorage.storeNeighborhood(userId, neighborhood.toSortedArray());
+                }
+                
+                private void processWithBitmaps(int userId) {
+                        CfBitmapInvListBasedStorage cfBilStorage = (CfBitmapInvListBasedStorage) getStorage();
+                        int[] itemIds = userProfiles.getItemIds();
+                        int start = userProfiles.getStart(userId);
+                        int numberOfLists = userProfiles.getEnd(userId) - start;
+                        BitmapPostingList[] bitmapsOfUser = new BitmapPostingList[numberOfLists];
+                        for (int i = 0; i < numberOfLists; i++) {
+                                bitmapsOfUser[i] = cfBilStorage.getBitmapOfItem(itemIds[start + i]);
+                        }
+                        
+                        ListOperations.computeBitmapNeighborhood(
+                                userId, likesL2Norms, bitmapsOfUser, counters,
+                                neighborhood);
+                        cfBilStorage.storeNeighborhood(userId, neighborhood.toSortedArray());
                 }
                 
-                if (getRecConfig().getRecStorage() == RecStorage.SCALED_INVERTED_LISTS) {                    
+                private void processWithScaledLists(int userId) {
                         CfScaledInvListBasedStorage cfSilStorage = (CfScaledInvListBasedStorage) getStorage();
-                                                
-                        //Classic neighborhood computed with inverted indexes
-                        //I need to iterate over all users and over all rated items
-                        //of each user.
-                        int neighborhoodsize = cfConfig.getNeighborhoodSize();
-                        int decimalPlaces = getRecConfig().getDecimalPlaces();
-
-                        //We start getting all users
-                        usersIdSet = getStorage().getAllUserIndexes();                
-                        usersIdIt = usersIdSet.iterator();
                         
-                        //For each user...
-                        while (usersIdIt.hasNext()) {
-                                currentUserId = usersIdIt.next();  
-                                invListsUser = cfSilStorage.getInvertedListsOfUser(currentUserId);                                     
-
-                                //Efficient method
-                                //long startForUser = System.currentTimeMillis();
-                                neighborhood =  ListOperations.computeSilNeighborhood(
-                                        //currentUserId, userRatings, 
-                                        currentUserId, 
-                                        getStorage().getUsersL2NormsMap(),
+                        if (isPearson) {
+                                //The products of the scaled lists mix both ratings,
+                                //the sums need the lists of scale 1.
+                                int[] itemIds = userProfiles.getItemIds();
+                                double[] ratings = userProfiles.getRatings();
+                                int start = userProfiles.getStart(userId);
+                                int numberOfLists = userProfiles.getEnd(userId) - start;
+                                PostingList[] invListsOfUser = new PostingList[numberOfLists];
+                                double[] userRatings = new double[numberOfLists];
+                                for (int i = 0; i < numberOfLists; i++) {
+                                        invListsOfUser[i] = cfSilStorage.getUnscaledListOfItem(itemIds[start + i]);
+                                        userRatings[i] = ratings[start + i];
+                                }
+                                ListOperations.computePearsonNeighborhood(
+                                        userId, userRatings,
+                                        invListsOfUser,
+                                        neighborhood);
+                                cfSilStorage.storeNeighborhood(userId, neighborhood.toSortedArray(neighborhoodSize));
+                                return;
+                        }
+                        PostingList[] invListsUser = cfSilStorage.getPostingListsOfUser(userId);
+                        
+                        //Efficient method
+                        if (accumulator != null) {
+                                ListOperations.computeAccumulatedNeighborhood(
+                                        userId, null,
+                                        usersL2Norms,
                                         invListsUser,
-                                        neighborhoodsize,
-                                        decimalPlaces);
-                                //long endForUser = System.currentTimeMillis();
-
-                                neighborhoodArray = neighborhood.toArray(new IndexedRatedRes[neighborhoodsize]);
-                                Arrays.sort(neighborhoodArray, comparatorOfIrrBasedOnRating);
-                                cfSilStorage.storeNeighborhood(currentUserId, neighborhoodArray);
+                                        accumulator, neighborhood);
+                        } else {
+                                ListOperations.computeSilNeighborhood(
+                                        userId, 
+                                        usersL2Norms,
+                                        invListsUser,
+                                        neighborhood);
                         }
-                }                                
+                        //Padded with nulls up to neighborhoodsize.
+                        cfSilStorage.storeNeighborhood(userId, neighborhood.toSortedArray(neighborhoodSize));
+                }
+                
+                //Only the users sharing a band with the user are scored.
+                private void processWithLsh(int userId) {
+                        CfLshInvListBasedStorage cfLshStorage = (CfLshInvListBasedStorage) getStorage();
+                        int numberOfCandidates = simHashIndex.collectCandidates(userId, isCandidate, candidates);
+                        ListOperations.computeCandidateNeighborhood(
+                                userId, candidates, numberOfCandidates,
+                                userProfiles,
+                                usersL2Norms,
+                                neighborhood);
+                        cfLshStorage.storeNeighborhood(userId, neighborhood.toSortedArray());
+                }
         }
         
         @Override
@@ -485,7 +875,6 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
         @Override
         public Set<String> getRecCandidates(String userURI) throws RecommenderException {
                 Set<String> recCandidates = new HashSet<String>();
-                Set<IndexedRatedRes> neighborIndRatedRes;
                 
                 //Retrieve the index of user
                 int indexOfUser = getStorage().getIndexOf(userURI);
@@ -494,23 +883,75 @@ public final class IndexBasedDataManager extends AbstractIndexBasedDataManager{
                         throw new RecommenderException("User resource was not found");
                 }
                 
-                if (getRecConfig().getRecParadigm()== RecParadigm.USER_COLLABORATIVE_FILTERING) {
-                        CfInvListBasedStorage cfSilStorage = (CfInvListBasedStorage) getStorage();
-
-                        if (hasPreprocessed()) {
-                                //We have to collect the candidate set from the neighbors
-                                for (IndexedRatedRes neighbor: cfSilStorage.getNeighborhood(indexOfUser)) {
-                                        neighborIndRatedRes = cfSilStorage.getIndexedRatedResOfUser(neighbor.getResourceId());
+                for (int indexOfCandidate: getRecCandidates(indexOfUser)) {
+                        recCandidates.add(getStorage().getURI(indexOfCandidate));
+                }
+                return recCandidates;
+        }
+        
+        /**
+         * Same as getRecCandidates(String) for the index of a user. The 
+         * indexes of the candidates are in ascending order, without 
+         * repetitions.
+         * @param indexOfUser
+         * @return 
+         */
+        public int[] getRecCandidates(int indexOfUser) {
+                return getRecCandidates(indexOfUser, new CandidateMarker(getStorage().getResourceDictionary().size()));
+        }
+        
+        /**
+         * Same as getRecCandidates(int) with a marker of the calling thread,
+         * which is reset before returning, so that it can be reused for the
+         * next user.
+         * @param indexOfUser
+         * @param isCandidate
+         * @return 
+         */
+        public int[] getRecCandidates(int indexOfUser, CandidateMarker isCandidate) {
+                UserProfileMatrix userProfiles = getStorage().getUserProfiles();
+                int[] itemIds = userProfiles.getItemIds();
+                
+                try {
+                        if (getRecConfig().getRecParadigm()== RecParadigm.USER_COLLABORATIVE_FILTERING) {
+                                CfIndexBasedStorage cfStorage = (CfIndexBasedStorage) getStorage();
 
-                                        for (IndexedRatedRes candidate: neighborIndRatedRes) {
-                                                recCandidates.add(cfSilStorage.getURI(candidate.getResourceId()));
+                                if (hasPreprocessed()) {
+                                        //We have to collect the candidate set from the neighbors
+                                        IndexedRatedRes[] neighborhood = cfStorage.getNeighborhood(indexOfUser);
+                                        if (neighborhood != null) {
+                                                for (IndexedRatedRes neighbor: neighborhood) {
+                                                        if (neighbor == null) {
+                                                                continue;
+                                                        }
+                                                        int neighborId = neighbor.getResourceId();
+                                                        for (int i = userProfiles.getStart(neighborId); i < userProfiles.getEnd(neighborId); i++) {
+                                                                isCandidate.mark(itemIds[i]);
+                                                        }
+                                                }
                                         }
-                                } 
-                        } else {
-                                //TODO
+                                } else {
+                                        //TODO
+                                }
                         }
+                        if (getRecConfig().getRecParadigm()== RecParadigm.ITEM_COLLABORATIVE_FILTERING && hasPreprocessed()) {
+                                CfItemInvListBasedStorage cfIlStorage = (CfItemInvListBasedStorage) getStorage();
+                                //The neighbors of the items rated by the user
+                                for (int i = userProfiles.getStart(indexOfUser); i < userProfiles.getEnd(indexOfUser); i++) {
+                                        IndexedRatedRes[] neighborhood = cfIlStorage.getNeighborhood(itemIds[i]);
+                                        if (neighborhood != null) {
+                                                for (IndexedRatedRes neighbor: neighborhood) {
+                                                        if (neighbor != null) {
+                                                                isCandidate.mark(neighbor.getResourceId());
+                                                        }
+                                                }
+                                        }
+                                }
+                        }
+                        return isCandidate.toSortedArray();
+                } finally {
+                        isCandidate.reset();
                 }
-                return recCandidates;
         }                                     
 
         @Override
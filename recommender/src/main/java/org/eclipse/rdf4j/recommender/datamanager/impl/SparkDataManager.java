@@ -15,6 +15,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
@@ -25,7 +26,6 @@ import org.eclipse.rdf4j.recommender.config.RecConfig;
 import org.eclipse.rdf4j.recommender.config.VsmCfRecConfig;
 import org.eclipse.rdf4j.recommender.datamanager.DataManager;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
-import org.eclipse.rdf4j.recommender.datamanager.model.IndexedUserRating;
 import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
 import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
@@ -39,9 +39,10 @@ import org.eclipse.rdf4j.recommender.util.IndexedRatedResRatingComparator;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
-import com.google.common.collect.MinMaxPriorityQueue;
 import org.eclipse.rdf4j.recommender.config.CfRecConfig;
 import org.eclipse.rdf4j.recommender.util.ListOperations;
+import org.eclipse.rdf4j.recommender.util.TopKHeap;
+import org.eclipse.rdf4j.recommender.util.UserPartitionExecutor;
 import scala.Tuple2;
 
 // TODO SparkDataManager or SparkBasedDataManager ?
@@ -249,72 +250,67 @@ public class SparkDataManager implements DataManager {
 
     
     /** 
-     * K-nearest-algorithm to compute the neighborhood.
+     * K-nearest-algorithm to compute the neighborhood. The lists, profiles
+     * and norms are collected once to the driver, then the users are
+     * processed by CfRecConfig.getParallelism() threads and all the
+     * neighborhoods are stored at once.
      */
     protected void buildUserNeiborhood() {
         
-        CfRecConfig cfConfig = (CfRecConfig)getRecConfig();
-
-        Set<Integer> usersIdSet = null;
-        Iterator<Integer> usersIdIt = null;
-        Integer currentUserId;
-        //User's rated resources
-        Set<IndexedRatedRes> userRatedResSet = null;
-        Iterator<IndexedRatedRes> userRatedResIt = null;
-        IndexedRatedRes currentRatRes = null;
-        InvertedList invList = null;
-        //Neighborhood
-        IndexedRatedRes neighbor = null;
-        MinMaxPriorityQueue<IndexedRatedRes> neighborhood = null;   
-        //To compute neighborhood
-        InvertedList[] invListsOfUser = null;
-        InvertedList[] invListsUser = null;
-        double[] userRatings = null;
-        IndexedRatedRes[] neighborhoodArray =  null; 
-
-        CfSparkStorage cfSparkStorage = (CfSparkStorage) storage;
+        final CfRecConfig cfConfig = (CfRecConfig)getRecConfig();
+        final CfSparkStorage cfSparkStorage = (CfSparkStorage) storage;
         //Classic neighborhood computed with inverted indexes
         //I need to iterate over all users and over all rated items
         //of each user.
 
         //We start getting all users
-        usersIdSet = storage.getAllUserIndexes();                
-        usersIdIt = usersIdSet.iterator();
-        Map<Integer, Set<IndexedRatedRes>> existingTupleMap2 = storage.getUserRatedItemsMap();
-        Map<Integer, Double> usersL2NormsMap = storage.getUsersL2NormsMap();
-                
-        //For each user...
-        while (usersIdIt.hasNext()) {
-            currentUserId = usersIdIt.next();
-            //I load the set of rated items.
-            userRatedResSet = existingTupleMap2.get(currentUserId);
-            invListsOfUser = new InvertedList[userRatedResSet.size()];
-            userRatings = new double[userRatedResSet.size()];
-            userRatedResIt = userRatedResSet.iterator();
-
-            int numberOfLists = 0;
-            while (userRatedResIt.hasNext()) {
-                currentRatRes = userRatedResIt.next();
-                invList = cfSparkStorage.getInvertedListOfItem(currentRatRes.getResourceId());
-                invListsOfUser[numberOfLists] = invList;
-                userRatings[numberOfLists] = currentRatRes.getRating();
-                numberOfLists++;
-            }
-
-            //long startForUser = System.currentTimeMillis();                        
-            neighborhood =  ListOperations.computeNeighborhood(
-                currentUserId, userRatings,
-                usersL2NormsMap,
-                invListsOfUser,
-                cfConfig.getNeighborhoodSize(),
-                getRecConfig().getDecimalPlaces());
-            //long endForUser = System.currentTimeMillis();
-
-            neighborhoodArray = neighborhood.toArray(new IndexedRatedRes[neighborhood.size()]);
-            Arrays.sort(neighborhoodArray, comparatorOfIrrBasedOnRating);
-            cfSparkStorage.storeNeighborhood(currentUserId, neighborhoodArray);                       
+        Set<Integer> usersIdSet = storage.getAllUserIndexes();
+        int[] userIds = new int[usersIdSet.size()];
+        int numberOfUsers = 0;
+        for (Integer userId: usersIdSet) {
+            userIds[numberOfUsers++] = userId;
+        }
+        Arrays.sort(userIds);
+        final Map<Integer, Set<IndexedRatedRes>> existingTupleMap2 = storage.getUserRatedItemsMap();
+        final Map<Integer, InvertedList> invLists = cfSparkStorage.getResInvertedLists();
+        final double[] usersL2Norms = ListOperations.toNormsArray(storage.getUsersL2NormsMap());
+        final Map<Integer, IndexedRatedRes[]> neighborhoods 
+                = new ConcurrentHashMap<Integer, IndexedRatedRes[]>(userIds.length * 2);
         
-        }           
+        UserPartitionExecutor executor = new UserPartitionExecutor(
+                cfConfig.getParallelism(), "Computation of neighborhoods");
+        executor.execute(userIds, new UserPartitionExecutor.WorkerFactory() {
+            @Override
+            public UserPartitionExecutor.Worker createWorker() {
+                //Neighborhood, the heap is reused for all users of the thread.
+                final TopKHeap neighborhood = new TopKHeap(cfConfig.getNeighborhoodSize());
+                return new UserPartitionExecutor.Worker() {
+                    @Override
+                    public void process(int currentUserId) {
+                        //I load the set of rated items.
+                        Set<IndexedRatedRes> userRatedResSet = existingTupleMap2.get(currentUserId);
+                        InvertedList[] invListsOfUser = new InvertedList[userRatedResSet.size()];
+                        double[] userRatings = new double[userRatedResSet.size()];
+
+                        int numberOfLists = 0;
+                        for (IndexedRatedRes currentRatRes: userRatedResSet) {
+                            invListsOfUser[numberOfLists] = invLists.get(currentRatRes.getResourceId());
+                            userRatings[numberOfLists] = currentRatRes.getRating();
+                            numberOfLists++;
+                        }
+
+                        ListOperations.computeNeighborhood(
+                            currentUserId, userRatings,
+                            usersL2Norms,
+                            invListsOfUser,
+                            neighborhood);
+                        //Sorted and emptied.
+                        neighborhoods.put(currentUserId, neighborhood.toSortedArray());
+                    }
+                };
+            }
+        });
+        cfSparkStorage.storeNeighborhoods(neighborhoods);
     }
     
     
@@ -725,7 +721,7 @@ public class SparkDataManager implements DataManager {
                         resInvertedLists.put(ratRes.getResourceId(), userRatingArray);
                     }
                     
-                    userRatingArray.insert(new IndexedUserRating(currentUserId, ratRes.getRating()));
+                    userRatingArray.insert(currentUserId, ratRes.getRating());
             }
         }
         resInvertedLists.values().stream().forEach((ur) -> {
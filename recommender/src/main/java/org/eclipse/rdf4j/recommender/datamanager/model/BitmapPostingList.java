@@ -0,0 +1,443 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.Serializable;
+
+/**
+ * This class implements a read-only, compressed set of user ids for
+ * implicit feedback (likes), where all postings have the same rating.
+ * Ids are split by their 16 high bits into containers, as in Roaring
+ * bitmaps. A container with at most ARRAY_CONTAINER_MAX_SIZE ids keeps
+ * the 16 low bits of each id in a sorted array, a denser container keeps
+ * a bitmap of 2^16 bits.
+ */
+public class BitmapPostingList implements PostingList, Serializable {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final long serialVersionUID = 51L;
+
+        /**
+         * Largest number of ids of an array container, beyond it a bitmap
+         * (8 KB) is smaller.
+         */
+        public static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+        private static final int BITMAP_WORDS = 1024;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final int size;
+        //Rating returned by every posting.
+        private final double rating;
+        //High 16 bits of the ids of each container, sorted.
+        private final char[] keys;
+        //Per container, either the array or the bitmap is set.
+        private final char[][] arrays;
+        private final long[][] bitmaps;
+        private final int[] cardinalities;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        private BitmapPostingList(int size, double rating, char[] keys,
+                        char[][] arrays, long[][] bitmaps, int[] cardinalities) {
+                this.size = size;
+                this.rating = rating;
+                this.keys = keys;
+                this.arrays = arrays;
+                this.bitmaps = bitmaps;
+                this.cardinalities = cardinalities;
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Builds a bitmap from the user ids of a sorted inverted list. The
+         * ratings of the list are dropped, all postings get the given rating.
+         * @param list
+         * @param rating
+         * @return
+         */
+        public static BitmapPostingList fromList(InvertedList list, double rating) {
+                return fromSortedIds(list.getUserIds(), list.size(), rating);
+        }
+
+        /**
+         * Builds a bitmap from sorted non negative ids. Repeated ids are
+         * stored once.
+         * @param ids
+         * @param length
+         * @param rating
+         * @return
+         */
+        public static BitmapPostingList fromSortedIds(int[] ids, int length, double rating) {
+                //Counting containers
+                int numberOfContainers = 0;
+                int previousKey = -1;
+                for (int i = 0; i < length; i++) {
+                        if (ids[i] >>> 16 != previousKey) {
+                                previousKey = ids[i] >>> 16;
+                                numberOfContainers++;
+                        }
+                }
+                char[] keys = new char[numberOfContainers];
+                char[][] arrays = new char[numberOfContainers][];
+                long[][] bitmaps = new long[numberOfContainers][];
+                int[] cardinalities = new int[numberOfContainers];
+
+                int size = 0;
+                int start = 0;
+                for (int container = 0; container < numberOfContainers; container++) {
+                        int key = ids[start] >>> 16;
+                        int end = start;
+                        int cardinality = 0;
+                        int previousId = -1;
+                        while (end < length && ids[end] >>> 16 == key) {
+                                if (ids[end] != previousId) {
+                                        cardinality++;
+                                        previousId = ids[end];
+                                }
+                                end++;
+                        }
+                        keys[container] = (char)key;
+                        cardinalities[container] = cardinality;
+                        if (cardinality <= ARRAY_CONTAINER_MAX_SIZE) {
+                                char[] array = new char[cardinality];
+                                int position = 0;
+                                previousId = -1;
+                                for (int i = start; i < end; i++) {
+                                        if (ids[i] != previousId) {
+                                                array[position++] = (char)ids[i];
+                                                previousId = ids[i];
+                                        }
+                                }
+                                arrays[container] = array;
+                        } else {
+                                long[] bitmap = new long[BITMAP_WORDS];
+                                for (int i = start; i < end; i++) {
+                                        int low = ids[i] & 0xFFFF;
+                                        bitmap[low >>> 6] |= 1L << low;
+                                }
+                                bitmaps[container] = bitmap;
+                        }
+                        size = size + cardinality;
+                        start = end;
+                }
+                return new BitmapPostingList(size, rating, keys, arrays, bitmaps, cardinalities);
+        }
+
+        @Override
+        public int size() {
+                return size;
+        }
+
+        /**
+         * Returns the rating of all postings.
+         * @return
+         */
+        public double getRating() {
+                return rating;
+        }
+
+        /**
+         * Checks whether the id is in the bitmap.
+         * @param id
+         * @return
+         */
+        public boolean contains(int id) {
+                int container = indexOfKey(id >>> 16, 0);
+                if (container < 0) {
+                        return false;
+                }
+                int low = id & 0xFFFF;
+                if (arrays[container] != null) {
+                        return indexOfLow(arrays[container], 0, low) >= 0;
+                }
+                return (bitmaps[container][low >>> 6] & (1L << low)) != 0;
+        }
+
+        /**
+         * Returns the number of ids contained in both bitmaps.
+         * @param other
+         * @return
+         */
+        public int andCardinality(BitmapPostingList other) {
+                int cardinality = 0;
+                int i = 0;
+                int j = 0;
+                while (i < keys.length && j < other.keys.length) {
+                        if (keys[i] < other.keys[j]) {
+                                i++;
+                        } else if (keys[i] > other.keys[j]) {
+                                j++;
+                        } else {
+                                cardinality = cardinality + andCardinality(i, other, j);
+                                i++;
+                                j++;
+                        }
+                }
+                return cardinality;
+        }
+
+        /**
+         * Adds 1 to the counter of every id of the bitmap. Ids whose counter
+         * was 0 are appended to touched (which must have room for them) and
+         * the new number of touched ids is returned.
+         * @param counters
+         * @param touched
+         * @param numberOfTouched
+         * @return
+         */
+        public int addTo(int[] counters, int[] touched, int numberOfTouched) {
+                for (int container = 0; container < keys.length; container++) {
+                        int high = keys[container] << 16;
+                        if (arrays[container] != null) {
+                                char[] array = arrays[container];
+                                for (int i = 0; i < array.length; i++) {
+                                        int id = high | array[i];
+                                        if (counters[id]++ == 0) {
+                                                touched[numberOfTouched++] = id;
+                                        }
+                                }
+                        } else {
+                                long[] bitmap = bitmaps[container];
+                                for (int word = 0; word < BITMAP_WORDS; word++) {
+                                        long bits = bitmap[word];
+                                        while (bits != 0) {
+                                                int id = high | (word << 6) | Long.numberOfTrailingZeros(bits);
+                                                if (counters[id]++ == 0) {
+                                                        touched[numberOfTouched++] = id;
+                                                }
+                                                bits = bits & (bits - 1);
+                                        }
+                                }
+                        }
+                }
+                return numberOfTouched;
+        }
+
+        /**
+         * Returns the size of the containers in bytes (approximation which
+         * ignores object headers).
+         * @return
+         */
+        public long getSizeInBytes() {
+                long bytes = 2L * keys.length + 4L * cardinalities.length;
+                for (int container = 0; container < keys.length; container++) {
+                        bytes = bytes + (arrays[container] != null
+                                ? 2L * arrays[container].length : 8L * BITMAP_WORDS);
+                }
+                return bytes;
+        }
+
+        /**
+         * Copies the ids into an inverted list, all with the rating of the
+         * bitmap.
+         * @return
+         */
+        public InvertedList toInvertedList() {
+                int[] userIds = new int[size];
+                double[] ratings = new double[size];
+                PostingCursor cursor = cursor();
+                for (int i = 0; i < size; i++) {
+                        userIds[i] = cursor.userId();
+                        ratings[i] = rating;
+                        cursor.next();
+                }
+                return new InvertedList(userIds, ratings, size);
+        }
+
+        @Override
+        public PostingCursor cursor() {
+                return new Cursor();
+        }
+
+        private int andCardinality(int container, BitmapPostingList other, int otherContainer) {
+                char[] array = arrays[container];
+                char[] otherArray = other.arrays[otherContainer];
+                if (array != null && otherArray != null) {
+                        int cardinality = 0;
+                        int i = 0;
+                        int j = 0;
+                        while (i < array.length && j < otherArray.length) {
+                                if (array[i] < otherArray[j]) {
+                                        i++;
+                                } else if (array[i] > otherArray[j]) {
+                                        j++;
+                                } else {
+                                        cardinality++;
+                                        i++;
+                                        j++;
+                                }
+                        }
+                        return cardinality;
+                }
+                if (array == null && otherArray == null) {
+                        long[] bitmap = bitmaps[container];
+                        long[] otherBitmap = other.bitmaps[otherContainer];
+                        int cardinality = 0;
+                        for (int word = 0; word < BITMAP_WORDS; word++) {
+                                cardinality = cardinality + Long.bitCount(bitmap[word] & otherBitmap[word]);
+                        }
+                        return cardinality;
+                }
+                //Array against bitmap
+                char[] values = array != null ? array : otherArray;
+                long[] bitmap = array != null ? other.bitmaps[otherContainer] : bitmaps[container];
+                int cardinality = 0;
+                for (int i = 0; i < values.length; i++) {
+                        if ((bitmap[values[i] >>> 6] & (1L << values[i])) != 0) {
+                                cardinality++;
+                        }
+                }
+                return cardinality;
+        }
+
+        //Index of the container with the given key, searching from the given
+        //container. A negative value if there is none.
+        private int indexOfKey(int key, int from) {
+                int low = from;
+                int high = keys.length - 1;
+                while (low <= high) {
+                        int middle = (low + high) >>> 1;
+                        if (keys[middle] < key) {
+                                low = middle + 1;
+                        } else if (keys[middle] > key) {
+                                high = middle - 1;
+                        } else {
+                                return middle;
+                        }
+                }
+                return -(low + 1);
+        }
+
+        //Same as Arrays.binarySearch for a range starting at from.
+        private static int indexOfLow(char[] array, int from, int value) {
+                int low = from;
+                int high = array.length - 1;
+                while (low <= high) {
+                        int middle = (low + high) >>> 1;
+                        if (array[middle] < value) {
+                                low = middle + 1;
+                        } else if (array[middle] > value) {
+                                high = middle - 1;
+                        } else {
+                                return middle;
+                        }
+                }
+                return -(low + 1);
+        }
+
+        private final class Cursor implements PostingCursor {
+                private int container = 0;
+                //Position in the array container, or low bits in the bitmap.
+                private int position = -1;
+                private int current;
+
+                private Cursor() {
+                        advance();
+                }
+
+                @Override
+                public int userId() {
+                        return current;
+                }
+
+                @Override
+                public double rating() {
+                        return rating;
+                }
+
+                @Override
+                public void next() {
+                        advance();
+                }
+
+                @Override
+                public void skipTo(int userId) {
+                        if (current >= userId) {
+                                return;
+                        }
+                        int key = userId >>> 16;
+                        if (keys[container] != key) {
+                                int found = indexOfKey(key, container + 1);
+                                if (found < 0) {
+                                        //Next container starts above the target.
+                                        container = -found - 1;
+                                        position = -1;
+                                        if (container < keys.length) {
+                                                advance();
+                                        } else {
+                                                current = NO_MORE_USERS;
+                                        }
+                                        return;
+                                }
+                                container = found;
+                                position = -1;
+                        }
+                        int low = userId & 0xFFFF;
+                        if (arrays[container] != null) {
+                                int found = indexOfLow(arrays[container], Math.max(position, 0), low);
+                                //Positioned before the first value >= low.
+                                position = (found >= 0 ? found : -found - 1) - 1;
+                        } else {
+                                position = low - 1;
+                        }
+                        advance();
+                }
+
+                //Moves to the next id after position in the current container
+                //or in the following ones.
+                private void advance() {
+                        while (container < keys.length) {
+                                int high = keys[container] << 16;
+                                if (arrays[container] != null) {
+                                        position++;
+                                        if (position < arrays[container].length) {
+                                                current = high | arrays[container][position];
+                                                return;
+                                        }
+                                } else {
+                                        int low = nextSetBit(bitmaps[container], position + 1);
+                                        if (low >= 0) {
+                                                position = low;
+                                                current = high | low;
+                                                return;
+                                        }
+                                }
+                                container++;
+                                position = -1;
+                        }
+                        current = NO_MORE_USERS;
+                }
+
+                private int nextSetBit(long[] bitmap, int from) {
+                        int word = from >>> 6;
+                        if (word >= BITMAP_WORDS) {
+                                return -1;
+                        }
+                        long bits = bitmap[word] & (-1L << from);
+                        while (true) {
+                                if (bits != 0) {
+                                        return (word << 6) + Long.numberOfTrailingZeros(bits);
+                                }
+                                word++;
+                                if (word == BITMAP_WORDS) {
+                                        return -1;
+                                }
+                                bits = bitmap[word];
+                        }
+                }
+        }
+}
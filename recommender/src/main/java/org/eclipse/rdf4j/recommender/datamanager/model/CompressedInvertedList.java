@@ -0,0 +1,270 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * This class implements a read-only, compressed version of a sorted
+ * inverted list.
+ * User ids are split in blocks of BLOCK_SIZE postings. The first id of each
+ * block is kept in a skip table together with the offset of the block, the
+ * remaining ids are stored as gaps to the previous id using a variable-byte
+ * encoding (7 bits per byte, the highest bit marks that more bytes follow).
+ * If a list contains at most 256 distinct ratings, ratings are stored as
+ * one byte codes into a table of distinct ratings, otherwise they are kept
+ * as doubles. Both encodings are lossless.
+ */
+public class CompressedInvertedList implements PostingList, Serializable {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final long serialVersionUID = 46L;
+
+        /**
+         * Number of postings per block, it has to be a power of two.
+         */
+        public static final int BLOCK_SIZE = 128;
+        private static final int BLOCK_SHIFT = 7;
+        private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+        private static final int MAX_RATING_CODES = 256;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final int size;
+        //Variable-byte encoded gaps.
+        private final byte[] idData;
+        //Skip table: first id of each block and offset of its gaps in idData.
+        private final int[] blockFirstIds;
+        private final int[] blockOffsets;
+        //Either ratingTable and ratingCodes or ratings are set.
+        private final double[] ratingTable;
+        private final byte[] ratingCodes;
+        private final double[] ratings;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        private CompressedInvertedList(int size, byte[] idData,
+                        int[] blockFirstIds, int[] blockOffsets,
+                        double[] ratingTable, byte[] ratingCodes, double[] ratings) {
+                this.size = size;
+                this.idData = idData;
+                this.blockFirstIds = blockFirstIds;
+                this.blockOffsets = blockOffsets;
+                this.ratingTable = ratingTable;
+                this.ratingCodes = ratingCodes;
+                this.ratings = ratings;
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Compresses an inverted list. The list has to be sorted by user id,
+         * i.e. compactAndSortArray() has been invoked on it.
+         * @param list
+         * @return
+         */
+        public static CompressedInvertedList compress(InvertedList list) {
+                int size = list.size();
+                int numberOfBlocks = (size + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+                int[] blockFirstIds = new int[numberOfBlocks];
+                int[] blockOffsets = new int[numberOfBlocks];
+                //Worst case: 5 bytes per gap.
+                byte[] idData = new byte[size * 5];
+                int offset = 0;
+                int previousId = 0;
+
+                for (int i = 0; i < size; i++) {
+                        int userId = list.getUserId(i);
+                        if ((i & BLOCK_MASK) == 0) {
+                                blockFirstIds[i >> BLOCK_SHIFT] = userId;
+                                blockOffsets[i >> BLOCK_SHIFT] = offset;
+                        } else {
+                                int gap = userId - previousId;
+                                if (gap < 0) {
+                                        throw new IllegalArgumentException("The inverted list is not sorted");
+                                }
+                                while ((gap & ~0x7F) != 0) {
+                                        idData[offset++] = (byte)((gap & 0x7F) | 0x80);
+                                        gap = gap >>> 7;
+                                }
+                                idData[offset++] = (byte)gap;
+                        }
+                        previousId = userId;
+                }
+                idData = Arrays.copyOf(idData, offset);
+
+                //Ratings
+                double[] ratingTable = distinctRatings(list);
+                byte[] ratingCodes = null;
+                double[] ratings = null;
+                if (ratingTable != null) {
+                        ratingCodes = new byte[size];
+                        for (int i = 0; i < size; i++) {
+                                ratingCodes[i] = (byte)Arrays.binarySearch(ratingTable, list.getRating(i));
+                        }
+                } else {
+                        ratings = Arrays.copyOf(list.getRatings(), size);
+                }
+                return new CompressedInvertedList(size, idData, blockFirstIds,
+                        blockOffsets, ratingTable, ratingCodes, ratings);
+        }
+
+        //Returns the sorted distinct ratings of the list, or null if there
+        //are too many of them to be encoded in one byte.
+        private static double[] distinctRatings(InvertedList list) {
+                double[] sortedRatings = Arrays.copyOf(list.getRatings(), list.size());
+                Arrays.sort(sortedRatings);
+                double[] table = new double[MAX_RATING_CODES];
+                int distinct = 0;
+                for (int i = 0; i < sortedRatings.length; i++) {
+                        if (i == 0 || Double.compare(sortedRatings[i], sortedRatings[i - 1]) != 0) {
+                                if (distinct == MAX_RATING_CODES) {
+                                        return null;
+                                }
+                                table[distinct] = sortedRatings[i];
+                                distinct++;
+                        }
+                }
+                return Arrays.copyOf(table, distinct);
+        }
+
+        /**
+         * Decompresses the list.
+         * @return
+         */
+        public InvertedList decompress() {
+                int[] userIds = new int[size];
+                double[] decodedRatings = new double[size];
+                PostingCursor cursor = cursor();
+                for (int i = 0; i < size; i++) {
+                        userIds[i] = cursor.userId();
+                        decodedRatings[i] = cursor.rating();
+                        cursor.next();
+                }
+                return new InvertedList(userIds, decodedRatings, size);
+        }
+
+        @Override
+        public int size() {
+                return size;
+        }
+
+        @Override
+        public PostingCursor cursor() {
+                return new Cursor();
+        }
+
+        /**
+         * Returns the number of blocks of the skip table.
+         * @return
+         */
+        public int getNumberOfBlocks() {
+                return blockFirstIds.length;
+        }
+
+        /**
+         * Returns an estimation of the bytes used by the encoded data
+         * (ignoring object headers).
+         * @return
+         */
+        public long getSizeInBytes() {
+                long bytes = idData.length + 8L * blockFirstIds.length;
+                if (ratingTable != null) {
+                        bytes = bytes + 8L * ratingTable.length + ratingCodes.length;
+                } else {
+                        bytes = bytes + 8L * ratings.length;
+                }
+                return bytes;
+        }
+
+        /**
+         * Cursor that decodes the postings on the fly. skipTo(...) uses the
+         * skip table to jump over whole blocks without decoding them.
+         */
+        private final class Cursor implements PostingCursor {
+                private int position = -1;
+                private int offset = 0;
+                private int currentUserId;
+
+                private Cursor() {
+                        next();
+                }
+
+                @Override
+                public int userId() {
+                        return currentUserId;
+                }
+
+                @Override
+                public double rating() {
+                        if (ratingCodes != null) {
+                                return ratingTable[ratingCodes[position] & 0xFF];
+                        }
+                        return ratings[position];
+                }
+
+                @Override
+                public void next() {
+                        position++;
+                        if (position >= size) {
+                                position = size;
+                                currentUserId = NO_MORE_USERS;
+                                return;
+                        }
+                        if ((position & BLOCK_MASK) == 0) {
+                                int block = position >> BLOCK_SHIFT;
+                                currentUserId = blockFirstIds[block];
+                                offset = blockOffsets[block];
+                        } else {
+                                int gap = 0;
+                                int shift = 0;
+                                byte b;
+                                do {
+                                        b = idData[offset++];
+                                        gap = gap | ((b & 0x7F) << shift);
+                                        shift = shift + 7;
+                                } while (b < 0);
+                                currentUserId = currentUserId + gap;
+                        }
+                }
+
+                @Override
+                public void skipTo(int userId) {
+                        if (currentUserId >= userId) {
+                                return;
+                        }
+                        int block = position >> BLOCK_SHIFT;
+                        if (block + 1 < blockFirstIds.length && blockFirstIds[block + 1] <= userId) {
+                                //Binary search of the last block whose first id is <= userId
+                                int low = block + 1;
+                                int high = blockFirstIds.length - 1;
+                                while (low < high) {
+                                        int middle = (low + high + 1) >>> 1;
+                                        if (blockFirstIds[middle] <= userId) {
+                                                low = middle;
+                                        } else {
+                                                high = middle - 1;
+                                        }
+                                }
+                                position = (low << BLOCK_SHIFT) - 1;
+                                next();
+                        }
+                        while (currentUserId < userId) {
+                                next();
+                        }
+                }
+        }
+}
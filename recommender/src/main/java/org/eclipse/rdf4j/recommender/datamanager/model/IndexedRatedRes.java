@@ -82,9 +82,11 @@ public class IndexedRatedRes implements Comparable<IndexedRatedRes>, Serializabl
         @Override
         public int hashCode() {                
                 final int prime = 31;
-                double result = 1;
+                int result = 1;
                 result = prime * result + resourceId;
-                result = prime * result + rating;
-                return (int)result;
+                //+ 0.0 turns -0.0 into 0.0, both are equal for equals(...)
+                long ratingBits = Double.doubleToLongBits(rating + 0.0);
+                result = prime * result + (int)(ratingBits ^ (ratingBits >>> 32));
+                return result;
         }
 }
\ No newline at end of file
@@ -10,22 +10,25 @@ import java.io.Serializable;
 import java.util.Arrays;
 
 /**
- * This class implements an inverted list and is a wrapper of an array 
- * of UserRatings. The idea is to resize the inner array if an element 
- * is inserted and there's no space for it to store it. 
+ * This class implements an inverted list. Postings are stored column-wise,
+ * i.e. as two parallel primitive arrays (user ids and ratings), so that
+ * merge operations scan contiguous memory instead of following a reference
+ * per posting. The idea is to resize the inner arrays if an element
+ * is inserted and there's no space for it to store it.
  */
-public class InvertedList implements Serializable {
+public class InvertedList implements PostingList, Serializable {
         /*--------*
 	 * Static *
-	 *--------*/  
-    
-        private static final long serialVersionUID = 44L;
+	 *--------*/
+
+        private static final long serialVersionUID = 45L;
 
         /*--------*
 	 * Fields *
 	 *--------*/
-        
-        private IndexedUserRating[] userRatingsArray;
+
+        private int[] userIds;
+        private double[] ratings;
         private int nextFreeIndex;
 
         /*--------------*
@@ -33,49 +36,115 @@ public class InvertedList implements Serializable {
          *--------------*/
 
         public InvertedList() {
-                this.userRatingsArray = new IndexedUserRating[100];
+                this.userIds = new int[100];
+                this.ratings = new double[100];
                 nextFreeIndex = 0;
         }
 
         public InvertedList(IndexedUserRating[] urArray) {
-                this.userRatingsArray = urArray;
-                nextFreeIndex = userRatingsArray.length;
+                this.userIds = new int[urArray.length];
+                this.ratings = new double[urArray.length];
+                for (int i = 0; i < urArray.length; i++) {
+                        userIds[i] = urArray[i].getUserId();
+                        ratings[i] = urArray[i].getRating();
+                }
+                nextFreeIndex = urArray.length;
+        }
+
+        /**
+         * Wraps the given arrays without copying them. Only the first
+         * <code>size</code> cells are considered to be part of the list.
+         * @param userIds
+         * @param ratings
+         * @param size
+         */
+        public InvertedList(int[] userIds, double[] ratings, int size) {
+                this.userIds = userIds;
+                this.ratings = ratings;
+                nextFreeIndex = size;
         }
 
         /*---------*
          * Methods *
-         *---------*/   
+         *---------*/
 
         /**
-         * Like the get(i) method of an ArrayList.
+         * Like the get(i) method of an ArrayList. Note that a new object is
+         * created on each call, merge operations should use getUserId(i) and
+         * getRating(i) instead.
          * @param index
-         * @return 
+         * @return
          */
         public IndexedUserRating get(int index) {
-            return userRatingsArray[index];
+                return new IndexedUserRating(userIds[index], ratings[index]);
+        }
+
+        /**
+         * Returns the user id stored at the given position.
+         * @param index
+         * @return
+         */
+        public int getUserId(int index) {
+                return userIds[index];
+        }
 
+        /**
+         * Returns the rating stored at the given position.
+         * @param index
+         * @return
+         */
+        public double getRating(int index) {
+                return ratings[index];
+        }
+
+        /**
+         * Returns the inner array of user ids. Only the first size() cells
+         * are valid.
+         * @return
+         */
+        public int[] getUserIds() {
+                return userIds;
         }
 
         /**
-         * Returns the inner array.
-         * @return 
+         * Returns the inner array of ratings. Only the first size() cells
+         * are valid.
+         * @return
          */
-        //Gets the inner array
+        public double[] getRatings() {
+                return ratings;
+        }
+
+        /**
+         * Returns the postings as an array of user ratings.
+         * @return
+         */
+        //Builds a new array, only meant for debugging and tests.
         public IndexedUserRating[] getInnerArray(){
+                IndexedUserRating[] userRatingsArray = new IndexedUserRating[nextFreeIndex];
+                for (int i = 0; i < nextFreeIndex; i++) {
+                        userRatingsArray[i] = new IndexedUserRating(userIds[i], ratings[i]);
+                }
                 return userRatingsArray;
         }
 
         /**
          * Like the size() method of an ArrayList.
-         * @return 
+         * @return
          */
+        @Override
         public int size() {
                 return nextFreeIndex;
         }
 
+        @Override
+        public PostingCursor cursor() {
+                return new ArrayCursor();
+        }
+
         /**
          * Gets the next free index.
-         * @return 
+         * @return
          */
         public int getNextFreeIndex(){
                 return nextFreeIndex;
@@ -85,46 +154,113 @@ public class InvertedList implements Serializable {
         /**
          * Inserts a IndexedUserRating into the array and resizes if necessary.
          * @param ur
-         */ 
+         */
         public void insert(IndexedUserRating ur) {
-                if (nextFreeIndex >=  userRatingsArray.length) {
-                        IndexedUserRating[] newUserRatingsArray = new IndexedUserRating[userRatingsArray.length + 50];
-                        for (int i = 0; i < userRatingsArray.length; i++) {
-                                newUserRatingsArray[i] = userRatingsArray[i];
-                        }
-                        userRatingsArray = newUserRatingsArray;
+                insert(ur.getUserId(), ur.getRating());
+        }
+
+        /**
+         * Inserts a pair user id, rating into the arrays and resizes (by half
+         * of their length) if necessary.
+         * @param userId
+         * @param rating
+         */
+        public void insert(int userId, double rating) {
+                if (nextFreeIndex >=  userIds.length) {
+                        int newLength = userIds.length + Math.max(userIds.length >> 1, 16);
+                        userIds = Arrays.copyOf(userIds, newLength);
+                        ratings = Arrays.copyOf(ratings, newLength);
                 }
-                userRatingsArray[nextFreeIndex] = ur;
+                userIds[nextFreeIndex] = userId;
+                ratings[nextFreeIndex] = rating;
                 nextFreeIndex++;
         }
 
         /**
-         * This method removes unused cells from the inner array.
-         */        
+         * This method removes unused cells from the inner arrays. Nothing is
+         * copied if there are none.
+         */
         public void compactArray() {
-                userRatingsArray = Arrays.copyOf(userRatingsArray, nextFreeIndex);
+                if (userIds.length == nextFreeIndex && ratings.length == nextFreeIndex) {
+                        return;
+                }
+                userIds = Arrays.copyOf(userIds, nextFreeIndex);
+                ratings = Arrays.copyOf(ratings, nextFreeIndex);
         }
 
         /**
-         * Sorts the inner array (operation required by several operations
-         * like merging lists).
+         * Sorts the inner arrays by user id and then by rating (operation
+         * required by several operations like merging lists).
          * Ideally this method should be invoked when all elements have
          * been inserted.
-         * @return 
-         */            
+         * @return
+         */
         public InvertedList compactAndSortArray() {
-                userRatingsArray = Arrays.copyOf(userRatingsArray, nextFreeIndex);
-                Arrays.sort(userRatingsArray);
+                compactArray();
+                ParallelArraySorter.sort(userIds, ratings, 0, nextFreeIndex);
                 return this;
         }
 
+        /**
+         * Cursor over the inner arrays. It must not be used while elements
+         * are being inserted.
+         */
+        private final class ArrayCursor implements PostingCursor {
+                private final int[] ids = userIds;
+                private final double[] values = ratings;
+                private final int length = nextFreeIndex;
+                private int position = 0;
+
+                @Override
+                public int userId() {
+                        return position < length ? ids[position] : NO_MORE_USERS;
+                }
+
+                @Override
+                public double rating() {
+                        return values[position];
+                }
+
+                @Override
+                public void next() {
+                        position++;
+                }
+
+                @Override
+                public void skipTo(int userId) {
+                        if (position >= length || ids[position] >= userId) {
+                                return;
+                        }
+                        //Galloping search followed by a binary search.
+                        int low = position;
+                        int step = 1;
+                        int high = position + step;
+                        while (high < length && ids[high] < userId) {
+                                low = high;
+                                step = step << 1;
+                                high = position + step;
+                        }
+                        if (high > length) {
+                                high = length;
+                        }
+                        //ids[low] < userId and (high == length or ids[high] >= userId)
+                        while (high - low > 1) {
+                                int middle = (low + high) >>> 1;
+                                if (ids[middle] < userId) {
+                                        low = middle;
+                                } else {
+                                        high = middle;
+                                }
+                        }
+                        position = high;
+                }
+        }
+
         @Override
         public String toString(){
                 String formedString = "{ ";
-                for (IndexedUserRating ur: userRatingsArray) {
-                        if (ur != null) {
-                                formedString = formedString + ur.toString() + ", ";
-                        }
+                for (int i = 0; i < nextFreeIndex; i++) {
+                        formedString = formedString + "(" + userIds[i] + "," + ratings[i] + "), ";
                 }
                 formedString = formedString.substring(0, formedString.length() - 2);
                 formedString = formedString + " }";
@@ -137,10 +273,10 @@ public class InvertedList implements Serializable {
                 if (this.size() != dur.size())
                         return false;
                 for (int i = 0; i < dur.size(); i++) {
-                        if (this.get(i).getUserId() != dur.get(i).getUserId() ||
-                            this.get(i).getRating() != dur.get(i).getRating() )
+                        if (this.getUserId(i) != dur.getUserId(i) ||
+                            this.getRating(i) != dur.getRating(i) )
                                     return false;
                 }
                 return true;
         }
-}
\ No newline at end of file
+}
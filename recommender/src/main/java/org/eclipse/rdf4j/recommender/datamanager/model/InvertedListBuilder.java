@@ -0,0 +1,278 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds the inverted lists of all items from the profiles of the users in
+ * two passes. The first pass counts the ratings of each item so that the
+ * arrays of every list are allocated with their exact size; the second pass
+ * fills them visiting the users by ascending id, so the postings are
+ * already sorted (by user id and then by rating, as the ratings of a
+ * profile are) and no list has to be copied or sorted afterwards.
+ *
+ * With a parallelism greater than 1 both passes run on a fork-join pool over
+ * ranges of users. Each range counts its own ratings per item, so it owns a
+ * fixed slice of every list and the result is identical to the one of the
+ * single-threaded build.
+ */
+public class InvertedListBuilder {
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Returns the inverted lists of all rated items, keyed by item id.
+         * The lists are equal to the ones obtained by inserting every rating
+         * and invoking compactAndSortArray().
+         * @param profiles
+         * @return
+         */
+        public static Map<Integer, InvertedList> build(UserProfileMatrix profiles) {
+                return build(profiles, 1);
+        }
+
+        /**
+         * Same as build(profiles) using the given number of threads.
+         * @param profiles
+         * @param parallelism
+         * @return
+         */
+        public static Map<Integer, InvertedList> build(final UserProfileMatrix profiles, int parallelism) {
+                final int[] userIds = profiles.getUserIds();
+                if (parallelism <= 1 || userIds.length < 2) {
+                        return buildSequentially(profiles);
+                }
+                final int[] itemIds = profiles.getItemIds();
+                final double[] ratings = profiles.getRatings();
+                final int numberOfRanges = Math.min(parallelism, userIds.length);
+                final int[] rangeStarts = new int[numberOfRanges + 1];
+                for (int range = 0; range <= numberOfRanges; range++) {
+                        rangeStarts[range] = (int)((long)userIds.length * range / numberOfRanges);
+                }
+
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                        //Largest item id of each range
+                        final int[] maxItemIds = new int[numberOfRanges];
+                        pool.invoke(new ChunkedAction(numberOfRanges) {
+                                @Override
+                                void run(int range) {
+                                        int maxItemId = -1;
+                                        for (int u = rangeStarts[range]; u < rangeStarts[range + 1]; u++) {
+                                                for (int i = profiles.getStart(userIds[u]); i < profiles.getEnd(userIds[u]); i++) {
+                                                        if (itemIds[i] > maxItemId) {
+                                                                maxItemId = itemIds[i];
+                                                        }
+                                                }
+                                        }
+                                        maxItemIds[range] = maxItemId;
+                                }
+                        });
+                        int maxItemId = -1;
+                        for (int range = 0; range < numberOfRanges; range++) {
+                                maxItemId = Math.max(maxItemId, maxItemIds[range]);
+                        }
+                        final int numberOfItemSlots = maxItemId + 1;
+
+                        //Counting pass, one array of counts per range
+                        final int[][] rangeCounts = new int[numberOfRanges][];
+                        pool.invoke(new ChunkedAction(numberOfRanges) {
+                                @Override
+                                void run(int range) {
+                                        int[] counts = new int[numberOfItemSlots];
+                                        for (int u = rangeStarts[range]; u < rangeStarts[range + 1]; u++) {
+                                                for (int i = profiles.getStart(userIds[u]); i < profiles.getEnd(userIds[u]); i++) {
+                                                        counts[itemIds[i]]++;
+                                                }
+                                        }
+                                        rangeCounts[range] = counts;
+                                }
+                        });
+
+                        //Exact allocation by partitions of items. The counts of
+                        //each range become the offset of its slice in the list.
+                        final int[] sizes = new int[numberOfItemSlots];
+                        final int[][] listUserIds = new int[numberOfItemSlots][];
+                        final double[][] listRatings = new double[numberOfItemSlots][];
+                        final int numberOfPartitions = Math.max(1, Math.min(parallelism, numberOfItemSlots));
+                        pool.invoke(new ChunkedAction(numberOfPartitions) {
+                                @Override
+                                void run(int partition) {
+                                        int from = (int)((long)numberOfItemSlots * partition / numberOfPartitions);
+                                        int to = (int)((long)numberOfItemSlots * (partition + 1) / numberOfPartitions);
+                                        for (int itemId = from; itemId < to; itemId++) {
+                                                int size = 0;
+                                                for (int range = 0; range < numberOfRanges; range++) {
+                                                        int count = rangeCounts[range][itemId];
+                                                        rangeCounts[range][itemId] = size;
+                                                        size = size + count;
+                                                }
+                                                if (size > 0) {
+                                                        listUserIds[itemId] = new int[size];
+                                                        listRatings[itemId] = new double[size];
+                                                }
+                                                sizes[itemId] = size;
+                                        }
+                                }
+                        });
+
+                        //Fill pass, every range writes into its own slices.
+                        pool.invoke(new ChunkedAction(numberOfRanges) {
+                                @Override
+                                void run(int range) {
+                                        int[] fill = rangeCounts[range];
+                                        for (int u = rangeStarts[range]; u < rangeStarts[range + 1]; u++) {
+                                                int userId = userIds[u];
+                                                for (int i = profiles.getStart(userId); i < profiles.getEnd(userId); i++) {
+                                                        int itemId = itemIds[i];
+                                                        listUserIds[itemId][fill[itemId]] = userId;
+                                                        listRatings[itemId][fill[itemId]] = ratings[i];
+                                                        fill[itemId]++;
+                                                }
+                                        }
+                                }
+                        });
+
+                        int numberOfLists = 0;
+                        for (int itemId = 0; itemId < numberOfItemSlots; itemId++) {
+                                if (sizes[itemId] > 0) {
+                                        numberOfLists++;
+                                }
+                        }
+                        Map<Integer, InvertedList> invLists = new HashMap<Integer, InvertedList>(numberOfLists * 2);
+                        for (int itemId = 0; itemId < numberOfItemSlots; itemId++) {
+                                if (sizes[itemId] > 0) {
+                                        invLists.put(itemId, new InvertedList(listUserIds[itemId],
+                                                listRatings[itemId], sizes[itemId]));
+                                }
+                        }
+                        return invLists;
+                } finally {
+                        pool.shutdown();
+                }
+        }
+
+        /**
+         * Compacts and sorts the given lists using the given number of
+         * threads. Every list is handled by one thread.
+         * @param invLists
+         * @param parallelism
+         */
+        public static void compactAndSort(Collection<InvertedList> invLists, int parallelism) {
+                if (parallelism <= 1 || invLists.size() < 2) {
+                        for (InvertedList list: invLists) {
+                                list.compactAndSortArray();
+                        }
+                        return;
+                }
+                final List<InvertedList> lists = new ArrayList<InvertedList>(invLists);
+                //More chunks than threads, as the lengths of the lists vary a lot.
+                final int numberOfChunks = Math.min(lists.size(), parallelism * 8);
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                        pool.invoke(new ChunkedAction(numberOfChunks) {
+                                @Override
+                                void run(int chunk) {
+                                        for (int i = chunk; i < lists.size(); i = i + numberOfChunks) {
+                                                lists.get(i).compactAndSortArray();
+                                        }
+                                }
+                        });
+                } finally {
+                        pool.shutdown();
+                }
+        }
+
+        private static Map<Integer, InvertedList> buildSequentially(UserProfileMatrix profiles) {
+                int[] userIds = profiles.getUserIds();
+                int[] itemIds = profiles.getItemIds();
+                double[] ratings = profiles.getRatings();
+
+                //Counting pass
+                int maxItemId = -1;
+                for (int userId: userIds) {
+                        for (int i = profiles.getStart(userId); i < profiles.getEnd(userId); i++) {
+                                if (itemIds[i] > maxItemId) {
+                                        maxItemId = itemIds[i];
+                                }
+                        }
+                }
+                int[] counts = new int[maxItemId + 1];
+                for (int userId: userIds) {
+                        for (int i = profiles.getStart(userId); i < profiles.getEnd(userId); i++) {
+                                counts[itemIds[i]]++;
+                        }
+                }
+
+                //Exact allocation
+                int numberOfLists = 0;
+                int[][] listUserIds = new int[maxItemId + 1][];
+                double[][] listRatings = new double[maxItemId + 1][];
+                for (int itemId = 0; itemId <= maxItemId; itemId++) {
+                        if (counts[itemId] > 0) {
+                                listUserIds[itemId] = new int[counts[itemId]];
+                                listRatings[itemId] = new double[counts[itemId]];
+                                numberOfLists++;
+                        }
+                }
+
+                //Fill pass, users are visited in ascending order.
+                int[] fill = new int[maxItemId + 1];
+                for (int userId: userIds) {
+                        for (int i = profiles.getStart(userId); i < profiles.getEnd(userId); i++) {
+                                int itemId = itemIds[i];
+                                listUserIds[itemId][fill[itemId]] = userId;
+                                listRatings[itemId][fill[itemId]] = ratings[i];
+                                fill[itemId]++;
+                        }
+                }
+
+                Map<Integer, InvertedList> invLists = new HashMap<Integer, InvertedList>(numberOfLists * 2);
+                for (int itemId = 0; itemId <= maxItemId; itemId++) {
+                        if (counts[itemId] > 0) {
+                                invLists.put(itemId, new InvertedList(listUserIds[itemId],
+                                        listRatings[itemId], counts[itemId]));
+                        }
+                }
+                return invLists;
+        }
+
+        //Runs run(chunk) for every chunk as a separate fork-join task.
+        private abstract static class ChunkedAction extends RecursiveAction {
+                private final int numberOfChunks;
+
+                ChunkedAction(int numberOfChunks) {
+                        this.numberOfChunks = numberOfChunks;
+                }
+
+                abstract void run(int chunk);
+
+                @Override
+                protected void compute() {
+                        List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(numberOfChunks);
+                        for (int chunk = 0; chunk < numberOfChunks; chunk++) {
+                                final int currentChunk = chunk;
+                                tasks.add(new RecursiveAction() {
+                                        @Override
+                                        protected void compute() {
+                                                run(currentChunk);
+                                        }
+                                });
+                        }
+                        invokeAll(tasks);
+                }
+        }
+}
@@ -0,0 +1,330 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+/**
+ * Inverted index stored in a file and read through memory mapping, so the
+ * postings are kept by the page cache of the operating system instead of
+ * the heap.
+ *
+ * Format (big endian):
+ *   header: magic (int), version (int), number of item slots (int),
+ *           unused (int), number of postings (long), file length (long)
+ *   item table: per item id, offset of its block (long), number of
+ *           postings (int), unused (int). Offset is 0 if the item has no
+ *           list.
+ *   posting blocks: per item, the user ids (int) followed by the ratings
+ *           (double), sorted by user id.
+ * The file is mapped in segments of at most SEGMENT_SIZE bytes and no
+ * block crosses a segment boundary (padding is added if needed).
+ */
+public class MappedInvertedIndex {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final int MAGIC = 0x52494458;
+        private static final int VERSION = 1;
+        private static final int HEADER_SIZE = 32;
+        private static final int TABLE_ENTRY_SIZE = 16;
+        //Multiple of TABLE_ENTRY_SIZE, so that no table entry crosses a segment.
+        static final long SEGMENT_SIZE = 1L << 30;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final File file;
+        private final MappedByteBuffer[] segments;
+        private final int numberOfItemSlots;
+        private final long numberOfPostings;
+        private final long fileLength;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        private MappedInvertedIndex(File file) throws IOException {
+                this.file = file;
+                long length;
+                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+                try {
+                        FileChannel channel = randomAccessFile.getChannel();
+                        length = channel.size();
+                        int numberOfSegments = (int)((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+                        segments = new MappedByteBuffer[numberOfSegments];
+                        for (int i = 0; i < numberOfSegments; i++) {
+                                long start = i * SEGMENT_SIZE;
+                                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                        start, Math.min(SEGMENT_SIZE, length - start));
+                        }
+                        //The mapping stays valid after closing the channel.
+                } finally {
+                        randomAccessFile.close();
+                }
+                if (segments.length == 0 || segments[0].capacity() < HEADER_SIZE
+                        || segments[0].getInt(0) != MAGIC) {
+                        throw new IOException("NOT AN INVERTED INDEX FILE: " + file);
+                }
+                if (segments[0].getInt(4) != VERSION) {
+                        throw new IOException("UNSUPPORTED VERSION OF INVERTED INDEX FILE: " + file);
+                }
+                numberOfItemSlots = segments[0].getInt(8);
+                numberOfPostings = segments[0].getLong(16);
+                fileLength = segments[0].getLong(24);
+                if (fileLength != length) {
+                        throw new IOException("INVERTED INDEX FILE IS TRUNCATED: " + file);
+                }
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Writes sorted inverted lists, keyed by item id, into a file.
+         * @param file
+         * @param invLists
+         * @throws IOException
+         */
+        public static void write(File file, Map<Integer, InvertedList> invLists) throws IOException {
+                int numberOfItemSlots = 0;
+                long numberOfPostings = 0;
+                for (Map.Entry<Integer, InvertedList> entry: invLists.entrySet()) {
+                        numberOfItemSlots = Math.max(numberOfItemSlots, entry.getKey() + 1);
+                        numberOfPostings = numberOfPostings + entry.getValue().size();
+                }
+
+                //First pass: offsets of the blocks.
+                long[] offsets = new long[numberOfItemSlots];
+                long position = HEADER_SIZE + (long)TABLE_ENTRY_SIZE * numberOfItemSlots;
+                for (int itemId = 0; itemId < numberOfItemSlots; itemId++) {
+                        InvertedList list = invLists.get(itemId);
+                        if (list == null || list.size() == 0) {
+                                continue;
+                        }
+                        long blockLength = 12L * list.size();
+                        if (blockLength > SEGMENT_SIZE) {
+                                throw new IOException("INVERTED LIST OF ITEM " + itemId + " IS TOO LONG");
+                        }
+                        if (position / SEGMENT_SIZE != (position + blockLength - 1) / SEGMENT_SIZE) {
+                                position = (position / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+                        }
+                        offsets[itemId] = position;
+                        position = position + blockLength;
+                }
+                long fileLength = position;
+
+                //Second pass: writing.
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+                try {
+                        out.writeInt(MAGIC);
+                        out.writeInt(VERSION);
+                        out.writeInt(numberOfItemSlots);
+                        out.writeInt(0);
+                        out.writeLong(numberOfPostings);
+                        out.writeLong(fileLength);
+                        for (int itemId = 0; itemId < numberOfItemSlots; itemId++) {
+                                InvertedList list = invLists.get(itemId);
+                                out.writeLong(offsets[itemId]);
+                                out.writeInt(list == null ? 0 : list.size());
+                                out.writeInt(0);
+                        }
+                        position = HEADER_SIZE + (long)TABLE_ENTRY_SIZE * numberOfItemSlots;
+                        for (int itemId = 0; itemId < numberOfItemSlots; itemId++) {
+                                InvertedList list = invLists.get(itemId);
+                                if (list == null || list.size() == 0) {
+                                        continue;
+                                }
+                                while (position < offsets[itemId]) {
+                                        out.writeByte(0);
+                                        position++;
+                                }
+                                for (int i = 0; i < list.size(); i++) {
+                                        out.writeInt(list.getUserId(i));
+                                }
+                                for (int i = 0; i < list.size(); i++) {
+                                        out.writeDouble(list.getRating(i));
+                                }
+                                position = position + 12L * list.size();
+                        }
+                } finally {
+                        out.close();
+                }
+        }
+
+        /**
+         * Maps an index file written by write(...).
+         * @param file
+         * @return
+         * @throws IOException
+         */
+        public static MappedInvertedIndex open(File file) throws IOException {
+                return new MappedInvertedIndex(file);
+        }
+
+        /**
+         * Returns a view of the list of an item, or null if the item has no
+         * list. Postings are read from the mapped file, nothing is copied.
+         * @param itemId
+         * @return
+         */
+        public PostingList getList(int itemId) {
+                if (itemId < 0 || itemId >= numberOfItemSlots) {
+                        return null;
+                }
+                long entry = HEADER_SIZE + (long)TABLE_ENTRY_SIZE * itemId;
+                ByteBuffer table = segments[(int)(entry / SEGMENT_SIZE)];
+                int entryInSegment = (int)(entry % SEGMENT_SIZE);
+                long offset = table.getLong(entryInSegment);
+                int size = table.getInt(entryInSegment + 8);
+                if (size == 0) {
+                        return null;
+                }
+                return new MappedList(segments[(int)(offset / SEGMENT_SIZE)],
+                        (int)(offset % SEGMENT_SIZE), size);
+        }
+
+        /**
+         * Returns the number of item ids covered by the item table.
+         * @return
+         */
+        public int getNumberOfItemSlots() {
+                return numberOfItemSlots;
+        }
+
+        /**
+         * Returns the number of postings of all lists.
+         * @return
+         */
+        public long getNumberOfPostings() {
+                return numberOfPostings;
+        }
+
+        /**
+         * Returns the size of the file.
+         * @return
+         */
+        public long getSizeInBytes() {
+                return fileLength;
+        }
+
+        /**
+         * Returns the file of the index.
+         * @return
+         */
+        public File getFile() {
+                return file;
+        }
+
+        /**
+         * Copies the list of an item into an inverted list, null if the item
+         * has no list.
+         * @param itemId
+         * @return
+         */
+        public InvertedList toInvertedList(int itemId) {
+                PostingList list = getList(itemId);
+                if (list == null) {
+                        return null;
+                }
+                int[] userIds = new int[list.size()];
+                double[] ratings = new double[list.size()];
+                PostingCursor cursor = list.cursor();
+                for (int i = 0; i < list.size(); i++) {
+                        userIds[i] = cursor.userId();
+                        ratings[i] = cursor.rating();
+                        cursor.next();
+                }
+                return new InvertedList(userIds, ratings, list.size());
+        }
+
+        private static final class MappedList implements PostingList {
+                private final ByteBuffer segment;
+                private final int start;
+                private final int size;
+
+                private MappedList(ByteBuffer segment, int start, int size) {
+                        this.segment = segment;
+                        this.start = start;
+                        this.size = size;
+                }
+
+                @Override
+                public int size() {
+                        return size;
+                }
+
+                @Override
+                public PostingCursor cursor() {
+                        return new MappedCursor(segment, start, size);
+                }
+        }
+
+        //Only absolute reads are used, so cursors can be used by several
+        //threads on the same segment.
+        private static final class MappedCursor implements PostingCursor {
+                private final ByteBuffer segment;
+                private final int start;
+                private final int ratingsStart;
+                private final int size;
+                private int position = 0;
+
+                private MappedCursor(ByteBuffer segment, int start, int size) {
+                        this.segment = segment;
+                        this.start = start;
+                        this.ratingsStart = start + 4 * size;
+                        this.size = size;
+                }
+
+                @Override
+                public int userId() {
+                        return position < size ? segment.getInt(start + 4 * position) : NO_MORE_USERS;
+                }
+
+                @Override
+                public double rating() {
+                        return segment.getDouble(ratingsStart + 8 * position);
+                }
+
+                @Override
+                public void next() {
+                        position++;
+                }
+
+                @Override
+                public void skipTo(int userId) {
+                        if (userId() >= userId) {
+                                return;
+                        }
+                        //Binary search over the remaining user ids.
+                        int low = position + 1;
+                        int high = size;
+                        while (low < high) {
+                                int middle = (low + high) >>> 1;
+                                if (segment.getInt(start + 4 * middle) < userId) {
+                                        low = middle + 1;
+                                } else {
+                                        high = middle;
+                                }
+                        }
+                        position = low;
+                }
+        }
+}
@@ -0,0 +1,90 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+/**
+ * Sorts a range of two parallel arrays (ids and values) by id and then by
+ * value, without creating an object per element.
+ */
+final class ParallelArraySorter {
+        
+        private ParallelArraySorter() {
+        }
+        
+        /**
+         * Sorts the cells from (inclusive) to (exclusive) of both arrays.
+         * @param ids
+         * @param values
+         * @param from
+         * @param to 
+         */
+        static void sort(int[] ids, double[] values, int from, int to) {
+                //Most ranges are built by inserting ids in ascending order, 
+                //so checking first is cheaper than sorting.
+                if (!isSorted(ids, values, from, to)) {
+                        quickSort(ids, values, from, to - 1);
+                }
+        }
+        
+        static boolean isSorted(int[] ids, double[] values, int from, int to) {
+                for (int i = from + 1; i < to; i++) {
+                        if (compare(ids, values, i - 1, i) > 0) {
+                                return false;
+                        }
+                }
+                return true;
+        }
+        
+        //Quicksort on the parallel arrays (insertion sort for small ranges).
+        private static void quickSort(int[] ids, double[] values, int low, int high) {
+                while (high - low > 16) {
+                        int pivot = partition(ids, values, low, high);
+                        //Recurse into the smaller half to bound the stack depth.
+                        if (pivot - low < high - pivot) {
+                                quickSort(ids, values, low, pivot - 1);
+                                low = pivot + 1;
+                        } else {
+                                quickSort(ids, values, pivot + 1, high);
+                                high = pivot - 1;
+                        }
+                }
+                for (int i = low + 1; i <= high; i++) {
+                        for (int j = i; j > low && compare(ids, values, j - 1, j) > 0; j--) {
+                                swap(ids, values, j - 1, j);
+                        }
+                }
+        }
+        
+        private static int partition(int[] ids, double[] values, int low, int high) {
+                swap(ids, values, (low + high) >>> 1, high);
+                int store = low;
+                for (int i = low; i < high; i++) {
+                        if (compare(ids, values, i, high) < 0) {
+                                swap(ids, values, i, store);
+                                store++;
+                        }
+                }
+                swap(ids, values, store, high);
+                return store;
+        }
+        
+        private static int compare(int[] ids, double[] values, int i, int j) {
+                if (ids[i] != ids[j]) {
+                        return ids[i] < ids[j] ? -1 : 1;
+                }
+                return Double.compare(values[i], values[j]);
+        }
+        
+        private static void swap(int[] ids, double[] values, int i, int j) {
+                int tmpId = ids[i];
+                ids[i] = ids[j];
+                ids[j] = tmpId;
+                double tmpValue = values[i];
+                values[i] = values[j];
+                values[j] = tmpValue;
+        }
+}
@@ -0,0 +1,46 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+/**
+ * Forward-only cursor over the postings of a PostingList. The cursor is 
+ * always positioned on a posting; once the list is exhausted userId() 
+ * returns NO_MORE_USERS, which is greater than any valid user id and 
+ * therefore never wins a comparison in a merge.
+ */
+public interface PostingCursor {
+    
+        /**
+         * Returned by userId() when there are no more postings.
+         */
+        public static final int NO_MORE_USERS = Integer.MAX_VALUE;
+        
+        /**
+         * Returns the user id of the current posting, or NO_MORE_USERS if 
+         * the cursor is exhausted.
+         * @return 
+         */
+        public int userId();
+        
+        /**
+         * Returns the rating of the current posting.
+         * @return 
+         */
+        public double rating();
+        
+        /**
+         * Moves the cursor to the next posting.
+         */
+        public void next();
+        
+        /**
+         * Moves the cursor to the first posting whose user id is greater or 
+         * equal than the given one. The cursor never moves backwards.
+         * @param userId 
+         */
+        public void skipTo(int userId);
+}
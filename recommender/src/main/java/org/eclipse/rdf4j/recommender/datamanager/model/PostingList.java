@@ -0,0 +1,27 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+/**
+ * A list of postings (pairs user id, rating) sorted by user id. 
+ * Implementations may store the postings in plain arrays or in an encoded
+ * form, the merge operations only access them through a cursor.
+ */
+public interface PostingList {
+    
+        /**
+         * Returns the number of postings in the list.
+         * @return 
+         */
+        public int size();
+        
+        /**
+         * Returns a new cursor positioned on the first posting of the list.
+         * @return 
+         */
+        public PostingCursor cursor();
+}
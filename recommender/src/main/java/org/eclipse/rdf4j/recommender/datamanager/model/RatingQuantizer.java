@@ -0,0 +1,160 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Maps ratings to small integer codes and back through a lookup table.
+ * If the observed ratings have at most MAX_CODES distinct values, the table
+ * is the sorted set of those values and the mapping is exact. Otherwise the
+ * range of ratings is divided into a uniform grid whose step is twice the
+ * given error bound, so that each rating is decoded with an absolute error
+ * not greater than the bound.
+ */
+public class RatingQuantizer implements Serializable {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final long serialVersionUID = 47L;
+
+        /**
+         * Maximum number of codes, i.e. codes fit into 16 bits.
+         */
+        public static final int MAX_CODES = 1 << 16;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        //Decoded value of each code.
+        private final double[] table;
+        //Grid parameters, only used if the mapping is not exact.
+        private final boolean exact;
+        private final double min;
+        private final double step;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        private RatingQuantizer(double[] table, boolean exact, double min, double step) {
+                this.table = table;
+                this.exact = exact;
+                this.min = min;
+                this.step = step;
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Builds a quantizer for the ratings of the given lists. Returns null
+         * if the ratings cannot be encoded in MAX_CODES codes within the
+         * error bound.
+         * @param lists
+         * @param errorBound
+         * @return
+         */
+        public static RatingQuantizer create(Iterable<InvertedList> lists, double errorBound) {
+                Set<Double> distinctRatings = new HashSet<Double>();
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (InvertedList list: lists) {
+                        double[] ratings = list.getRatings();
+                        for (int i = 0; i < list.size(); i++) {
+                                if (distinctRatings.size() <= MAX_CODES) {
+                                        distinctRatings.add(ratings[i]);
+                                }
+                                min = Math.min(min, ratings[i]);
+                                max = Math.max(max, ratings[i]);
+                        }
+                }
+
+                if (distinctRatings.size() <= MAX_CODES) {
+                        double[] table = new double[distinctRatings.size()];
+                        int index = 0;
+                        for (Double rating: distinctRatings) {
+                                table[index] = rating;
+                                index++;
+                        }
+                        Arrays.sort(table);
+                        return new RatingQuantizer(table, true, 0, 0);
+                }
+
+                if (errorBound <= 0) {
+                        return null;
+                }
+                double step = 2 * errorBound;
+                long numberOfCodes = (long)Math.ceil((max - min) / step) + 1;
+                if (numberOfCodes > MAX_CODES) {
+                        return null;
+                }
+                double[] table = new double[(int)numberOfCodes];
+                for (int i = 0; i < table.length; i++) {
+                        table[i] = min + i * step;
+                }
+                return new RatingQuantizer(table, false, min, step);
+        }
+
+        /**
+         * Returns the code of a rating.
+         * @param rating
+         * @return
+         */
+        public int encode(double rating) {
+                if (exact) {
+                        return Arrays.binarySearch(table, rating);
+                }
+                int code = (int)Math.round((rating - min) / step);
+                return Math.min(Math.max(code, 0), table.length - 1);
+        }
+
+        /**
+         * Returns the (approximated) rating of a code.
+         * @param code
+         * @return
+         */
+        public double decode(int code) {
+                return table[code];
+        }
+
+        /**
+         * Returns the number of codes.
+         * @return
+         */
+        public int size() {
+                return table.length;
+        }
+
+        /**
+         * Returns true if the ratings are decoded without error.
+         * @return
+         */
+        public boolean isExact() {
+                return exact;
+        }
+
+        /**
+         * Returns a lookup table containing the decoded value of each code
+         * multiplied by the given scale.
+         * @param scale
+         * @return
+         */
+        public double[] getScaledTable(double scale) {
+                double[] scaledTable = new double[table.length];
+                for (int i = 0; i < table.length; i++) {
+                        scaledTable[i] = table[i] * scale;
+                }
+                return scaledTable;
+        }
+}
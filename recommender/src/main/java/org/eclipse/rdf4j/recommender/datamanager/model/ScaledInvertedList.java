@@ -0,0 +1,189 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.Serializable;
+
+/**
+ * Inverted list shared by all the scales of an item. The user ids are stored
+ * once and each rating is stored as a code of a RatingQuantizer (one byte if
+ * there are at most 256 codes, two bytes otherwise). A scaled list, i.e. the
+ * ratings multiplied by a scale, is obtained as a view through a lookup table
+ * with the scaled value of each code, so no product is materialized.
+ * If no quantizer is available, ratings are kept as doubles and multiplied
+ * on the fly.
+ */
+public class ScaledInvertedList implements Serializable {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final long serialVersionUID = 48L;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final int size;
+        private final int[] userIds;
+        //Only one of the following arrays is set.
+        private final byte[] byteCodes;
+        private final char[] charCodes;
+        private final double[] ratings;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        /**
+         * Encodes a sorted inverted list with the given quantizer, which can
+         * be null.
+         * @param list
+         * @param quantizer
+         */
+        public ScaledInvertedList(InvertedList list, RatingQuantizer quantizer) {
+                size = list.size();
+                userIds = new int[size];
+                System.arraycopy(list.getUserIds(), 0, userIds, 0, size);
+                if (quantizer == null) {
+                        byteCodes = null;
+                        charCodes = null;
+                        ratings = new double[size];
+                        System.arraycopy(list.getRatings(), 0, ratings, 0, size);
+                } else if (quantizer.size() <= 256) {
+                        byteCodes = new byte[size];
+                        charCodes = null;
+                        ratings = null;
+                        for (int i = 0; i < size; i++) {
+                                byteCodes[i] = (byte)quantizer.encode(list.getRating(i));
+                        }
+                } else {
+                        byteCodes = null;
+                        charCodes = new char[size];
+                        ratings = null;
+                        for (int i = 0; i < size; i++) {
+                                charCodes[i] = (char)quantizer.encode(list.getRating(i));
+                        }
+                }
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Returns the number of postings.
+         * @return
+         */
+        public int size() {
+                return size;
+        }
+
+        /**
+         * Returns a view of the list in which each rating is multiplied by
+         * the given scale. scaledTable has to be the table returned by
+         * RatingQuantizer.getScaledTable(scale) of the quantizer used to
+         * encode the list (null if no quantizer was used).
+         * @param scale
+         * @param scaledTable
+         * @return
+         */
+        public PostingList scaled(double scale, double[] scaledTable) {
+                return new ScaledView(scale, scaledTable);
+        }
+
+        /**
+         * Materializes a scaled view as an inverted list.
+         * @param scale
+         * @param scaledTable
+         * @return
+         */
+        public InvertedList toInvertedList(double scale, double[] scaledTable) {
+                int[] ids = new int[size];
+                double[] products = new double[size];
+                PostingCursor cursor = scaled(scale, scaledTable).cursor();
+                for (int i = 0; i < size; i++) {
+                        ids[i] = cursor.userId();
+                        products[i] = cursor.rating();
+                        cursor.next();
+                }
+                return new InvertedList(ids, products, size);
+        }
+
+        /**
+         * Returns an estimation of the bytes used by the postings.
+         * @return
+         */
+        public long getSizeInBytes() {
+                if (byteCodes != null) {
+                        return 5L * size;
+                }
+                if (charCodes != null) {
+                        return 6L * size;
+                }
+                return 12L * size;
+        }
+
+        private final class ScaledView implements PostingList {
+                private final double scale;
+                private final double[] scaledTable;
+
+                private ScaledView(double scale, double[] scaledTable) {
+                        this.scale = scale;
+                        this.scaledTable = scaledTable;
+                }
+
+                @Override
+                public int size() {
+                        return size;
+                }
+
+                @Override
+                public PostingCursor cursor() {
+                        return new ScaledCursor(scale, scaledTable);
+                }
+        }
+
+        private final class ScaledCursor implements PostingCursor {
+                private final double scale;
+                private final double[] scaledTable;
+                private int position = 0;
+
+                private ScaledCursor(double scale, double[] scaledTable) {
+                        this.scale = scale;
+                        this.scaledTable = scaledTable;
+                }
+
+                @Override
+                public int userId() {
+                        return position < size ? userIds[position] : NO_MORE_USERS;
+                }
+
+                @Override
+                public double rating() {
+                        if (byteCodes != null) {
+                                return scaledTable[byteCodes[position] & 0xFF];
+                        }
+                        if (charCodes != null) {
+                                return scaledTable[charCodes[position]];
+                        }
+                        return ratings[position] * scale;
+                }
+
+                @Override
+                public void next() {
+                        position++;
+                }
+
+                @Override
+                public void skipTo(int userId) {
+                        while (position < size && userIds[position] < userId) {
+                                position++;
+                        }
+                }
+        }
+}
@@ -0,0 +1,153 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of scaled lists materialized as inverted lists, 
+ * keyed by (list, scale). A missing list is scaled from its encoded list 
+ * and kept while it is among the most recently used ones which fit into 
+ * the capacity, so hot lists are read as plain arrays and cold ones are 
+ * scaled on the fly. Lists larger than the capacity are never kept. The 
+ * cache can be used by several threads; a list missing for two threads at
+ * once may be scaled twice.
+ */
+public class ScaledListCache {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Bytes of a posting of a materialized list (user id and product).
+         */
+        public static final int BYTES_PER_POSTING = 12;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final long capacityInBytes;
+        //Access order, the eldest entry is the least recently used one.
+        private final LinkedHashMap<Long, InvertedList> lists 
+                = new LinkedHashMap<Long, InvertedList>(1024, 0.75f, true);
+        private long sizeInBytes = 0;
+        private long hits = 0;
+        private long misses = 0;
+        private long evictions = 0;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        public ScaledListCache(long capacityInBytes) {
+                this.capacityInBytes = capacityInBytes;
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Returns the list with the given id multiplied by the scale, from
+         * the cache or scaled from the encoded list (see 
+         * ScaledInvertedList.scaled(...)).
+         * @param listId
+         * @param scale
+         * @param list
+         * @param scaledTable
+         * @return
+         */
+        public PostingList get(int listId, int scale, ScaledInvertedList list, double[] scaledTable) {
+                Long key = ((long)listId << 8) | scale;
+                synchronized (this) {
+                        InvertedList cachedList = lists.get(key);
+                        if (cachedList != null) {
+                                hits++;
+                                return cachedList;
+                        }
+                        misses++;
+                }
+                long bytes = (long)BYTES_PER_POSTING * list.size();
+                if (bytes > capacityInBytes) {
+                        return list.scaled(scale, scaledTable);
+                }
+                InvertedList scaledList = list.toInvertedList(scale, scaledTable);
+                synchronized (this) {
+                        if (lists.put(key, scaledList) == null) {
+                                sizeInBytes = sizeInBytes + bytes;
+                        }
+                        //Least recently used lists are dropped first.
+                        Iterator<Map.Entry<Long, InvertedList>> iterator = lists.entrySet().iterator();
+                        while (sizeInBytes > capacityInBytes) {
+                                InvertedList evictedList = iterator.next().getValue();
+                                iterator.remove();
+                                sizeInBytes = sizeInBytes - (long)BYTES_PER_POSTING * evictedList.size();
+                                evictions++;
+                        }
+                }
+                return scaledList;
+        }
+
+        /**
+         * Removes all lists, the statistics are kept.
+         */
+        public synchronized void clear() {
+                lists.clear();
+                sizeInBytes = 0;
+        }
+
+        /**
+         * Returns the maximum size of the cached lists in bytes.
+         * @return
+         */
+        public long getCapacityInBytes() {
+                return capacityInBytes;
+        }
+
+        /**
+         * Returns the size of the cached lists in bytes.
+         * @return
+         */
+        public synchronized long getSizeInBytes() {
+                return sizeInBytes;
+        }
+
+        /**
+         * Returns the number of cached lists.
+         * @return
+         */
+        public synchronized int getNumberOfLists() {
+                return lists.size();
+        }
+
+        /**
+         * Returns the number of requests served from the cache.
+         * @return
+         */
+        public synchronized long getHits() {
+                return hits;
+        }
+
+        /**
+         * Returns the number of requests for which the list was scaled.
+         * @return
+         */
+        public synchronized long getMisses() {
+                return misses;
+        }
+
+        /**
+         * Returns the number of lists dropped to make room for others.
+         * @return
+         */
+        public synchronized long getEvictions() {
+                return evictions;
+        }
+}
@@ -0,0 +1,245 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Locality sensitive hashing index of the user profiles for the cosine
+ * similarity (random hyperplanes, also known as SimHash). The signature of
+ * a user has one bit per hyperplane, set if the dot product of the profile
+ * with the hyperplane is positive, so two users agree on a bit with
+ * probability 1 - angle / pi. The bits are split into bands of rowsPerBand
+ * bits and users whose signatures are equal in at least one band are
+ * candidate neighbors.
+ * The components of the hyperplanes are +1 or -1, derived from a hash of
+ * the item id and the seed, so the hyperplanes are never stored. Every band
+ * is kept as a sorted array of (band key, user id) pairs, so the users of a
+ * bucket are found with a binary search.
+ */
+public class SimHashIndex implements Serializable {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final long serialVersionUID = 52L;
+
+        /**
+         * Largest number of bits of a band, a band key is an int.
+         */
+        public static final int MAX_ROWS_PER_BAND = 32;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final int numberOfBands;
+        private final int rowsPerBand;
+        private final long seed;
+        //Signatures, wordsPerUser words per user id.
+        private long[] signatures = new long[0];
+        private int wordsPerUser;
+        private int numberOfUserSlots = 0;
+        //Per band, the pairs (key << 32 | user id) sorted.
+        private long[][] bands;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        public SimHashIndex(int numberOfBands, int rowsPerBand, long seed) {
+                if (numberOfBands < 1 || rowsPerBand < 1 || rowsPerBand > MAX_ROWS_PER_BAND) {
+                        throw new IllegalArgumentException("Invalid number of bands or rows per band");
+                }
+                this.numberOfBands = numberOfBands;
+                this.rowsPerBand = rowsPerBand;
+                this.seed = seed;
+                this.wordsPerUser = (numberOfBands * rowsPerBand + 63) >>> 6;
+                this.bands = new long[numberOfBands][0];
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Computes the signatures of all users with a profile and builds the
+         * band tables. Previous signatures are discarded.
+         * @param profiles
+         */
+        public void build(UserProfileMatrix profiles) {
+                int[] userIds = profiles.getUserIds();
+                int[] itemIds = profiles.getItemIds();
+                double[] ratings = profiles.getRatings();
+                int numberOfBits = numberOfBands * rowsPerBand;
+                numberOfUserSlots = userIds.length == 0 ? 0 : userIds[userIds.length - 1] + 1;
+                signatures = new long[numberOfUserSlots * wordsPerUser];
+
+                //Dot products of the current profile with the hyperplanes.
+                double[] projections = new double[wordsPerUser * 64];
+                for (int userId: userIds) {
+                        Arrays.fill(projections, 0);
+                        for (int i = profiles.getStart(userId); i < profiles.getEnd(userId); i++) {
+                                double rating = ratings[i];
+                                for (int word = 0; word < wordsPerUser; word++) {
+                                        long signs = hyperplaneSigns(itemIds[i], word);
+                                        int base = word << 6;
+                                        for (int bit = 0; bit < 64; bit++) {
+                                                if (((signs >>> bit) & 1) != 0) {
+                                                        projections[base + bit] = projections[base + bit] + rating;
+                                                } else {
+                                                        projections[base + bit] = projections[base + bit] - rating;
+                                                }
+                                        }
+                                }
+                        }
+                        int offset = userId * wordsPerUser;
+                        for (int bit = 0; bit < numberOfBits; bit++) {
+                                if (projections[bit] > 0) {
+                                        signatures[offset + (bit >>> 6)] |= 1L << bit;
+                                }
+                        }
+                }
+
+                for (int band = 0; band < numberOfBands; band++) {
+                        long[] pairs = new long[userIds.length];
+                        for (int u = 0; u < userIds.length; u++) {
+                                pairs[u] = ((long)getBandKey(userIds[u], band) << 32) | userIds[u];
+                        }
+                        Arrays.sort(pairs);
+                        bands[band] = pairs;
+                }
+        }
+
+        /**
+         * Collects the users sharing at least one band with the given user,
+         * the user excluded, and returns their number. candidates must have
+         * room for getNumberOfUserSlots() ids. isCandidate is a scratch array
+         * of getNumberOfUserSlots() cells, all false, which are all false
+         * again on return.
+         * @param userId
+         * @param isCandidate
+         * @param candidates
+         * @return
+         */
+        public int collectCandidates(int userId, boolean[] isCandidate, int[] candidates) {
+                if (userId < 0 || userId >= numberOfUserSlots) {
+                        return 0;
+                }
+                int numberOfCandidates = 0;
+                for (int band = 0; band < numberOfBands; band++) {
+                        long[] pairs = bands[band];
+                        int key = getBandKey(userId, band);
+                        for (int position = lowerBound(pairs, (long)key << 32);
+                                        position < pairs.length && (int)(pairs[position] >>> 32) == key;
+                                        position++) {
+                                int candidate = (int)pairs[position];
+                                if (candidate != userId && !isCandidate[candidate]) {
+                                        isCandidate[candidate] = true;
+                                        candidates[numberOfCandidates++] = candidate;
+                                }
+                        }
+                }
+                for (int i = 0; i < numberOfCandidates; i++) {
+                        isCandidate[candidates[i]] = false;
+                }
+                return numberOfCandidates;
+        }
+
+        /**
+         * Returns the bits of a band of the signature of a user.
+         * @param userId
+         * @param band
+         * @return
+         */
+        public int getBandKey(int userId, int band) {
+                int key = 0;
+                int offset = userId * wordsPerUser;
+                int from = band * rowsPerBand;
+                for (int row = 0; row < rowsPerBand; row++) {
+                        int bit = from + row;
+                        if (((signatures[offset + (bit >>> 6)] >>> bit) & 1) != 0) {
+                                key |= 1 << row;
+                        }
+                }
+                return key;
+        }
+
+        /**
+         * Returns the number of bits two signatures have in common, out of
+         * getNumberOfBands() * getRowsPerBand().
+         * @param userId
+         * @param otherUserId
+         * @return
+         */
+        public int getNumberOfEqualBits(int userId, int otherUserId) {
+                int numberOfBits = numberOfBands * rowsPerBand;
+                int differentBits = 0;
+                for (int word = 0; word < wordsPerUser; word++) {
+                        long bits = signatures[userId * wordsPerUser + word] ^ signatures[otherUserId * wordsPerUser + word];
+                        if (word == wordsPerUser - 1 && (numberOfBits & 63) != 0) {
+                                bits = bits & ((1L << numberOfBits) - 1);
+                        }
+                        differentBits = differentBits + Long.bitCount(bits);
+                }
+                return numberOfBits - differentBits;
+        }
+
+        public int getNumberOfBands() {
+                return numberOfBands;
+        }
+
+        public int getRowsPerBand() {
+                return rowsPerBand;
+        }
+
+        /**
+         * Returns the largest indexed user id + 1.
+         * @return
+         */
+        public int getNumberOfUserSlots() {
+                return numberOfUserSlots;
+        }
+
+        /**
+         * Returns the size of the signatures and of the band tables in bytes
+         * (approximation which ignores object headers).
+         * @return
+         */
+        public long getSizeInBytes() {
+                long bytes = 8L * signatures.length;
+                for (long[] pairs: bands) {
+                        bytes = bytes + 8L * pairs.length;
+                }
+                return bytes;
+        }
+
+        //64 components (one per bit, set for +1) of the hyperplanes of a
+        //word of the signature for an item, SplitMix64 finalizer.
+        private long hyperplaneSigns(int itemId, int word) {
+                long z = seed + (((long)itemId << 16) + word + 1) * 0x9E3779B97F4A7C15L;
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                return z ^ (z >>> 31);
+        }
+
+        //Position of the first pair which is not lower than value.
+        private static int lowerBound(long[] pairs, long value) {
+                int low = 0;
+                int high = pairs.length;
+                while (low < high) {
+                        int middle = (low + high) >>> 1;
+                        if (pairs[middle] < value) {
+                                low = middle + 1;
+                        } else {
+                                high = middle;
+                        }
+                }
+                return low;
+        }
+}
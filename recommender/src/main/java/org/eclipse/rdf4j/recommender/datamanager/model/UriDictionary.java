@@ -0,0 +1,442 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary that assigns consecutive ids to URIs. A URI is split into a
+ * namespace, stored once in a table, and a local name. Local names are
+ * front coded in buckets of BUCKET_SIZE consecutive ids: each entry only
+ * stores the characters that differ from the previous entry of the bucket.
+ * Buckets are written into pages of bytes which are never copied when the
+ * dictionary grows. Ids are found through an open addressing hash table
+ * that only stores ids.
+ * Once all URIs have been added, freeze() moves the pages into a single
+ * array. A frozen dictionary can only be read.
+ */
+public class UriDictionary implements Serializable {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final long serialVersionUID = 50L;
+
+        //Number of entries of a front coded bucket.
+        public static final int BUCKET_SIZE = 16;
+        //Size of a page of bytes.
+        private static final int PAGE_SIZE = 1 << 16;
+        //Size of a chunk of the per id and per bucket arrays.
+        private static final int CHUNK_SHIFT = 12;
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private int size = 0;
+        //Namespaces
+        private String[] namespaces = new String[16];
+        private int numberOfNamespaces = 0;
+        private Map<String, Integer> namespaceIds = new HashMap<String, Integer>();
+        //Pages and position of the first entry of each bucket.
+        private byte[][] pages = new byte[16][];
+        private int numberOfPages = 0;
+        private int pageFill = 0;
+        private int[][] bucketPages = new int[16][];
+        private int[][] bucketOffsets = new int[16][];
+        //Hash code of each URI, used to rebuild the table and to skip most
+        //of the comparisons.
+        private int[][] hashes = new int[16][];
+        //Ids + 1, 0 marks an empty slot.
+        private int[] table = new int[1 << 10];
+        //Last entry written, needed by the front coding.
+        private int lastNamespaceId = -1;
+        private String lastLocalName = "";
+        //Read-optimized arrays of a frozen dictionary.
+        private boolean frozen = false;
+        private byte[] frozenData = null;
+        private int[] frozenBucketOffsets = null;
+        private int[] frozenHashes = null;
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Returns the id of a URI, adding it if it is not in the dictionary.
+         * @param uri
+         * @return
+         */
+        public int add(String uri) {
+                int hash = uri.hashCode();
+                int id = find(uri, hash);
+                if (id != -1) {
+                        return id;
+                }
+                if (frozen) {
+                        throw new IllegalStateException("DICTIONARY IS FROZEN, URI CANNOT BE ADDED: " + uri);
+                }
+                id = size;
+                write(uri);
+                hashes = set(hashes, id, hash);
+                size++;
+                if (size * 2 > table.length) {
+                        rehash(table.length * 2);
+                } else {
+                        insert(id, hash);
+                }
+                return id;
+        }
+
+        /**
+         * Returns the id of a URI, or -1 if it is not in the dictionary.
+         * @param uri
+         * @return
+         */
+        public int getId(String uri) {
+                return find(uri, uri.hashCode());
+        }
+
+        /**
+         * Returns the URI with the given id, or null if there is no such id.
+         * @param id
+         * @return
+         */
+        public String getUri(int id) {
+                if (id < 0 || id >= size) {
+                        return null;
+                }
+                int bucket = id / BUCKET_SIZE;
+                byte[] data;
+                int position;
+                if (frozenData != null) {
+                        data = frozenData;
+                        position = frozenBucketOffsets[bucket];
+                } else {
+                        data = pages[get(bucketPages, bucket)];
+                        position = get(bucketOffsets, bucket);
+                }
+
+                char[] localName = new char[32];
+                int localLength = 0;
+                int namespaceId = 0;
+                for (int i = 0; i <= id % BUCKET_SIZE; i++) {
+                        namespaceId = readVarInt(data, position);
+                        position = position + varIntLength(namespaceId);
+                        int sharedLength = 0;
+                        if (i > 0) {
+                                sharedLength = readVarInt(data, position);
+                                position = position + varIntLength(sharedLength);
+                        }
+                        int suffixLength = readVarInt(data, position);
+                        position = position + varIntLength(suffixLength);
+                        if (sharedLength + suffixLength > localName.length) {
+                                localName = Arrays.copyOf(localName,
+                                        Math.max(localName.length * 2, sharedLength + suffixLength));
+                        }
+                        for (int j = 0; j < suffixLength; j++) {
+                                int character = readVarInt(data, position);
+                                position = position + varIntLength(character);
+                                localName[sharedLength + j] = (char)character;
+                        }
+                        localLength = sharedLength + suffixLength;
+                }
+                String namespace = namespaces[namespaceId];
+                return new StringBuilder(namespace.length() + localLength)
+                        .append(namespace).append(localName, 0, localLength).toString();
+        }
+
+        /**
+         * Returns the number of URIs.
+         * @return
+         */
+        public int size() {
+                return size;
+        }
+
+        /**
+         * Returns the number of distinct namespaces.
+         * @return
+         */
+        public int getNumberOfNamespaces() {
+                return numberOfNamespaces;
+        }
+
+        /**
+         * Moves the dictionary into read-optimized arrays. New URIs cannot be
+         * added afterwards.
+         */
+        public void freeze() {
+                if (frozen) {
+                        return;
+                }
+                frozen = true;
+                int numberOfBuckets = (size + BUCKET_SIZE - 1) / BUCKET_SIZE;
+                long dataLength = 0;
+                for (int bucket = 0; bucket < numberOfBuckets; bucket++) {
+                        dataLength = dataLength + bucketLength(bucket);
+                }
+                frozenHashes = new int[size];
+                for (int id = 0; id < size; id++) {
+                        frozenHashes[id] = get(hashes, id);
+                }
+                hashes = null;
+                if (dataLength > Integer.MAX_VALUE - 8) {
+                        //Doesn't fit into one array, pages are kept.
+                        return;
+                }
+                frozenData = new byte[(int)dataLength];
+                frozenBucketOffsets = new int[numberOfBuckets];
+                int position = 0;
+                for (int bucket = 0; bucket < numberOfBuckets; bucket++) {
+                        int length = bucketLength(bucket);
+                        System.arraycopy(pages[get(bucketPages, bucket)], get(bucketOffsets, bucket),
+                                frozenData, position, length);
+                        frozenBucketOffsets[bucket] = position;
+                        position = position + length;
+                }
+                pages = null;
+                bucketPages = null;
+                bucketOffsets = null;
+                lastLocalName = null;
+        }
+
+        /**
+         * Returns true if the dictionary has been frozen.
+         * @return
+         */
+        public boolean isFrozen() {
+                return frozen;
+        }
+
+        /**
+         * Returns an estimation of the bytes used by the dictionary.
+         * @return
+         */
+        public long getSizeInBytes() {
+                long bytes = 4L * table.length;
+                for (int i = 0; i < numberOfNamespaces; i++) {
+                        bytes = bytes + 2L * namespaces[i].length();
+                }
+                if (frozenData != null) {
+                        return bytes + frozenData.length + 4L * frozenBucketOffsets.length + 4L * frozenHashes.length;
+                }
+                for (int i = 0; i < numberOfPages; i++) {
+                        bytes = bytes + pages[i].length;
+                }
+                for (int[][] chunks: new int[][][] {bucketPages, bucketOffsets, hashes}) {
+                        if (chunks != null) {
+                                for (int[] chunk: chunks) {
+                                        bytes = bytes + (chunk == null ? 0 : 4L * chunk.length);
+                                }
+                        }
+                }
+                if (frozenHashes != null) {
+                        bytes = bytes + 4L * frozenHashes.length;
+                }
+                return bytes;
+        }
+
+        private int find(String uri, int hash) {
+                int mask = table.length - 1;
+                int slot = mix(hash) & mask;
+                while (table[slot] != 0) {
+                        int id = table[slot] - 1;
+                        if (hashOf(id) == hash && uri.equals(getUri(id))) {
+                                return id;
+                        }
+                        slot = (slot + 1) & mask;
+                }
+                return -1;
+        }
+
+        private void insert(int id, int hash) {
+                int mask = table.length - 1;
+                int slot = mix(hash) & mask;
+                while (table[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                }
+                table[slot] = id + 1;
+        }
+
+        private void rehash(int capacity) {
+                table = new int[capacity];
+                for (int id = 0; id < size; id++) {
+                        insert(id, hashOf(id));
+                }
+        }
+
+        private int hashOf(int id) {
+                return frozenHashes != null ? frozenHashes[id] : get(hashes, id);
+        }
+
+        //Appends the URI with id size to the last bucket.
+        private void write(String uri) {
+                int split = Math.max(uri.lastIndexOf('#'), uri.lastIndexOf('/')) + 1;
+                if (split == 0) {
+                        split = uri.lastIndexOf(':') + 1;
+                }
+                String namespace = uri.substring(0, split);
+                String localName = uri.substring(split);
+                Integer namespaceId = namespaceIds.get(namespace);
+                if (namespaceId == null) {
+                        namespaceId = numberOfNamespaces;
+                        if (numberOfNamespaces >= namespaces.length) {
+                                namespaces = Arrays.copyOf(namespaces, namespaces.length * 2);
+                        }
+                        namespaces[numberOfNamespaces] = namespace;
+                        namespaceIds.put(namespace, namespaceId);
+                        numberOfNamespaces++;
+                }
+
+                int bucket = size / BUCKET_SIZE;
+                boolean firstOfBucket = size % BUCKET_SIZE == 0;
+                int sharedLength = 0;
+                if (!firstOfBucket && namespaceId == lastNamespaceId) {
+                        int maxLength = Math.min(localName.length(), lastLocalName.length());
+                        while (sharedLength < maxLength
+                                && localName.charAt(sharedLength) == lastLocalName.charAt(sharedLength)) {
+                                sharedLength++;
+                        }
+                }
+                int suffixLength = localName.length() - sharedLength;
+                //Upper bound of the bytes of the entry.
+                int entryLength = 15 + 3 * suffixLength;
+
+                if (firstOfBucket) {
+                        if (numberOfPages == 0 || pageFill + entryLength > pages[numberOfPages - 1].length) {
+                                newPage(entryLength);
+                        }
+                        bucketPages = set(bucketPages, bucket, numberOfPages - 1);
+                        bucketOffsets = set(bucketOffsets, bucket, pageFill);
+                } else if (pageFill + entryLength > pages[numberOfPages - 1].length) {
+                        //The bucket is moved to a new page, buckets don't cross pages.
+                        int bucketStart = get(bucketOffsets, bucket);
+                        byte[] oldPage = pages[numberOfPages - 1];
+                        int bucketLength = pageFill - bucketStart;
+                        newPage(bucketLength + entryLength);
+                        System.arraycopy(oldPage, bucketStart, pages[numberOfPages - 1], 0, bucketLength);
+                        pageFill = bucketLength;
+                        bucketPages = set(bucketPages, bucket, numberOfPages - 1);
+                        bucketOffsets = set(bucketOffsets, bucket, 0);
+                }
+
+                byte[] page = pages[numberOfPages - 1];
+                pageFill = writeVarInt(page, pageFill, namespaceId);
+                if (!firstOfBucket) {
+                        pageFill = writeVarInt(page, pageFill, sharedLength);
+                }
+                pageFill = writeVarInt(page, pageFill, suffixLength);
+                for (int i = sharedLength; i < localName.length(); i++) {
+                        pageFill = writeVarInt(page, pageFill, localName.charAt(i));
+                }
+                lastNamespaceId = namespaceId;
+                lastLocalName = localName;
+        }
+
+        private void newPage(int minLength) {
+                if (numberOfPages >= pages.length) {
+                        pages = Arrays.copyOf(pages, pages.length * 2);
+                }
+                pages[numberOfPages] = new byte[Math.max(PAGE_SIZE, minLength)];
+                numberOfPages++;
+                pageFill = 0;
+        }
+
+        //Number of bytes of a bucket, computed from the start of the next one.
+        private int bucketLength(int bucket) {
+                int page = get(bucketPages, bucket);
+                int start = get(bucketOffsets, bucket);
+                if ((bucket + 1) * BUCKET_SIZE < size && get(bucketPages, bucket + 1) == page) {
+                        return get(bucketOffsets, bucket + 1) - start;
+                }
+                if (page == numberOfPages - 1) {
+                        return pageFill - start;
+                }
+                //Last bucket of a page, the rest of the page is decoded.
+                byte[] data = pages[page];
+                int position = start;
+                int entries = Math.min(BUCKET_SIZE, size - bucket * BUCKET_SIZE);
+                for (int i = 0; i < entries; i++) {
+                        position = skipVarInt(data, position);
+                        if (i > 0) {
+                                position = skipVarInt(data, position);
+                        }
+                        int suffixLength = readVarInt(data, position);
+                        position = position + varIntLength(suffixLength);
+                        for (int j = 0; j < suffixLength; j++) {
+                                position = skipVarInt(data, position);
+                        }
+                }
+                return position - start;
+        }
+
+        private static int mix(int hash) {
+                int h = hash ^ (hash >>> 16);
+                return h * 0x9E3779B9;
+        }
+
+        private static int get(int[][] chunks, int index) {
+                return chunks[index >>> CHUNK_SHIFT][index & (CHUNK_SIZE - 1)];
+        }
+
+        //Only the array of chunks is copied when it grows.
+        private static int[][] set(int[][] chunks, int index, int value) {
+                int chunk = index >>> CHUNK_SHIFT;
+                if (chunk >= chunks.length) {
+                        chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, chunk + 1));
+                }
+                if (chunks[chunk] == null) {
+                        chunks[chunk] = new int[CHUNK_SIZE];
+                }
+                chunks[chunk][index & (CHUNK_SIZE - 1)] = value;
+                return chunks;
+        }
+
+        private static int writeVarInt(byte[] data, int position, int value) {
+                while ((value & ~0x7F) != 0) {
+                        data[position] = (byte)((value & 0x7F) | 0x80);
+                        position++;
+                        value = value >>> 7;
+                }
+                data[position] = (byte)value;
+                return position + 1;
+        }
+
+        private static int readVarInt(byte[] data, int position) {
+                int value = 0;
+                int shift = 0;
+                byte current;
+                do {
+                        current = data[position];
+                        value = value | ((current & 0x7F) << shift);
+                        shift = shift + 7;
+                        position++;
+                } while ((current & 0x80) != 0);
+                return value;
+        }
+
+        private static int skipVarInt(byte[] data, int position) {
+                while ((data[position] & 0x80) != 0) {
+                        position++;
+                }
+                return position + 1;
+        }
+
+        private static int varIntLength(int value) {
+                int length = 1;
+                while ((value & ~0x7F) != 0) {
+                        value = value >>> 7;
+                        length++;
+                }
+                return length;
+        }
+}
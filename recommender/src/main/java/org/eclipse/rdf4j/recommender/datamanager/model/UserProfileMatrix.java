@@ -0,0 +1,488 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * User-item rating matrix in compressed sparse row (CSR) format. The profile
+ * of a user, i.e. the rated items and the ratings, is stored in the cells
+ * [getStart(user), getEnd(user)) of two parallel arrays (getItemIds() and
+ * getRatings()) sorted by item id and then by rating.
+ * Ratings added with add(...) are buffered and merged into the matrix the
+ * next time it is read, so that loading a data set costs a few primitive
+ * arrays instead of an object per rating.
+ */
+public class UserProfileMatrix implements Serializable {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final long serialVersionUID = 49L;
+
+        //Marks user ids without profile.
+        private static final int NO_PROFILE = -1;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        //Per user id: first cell and number of cells of its profile.
+        private int[] starts;
+        private int[] lengths;
+        //Profiles of all users.
+        private int[] itemIds = new int[0];
+        private double[] ratings = new double[0];
+        //Number of used cells and how many of them don't belong to a profile
+        //anymore (after a profile has been replaced).
+        private int usedCells = 0;
+        private int wastedCells = 0;
+        private int numberOfUsers = 0;
+        //Sorted ids of users, computed on demand.
+        private int[] userIds = null;
+        //Ratings not merged yet (coordinate format).
+        private int[] pendingUsers = new int[1000];
+        private int[] pendingItems = new int[1000];
+        private double[] pendingRatings = new double[1000];
+        private int pendingSize = 0;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        public UserProfileMatrix() {
+                starts = new int[10000];
+                lengths = new int[10000];
+                Arrays.fill(starts, NO_PROFILE);
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Adds a rating to the profile of a user. Adding the same pair item,
+         * rating twice has no effect.
+         * @param userId
+         * @param itemId
+         * @param rating
+         */
+        public void add(int userId, int itemId, double rating) {
+                createProfile(userId);
+                if (pendingSize >= pendingUsers.length) {
+                        int newLength = pendingUsers.length + (pendingUsers.length >> 1);
+                        pendingUsers = Arrays.copyOf(pendingUsers, newLength);
+                        pendingItems = Arrays.copyOf(pendingItems, newLength);
+                        pendingRatings = Arrays.copyOf(pendingRatings, newLength);
+                }
+                pendingUsers[pendingSize] = userId;
+                pendingItems[pendingSize] = itemId;
+                pendingRatings[pendingSize] = rating;
+                pendingSize++;
+        }
+
+        /**
+         * Replaces the profile of a user. The first size cells of the arrays
+         * are used, they don't need to be sorted.
+         * @param userId
+         * @param profileItemIds
+         * @param profileRatings
+         * @param size
+         */
+        public void set(int userId, int[] profileItemIds, double[] profileRatings, int size) {
+                compact();
+                createProfile(userId);
+                int[] newItemIds = Arrays.copyOf(profileItemIds, size);
+                double[] newRatings = Arrays.copyOf(profileRatings, size);
+                ParallelArraySorter.sort(newItemIds, newRatings, 0, size);
+                size = removeDuplicates(newItemIds, newRatings, 0, size);
+
+                if (size > lengths[userId]) {
+                        //Doesn't fit into the old cells, it is appended.
+                        ensureCellCapacity(usedCells + size);
+                        wastedCells = wastedCells + lengths[userId];
+                        starts[userId] = usedCells;
+                        usedCells = usedCells + size;
+                } else {
+                        wastedCells = wastedCells + lengths[userId] - size;
+                }
+                System.arraycopy(newItemIds, 0, itemIds, starts[userId], size);
+                System.arraycopy(newRatings, 0, ratings, starts[userId], size);
+                lengths[userId] = size;
+
+                if (wastedCells > 1024 && wastedCells > usedCells / 2) {
+                        rebuild();
+                }
+        }
+
+        /**
+         * Merges the buffered ratings into the matrix. It is invoked by all
+         * the read methods, but it can be invoked explicitly before the
+         * matrix is read by several threads.
+         */
+        public void compact() {
+                if (pendingSize > 0) {
+                        rebuild();
+                }
+        }
+
+        /**
+         * Returns true if the user has a profile (possibly empty).
+         * @param userId
+         * @return
+         */
+        public boolean hasProfile(int userId) {
+                return userId >= 0 && userId < starts.length && starts[userId] != NO_PROFILE;
+        }
+
+        /**
+         * Returns the first cell of the profile of a user.
+         * @param userId
+         * @return
+         */
+        public int getStart(int userId) {
+                compact();
+                return starts[userId];
+        }
+
+        /**
+         * Returns the cell after the last cell of the profile of a user.
+         * @param userId
+         * @return
+         */
+        public int getEnd(int userId) {
+                compact();
+                return starts[userId] + lengths[userId];
+        }
+
+        /**
+         * Returns the number of ratings of a user.
+         * @param userId
+         * @return
+         */
+        public int size(int userId) {
+                compact();
+                return hasProfile(userId) ? lengths[userId] : 0;
+        }
+
+        /**
+         * Returns the item ids of all profiles. It must not be modified.
+         * @return
+         */
+        public int[] getItemIds() {
+                compact();
+                return itemIds;
+        }
+
+        /**
+         * Returns the ratings of all profiles. Cells can be modified in place
+         * (e.g. to normalize them) as long as the order of the ratings of
+         * the same item is kept.
+         * @return
+         */
+        public double[] getRatings() {
+                compact();
+                return ratings;
+        }
+
+        /**
+         * Returns the position of the first rating of an item in the profile
+         * of a user, or -1 if the user has not rated the item.
+         * @param userId
+         * @param itemId
+         * @return
+         */
+        public int indexOf(int userId, int itemId) {
+                if (!hasProfile(userId)) {
+                        return -1;
+                }
+                int low = getStart(userId);
+                int high = getEnd(userId);
+                while (low < high) {
+                        int middle = (low + high) >>> 1;
+                        if (itemIds[middle] < itemId) {
+                                low = middle + 1;
+                        } else {
+                                high = middle;
+                        }
+                }
+                if (low < getEnd(userId) && itemIds[low] == itemId) {
+                        return low;
+                }
+                return -1;
+        }
+
+        /**
+         * Returns the ids of all users with a profile in ascending order. It
+         * must not be modified.
+         * @return
+         */
+        public int[] getUserIds() {
+                if (userIds == null) {
+                        int[] ids = new int[numberOfUsers];
+                        int index = 0;
+                        for (int userId = 0; userId < starts.length; userId++) {
+                                if (starts[userId] != NO_PROFILE) {
+                                        ids[index] = userId;
+                                        index++;
+                                }
+                        }
+                        userIds = ids;
+                }
+                return userIds;
+        }
+
+        /**
+         * Returns the number of users with a profile.
+         * @return
+         */
+        public int getNumberOfUsers() {
+                return numberOfUsers;
+        }
+
+        /**
+         * Returns the number of ratings stored.
+         * @return
+         */
+        public int getNumberOfRatings() {
+                compact();
+                return usedCells - wastedCells;
+        }
+
+        /**
+         * Returns a read-only set view of the profile of a user.
+         * @param userId
+         * @return
+         */
+        public Set<IndexedRatedRes> getProfile(int userId) {
+                return new ProfileSet(userId);
+        }
+
+        /**
+         * Returns a read-only set view of the ids of the users with a profile.
+         * @return
+         */
+        public Set<Integer> getUserIdSet() {
+                return new UserIdSet();
+        }
+
+        private void createProfile(int userId) {
+                if (userId >= starts.length) {
+                        int oldLength = starts.length;
+                        int newLength = Math.max(userId + 1, oldLength * 2);
+                        starts = Arrays.copyOf(starts, newLength);
+                        lengths = Arrays.copyOf(lengths, newLength);
+                        Arrays.fill(starts, oldLength, newLength, NO_PROFILE);
+                }
+                if (starts[userId] == NO_PROFILE) {
+                        starts[userId] = usedCells;
+                        lengths[userId] = 0;
+                        numberOfUsers++;
+                        userIds = null;
+                }
+        }
+
+        private void ensureCellCapacity(int capacity) {
+                if (capacity > itemIds.length) {
+                        int newLength = Math.max(capacity, itemIds.length + (itemIds.length >> 1));
+                        itemIds = Arrays.copyOf(itemIds, newLength);
+                        ratings = Arrays.copyOf(ratings, newLength);
+                }
+        }
+
+        //Copies the profiles in user id order into new arrays, appending the
+        //buffered ratings and removing unused cells.
+        private void rebuild() {
+                int[] newLengths = Arrays.copyOf(lengths, lengths.length);
+                for (int i = 0; i < pendingSize; i++) {
+                        newLengths[pendingUsers[i]]++;
+                }
+                int[] newStarts = new int[starts.length];
+                int numberOfCells = 0;
+                for (int userId = 0; userId < starts.length; userId++) {
+                        if (starts[userId] == NO_PROFILE) {
+                                newStarts[userId] = NO_PROFILE;
+                        } else {
+                                newStarts[userId] = numberOfCells;
+                                numberOfCells = numberOfCells + newLengths[userId];
+                        }
+                }
+                int[] newItemIds = new int[numberOfCells];
+                double[] newRatings = new double[numberOfCells];
+                //fill[u] is the next free cell of u.
+                int[] fill = new int[starts.length];
+                for (int userId = 0; userId < starts.length; userId++) {
+                        if (starts[userId] != NO_PROFILE) {
+                                System.arraycopy(itemIds, starts[userId], newItemIds, newStarts[userId], lengths[userId]);
+                                System.arraycopy(ratings, starts[userId], newRatings, newStarts[userId], lengths[userId]);
+                                fill[userId] = newStarts[userId] + lengths[userId];
+                        }
+                }
+                for (int i = 0; i < pendingSize; i++) {
+                        int userId = pendingUsers[i];
+                        newItemIds[fill[userId]] = pendingItems[i];
+                        newRatings[fill[userId]] = pendingRatings[i];
+                        fill[userId]++;
+                }
+                itemIds = newItemIds;
+                ratings = newRatings;
+                starts = newStarts;
+                usedCells = numberOfCells;
+                wastedCells = 0;
+
+                //Profiles with new ratings have to be sorted again.
+                if (pendingSize > 0) {
+                        for (int userId = 0; userId < starts.length; userId++) {
+                                if (starts[userId] != NO_PROFILE && newLengths[userId] != lengths[userId]) {
+                                        int start = starts[userId];
+                                        ParallelArraySorter.sort(itemIds, ratings, start, start + newLengths[userId]);
+                                        int size = removeDuplicates(itemIds, ratings, start, start + newLengths[userId]) - start;
+                                        wastedCells = wastedCells + newLengths[userId] - size;
+                                        newLengths[userId] = size;
+                                }
+                        }
+                }
+                lengths = newLengths;
+                pendingSize = 0;
+                if (pendingUsers.length > 1000) {
+                        pendingUsers = new int[1000];
+                        pendingItems = new int[1000];
+                        pendingRatings = new double[1000];
+                }
+        }
+
+        //Removes repeated pairs item, rating of a sorted range and returns
+        //the new end of the range.
+        private static int removeDuplicates(int[] ids, double[] values, int from, int to) {
+                if (to - from < 2) {
+                        return to;
+                }
+                int last = from;
+                for (int i = from + 1; i < to; i++) {
+                        if (ids[i] != ids[last] || values[i] != values[last]) {
+                                last++;
+                                ids[last] = ids[i];
+                                values[last] = values[i];
+                        }
+                }
+                return last + 1;
+        }
+
+        /**
+         * Set view of a profile. Each iteration creates the IndexedRatedRes
+         * objects, code that is called often should read the arrays instead.
+         */
+        private final class ProfileSet extends AbstractSet<IndexedRatedRes> {
+                private final int userId;
+
+                private ProfileSet(int userId) {
+                        this.userId = userId;
+                }
+
+                @Override
+                public int size() {
+                        return UserProfileMatrix.this.size(userId);
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                        if (!(obj instanceof IndexedRatedRes)) {
+                                return false;
+                        }
+                        IndexedRatedRes ratRes = (IndexedRatedRes)obj;
+                        int position = indexOf(userId, ratRes.getResourceId());
+                        if (position == -1) {
+                                return false;
+                        }
+                        int end = getEnd(userId);
+                        while (position < end && itemIds[position] == ratRes.getResourceId()) {
+                                if (ratings[position] == ratRes.getRating()) {
+                                        return true;
+                                }
+                                position++;
+                        }
+                        return false;
+                }
+
+                @Override
+                public Iterator<IndexedRatedRes> iterator() {
+                        final int start = getStart(userId);
+                        final int end = getEnd(userId);
+                        return new Iterator<IndexedRatedRes>() {
+                                private int position = start;
+
+                                @Override
+                                public boolean hasNext() {
+                                        return position < end;
+                                }
+
+                                @Override
+                                public IndexedRatedRes next() {
+                                        if (position >= end) {
+                                                throw new NoSuchElementException();
+                                        }
+                                        IndexedRatedRes ratRes = new IndexedRatedRes(itemIds[position], ratings[position]);
+                                        position++;
+                                        return ratRes;
+                                }
+
+                                @Override
+                                public void remove() {
+                                        throw new UnsupportedOperationException();
+                                }
+                        };
+                }
+        }
+
+        /**
+         * Set view of the ids of the users.
+         */
+        private final class UserIdSet extends AbstractSet<Integer> {
+
+                @Override
+                public int size() {
+                        return numberOfUsers;
+                }
+
+                @Override
+                public boolean contains(Object obj) {
+                        return obj instanceof Integer && hasProfile((Integer)obj);
+                }
+
+                @Override
+                public Iterator<Integer> iterator() {
+                        final int[] ids = getUserIds();
+                        return new Iterator<Integer>() {
+                                private int position = 0;
+
+                                @Override
+                                public boolean hasNext() {
+                                        return position < ids.length;
+                                }
+
+                                @Override
+                                public Integer next() {
+                                        if (position >= ids.length) {
+                                                throw new NoSuchElementException();
+                                        }
+                                        position++;
+                                        return ids[position - 1];
+                                }
+
+                                @Override
+                                public void remove() {
+                                        throw new UnsupportedOperationException();
+                                }
+                        };
+                }
+        }
+}
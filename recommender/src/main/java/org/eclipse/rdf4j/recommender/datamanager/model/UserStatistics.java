@@ -0,0 +1,228 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Rating statistics of the profiles of the users (number of ratings, mean,
+ * standard deviation and l2-norm) kept in primitive arrays indexed by the 
+ * id of the user. The statistics of a user are computed from its profile 
+ * in a UserProfileMatrix with update(...) and marked as stale with 
+ * invalidate(...) when the profile changes. Users without profile have no 
+ * ratings and all their statistics are 0.
+ * Reading and updating are not synchronized: update the statistics with 
+ * updateAll(...) before they are read by several threads.
+ */
+public class UserStatistics implements Serializable {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        private static final long serialVersionUID = 52L;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private int[] counts;
+        private double[] means;
+        private double[] standardDeviations;
+        private double[] l2Norms;
+        //True if the statistics of the user have to be computed again.
+        private boolean[] stale;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        public UserStatistics() {
+                this(10000);
+        }
+
+        /**
+         * Creates statistics with room for user ids lower than capacity. 
+         * They grow if greater ids are updated.
+         * @param capacity 
+         */
+        public UserStatistics(int capacity) {
+                counts = new int[capacity];
+                means = new double[capacity];
+                standardDeviations = new double[capacity];
+                l2Norms = new double[capacity];
+                stale = new boolean[capacity];
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Computes the statistics of a user from its profile.
+         * @param userProfiles
+         * @param userId 
+         */
+        public void update(UserProfileMatrix userProfiles, int userId) {
+                ensureCapacity(userId + 1);
+                int count = userProfiles.size(userId);
+                double mean = 0.0;
+                double standardDeviation = 0.0;
+                double l2Norm = 0.0;
+                if (count > 0) {
+                        int start = userProfiles.getStart(userId);
+                        int end = userProfiles.getEnd(userId);
+                        double[] ratings = userProfiles.getRatings();
+                        double ratingSum = 0.0;
+                        double ratingSquareSum = 0.0;
+                        for (int i = start; i < end; i++) {
+                                ratingSum = ratingSum + ratings[i];
+                                ratingSquareSum = ratingSquareSum + ratings[i] * ratings[i];
+                        }
+                        mean = ratingSum / (double)count;
+                        l2Norm = Math.sqrt(ratingSquareSum);
+                        //Second pass, as the normalization of the ratings does.
+                        double sumOfSquares = 0.0;
+                        for (int i = start; i < end; i++) {
+                                sumOfSquares = sumOfSquares + Math.pow(ratings[i] - mean, 2);
+                        }
+                        standardDeviation = Math.sqrt(sumOfSquares / count);
+                }
+                counts[userId] = count;
+                means[userId] = mean;
+                standardDeviations[userId] = standardDeviation;
+                l2Norms[userId] = l2Norm;
+                stale[userId] = false;
+        }
+
+        /**
+         * Computes the statistics of all users with a profile.
+         * @param userProfiles 
+         */
+        public void updateAll(UserProfileMatrix userProfiles) {
+                int[] userIds = userProfiles.getUserIds();
+                if (userIds.length > 0) {
+                        ensureCapacity(userIds[userIds.length - 1] + 1);
+                }
+                for (int userId: userIds) {
+                        update(userProfiles, userId);
+                }
+        }
+
+        /**
+         * Marks the statistics of a user as stale, e.g. after a rating has
+         * been added to the profile.
+         * @param userId 
+         */
+        public void invalidate(int userId) {
+                ensureCapacity(userId + 1);
+                stale[userId] = true;
+        }
+
+        /**
+         * Returns true if the statistics of the user have to be updated.
+         * @param userId
+         * @return 
+         */
+        public boolean isStale(int userId) {
+                return userId < stale.length && stale[userId];
+        }
+
+        /**
+         * Overrides the l2-norm of a user until its statistics are updated.
+         * @param userId
+         * @param l2Norm 
+         */
+        public void setL2Norm(int userId, double l2Norm) {
+                ensureCapacity(userId + 1);
+                l2Norms[userId] = l2Norm;
+        }
+
+        /**
+         * Returns the number of ratings of a user.
+         * @param userId
+         * @return 
+         */
+        public int getCount(int userId) {
+                return userId < counts.length ? counts[userId] : 0;
+        }
+
+        /**
+         * Returns the mean of the ratings of a user.
+         * @param userId
+         * @return 
+         */
+        public double getMean(int userId) {
+                return userId < means.length ? means[userId] : 0.0;
+        }
+
+        /**
+         * Returns the (population) standard deviation of the ratings of a 
+         * user.
+         * @param userId
+         * @return 
+         */
+        public double getStandardDeviation(int userId) {
+                return userId < standardDeviations.length ? standardDeviations[userId] : 0.0;
+        }
+
+        /**
+         * Returns the l2-norm of the ratings of a user.
+         * @param userId
+         * @return 
+         */
+        public double getL2Norm(int userId) {
+                return userId < l2Norms.length ? l2Norms[userId] : 0.0;
+        }
+
+        /**
+         * Returns the numbers of ratings, indexed by the id of the user. It 
+         * must not be modified.
+         * @return 
+         */
+        public int[] getCounts() {
+                return counts;
+        }
+
+        /**
+         * Returns the means, indexed by the id of the user. It must not be 
+         * modified.
+         * @return 
+         */
+        public double[] getMeans() {
+                return means;
+        }
+
+        /**
+         * Returns the standard deviations, indexed by the id of the user. It 
+         * must not be modified.
+         * @return 
+         */
+        public double[] getStandardDeviations() {
+                return standardDeviations;
+        }
+
+        /**
+         * Returns the l2-norms, indexed by the id of the user. It must not be
+         * modified.
+         * @return 
+         */
+        public double[] getL2Norms() {
+                return l2Norms;
+        }
+
+        private void ensureCapacity(int capacity) {
+                if (capacity > counts.length) {
+                        int newLength = Math.max(capacity, counts.length * 2);
+                        counts = Arrays.copyOf(counts, newLength);
+                        means = Arrays.copyOf(means, newLength);
+                        standardDeviations = Arrays.copyOf(standardDeviations, newLength);
+                        l2Norms = Arrays.copyOf(l2Norms, newLength);
+                        stale = Arrays.copyOf(stale, newLength);
+                }
+        }
+}
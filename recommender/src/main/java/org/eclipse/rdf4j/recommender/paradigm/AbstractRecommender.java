@@ -5,16 +5,13 @@
  */
 package org.eclipse.rdf4j.recommender.paradigm;
 
-import com.google.common.collect.MinMaxPriorityQueue;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Set;
 import org.eclipse.rdf4j.recommender.config.RecConfig;
 import org.eclipse.rdf4j.recommender.datamanager.DataManager;
 import org.eclipse.rdf4j.recommender.datamanager.impl.SparkDataManager;
 import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
-import org.eclipse.rdf4j.recommender.util.RatedResourceRatingComparator;
+import org.eclipse.rdf4j.recommender.util.TopKHeap;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
 
 /**
@@ -23,12 +20,6 @@ import org.eclipse.rdf4j.repository.sail.SailRepository;
  */
 public abstract class AbstractRecommender implements Recommender{
     
-        /**
-         * To compare rated resources only based on the "rating" 
-         * without taking into account the rated item.
-         */ 
-        private final Comparator<RatedResource> comparatorOfRrBasedOnRating = new RatedResourceRatingComparator();
-                
         /*-----------------*
 	 * Data Structures *
 	 *-----------------*/
@@ -86,25 +77,32 @@ public abstract class AbstractRecommender implements Recommender{
                         throws RecommenderException {
             
                 RatedResource[] topK = null;                
-                MinMaxPriorityQueue<RatedResource> topKQueue = null;
                 
                 if (candidatesURI == null) {
                         throw new RecommenderException("You candidate set is NULL");
                 }
                 if (candidatesURI.isEmpty()) return new RatedResource[size];
                 
-                RatedResource ratRes = null;
-                                
-                topKQueue = MinMaxPriorityQueue.orderedBy(comparatorOfRrBasedOnRating)
-                        .maximumSize(size).create();
-
-                for (String candidateURI: candidatesURI) {                                       
-                        ratRes =  new RatedResource(candidateURI, predictRating(userURI, candidateURI));
-                        topKQueue.add(ratRes);
-                }                                
-                topK = topKQueue.toArray(new RatedResource[size]);
-                Arrays.sort(topK, comparatorOfRrBasedOnRating);
-                              
+                //Candidates are kept by position, only the top k become
+                //rated resources.
+                final String[] candidates = candidatesURI.toArray(new String[candidatesURI.size()]);
+                TopKHeap topKHeap = new TopKHeap(size) {
+                        @Override
+                        protected int compareTies(int id1, int id2) {
+                                //As RatedResourceRatingComparator: lower URI first.
+                                return candidates[id2].compareTo(candidates[id1]);
+                        }
+                };
+                for (int i = 0; i < candidates.length; i++) {
+                        topKHeap.offer(i, predictRating(userURI, candidates[i]));
+                }
+                int[] positions = new int[topKHeap.size()];
+                double[] ratings = new double[topKHeap.size()];
+                int numberOfResults = topKHeap.drainSorted(positions, ratings);
+                topK = new RatedResource[size];
+                for (int i = 0; i < numberOfResults; i++) {
+                        topK[i] = new RatedResource(candidates[positions[i]], ratings[i]);
+                }
                 return topK;
         }
         
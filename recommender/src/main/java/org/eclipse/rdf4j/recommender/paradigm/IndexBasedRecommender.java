@@ -0,0 +1,105 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.paradigm;
+
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.util.RecommendationScratch;
+
+/**
+ * Recommender whose users and items can be referred to by their indexes in
+ * an index-based storage. The user is resolved once with getIndexOf(...), 
+ * candidates are scored as indexes and only the resources of the top-k 
+ * list need to be converted to URIs with getURI(...). Top-k lists are 
+ * ranked as those of the methods with URIs: higher rating first and, for
+ * equal ratings, lower URI first.
+ * The methods with indexes can only be used if isIndexBased() is true.
+ */
+public interface IndexBasedRecommender extends Recommender {
+        /**
+         * Returns true if the data is kept in an index-based storage and the
+         * model has been preprocessed, so that the methods with indexes can
+         * be used.
+         * @return 
+         */
+        public boolean isIndexBased();
+        
+        /**
+         * Returns the index of a resource, -1 if it has not been indexed.
+         * @param URI
+         * @return 
+         */
+        public int getIndexOf(String URI);
+        
+        /**
+         * Returns the URI of an indexed resource.
+         * @param index
+         * @return 
+         */
+        public String getURI(int index);
+        
+        /**
+         * Returns the indexes of all users with a profile in ascending order.
+         * The array must not be modified.
+         * @return 
+         */
+        public int[] getUserIndexes();
+        
+        /**
+         * Same as predictRating(String, String) for the indexes of a user and
+         * of an item.
+         * @param indexOfUser
+         * @param indexOfItem
+         * @return
+         * @throws RecommenderException 
+         */
+        public double predictRating(int indexOfUser, int indexOfItem)
+                throws RecommenderException;
+        
+        /**
+         * Same as getTopRecommendations(String, int, boolean) for the index 
+         * of a user. The array has the given size, positions after the last
+         * recommendation are null.
+         * @param indexOfUser
+         * @param size
+         * @param includeConsumedItems
+         * @return
+         * @throws RecommenderException 
+         */
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, 
+                int size, boolean includeConsumedItems) 
+                        throws RecommenderException;
+        
+        /**
+         * Same as getTopRecommendations(int, int, boolean) with the buffers 
+         * of the calling thread, null to allocate new ones. Threads which 
+         * compute the recommendations of many users should keep one scratch
+         * each.
+         * @param indexOfUser
+         * @param size
+         * @param includeConsumedItems
+         * @param scratch
+         * @return
+         * @throws RecommenderException 
+         */
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, 
+                int size, boolean includeConsumedItems, RecommendationScratch scratch) 
+                        throws RecommenderException;
+        
+        /**
+         * Same as getTopRecommendations(String, int, Set) for the index of a
+         * user and the indexes of the candidates, which must not be 
+         * repeated. The array has the given size, positions after the last 
+         * recommendation are null.
+         * @param indexOfUser
+         * @param size
+         * @param candidates
+         * @return
+         * @throws RecommenderException 
+         */
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, int size, 
+                int[] candidates) throws RecommenderException;
+}
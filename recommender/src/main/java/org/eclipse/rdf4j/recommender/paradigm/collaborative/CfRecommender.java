@@ -5,19 +5,35 @@
  */
 package org.eclipse.rdf4j.recommender.paradigm.collaborative;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import org.eclipse.rdf4j.recommender.datamanager.AbstractIndexBasedDataManager;
 import org.eclipse.rdf4j.recommender.datamanager.DataManager;
+import org.eclipse.rdf4j.recommender.datamanager.impl.IndexBasedDataManager;
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
 import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
 import org.eclipse.rdf4j.recommender.paradigm.AbstractRecommender;
+import org.eclipse.rdf4j.recommender.paradigm.IndexBasedRecommender;
 import org.eclipse.rdf4j.recommender.parameter.RecEntity;
 import org.eclipse.rdf4j.recommender.parameter.RecParadigm;
+import org.eclipse.rdf4j.recommender.storage.index.CfIndexBasedStorage;
+import org.eclipse.rdf4j.recommender.util.RecommendationScratch;
+import org.eclipse.rdf4j.recommender.util.TopKHeap;
+import org.eclipse.rdf4j.recommender.util.VoteAccumulator;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
 
 /**
  * This class represents a collaborative filtering recommender.
+ * With an index-based storage the methods with URIs resolve the user once
+ * and delegate to the methods with indexes, so that only the resources of
+ * the top-k list are converted to URIs.
  */
-public class CfRecommender extends AbstractRecommender{                
+public class CfRecommender extends AbstractRecommender implements IndexBasedRecommender{                
     
         /*-------------*
 	 * Constructor *
@@ -30,8 +46,25 @@ public class CfRecommender extends AbstractRecommender{
                 super(sailRep, dataManager);
         }
         
+        /*---------*
+	 * Methods *
+	 *---------*/
+        
         @Override
         public double predictRating(String userURI, String itemURI) throws RecommenderException{
+                if (isIndexBased()) {
+                        int indexOfUser = getIndexOfUser(userURI);
+                        int indexOfItem = getIndexOf(itemURI);
+                        if (indexOfItem == -1) {
+                                if (getRecConfig().getRecParadigm() == RecParadigm.ITEM_COLLABORATIVE_FILTERING) {
+                                        throw new RecommenderException("Resource was not found");
+                                }
+                                //No neighbor has rated it.
+                                return 0.0;
+                        }
+                        return predictRating(indexOfUser, indexOfItem);
+                }
+                
                 Set<RatedResource> neighborhood = null;
                 //Variables needed in the inner loop                                                                        
                 Double nbSim = 0.0;
@@ -84,9 +117,384 @@ public class CfRecommender extends AbstractRecommender{
                                         return sumOfNbSim / neighborsCounter;
                                 }
                         }
+                        if (getRecConfig().getRecParadigm() == RecParadigm.ITEM_COLLABORATIVE_FILTERING) {
+                                //Ratings of the user, only the items among the
+                                //neighbors of the item are used.
+                                Map<String, Double> ratingsOfUser = new HashMap<String, Double>();
+                                for (RatedResource rr: getDataManager().getRatedResources(userURI)) {
+                                        ratingsOfUser.put(rr.getResource(), rr.getRating());
+                                }
+                                neighborhood = getDataManager().getNeighbors(itemURI);
+                                double neighborsCounter = 0.0;
+
+                                for (RatedResource neighbor: neighborhood) {
+                                        Double ratingOfNeighbor = ratingsOfUser.get(neighbor.getResource());
+                                        if (ratingOfNeighbor != null) {
+                                                nbSim = neighbor.getRating();
+                                                neighborsCounter++;
+                                                sumOfNbSim += Math.abs(nbSim);
+                                                sumWeightedVotes += nbSim * ratingOfNeighbor;
+                                        }
+                                }
+                                //Case 1) with ratings: weighted average of the
+                                //ratings of the user on the neighbors.
+                                if (getRecConfig().getRecEntity(RecEntity.RATING) != null) {
+                                        if (sumWeightedVotes == 0.0 || sumOfNbSim == 0.0) return 0.0;
+                                        return sumWeightedVotes / sumOfNbSim;
+                                }
+                                //Case 2) only positive feedback is provided: average
+                                //similarity of the neighbors the user liked.
+                                if (neighborsCounter == 0.0) return 0.0;
+                                return sumOfNbSim / neighborsCounter;
+                        }
                 }
                 //TODO if system has not preprocessed, neighborhood should be computed
                 //on-the-fly.
                 return -1.0;
         }           
+        
+        @Override
+        public RatedResource[] getTopRecommendations(String userURI, int size, boolean includeConsumedItems) 
+                        throws RecommenderException {
+                if (!isIndexBased()) {
+                        return super.getTopRecommendations(userURI, size, includeConsumedItems);
+                }
+                return toRatedResources(getTopRecommendations(getIndexOfUser(userURI), size, includeConsumedItems));
+        }
+        
+        @Override
+        public RatedResource[] getTopRecommendations(String userURI, int size, 
+                        Set<String> candidatesURI) 
+                        throws RecommenderException {
+                if (!isIndexBased()) {
+                        return super.getTopRecommendations(userURI, size, candidatesURI);
+                }
+                if (candidatesURI == null) {
+                        throw new RecommenderException("You candidate set is NULL");
+                }
+                if (candidatesURI.isEmpty()) return new RatedResource[size];
+                
+                int indexOfUser = getIndexOfUser(userURI);
+                int[] candidates = new int[candidatesURI.size()];
+                int numberOfCandidates = 0;
+                //Candidates which have not been indexed are predicted 0.0.
+                List<String> unknownURIs = new ArrayList<String>();
+                for (String candidateURI: candidatesURI) {
+                        int indexOfCandidate = getIndexOf(candidateURI);
+                        if (indexOfCandidate == -1) {
+                                unknownURIs.add(candidateURI);
+                        } else {
+                                candidates[numberOfCandidates] = indexOfCandidate;
+                                numberOfCandidates++;
+                        }
+                }
+                if (numberOfCandidates < candidates.length) {
+                        int[] indexedCandidates = new int[numberOfCandidates];
+                        System.arraycopy(candidates, 0, indexedCandidates, 0, numberOfCandidates);
+                        candidates = indexedCandidates;
+                }
+                RatedResource[] topK = toRatedResources(getTopRecommendations(indexOfUser, size, candidates));
+                if (unknownURIs.isEmpty()) {
+                        return topK;
+                }
+                
+                //The top k of the indexed candidates are merged with the others.
+                final List<RatedResource> merged = new ArrayList<RatedResource>();
+                for (RatedResource rr: topK) {
+                        if (rr != null) {
+                                merged.add(rr);
+                        }
+                }
+                for (String unknownURI: unknownURIs) {
+                        merged.add(new RatedResource(unknownURI, 0.0));
+                }
+                TopKHeap topKHeap = new TopKHeap(size) {
+                        @Override
+                        protected int compareTies(int id1, int id2) {
+                                //As RatedResourceRatingComparator: lower URI first.
+                                return merged.get(id2).getResource().compareTo(merged.get(id1).getResource());
+                        }
+                };
+                for (int i = 0; i < merged.size(); i++) {
+                        topKHeap.offer(i, merged.get(i).getRating());
+                }
+                int[] positions = new int[topKHeap.size()];
+                double[] ratings = new double[topKHeap.size()];
+                int numberOfResults = topKHeap.drainSorted(positions, ratings);
+                topK = new RatedResource[size];
+                for (int i = 0; i < numberOfResults; i++) {
+                        topK[i] = merged.get(positions[i]);
+                }
+                return topK;
+        }
+        
+        @Override
+        public boolean isIndexBased() {
+                return getDataManager() instanceof IndexBasedDataManager
+                        && getDataManager().getStorage() instanceof CfIndexBasedStorage
+                        && getDataManager().hasPreprocessed();
+        }
+        
+        @Override
+        public int getIndexOf(String URI) {
+                return getCfStorage().getIndexOf(URI);
+        }
+        
+        @Override
+        public String getURI(int index) {
+                return getCfStorage().getURI(index);
+        }
+        
+        @Override
+        public int[] getUserIndexes() {
+                return getCfStorage().getUserProfiles().getUserIds();
+        }
+        
+        @Override
+        public double predictRating(int indexOfUser, int indexOfItem) throws RecommenderException {
+                CfIndexBasedStorage cfStorage = getCfStorage();
+                UserProfileMatrix userProfiles = cfStorage.getUserProfiles();
+                int[] itemIds = userProfiles.getItemIds();
+                double[] ratings = userProfiles.getRatings();
+                boolean hasRatings = getRecConfig().getRecEntity(RecEntity.RATING) != null;
+                double sumOfNbSim = 0.0;
+                double sumWeightedVotes = 0.0;
+                double neighborsCounter = 0.0;
+                
+                if (getRecConfig().getRecParadigm() == RecParadigm.USER_COLLABORATIVE_FILTERING) {
+                        IndexedRatedRes[] neighborhood = cfStorage.getNeighborhood(indexOfUser);
+                        if (neighborhood != null) {
+                                for (IndexedRatedRes neighbor: neighborhood) {
+                                        if (neighbor == null) {
+                                                continue;
+                                        }
+                                        int neighborId = neighbor.getResourceId();
+                                        double nbSim = neighbor.getRating();
+                                        int position = userProfiles.indexOf(neighborId, indexOfItem);
+                                        if (position == -1) {
+                                                continue;
+                                        }
+                                        int end = userProfiles.getEnd(neighborId);
+                                        //Case 1) with ratings. The neighbor may have rated
+                                        //the item several times.
+                                        if (hasRatings) {
+                                                double ratAvgOfNeighbor = cfStorage.getRatingAverageOfUser(neighborId);
+                                                for (int i = position; i < end && itemIds[i] == indexOfItem; i++) {
+                                                        sumOfNbSim += Math.abs(nbSim);
+                                                        sumWeightedVotes += nbSim * (ratings[i] - ratAvgOfNeighbor);
+                                                }
+                                        }
+                                        //Case 2) only positive feedback is provided.
+                                        else {
+                                                for (int i = position; i < end && itemIds[i] == indexOfItem; i++) {
+                                                        if (ratings[i] == 1.0) {
+                                                                neighborsCounter++;
+                                                                sumOfNbSim += nbSim;
+                                                                break;
+                                                        }
+                                                }
+                                        }
+                                }
+                        }
+                        if (hasRatings) {
+                                if (sumWeightedVotes == 0.0 || sumOfNbSim == 0.0) return 0.0;
+                                return cfStorage.getRatingAverageOfUser(indexOfUser) 
+                                        + (sumWeightedVotes / sumOfNbSim);
+                        }
+                        if (neighborsCounter == 0.0) return 0.0;
+                        return sumOfNbSim / neighborsCounter;
+                }
+                if (getRecConfig().getRecParadigm() == RecParadigm.ITEM_COLLABORATIVE_FILTERING) {
+                        //Only the items among the neighbors of the item which
+                        //have been rated by the user are used.
+                        IndexedRatedRes[] neighborhood = cfStorage.getNeighborhood(indexOfItem);
+                        if (neighborhood != null) {
+                                for (IndexedRatedRes neighbor: neighborhood) {
+                                        if (neighbor == null) {
+                                                continue;
+                                        }
+                                        int position = userProfiles.indexOf(indexOfUser, neighbor.getResourceId());
+                                        if (position != -1) {
+                                                double nbSim = neighbor.getRating();
+                                                neighborsCounter++;
+                                                sumOfNbSim += Math.abs(nbSim);
+                                                sumWeightedVotes += nbSim * ratings[position];
+                                        }
+                                }
+                        }
+                        //Case 1) with ratings: weighted average of the
+                        //ratings of the user on the neighbors.
+                        if (hasRatings) {
+                                if (sumWeightedVotes == 0.0 || sumOfNbSim == 0.0) return 0.0;
+                                return sumWeightedVotes / sumOfNbSim;
+                        }
+                        //Case 2) only positive feedback is provided: average
+                        //similarity of the neighbors the user liked.
+                        if (neighborsCounter == 0.0) return 0.0;
+                        return sumOfNbSim / neighborsCounter;
+                }
+                return -1.0;
+        }
+        
+        @Override
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, int size, 
+                        boolean includeConsumedItems) throws RecommenderException {
+                return getTopRecommendations(indexOfUser, size, includeConsumedItems, null);
+        }
+        
+        @Override
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, int size, 
+                        boolean includeConsumedItems, RecommendationScratch scratch) throws RecommenderException {
+                if (scratch == null) {
+                        scratch = new RecommendationScratch(getCfStorage().getResourceDictionary().size());
+                }
+                int[] consumed = ((AbstractIndexBasedDataManager)getDataManager()).getConsumedResources(indexOfUser);
+                int[] candidates = ((IndexBasedDataManager)getDataManager()).getRecCandidates(indexOfUser, 
+                        scratch.getCandidates());
+                
+                if (!includeConsumedItems) {
+                        //Both arrays are sorted.
+                        int numberOfCandidates = 0;
+                        int j = 0;
+                        for (int i = 0; i < candidates.length; i++) {
+                                while (j < consumed.length && consumed[j] < candidates[i]) {
+                                        j++;
+                                }
+                                if (j == consumed.length || consumed[j] != candidates[i]) {
+                                        candidates[numberOfCandidates] = candidates[i];
+                                        numberOfCandidates++;
+                                }
+                        }
+                        if (numberOfCandidates < candidates.length) {
+                                int[] remainingCandidates = new int[numberOfCandidates];
+                                System.arraycopy(candidates, 0, remainingCandidates, 0, numberOfCandidates);
+                                candidates = remainingCandidates;
+                        }
+                }
+                return getTopRecommendations(indexOfUser, size, candidates, scratch);
+        }
+        
+        /**
+         * For user-based collaborative filtering the profile of each neighbor
+         * is walked once and the votes of all items are added into an 
+         * accumulator indexed by item id, so that the cost is the size of the
+         * profiles of the neighbors plus the number of candidates, instead of
+         * their product. Predictions are the same as predictRating(...).
+         * @param indexOfUser
+         * @param size
+         * @param candidates
+         * @return
+         * @throws RecommenderException 
+         */
+        @Override
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, int size, 
+                        int[] candidates) throws RecommenderException {
+                return getTopRecommendations(indexOfUser, size, candidates, null);
+        }
+        
+        /**
+         * Same as getTopRecommendations(int, int, int[]) with the buffers of
+         * the calling thread, null to allocate new ones.
+         * @param indexOfUser
+         * @param size
+         * @param candidates
+         * @param scratch
+         * @return
+         * @throws RecommenderException 
+         */
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, int size, 
+                        int[] candidates, RecommendationScratch scratch) throws RecommenderException {
+                if (candidates == null) {
+                        throw new RecommenderException("You candidate set is NULL");
+                }
+                final CfIndexBasedStorage cfStorage = getCfStorage();
+                TopKHeap topKHeap = new TopKHeap(size) {
+                        @Override
+                        protected int compareTies(int id1, int id2) {
+                                //As RatedResourceRatingComparator: lower URI first.
+                                return cfStorage.getURI(id2).compareTo(cfStorage.getURI(id1));
+                        }
+                };
+                if (getRecConfig().getRecParadigm() != RecParadigm.USER_COLLABORATIVE_FILTERING) {
+                        for (int indexOfCandidate: candidates) {
+                                topKHeap.offer(indexOfCandidate, predictRating(indexOfUser, indexOfCandidate));
+                        }
+                        return topKHeap.toSortedArray(size);
+                }
+                
+                boolean hasRatings = getRecConfig().getRecEntity(RecEntity.RATING) != null;
+                UserProfileMatrix userProfiles = cfStorage.getUserProfiles();
+                int[] itemIds = userProfiles.getItemIds();
+                double[] ratings = userProfiles.getRatings();
+                
+                //One pass over the profile of each neighbor.
+                VoteAccumulator votes = scratch != null ? scratch.getVotes() 
+                        : new VoteAccumulator(cfStorage.getResourceDictionary().size());
+                try {
+                        IndexedRatedRes[] neighborhood = cfStorage.getNeighborhood(indexOfUser);
+                        if (neighborhood != null) {
+                                for (IndexedRatedRes neighbor: neighborhood) {
+                                        if (neighbor == null) {
+                                                continue;
+                                        }
+                                        int neighborId = neighbor.getResourceId();
+                                        double nbSim = neighbor.getRating();
+                                        double ratAvgOfNeighbor = hasRatings ? cfStorage.getRatingAverageOfUser(neighborId) : 0.0;
+                                        int end = userProfiles.getEnd(neighborId);
+                                        for (int i = userProfiles.getStart(neighborId); i < end; i++) {
+                                                if (hasRatings) {
+                                                        votes.add(itemIds[i], Math.abs(nbSim), nbSim * (ratings[i] - ratAvgOfNeighbor));
+                                                } else if (ratings[i] == 1.0) {
+                                                        //Only likes, see predictRating(...).
+                                                        votes.add(itemIds[i], nbSim, 0.0);
+                                                }
+                                        }
+                                }
+                        }
+                        double ratAvgOfActiveUser = hasRatings ? cfStorage.getRatingAverageOfUser(indexOfUser) : 0.0;
+                
+                        for (int indexOfCandidate: candidates) {
+                                double predictedRating = 0.0;
+                                if (votes.getNumberOfVotes(indexOfCandidate) > 0) {
+                                        if (hasRatings) {
+                                                double sumWeightedVotes = votes.getSumOfVotes(indexOfCandidate);
+                                                double sumOfNbSim = votes.getSumOfWeights(indexOfCandidate);
+                                                if (sumWeightedVotes != 0.0 && sumOfNbSim != 0.0) {
+                                                        predictedRating = ratAvgOfActiveUser + (sumWeightedVotes / sumOfNbSim);
+                                                }
+                                        } else {
+                                                predictedRating = votes.getSumOfWeights(indexOfCandidate) 
+                                                        / votes.getNumberOfVotes(indexOfCandidate);
+                                        }
+                                }
+                                topKHeap.offer(indexOfCandidate, predictedRating);
+                        }
+                        return topKHeap.toSortedArray(size);
+                } finally {
+                        votes.reset();
+                }
+        }
+        
+        private CfIndexBasedStorage getCfStorage() {
+                return (CfIndexBasedStorage)getDataManager().getStorage();
+        }
+        
+        private int getIndexOfUser(String userURI) throws RecommenderException {
+                int indexOfUser = getIndexOf(userURI);
+                if (indexOfUser == -1){
+                        throw new RecommenderException("User resource was not found");
+                }
+                return indexOfUser;
+        }
+        
+        //Converts the top-k list of indexes, null positions are kept.
+        private RatedResource[] toRatedResources(IndexedRatedRes[] topK) {
+                RatedResource[] ratedResources = new RatedResource[topK.length];
+                for (int i = 0; i < topK.length; i++) {
+                        if (topK[i] != null) {
+                                ratedResources[i] = new RatedResource(getURI(topK[i].getResourceId()), topK[i].getRating());
+                        }
+                }
+                return ratedResources;
+        }
 }
@@ -0,0 +1,30 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.parameter;
+
+/**
+ * Supported strategies to compute neighborhoods with inverted lists.
+ * MERGE merges the sorted lists of the user (document-at-a-time),
+ * ACCUMULATOR walks each list on its own and adds the scores into an array
+ * indexed by user id (score-at-a-time). MAX_SCORE merges the lists but
+ * skips the users which cannot reach the neighborhood (MaxScore pruning);
+ * it falls back to MERGE with scaled inverted lists. ALL_PAIRS computes
+ * the neighborhoods of all users at once as a blocked product of the rating
+ * matrix with its transpose, each dot product once for both users (see
+ * BlockedAllPairsSearcher); it runs on one thread and falls back to MERGE
+ * with scaled inverted lists. MERGE, ACCUMULATOR and MAX_SCORE give the
+ * same neighborhoods with bit-identical scores. ALL_PAIRS gives the same 
+ * scores for the user with the lower id of a pair; for the other user they
+ * can differ in the last bits if both users rated an item more than once,
+ * since the additions are rounded in a different order, so neighbors with
+ * almost equal scores can be ranked differently.
+ */
+public enum RecNeighborhoodStrategy {
+        MERGE,
+        ACCUMULATOR,
+        MAX_SCORE,
+        ALL_PAIRS
+}
@@ -11,6 +11,7 @@ package org.eclipse.rdf4j.recommender.parameter;
 public enum RecParadigm {
         CONTENT_BASED,
         USER_COLLABORATIVE_FILTERING,
+        ITEM_COLLABORATIVE_FILTERING,
         CROSS_DOMAIN_K_STEP_MARKOV_CENTRALITY,
         CROSS_DOMAIN_PAGERANK_WITH_PRIORS,
         CROSS_DOMAIN_REWORD,
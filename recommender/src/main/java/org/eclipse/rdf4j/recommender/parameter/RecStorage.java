@@ -11,6 +11,10 @@ package org.eclipse.rdf4j.recommender.parameter;
 public enum RecStorage {
         INVERTED_LISTS,
         SCALED_INVERTED_LISTS,
+        COMPRESSED_INVERTED_LISTS,
+        MAPPED_INVERTED_LISTS,
+        BITMAP_INVERTED_LISTS,
+        LSH_SIGNATURES,
         EXTERNAL_GRAPH,
         SPARK
 }
\ No newline at end of file
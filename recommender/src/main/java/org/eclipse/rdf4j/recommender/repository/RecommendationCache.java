@@ -0,0 +1,413 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.repository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+import org.eclipse.rdf4j.recommender.storage.StorageListener;
+
+/**
+ * Size-bounded LRU cache of top-k recommendations, keyed by (user, size,
+ * includeConsumedItems) and by whether the resources are URIs or indexes.
+ * 
+ * The cache listens to the storage of the recommender. Every list is kept
+ * with the users whose profiles it was computed from: the user and, for 
+ * user-based collaborative filtering, the neighbors of the user. A list is
+ * dropped when one of those profiles changes or, for user-based 
+ * collaborative filtering, when the neighborhood of the user changes. For
+ * item-based collaborative filtering a new neighborhood of an item drops 
+ * all lists, as it does a reset of the storage.
+ * 
+ * Lists are copied when they are put and returned, so callers can modify
+ * them. A list computed while an invalidation happened is not put (see
+ * getVersion()). The cache can be used by several threads.
+ */
+public class RecommendationCache implements StorageListener {
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Estimated bytes of an entry without its recommendations (key, entry
+         * of the map and the array).
+         */
+        public static final int BYTES_PER_ENTRY = 128;
+
+        /**
+         * Estimated bytes of a dependency of an entry.
+         */
+        public static final int BYTES_PER_DEPENDENCY = 48;
+
+        /**
+         * Estimated bytes of a recommendation without its URI.
+         */
+        public static final int BYTES_PER_RECOMMENDATION = 32;
+
+        /**
+         * Estimated bytes of a URI without its chars.
+         */
+        public static final int BYTES_PER_URI = 40;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final long capacityInBytes;
+        //True for user-based collaborative filtering.
+        private final boolean isUserBased;
+        //Access order, the eldest entry is the least recently used one.
+        private final LinkedHashMap<Key, Entry> entries 
+                = new LinkedHashMap<Key, Entry>(1024, 0.75f, true);
+        //Keys of the entries computed from the profile of each user.
+        private final Map<Integer, Set<Key>> keysByUser = new HashMap<Integer, Set<Key>>();
+        private long sizeInBytes = 0;
+        //Incremented by every invalidation.
+        private long version = 0;
+        private long hits = 0;
+        private long misses = 0;
+        private long evictions = 0;
+        private long invalidations = 0;
+
+        /*--------------*
+         * Constructors *
+         *--------------*/
+
+        /**
+         * Creates a cache for a user-based (isUserBased = true) or item-based
+         * collaborative recommender.
+         * @param capacityInBytes
+         * @param isUserBased 
+         */
+        public RecommendationCache(long capacityInBytes, boolean isUserBased) {
+                this.capacityInBytes = capacityInBytes;
+                this.isUserBased = isUserBased;
+        }
+
+        /*---------*
+         * Methods *
+         *---------*/
+
+        /**
+         * Returns the version of the cache, to be read before computing a 
+         * list which is then put with it.
+         * @return 
+         */
+        public synchronized long getVersion() {
+                return version;
+        }
+
+        /**
+         * Returns a copy of the cached list of a user, null if it is not 
+         * cached.
+         * @param indexOfUser
+         * @param size
+         * @param includeConsumedItems
+         * @return 
+         */
+        public RatedResource[] get(int indexOfUser, int size, boolean includeConsumedItems) {
+                RatedResource[] cachedList = (RatedResource[])lookUp(new Key(indexOfUser, size, 
+                        includeConsumedItems, false));
+                return cachedList == null ? null : copy(cachedList);
+        }
+
+        /**
+         * Same as get(...) for a list of indexes.
+         * @param indexOfUser
+         * @param size
+         * @param includeConsumedItems
+         * @return 
+         */
+        public IndexedRatedRes[] getIndexed(int indexOfUser, int size, boolean includeConsumedItems) {
+                IndexedRatedRes[] cachedList = (IndexedRatedRes[])lookUp(new Key(indexOfUser, size, 
+                        includeConsumedItems, true));
+                return cachedList == null ? null : copy(cachedList);
+        }
+
+        /**
+         * Puts a copy of the list of a user, computed from the profiles of 
+         * the given users (the user itself included), unless the cache has
+         * been invalidated since the given version.
+         * @param indexOfUser
+         * @param size
+         * @param includeConsumedItems
+         * @param list
+         * @param dependencies
+         * @param version 
+         */
+        public void put(int indexOfUser, int size, boolean includeConsumedItems, 
+                        RatedResource[] list, int[] dependencies, long version) {
+                long bytes = BYTES_PER_ENTRY + (long)BYTES_PER_DEPENDENCY * dependencies.length;
+                for (RatedResource ratedResource: list) {
+                        if (ratedResource != null) {
+                                bytes = bytes + BYTES_PER_RECOMMENDATION + BYTES_PER_URI 
+                                        + 2L * ratedResource.getResource().length();
+                        }
+                }
+                store(new Key(indexOfUser, size, includeConsumedItems, false), copy(list), 
+                        dependencies, bytes, version);
+        }
+
+        /**
+         * Same as put(...) for a list of indexes.
+         * @param indexOfUser
+         * @param size
+         * @param includeConsumedItems
+         * @param list
+         * @param dependencies
+         * @param version 
+         */
+        public void putIndexed(int indexOfUser, int size, boolean includeConsumedItems, 
+                        IndexedRatedRes[] list, int[] dependencies, long version) {
+                long bytes = BYTES_PER_ENTRY + (long)BYTES_PER_DEPENDENCY * dependencies.length
+                        + (long)BYTES_PER_RECOMMENDATION * list.length;
+                store(new Key(indexOfUser, size, includeConsumedItems, true), copy(list), 
+                        dependencies, bytes, version);
+        }
+
+        @Override
+        public synchronized void profileChanged(int indexOfUser) {
+                invalidate(indexOfUser, false);
+        }
+
+        @Override
+        public synchronized void neighborhoodChanged(int index) {
+                if (isUserBased) {
+                        invalidate(index, true);
+                } else {
+                        //Neighborhood of an item.
+                        invalidateAll();
+                }
+        }
+
+        @Override
+        public synchronized void storageReset() {
+                invalidateAll();
+        }
+
+        /**
+         * Removes all lists, the statistics are kept.
+         */
+        public synchronized void clear() {
+                invalidateAll();
+        }
+
+        /**
+         * Returns the maximum size of the cached lists in bytes.
+         * @return 
+         */
+        public long getCapacityInBytes() {
+                return capacityInBytes;
+        }
+
+        /**
+         * Returns the estimated size of the cached lists in bytes.
+         * @return 
+         */
+        public synchronized long getSizeInBytes() {
+                return sizeInBytes;
+        }
+
+        /**
+         * Returns the number of cached lists.
+         * @return 
+         */
+        public synchronized int getNumberOfLists() {
+                return entries.size();
+        }
+
+        /**
+         * Returns the number of requests served from the cache.
+         * @return 
+         */
+        public synchronized long getHits() {
+                return hits;
+        }
+
+        /**
+         * Returns the number of requests for which the list was computed.
+         * @return 
+         */
+        public synchronized long getMisses() {
+                return misses;
+        }
+
+        /**
+         * Returns the ratio of requests served from the cache, 0 if there
+         * has not been any request.
+         * @return 
+         */
+        public synchronized double getHitRatio() {
+                return hits + misses == 0 ? 0.0 : (double)hits / (hits + misses);
+        }
+
+        /**
+         * Returns the number of lists dropped to make room for others.
+         * @return 
+         */
+        public synchronized long getEvictions() {
+                return evictions;
+        }
+
+        /**
+         * Returns the number of lists dropped because a profile or a 
+         * neighborhood changed or the storage was reset.
+         * @return 
+         */
+        public synchronized long getInvalidations() {
+                return invalidations;
+        }
+
+        private synchronized Object lookUp(Key key) {
+                Entry entry = entries.get(key);
+                if (entry == null) {
+                        misses++;
+                        return null;
+                }
+                hits++;
+                return entry.list;
+        }
+
+        private synchronized void store(Key key, Object list, int[] dependencies, long bytes, long version) {
+                if (version != this.version || bytes > capacityInBytes) {
+                        return;
+                }
+                remove(key);
+                entries.put(key, new Entry(list, dependencies, bytes));
+                sizeInBytes = sizeInBytes + bytes;
+                for (int indexOfUser: dependencies) {
+                        Set<Key> keys = keysByUser.get(indexOfUser);
+                        if (keys == null) {
+                                keys = new HashSet<Key>();
+                                keysByUser.put(indexOfUser, keys);
+                        }
+                        keys.add(key);
+                }
+                //Least recently used lists are dropped first.
+                Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+                while (sizeInBytes > capacityInBytes) {
+                        Map.Entry<Key, Entry> eldest = iterator.next();
+                        iterator.remove();
+                        unlink(eldest.getKey(), eldest.getValue());
+                        evictions++;
+                }
+        }
+
+        //Drops the lists computed from the profile of the user or, if
+        //onlyOwnLists is true, the lists of the user.
+        private void invalidate(int indexOfUser, boolean onlyOwnLists) {
+                version++;
+                Set<Key> keys = keysByUser.get(indexOfUser);
+                if (keys == null) {
+                        return;
+                }
+                for (Key key: keys.toArray(new Key[keys.size()])) {
+                        if (!onlyOwnLists || key.indexOfUser == indexOfUser) {
+                                if (remove(key)) {
+                                        invalidations++;
+                                }
+                        }
+                }
+        }
+
+        private void invalidateAll() {
+                version++;
+                invalidations = invalidations + entries.size();
+                entries.clear();
+                keysByUser.clear();
+                sizeInBytes = 0;
+        }
+
+        private boolean remove(Key key) {
+                Entry entry = entries.remove(key);
+                if (entry == null) {
+                        return false;
+                }
+                unlink(key, entry);
+                return true;
+        }
+
+        //Removes the entry from the keys of its dependencies.
+        private void unlink(Key key, Entry entry) {
+                sizeInBytes = sizeInBytes - entry.bytes;
+                for (int indexOfUser: entry.dependencies) {
+                        Set<Key> keys = keysByUser.get(indexOfUser);
+                        if (keys != null) {
+                                keys.remove(key);
+                                if (keys.isEmpty()) {
+                                        keysByUser.remove(indexOfUser);
+                                }
+                        }
+                }
+        }
+
+        private static RatedResource[] copy(RatedResource[] list) {
+                RatedResource[] copy = new RatedResource[list.length];
+                for (int i = 0; i < list.length; i++) {
+                        if (list[i] != null) {
+                                copy[i] = new RatedResource(list[i].getResource(), list[i].getRating());
+                        }
+                }
+                return copy;
+        }
+
+        private static IndexedRatedRes[] copy(IndexedRatedRes[] list) {
+                IndexedRatedRes[] copy = new IndexedRatedRes[list.length];
+                for (int i = 0; i < list.length; i++) {
+                        if (list[i] != null) {
+                                copy[i] = new IndexedRatedRes(list[i].getResourceId(), list[i].getRating());
+                        }
+                }
+                return copy;
+        }
+
+        private static final class Key {
+                private final int indexOfUser;
+                private final int size;
+                private final boolean includeConsumedItems;
+                private final boolean isIndexed;
+
+                private Key(int indexOfUser, int size, boolean includeConsumedItems, boolean isIndexed) {
+                        this.indexOfUser = indexOfUser;
+                        this.size = size;
+                        this.includeConsumedItems = includeConsumedItems;
+                        this.isIndexed = isIndexed;
+                }
+
+                @Override
+                public boolean equals(Object obj) {
+                        if (!(obj instanceof Key)) {
+                                return false;
+                        }
+                        Key key = (Key)obj;
+                        return indexOfUser == key.indexOfUser && size == key.size
+                                && includeConsumedItems == key.includeConsumedItems
+                                && isIndexed == key.isIndexed;
+                }
+
+                @Override
+                public int hashCode() {
+                        return 31 * (31 * indexOfUser + size) + (includeConsumedItems ? 2 : 0) + (isIndexed ? 1 : 0);
+                }
+        }
+
+        private static final class Entry {
+                private final Object list;
+                private final int[] dependencies;
+                private final long bytes;
+
+                private Entry(Object list, int[] dependencies, long bytes) {
+                        this.list = list;
+                        this.dependencies = dependencies;
+                        this.bytes = bytes;
+                }
+        }
+}
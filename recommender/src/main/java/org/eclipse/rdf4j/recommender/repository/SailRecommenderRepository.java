@@ -5,15 +5,22 @@
  */
 package org.eclipse.rdf4j.recommender.repository;
 
+import java.util.Arrays;
 import java.util.Set;
+import org.eclipse.rdf4j.recommender.config.CfRecConfig;
 import org.eclipse.rdf4j.recommender.config.RecConfig;
 import org.eclipse.rdf4j.recommender.datamanager.DataManager;
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
 import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.paradigm.IndexBasedRecommender;
 import org.eclipse.rdf4j.recommender.paradigm.Recommender;
 import org.eclipse.rdf4j.recommender.paradigm.collaborative.CfRecommender;
 import org.eclipse.rdf4j.recommender.paradigm.crossdomain.CdRecommender;
 import org.eclipse.rdf4j.recommender.parameter.RecParadigm;
+import org.eclipse.rdf4j.recommender.storage.IndexBasedStorage;
+import org.eclipse.rdf4j.recommender.storage.index.CfIndexBasedStorage;
+import org.eclipse.rdf4j.recommender.util.RecommendationScratch;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
 import org.eclipse.rdf4j.sail.Sail;
 
@@ -52,6 +59,8 @@ public class SailRecommenderRepository extends SailRepository {
     
          private RecConfig recConfig = null;
          private Recommender recommender= null;
+         //null if the top-k recommendations are not cached.
+         private RecommendationCache recommendationCache = null;
          
 
 	/*--------------*
@@ -89,11 +98,19 @@ public class SailRecommenderRepository extends SailRepository {
 
                 DataManager dataManager = recConfig.validateConfiguration();
                 
+                //The lists of the previous model must not be used anymore.
+                if (recommendationCache != null) {
+                        ((IndexBasedStorage)recommender.getDataManager().getStorage())
+                                .removeStorageListener(recommendationCache);
+                        recommendationCache = null;
+                }
+                
                 if (recConfig.getRecParadigm() == RecParadigm.CONTENT_BASED) {
                         //TODO
                 }
 
-                if (recConfig.getRecParadigm() == RecParadigm.USER_COLLABORATIVE_FILTERING) {
+                if (recConfig.getRecParadigm() == RecParadigm.USER_COLLABORATIVE_FILTERING
+                        || recConfig.getRecParadigm() == RecParadigm.ITEM_COLLABORATIVE_FILTERING) {
                         recommender =  new CfRecommender(this, dataManager);
                 }
                 
@@ -105,9 +122,20 @@ public class SailRecommenderRepository extends SailRepository {
                         recommender =  new CdRecommender(this, dataManager);
                         System.out.println("ZAID:: in SailRec, created recommender: " + recommender);
                 }
-                                
+                
                 if (recConfig.hasToPreprocess())
                         recommender.preprocess();
+                
+                //Registered once the model is built, so that the changes made
+                //while preprocessing are not notified.
+                if (recConfig instanceof CfRecConfig 
+                        && ((CfRecConfig)recConfig).getRecommendationCacheSize() > 0
+                        && dataManager.getStorage() instanceof IndexBasedStorage) {
+                        recommendationCache = new RecommendationCache(
+                                ((CfRecConfig)recConfig).getRecommendationCacheSize(),
+                                recConfig.getRecParadigm() == RecParadigm.USER_COLLABORATIVE_FILTERING);
+                        ((IndexBasedStorage)dataManager.getStorage()).addStorageListener(recommendationCache);
+                }
         }
 
         /**
@@ -118,6 +146,17 @@ public class SailRecommenderRepository extends SailRepository {
                return recommender;
         }
         
+        /**
+         * Returns the cache of top-k recommendations, with its statistics 
+         * (hit ratio, evictions, size). It is null if the loaded 
+         * configuration does not set a cache size (see 
+         * CfRecConfig.setRecommendationCacheSize(...)).
+         * @return 
+         */
+        public RecommendationCache getRecommendationCache() {
+                return recommendationCache;
+        }
+        
         /**
          * Gets the inner configuration.
          * @return 
@@ -164,6 +203,9 @@ public class SailRecommenderRepository extends SailRepository {
          * resources. If the flag includeConsumedItems is set to TRUE, then 
          * resources which the user has already consumed are considered to be
          * candidate for recommendations.
+         * If a recommendation cache is configured, the lists of index-based 
+         * recommenders are cached until the profile or the neighborhood 
+         * they were computed from changes.
          * @param userURI
          * @param size the size of the list
          * @param includeConsumedItems
@@ -172,8 +214,22 @@ public class SailRecommenderRepository extends SailRepository {
          */
         public RatedResource[] getTopRecommendations(String userURI, int size, 
                 boolean includeConsumedItems) throws RecommenderException {
-            
-                return recommender.getTopRecommendations(userURI, size, includeConsumedItems);
+                int indexOfUser = -1;
+                if (recommendationCache != null && isIndexBased()) {
+                        indexOfUser = getIndexOf(userURI);
+                }
+                //Unknown users are left to the recommender.
+                if (indexOfUser == -1) {
+                        return recommender.getTopRecommendations(userURI, size, includeConsumedItems);
+                }
+                RatedResource[] topK = recommendationCache.get(indexOfUser, size, includeConsumedItems);
+                if (topK == null) {
+                        long version = recommendationCache.getVersion();
+                        topK = recommender.getTopRecommendations(userURI, size, includeConsumedItems);
+                        recommendationCache.put(indexOfUser, size, includeConsumedItems, topK, 
+                                getProfilesUsedBy(indexOfUser), version);
+                }
+                return topK;
         }
         
         /**
@@ -191,6 +247,117 @@ public class SailRecommenderRepository extends SailRepository {
                 return recommender.getTopRecommendations(userURI, size, candidatesURIs);
         }
         
+        /**
+         * Returns true if the loaded recommender supports the methods with 
+         * indexes, i.e. its data is kept in an index-based storage and it 
+         * has been preprocessed.
+         * @return 
+         */
+        public boolean isIndexBased() {
+                return recommender instanceof IndexBasedRecommender 
+                        && ((IndexBasedRecommender)recommender).isIndexBased();
+        }
+        
+        /**
+         * Returns the index of a resource, -1 if it has not been indexed.
+         * @param URI
+         * @return
+         * @throws RecommenderException 
+         */
+        public int getIndexOf(String URI) throws RecommenderException {
+                return getIndexBasedRecommender().getIndexOf(URI);
+        }
+        
+        /**
+         * Returns the URI of an indexed resource.
+         * @param index
+         * @return
+         * @throws RecommenderException 
+         */
+        public String getURI(int index) throws RecommenderException {
+                return getIndexBasedRecommender().getURI(index);
+        }
+        
+        /**
+         * Returns the indexes of all users with a profile in ascending order.
+         * The array must not be modified.
+         * @return
+         * @throws RecommenderException 
+         */
+        public int[] getUserIndexes() throws RecommenderException {
+                return getIndexBasedRecommender().getUserIndexes();
+        }
+        
+        /**
+         * Same as predictRating(String, String) for the indexes of a user and
+         * of an item.
+         * @param indexOfUser
+         * @param indexOfItem
+         * @return
+         * @throws RecommenderException 
+         */
+        public double predictRating(int indexOfUser, int indexOfItem) 
+                throws RecommenderException {
+                return getIndexBasedRecommender().predictRating(indexOfUser, indexOfItem);
+        }
+        
+        /**
+         * Same as getTopRecommendations(String, int, boolean) for the index 
+         * of a user. Use getURI(...) to get the URIs of the resources.
+         * @param indexOfUser
+         * @param size
+         * @param includeConsumedItems
+         * @return
+         * @throws RecommenderException 
+         */
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, int size, 
+                boolean includeConsumedItems) throws RecommenderException {
+                return getTopRecommendations(indexOfUser, size, includeConsumedItems, null);
+        }
+        
+        /**
+         * Same as getTopRecommendations(int, int, boolean) with the buffers 
+         * of the calling thread (see RecommendationScratch), null to allocate
+         * new ones.
+         * @param indexOfUser
+         * @param size
+         * @param includeConsumedItems
+         * @param scratch
+         * @return
+         * @throws RecommenderException 
+         */
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, int size, 
+                boolean includeConsumedItems, RecommendationScratch scratch) throws RecommenderException {
+                IndexBasedRecommender indexBasedRecommender = getIndexBasedRecommender();
+                if (recommendationCache == null) {
+                        return indexBasedRecommender.getTopRecommendations(indexOfUser, size, 
+                                includeConsumedItems, scratch);
+                }
+                IndexedRatedRes[] topK = recommendationCache.getIndexed(indexOfUser, size, includeConsumedItems);
+                if (topK == null) {
+                        long version = recommendationCache.getVersion();
+                        topK = indexBasedRecommender.getTopRecommendations(indexOfUser, size, 
+                                includeConsumedItems, scratch);
+                        recommendationCache.putIndexed(indexOfUser, size, includeConsumedItems, topK, 
+                                getProfilesUsedBy(indexOfUser), version);
+                }
+                return topK;
+        }
+        
+        /**
+         * Same as getTopRecommendations(String, int, Set) for the index of a
+         * user and the indexes of the candidates.
+         * @param indexOfUser
+         * @param size
+         * @param candidates
+         * @return
+         * @throws RecommenderException 
+         */
+        public IndexedRatedRes[] getTopRecommendations(int indexOfUser, int size, 
+                int[] candidates) throws RecommenderException {
+                return getIndexBasedRecommender().getTopRecommendations(indexOfUser, size, candidates);
+        }
+        
         /**
          * Releases resources that are being used for recommender. 
          * 
@@ -200,4 +367,34 @@ public class SailRecommenderRepository extends SailRepository {
         public void releaseResources() {
             recommender.releaseResources();
         }
+        
+        //Users whose profiles the top-k list of a user is computed from: the
+        //user and, for user-based collaborative filtering, the neighbors.
+        private int[] getProfilesUsedBy(int indexOfUser) {
+                if (recConfig.getRecParadigm() != RecParadigm.USER_COLLABORATIVE_FILTERING) {
+                        return new int[]{indexOfUser};
+                }
+                IndexedRatedRes[] neighborhood = ((CfIndexBasedStorage)recommender.getDataManager()
+                        .getStorage()).getNeighborhood(indexOfUser);
+                if (neighborhood == null) {
+                        return new int[]{indexOfUser};
+                }
+                int[] users = new int[neighborhood.length + 1];
+                int numberOfUsers = 0;
+                users[numberOfUsers++] = indexOfUser;
+                for (IndexedRatedRes neighbor: neighborhood) {
+                        if (neighbor != null) {
+                                users[numberOfUsers++] = neighbor.getResourceId();
+                        }
+                }
+                return Arrays.copyOf(users, numberOfUsers);
+        }
+        
+        private IndexBasedRecommender getIndexBasedRecommender() throws RecommenderException {
+                if (!isIndexBased()) {
+                        throw new RecommenderException("THE LOADED RECOMMENDER DOES NOT SUPPORT INDEXES. "
+                                + "AN INDEX-BASED STORAGE AND PREPROCESSING ARE REQUIRED");
+                }
+                return (IndexBasedRecommender)recommender;
+        }
 }
@@ -9,6 +9,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.datamanager.model.UriDictionary;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserStatistics;
 
 /**
  * Interface of an index-based storage for a recommender. Users and items,
@@ -42,6 +45,13 @@ public interface IndexBasedStorage extends Storage {
          */
         public int getIndexOf(String URI);
         
+        /**
+         * Returns the dictionary that stores the indexed resources. It can be
+         * frozen once all resources have been indexed.
+         * @return 
+         */
+        public UriDictionary getResourceDictionary();
+        
         /**
          * Returns the indexes of all users stored in the system.
          * @return 
@@ -71,6 +81,52 @@ public interface IndexBasedStorage extends Storage {
          */
         public Set<IndexedRatedRes> getIndexedRatedResOfUser(int indexOfUser);     
         
+        /**
+         * Returns the rated resources of all users as a matrix. Unlike 
+         * getIndexedRatedResOfUser(...), reading the matrix doesn't create
+         * objects.
+         * @return 
+         */
+        public UserProfileMatrix getUserProfiles();
+        
+        /**
+         * Computes the number of ratings, the mean, the standard deviation 
+         * and the l2-norm of the profiles of all users. It has to be invoked
+         * after the ratings of the profiles have been modified in place, and
+         * before the statistics are read by several threads. Profiles stored
+         * or extended through this interface update the statistics.
+         */
+        public void computeUserStatistics();
+        
+        /**
+         * Returns the statistics of the profiles of all users, in primitive 
+         * arrays indexed by the index of the user.
+         * @return 
+         */
+        public UserStatistics getUserStatistics();
+        
+        /**
+         * Returns the number of ratings of a given user.
+         * @param indexOfUser
+         * @return 
+         */
+        public int getNumberOfRatingsOfUser(int indexOfUser);
+        
+        /**
+         * Returns the average of the ratings of a given user, 0 if the user
+         * has no ratings.
+         * @param indexOfUser
+         * @return 
+         */
+        public double getRatingAverageOfUser(int indexOfUser);
+        
+        /**
+         * Returns the standard deviation of the ratings of a given user.
+         * @param indexOfUser
+         * @return 
+         */
+        public double getRatingStandardDeviationOfUser(int indexOfUser);
+        
         /**
          * It stores the L2-Norm of all the rated resources of the user.
          * @param indexOfUser 
@@ -85,6 +141,13 @@ public interface IndexBasedStorage extends Storage {
          */
         public double getL2NormOfUser(int indexOfUser);
         
+        /**
+         * Returns the l2-norms of all users, indexed by the index of the user.
+         * The array must not be modified.
+         * @return 
+         */
+        public double[] getUsersL2Norms();
+        
         /**
          * Stores the minimum rating that can be found in the data set.
          * @param rating 
@@ -97,6 +160,19 @@ public interface IndexBasedStorage extends Storage {
          */
         public void storeDatasetMaxRating(double rating);            
         
+        /**
+         * Registers a listener which is notified when profiles or 
+         * neighborhoods are stored and when the storage is reset.
+         * @param listener 
+         */
+        public void addStorageListener(StorageListener listener);
+        
+        /**
+         * Removes a listener registered with addStorageListener(...).
+         * @param listener 
+         */
+        public void removeStorageListener(StorageListener listener);
+        
         /**
          * For those implementations that require closing resources, e.g.
          * db.close() in MapDB.
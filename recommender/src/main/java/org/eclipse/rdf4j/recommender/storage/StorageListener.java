@@ -0,0 +1,32 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.storage;
+
+/**
+ * Receives the changes of an index-based storage, e.g. to invalidate 
+ * results computed from it. Methods can be invoked by several threads at 
+ * once (neighborhoods are stored in parallel).
+ */
+public interface StorageListener {
+        
+        /**
+         * The profile (rated resources) of a user has been stored or 
+         * extended.
+         * @param indexOfUser 
+         */
+        public void profileChanged(int indexOfUser);
+        
+        /**
+         * The neighborhood of a user or item has been stored.
+         * @param index 
+         */
+        public void neighborhoodChanged(int index);
+        
+        /**
+         * All the data of the storage has been removed.
+         */
+        public void storageReset();
+}
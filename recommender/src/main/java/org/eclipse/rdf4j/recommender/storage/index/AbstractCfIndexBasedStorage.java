@@ -6,10 +6,17 @@
 package org.eclipse.rdf4j.recommender.storage.index;
 
 import org.eclipse.rdf4j.recommender.storage.index.AbstractIndexBasedStorage;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
 
+/**
+ * The abstract class implements the neighborhoods of CfIndexBasedStorage.
+ * Neighborhoods are kept in a concurrent map, since storeNeighborhood(...)
+ * is invoked by the threads which compute them while getNeighborhood(...)
+ * may be invoked by others. Concrete storages which keep their own map of
+ * neighborhoods follow the same contract.
+ */
 public abstract class AbstractCfIndexBasedStorage extends AbstractIndexBasedStorage  implements CfIndexBasedStorage {
                         
         /*-----------------*
@@ -20,7 +27,7 @@ public abstract class AbstractCfIndexBasedStorage extends AbstractIndexBasedStor
          * Maps that stores neighborhoods. Key is a user or item ID.
          */ 
         private Map<Integer, IndexedRatedRes[]> neighborhoods 
-                = new HashMap<Integer, IndexedRatedRes[]>(10000);
+                = new ConcurrentHashMap<Integer, IndexedRatedRes[]>(10000);
         
         /*---------*
 	 * Methods *
@@ -34,6 +41,7 @@ public abstract class AbstractCfIndexBasedStorage extends AbstractIndexBasedStor
         @Override
         public void storeNeighborhood(int index, IndexedRatedRes[] neighborhood) {
                 neighborhoods.put(index, neighborhood);
+                fireNeighborhoodChanged(index);
         }                       
         
         //SOME GETTERS FOR TEST PURPOSES        
@@ -45,6 +53,6 @@ public abstract class AbstractCfIndexBasedStorage extends AbstractIndexBasedStor
         @Override
         public void resetStorage() {
                 super.resetStorage();
-                neighborhoods = new HashMap<Integer, IndexedRatedRes[]>(10000);
+                neighborhoods = new ConcurrentHashMap<Integer, IndexedRatedRes[]>(10000);
         }
 }
@@ -6,14 +6,18 @@
 package org.eclipse.rdf4j.recommender.storage.index;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.datamanager.model.UriDictionary;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserStatistics;
 import org.eclipse.rdf4j.recommender.storage.IndexBasedStorage;
+import org.eclipse.rdf4j.recommender.storage.StorageListener;
 
 /**
  * The abstract class implements the contract of IndexBasedStorage.
@@ -24,8 +28,6 @@ public abstract class AbstractIndexBasedStorage implements IndexBasedStorage {
 	 * Fields *
 	 *--------*/
     
-        //Counts the number of resources.
-        private int resourceCounter = 0;
         private double minRating  = -1.0;
         private double maxRating  = 1.0;
                         
@@ -33,19 +35,17 @@ public abstract class AbstractIndexBasedStorage implements IndexBasedStorage {
 	 * Data Structures *
 	 *-----------------*/    
         
-        //Array that stores all resource URIs.
-        private String[] resourceList = new String[10000];
-        //KEY is a URI (resource) and value is the index of the array in which 
-        //the resource is stored.
-        private Map<String, Integer> resourceIdMap = new HashMap<String, Integer>(10000);      
-        //KEY is the ID of a user. Value is a list of rated resources.
-        private  Map<Integer, Set<IndexedRatedRes>> userRatedItemsMap
-                = new HashMap<Integer, Set<IndexedRatedRes>>(10000);
-        //Each user has a set of rated resources. In order to speed up the computation 
-        //of similarities, each rating is divided by the l-norm. This Maps stores them
-        //in order to be able to return non normalized ratings.
-        private Map<Integer, Double> usersL2Norms
-                = new HashMap<Integer, Double>(10000);
+        //Stores all resource URIs. The index of a resource is its id in the
+        //dictionary.
+        private UriDictionary resourceDictionary = new UriDictionary();
+        //Rated resources of each user, indexed by the ID of the user.
+        private UserProfileMatrix userProfiles = new UserProfileMatrix();
+        //Number of ratings, mean, standard deviation and l2-norm of the profile 
+        //of each user, indexed by the ID of the user. In order to speed up the 
+        //computation of similarities, each rating is divided by the l-norm.
+        private UserStatistics userStatistics = new UserStatistics();
+        //Listeners of the changes, they are kept when the storage is reset.
+        private final List<StorageListener> listeners = new CopyOnWriteArrayList<StorageListener>();
         
         /*---------*
 	 * Methods *
@@ -53,55 +53,50 @@ public abstract class AbstractIndexBasedStorage implements IndexBasedStorage {
         
         @Override
         public String getURI(int index) {
-                return resourceList[index];
+                return resourceDictionary.getUri(index);
         }
         
         @Override
         public int createIndex(String URI) {
-                int indexOfResource = -1;
-                if (resourceIdMap.containsKey(URI)) {
-                                indexOfResource = resourceIdMap.get(URI);
-                } else {
-                        indexOfResource = resourceCounter;
-                        resourceIdMap.put(URI, indexOfResource);
-                        if (resourceCounter >= resourceList.length) {
-                                resourceList = expandArray(resourceList);
-                        }                                                
-                        resourceList[resourceCounter] = URI;
-                        resourceCounter++;
-                }
-                return indexOfResource;
+                return resourceDictionary.add(URI);
         }
         
         @Override
         public int getIndexOf(String URI) {
-                if (resourceIdMap.containsKey(URI))
-                        return resourceIdMap.get(URI);
-                else return -1;
+                return resourceDictionary.getId(URI);
+        }
+        
+        @Override
+        public UriDictionary getResourceDictionary() {
+                return resourceDictionary;
         }
         
         @Override
         public Set<Integer> getAllUserIndexes() {
-                return userRatedItemsMap.keySet();
+                return userProfiles.getUserIdSet();
         }
                 
         @Override
         public void storeRatedResources(int indexOfUser, Set<IndexedRatedRes> ratedResources) {
-                userRatedItemsMap.put(indexOfUser, ratedResources);               
+                int[] itemIds = new int[ratedResources.size()];
+                double[] ratings = new double[ratedResources.size()];
+                int size = 0;
+                for (IndexedRatedRes ratRes: ratedResources) {
+                        itemIds[size] = ratRes.getResourceId();
+                        ratings[size] = ratRes.getRating();
+                        size++;
+                }
+                userProfiles.set(indexOfUser, itemIds, ratings, size);
+                userStatistics.update(userProfiles, indexOfUser);
+                fireProfileChanged(indexOfUser);
         }
                 
         @Override
         public void addIndexedRatedRes(int indexOfUser, IndexedRatedRes ratRes) {
-                Set<IndexedRatedRes> resSet = null;
-                if (userRatedItemsMap.containsKey(indexOfUser)) {
-                        resSet = userRatedItemsMap.get(indexOfUser);
-                        resSet.add(ratRes);
-                } else {
-                        resSet = new HashSet<IndexedRatedRes>();
-                        resSet.add(ratRes);
-                        //this.storeRatedResources(indexOfUser, resSet);
-                }                
-                userRatedItemsMap.put(indexOfUser, resSet);
+                userProfiles.add(indexOfUser, ratRes.getResourceId(), ratRes.getRating());
+                //Ratings are buffered, the statistics are computed when read.
+                userStatistics.invalidate(indexOfUser);
+                fireProfileChanged(indexOfUser);
                 /*
                 DynUserRatingArray userRatingArray = null;
                 if (resInvertedLists.containsKey(ratRes.getResourceId())) {
@@ -116,22 +111,57 @@ public abstract class AbstractIndexBasedStorage implements IndexBasedStorage {
         
         @Override
         public Set<IndexedRatedRes> getIndexedRatedResOfUser(int indexOfUser) {                
-                if (userRatedItemsMap.containsKey(indexOfUser)) {
-                        return userRatedItemsMap.get(indexOfUser);
+                if (userProfiles.hasProfile(indexOfUser)) {
+                        return userProfiles.getProfile(indexOfUser);
                 }
                 return null;
         }
         
+        @Override
+        public UserProfileMatrix getUserProfiles() {
+                return userProfiles;
+        }
+        
+        @Override
+        public void computeUserStatistics() {
+                userStatistics.updateAll(userProfiles);
+        }
+        
+        @Override
+        public UserStatistics getUserStatistics() {
+                return userStatistics;
+        }
+        
+        @Override
+        public int getNumberOfRatingsOfUser(int indexOfUser) {
+                return getUpToDateStatistics(indexOfUser).getCount(indexOfUser);
+        }
+        
+        @Override
+        public double getRatingAverageOfUser(int indexOfUser) {
+                return getUpToDateStatistics(indexOfUser).getMean(indexOfUser);
+        }
+        
+        @Override
+        public double getRatingStandardDeviationOfUser(int indexOfUser) {
+                return getUpToDateStatistics(indexOfUser).getStandardDeviation(indexOfUser);
+        }
+        
         @Override
         public void storeL2NormOfUser(int indexOfUser, double l2Norm) {
-                usersL2Norms.put(indexOfUser, l2Norm);
+                userStatistics.setL2Norm(indexOfUser, l2Norm);
         }
                 
         @Override
         public double getL2NormOfUser(int indexOfUser) {
-                return usersL2Norms.get(indexOfUser);
+                return userStatistics.getL2Norm(indexOfUser);
         }    
         
+        @Override
+        public double[] getUsersL2Norms() {
+                return userStatistics.getL2Norms();
+        }
+        
         @Override
         public void storeDatasetMinRating(double minRating) {
                 this.minRating = minRating;
@@ -144,13 +174,59 @@ public abstract class AbstractIndexBasedStorage implements IndexBasedStorage {
         
         @Override
         public void resetStorage(){
-                resourceCounter = 0;
                 minRating  = -1.0;
                 maxRating  = 1.0;                
-                resourceList = new String[10000];
-                resourceIdMap = new HashMap<String, Integer>(10000);
-                userRatedItemsMap = new HashMap<Integer, Set<IndexedRatedRes>>(10000);
-                usersL2Norms = new HashMap<Integer, Double>(10000);
+                resourceDictionary = new UriDictionary();
+                userProfiles = new UserProfileMatrix();
+                userStatistics = new UserStatistics();
+                if (!listeners.isEmpty()) {
+                        for (StorageListener listener: listeners) {
+                                listener.storageReset();
+                        }
+                }
+        }
+        
+        @Override
+        public void addStorageListener(StorageListener listener) {
+                listeners.add(listener);
+        }
+        
+        @Override
+        public void removeStorageListener(StorageListener listener) {
+                listeners.remove(listener);
+        }
+        
+        /**
+         * Notifies the listeners that the profile of a user has changed.
+         * @param indexOfUser 
+         */
+        protected void fireProfileChanged(int indexOfUser) {
+                if (!listeners.isEmpty()) {
+                        for (StorageListener listener: listeners) {
+                                listener.profileChanged(indexOfUser);
+                        }
+                }
+        }
+        
+        /**
+         * Notifies the listeners that a neighborhood has been stored. To be
+         * invoked by the storages which keep neighborhoods.
+         * @param index 
+         */
+        protected void fireNeighborhoodChanged(int index) {
+                if (!listeners.isEmpty()) {
+                        for (StorageListener listener: listeners) {
+                                listener.neighborhoodChanged(index);
+                        }
+                }
+        }
+        
+        //Statistics of a user, computed again if the profile has changed.
+        private UserStatistics getUpToDateStatistics(int indexOfUser) {
+                if (userStatistics.isStale(indexOfUser)) {
+                        userStatistics.update(userProfiles, indexOfUser);
+                }
+                return userStatistics;
         }
         
         /*
@@ -163,27 +239,53 @@ public abstract class AbstractIndexBasedStorage implements IndexBasedStorage {
         //SOME GETTERS FOR TEST PURPOSES
         @Override
         public int getResourceCounter() {
-                return resourceCounter;
+                return resourceDictionary.size();
         }
 
+        //Entries after the last resource are null, as in the former array
+        //of 10000 cells.
         @Override
         public List<String> getResourceList() {
-                return new ArrayList<String>(Arrays.asList(resourceList));
+                List<String> resourceList = new ArrayList<String>(Math.max(10000, resourceDictionary.size()));
+                for (int index = 0; index < resourceDictionary.size(); index++) {
+                        resourceList.add(resourceDictionary.getUri(index));
+                }
+                while (resourceList.size() < 10000) {
+                        resourceList.add(null);
+                }
+                return resourceList;
         }
 
         @Override
         public Map<String, Integer> getResourceIdMap() {
+                Map<String, Integer> resourceIdMap = new HashMap<String, Integer>(resourceDictionary.size() * 2);
+                for (int index = 0; index < resourceDictionary.size(); index++) {
+                        resourceIdMap.put(resourceDictionary.getUri(index), index);
+                }
                 return resourceIdMap;
         }
         
         @Override
         public Map<Integer, Set<IndexedRatedRes>> getUserRatedItemsMap() {
+                Map<Integer, Set<IndexedRatedRes>> userRatedItemsMap 
+                        = new HashMap<Integer, Set<IndexedRatedRes>>();
+                for (int userId: userProfiles.getUserIds()) {
+                        userRatedItemsMap.put(userId, 
+                                new HashSet<IndexedRatedRes>(userProfiles.getProfile(userId)));
+                }
                 return userRatedItemsMap;
         }
         
         @Override
         public Map<Integer, Double> getUsersL2NormsMap() {
-                return usersL2Norms;
+                Map<Integer, Double> usersL2NormsMap = new HashMap<Integer, Double>();
+                double[] usersL2Norms = userStatistics.getL2Norms();
+                for (int userId: userProfiles.getUserIds()) {
+                        if (userId < usersL2Norms.length) {
+                                usersL2NormsMap.put(userId, usersL2Norms[userId]);
+                        }
+                }
+                return usersL2NormsMap;
         }        
 
         @Override
@@ -195,22 +297,4 @@ public abstract class AbstractIndexBasedStorage implements IndexBasedStorage {
         public Double getDatasetMaxRating() {
                 return maxRating;
         }
-        
-        //Copies old string array into new string array with double length
-        public String[] expandArray(String[] array) {
-                String[] newArray = new String[array.length * 2];
-                for (int i = 0; i < array.length; i++) {
-                        newArray[i] = array[i];
-                }
-                return newArray;
-        }
-        
-        //Copies old int array into new int array with double length
-        public Object[] expandArray(Object[] array) {
-                Object[] newArray = new Object[array.length * 2];
-                for (int i = 0; i < array.length; i++) {
-                        newArray[i] = array[i];
-                }
-                return newArray;
-        }
 }
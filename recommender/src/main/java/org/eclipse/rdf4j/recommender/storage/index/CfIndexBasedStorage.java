@@ -27,7 +27,7 @@ public interface CfIndexBasedStorage extends IndexBasedStorage{
         /**
          * It stores a neighborhood (a sorted array that stores a set of 
          * indexes together with their similarity scores) for a given user or
-         * item.
+         * item. It may be invoked concurrently by several threads.
          * @param index
          * @param neighborhood
          */
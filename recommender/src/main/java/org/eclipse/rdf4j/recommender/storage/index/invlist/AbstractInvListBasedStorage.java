@@ -7,16 +7,23 @@ package org.eclipse.rdf4j.recommender.storage.index.invlist;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
-import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
-import org.eclipse.rdf4j.recommender.datamanager.model.IndexedUserRating;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedListBuilder;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
 import org.eclipse.rdf4j.recommender.storage.index.AbstractIndexBasedStorage;
 
 /**
  * The abstract class implements the interface of InvListBasedStorage.
  */
 public abstract class AbstractInvListBasedStorage extends AbstractIndexBasedStorage implements InvListBasedStorage{        
+        /*--------*
+	 * Fields *
+	 *--------*/
+        
+        //Number of threads to build and sort the lists.
+        private int parallelism = 1;
+        
         /*-----------------*
 	 * Data Structures *
 	 *-----------------*/          
@@ -30,7 +37,7 @@ public abstract class AbstractInvListBasedStorage extends AbstractIndexBasedStor
 	 *---------*/
                         
         @Override
-        public InvertedList getInvertedListOfItem(int indexOfItem) {
+        public PostingList getInvertedListOfItem(int indexOfItem) {
                 return resInvertedLists.get(indexOfItem);
         }
                         
@@ -41,25 +48,46 @@ public abstract class AbstractInvListBasedStorage extends AbstractIndexBasedStor
         
         @Override
         public void createInvertedListForUser(int indexOfUser) {
-                Set<IndexedRatedRes> ratedResources = getIndexedRatedResOfUser(indexOfUser);
+                UserProfileMatrix userProfiles = getUserProfiles();
+                int[] itemIds = userProfiles.getItemIds();
+                double[] ratings = userProfiles.getRatings();
                 InvertedList userRatingArray = null;
                 //Building inverted list
-                for (IndexedRatedRes ratRes: ratedResources) {         
-                        if (resInvertedLists.containsKey(ratRes.getResourceId())) {
-                                userRatingArray = resInvertedLists.get(ratRes.getResourceId());     
-                        } else {
+                for (int i = userProfiles.getStart(indexOfUser); i < userProfiles.getEnd(indexOfUser); i++) {         
+                        userRatingArray = resInvertedLists.get(itemIds[i]);
+                        if (userRatingArray == null) {
                                 userRatingArray = new InvertedList();
-                                resInvertedLists.put(ratRes.getResourceId(), userRatingArray);
+                                resInvertedLists.put(itemIds[i], userRatingArray);
                         }
-                        userRatingArray.insert(new IndexedUserRating(indexOfUser, ratRes.getRating()));
+                        userRatingArray.insert(indexOfUser, ratings[i]);
                 }
         }
         
+        /**
+         * Builds all lists in two passes (see InvertedListBuilder), replacing
+         * the lists built so far.
+         */
+        @Override
+        public void buildInvertedLists() {
+                resInvertedLists = InvertedListBuilder.build(getUserProfiles(), parallelism);
+        }
+        
         @Override
         public void compactAndSortInvertedLists() {
-                for (InvertedList ur: resInvertedLists.values()) {
-                        ur.compactAndSortArray();
-                }
+                InvertedListBuilder.compactAndSort(resInvertedLists.values(), parallelism);
+        }
+        
+        @Override
+        public void setParallelism(int parallelism) {
+                this.parallelism = parallelism;
+        }
+        
+        /**
+         * Returns the number of threads to build and sort the lists.
+         * @return 
+         */
+        protected int getParallelism() {
+                return parallelism;
         }
         
         @Override
@@ -68,6 +96,14 @@ public abstract class AbstractInvListBasedStorage extends AbstractIndexBasedStor
                 resInvertedLists = new HashMap<Integer, InvertedList>(10000);
         }
         
+        /**
+         * Returns the map of (uncompressed) inverted lists, keyed by item ID.
+         * @return 
+         */
+        protected Map<Integer, InvertedList> getInvertedListsMap() {
+                return resInvertedLists;
+        }
+        
         //SOME GETTERS FOR TEST PURPOSES        
         @Override
         public Map getResInvertedLists() {
@@ -5,14 +5,21 @@
  */
 package org.eclipse.rdf4j.recommender.storage.index.invlist;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
-import org.eclipse.rdf4j.recommender.datamanager.model.IndexedUserRating;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.RatingQuantizer;
+import org.eclipse.rdf4j.recommender.datamanager.model.ScaledInvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.ScaledListCache;
 import org.eclipse.rdf4j.recommender.util.ListOperations;
+import org.eclipse.rdf4j.recommender.util.TopListPlanner;
 
 /**
  * The abstract class implements the interface of ScaledInvListBasedStorage. 
@@ -25,12 +32,24 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
         //Counts the number of resources.
         private int removedLists = 0;
         private int topListCounter = 0;
+        //Maximum absolute error of a quantized rating (0 means exact).
+        private double ratingQuantizationError = 0;
+        //Budget of the merged top lists, negative to merge every set of 
+        //top lists of a user.
+        private long topListsMemoryBudget = -1;
+        private int topListsMinSupport = 2;
+        private TopListPlanner.Plan topListPlan = null;
+        //Materialized scaled lists of hot items, null to scale all lists on 
+        //the fly.
+        private ScaledListCache scaledListCache = null;
                 
         /*--------------*
 	 * Final fields *
 	 *--------------*/
         
         private final String topStringURL = "http://recsesame.org#Top";
+        //Scales of the lists, i.e. the possible ratings of a user.
+        private final int maxScale = 5;
         
         
         /*-----------------*
@@ -40,9 +59,21 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
         //Implementation of inverted lists.
         /*private  Map<PairRatingItem, InvertedList> twoRatInvLists 
                 = new HashMap<PairRatingItem, InvertedList>(10000);*/
-        //New Structure
-        private  Map<IndexedRatedRes, InvertedList> oneRatInvLists
-                = new HashMap<IndexedRatedRes, InvertedList>(10000);
+        //One list per item shared by all scales. The ratings are encoded
+        //with ratingQuantizer, scaledTables[s - 1] decodes them multiplied 
+        //by the scale s.
+        private Map<Integer, ScaledInvertedList> scaledInvLists
+                = new HashMap<Integer, ScaledInvertedList>(10000);
+        private RatingQuantizer ratingQuantizer = null;
+        private double[][] scaledTables = new double[maxScale][];
+        //Precomputed merged lists of top rated resources (key is the ID of 
+        //the new resource). They have their own quantizer.
+        private Map<Integer, InvertedList> mergedTopLists 
+                = new HashMap<Integer, InvertedList>(100);
+        private Map<Integer, ScaledInvertedList> topInvLists
+                = new HashMap<Integer, ScaledInvertedList>(100);
+        private RatingQuantizer topQuantizer = null;
+        private double[] topTable = null;
         //Stores the top rated resources in the whole dataset (for optimization
         //purposes)        
         private Set<IndexedRatedRes> topRatedItems = new HashSet(100);
@@ -60,6 +91,12 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
                 throw new UnsupportedOperationException();
         }
         
+        /**
+         * Materializes the scaled lists of a user. Use getPostingListsOfUser
+         * to access the lists without copying them.
+         * @param userId
+         * @return 
+         */
         @Override
         public InvertedList[] getInvertedListsOfUser(int userId) {
                 Set<IndexedRatedRes> ratResSet = getIndexedRatedResOfUser(userId);
@@ -69,9 +106,9 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
                 int index = 0;
                 
                 for (IndexedRatedRes ratRes: ratResSet) {
-                        singleList = oneRatInvLists.get(ratRes);
+                        singleList = materializeList(ratRes);
                         if (singleList != null) {
-                                durArray[index] = oneRatInvLists.get(ratRes);
+                                durArray[index] = singleList;
                                 index++;
                         }
                 }                                                
@@ -79,48 +116,138 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
         }
         
         @Override
-        public void createInvertedListForUser(int indexOfUser) {
-                Set<IndexedRatedRes> ratedResources = getIndexedRatedResOfUser(indexOfUser);
-                InvertedList userRatingArray = null;               
-                //Building inverted list
-                for (IndexedRatedRes ratRes: ratedResources) {         
-                        double rating1 = ratRes.getRating();
-                        double rating2 = 1;
-                        IndexedRatedRes riIndex = null;
-                        
-                        while (rating2 <= 5)  {
-                                riIndex = new IndexedRatedRes(ratRes.getResourceId(), rating2);
-                                
-                                if (oneRatInvLists.containsKey(riIndex)) {
-                                        userRatingArray = oneRatInvLists.get(riIndex);
-                                } else {
-                                        userRatingArray = new InvertedList();
-                                        oneRatInvLists.put(riIndex, userRatingArray);
-                                }
-                                //Multiplications are done directly stored in the inverted list
-                                userRatingArray.insert(new IndexedUserRating(indexOfUser, rating1 * rating2));           
-                                rating2++;
-                        }              
+        public PostingList[] getPostingListsOfUser(int userId) {
+                Set<IndexedRatedRes> ratResSet = getIndexedRatedResOfUser(userId);
+                PostingList[] durArray = new PostingList[ratResSet.size()];
+                PostingList singleList = null;
+                
+                int index = 0;
+                
+                for (IndexedRatedRes ratRes: ratResSet) {
+                        singleList = getScaledList(ratRes);
+                        if (singleList != null) {
+                                durArray[index] = singleList;
+                                index++;
+                        }
                 }
+                //Lists may be missing for ratings which are not a scale.
+                if (index < durArray.length) {
+                        durArray = Arrays.copyOf(durArray, index);
+                }
+                return durArray;
         }
         
         @Override
-        public void compactAndSortInvertedLists() {
-                /*
-                for (InvertedList ur: twoRatInvLists.values()) {
-                        ur.compactAndSortArray();
+        public PostingList getUnscaledListOfItem(int indexOfItem) {
+                ScaledInvertedList list = scaledInvLists.get(indexOfItem);
+                if (list == null) {
+                        return null;
+                }
+                if (scaledListCache != null) {
+                        return scaledListCache.get(indexOfItem, 1, list, scaledTables[0]);
+                }
+                return list.scaled(1.0, scaledTables[0]);
+        }
+        
+        //Returns the list of an item multiplied by the rating, i.e. the
+        //scale, or the precomputed list of a top resource. Null if there
+        //is no such list.
+        private PostingList getScaledList(IndexedRatedRes ratRes) {
+                ScaledInvertedList topList = topInvLists.get(ratRes.getResourceId());
+                if (topList != null) {
+                        if (scaledListCache != null) {
+                                return scaledListCache.get(ratRes.getResourceId(), 1, topList, topTable);
+                        }
+                        return topList.scaled(1.0, topTable);
+                }
+                InvertedList mergedList = mergedTopLists.get(ratRes.getResourceId());
+                if (mergedList != null) {
+                        return mergedList;
+                }
+                ScaledInvertedList list = scaledInvLists.get(ratRes.getResourceId());
+                int scale = scaleOf(ratRes);
+                if (list == null || scale == 0) {
+                        return null;
                 }
-                for (InvertedList ur: oneRatInvLists.values()) {
-                        ur.compactAndSortArray();
+                if (scaledListCache != null) {
+                        return scaledListCache.get(ratRes.getResourceId(), scale, list, scaledTables[scale - 1]);
                 }
-                */
-                for (IndexedRatedRes rRes: oneRatInvLists.keySet()) {
-                        InvertedList ur = oneRatInvLists.get(rRes);
-                        ur.compactAndSortArray();
+                return list.scaled(scale, scaledTables[scale - 1]);
+        }
+        
+        //Same as getScaledList but copies the list.
+        private InvertedList materializeList(IndexedRatedRes ratRes) {
+                ScaledInvertedList topList = topInvLists.get(ratRes.getResourceId());
+                if (topList != null) {
+                        return topList.toInvertedList(1.0, topTable);
+                }
+                InvertedList mergedList = mergedTopLists.get(ratRes.getResourceId());
+                if (mergedList != null) {
+                        return mergedList;
+                }
+                ScaledInvertedList list = scaledInvLists.get(ratRes.getResourceId());
+                int scale = scaleOf(ratRes);
+                if (list == null || scale == 0) {
+                        return null;
+                }
+                return list.toInvertedList(scale, scaledTables[scale - 1]);
+        }
+        
+        //Returns the rating as a scale, or 0 if the rating is not a scale.
+        private int scaleOf(IndexedRatedRes ratRes) {
+                int scale = (int)ratRes.getRating();
+                if (scale != ratRes.getRating() || scale < 1 || scale > maxScale) {
+                        return 0;
+                }
+                return scale;
+        }
+        
+        @Override
+        public void setRatingQuantizationError(double ratingQuantizationError) {
+                this.ratingQuantizationError = ratingQuantizationError;
+        }
+        
+        //The inverted lists are built with the original ratings by the 
+        //superclass and encoded here.
+        @Override
+        public void compactAndSortInvertedLists() {
+                super.compactAndSortInvertedLists();
+                Map<Integer, InvertedList> invLists = getInvertedListsMap();
+                ratingQuantizer = RatingQuantizer.create(invLists.values(), ratingQuantizationError);
+                for (int scale = 1; scale <= maxScale; scale++) {
+                        scaledTables[scale - 1] = ratingQuantizer == null ? null 
+                                : ratingQuantizer.getScaledTable(scale);
                 }
+                for (Map.Entry<Integer, InvertedList> entry: invLists.entrySet()) {
+                        scaledInvLists.put(entry.getKey(), 
+                                new ScaledInvertedList(entry.getValue(), ratingQuantizer));
+                }
+                //The original lists are not needed anymore.
+                invLists.clear();
         }
         
                         
+        @Override
+        public void setScaledListsCacheSize(long cacheSizeInBytes) {
+                scaledListCache = cacheSizeInBytes > 0 ? new ScaledListCache(cacheSizeInBytes) : null;
+        }
+        
+        @Override
+        public ScaledListCache getScaledListCache() {
+                return scaledListCache;
+        }
+        
+        @Override
+        public void setTopListsBudget(long memoryBudget, int minSupport) {
+                this.topListsMemoryBudget = memoryBudget;
+                this.topListsMinSupport = minSupport;
+        }
+        
+        @Override
+        public TopListPlanner.Plan getTopListPlan() {
+                return topListPlan;
+        }
+        
         @Override
         public void addTopRatedRes(IndexedRatedRes ratedRes) {
                 topRatedItems.add(ratedRes);
@@ -128,16 +255,44 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
         
         @Override
         public void precomputeInvListsPartialDotProducts() {
-                int numberOfElements = 0;
-                
-                if (topRatedItems.size() > 0)
-                        precomputeTopScaledInvListsPartialDotProducts();             
+                if (topRatedItems.size() > 0) {
+                        if (topListsMemoryBudget < 0) {
+                                precomputeTopScaledInvListsPartialDotProducts();
+                        } else {
+                                precomputePlannedTopLists();
+                        }
+                        encodeTopLists();
+                }
                 //twoRatInvLists = new HashMap<PairRatingItem, InvertedList>(1);
-                                
-                for (InvertedList ur: oneRatInvLists.values()) {
-                        numberOfElements = numberOfElements + ur.size();                        
-                }                
-                //12 bytes = 4 bytes for integer + 8 bytes for double.
+        }
+        
+        //Encodes the merged lists of top resources.
+        private void encodeTopLists() {
+                topQuantizer = RatingQuantizer.create(mergedTopLists.values(), ratingQuantizationError);
+                topTable = topQuantizer == null ? null : topQuantizer.getScaledTable(1.0);
+                for (Map.Entry<Integer, InvertedList> entry: mergedTopLists.entrySet()) {
+                        topInvLists.put(entry.getKey(), 
+                                new ScaledInvertedList(entry.getValue(), topQuantizer));
+                }
+                mergedTopLists.clear();
+        }
+        
+        @Override
+        public long getSizeInBytes() {
+                long bytes = 0;
+                for (ScaledInvertedList list: scaledInvLists.values()) {
+                        bytes = bytes + list.getSizeInBytes();
+                }
+                for (ScaledInvertedList list: topInvLists.values()) {
+                        bytes = bytes + list.getSizeInBytes();
+                }
+                if (ratingQuantizer != null) {
+                        bytes = bytes + 8L * (maxScale + 1) * ratingQuantizer.size();
+                }
+                if (topQuantizer != null) {
+                        bytes = bytes + 8L * topQuantizer.size();
+                }
+                return bytes;
         }
         
         public void precomputeTopScaledInvListsPartialDotProducts() {
@@ -147,7 +302,6 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
                 int numberOfRemovedLists = 0;                
                 //New strategy: for each user we will identify which top resources
                 //the user has and replace them with a precomputed product   
-                int numberOfRes = oneRatInvLists.size();
                 for (Integer currentUserId: getAllUserIndexes()) {
                        
                         currentUserRes = getIndexedRatedResOfUser(currentUserId);                                                
@@ -167,8 +321,57 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
                 }
         }
         
+        /**
+         * Merges only the sets of top lists chosen by a TopListPlanner under
+         * the memory budget, instead of every set a user has.
+         */
+        public void precomputePlannedTopLists() {
+                //Top resources with a list, indexed for the planner.
+                List<IndexedRatedRes> topResources = new ArrayList<IndexedRatedRes>(topRatedItems.size());
+                List<PostingList> topLists = new ArrayList<PostingList>(topRatedItems.size());
+                for (IndexedRatedRes topResource: topRatedItems) {
+                        PostingList list = getScaledList(topResource);
+                        if (list != null) {
+                                topResources.add(topResource);
+                                topLists.add(list);
+                        }
+                }
+                
+                Integer[] userIds = getAllUserIndexes().toArray(new Integer[0]);
+                int[][] transactions = new int[userIds.length][];
+                int[] buffer = new int[topResources.size()];
+                for (int user = 0; user < userIds.length; user++) {
+                        Set<IndexedRatedRes> currentUserRes = getIndexedRatedResOfUser(userIds[user]);
+                        int size = 0;
+                        for (int i = 0; i < topResources.size(); i++) {
+                                if (currentUserRes.contains(topResources.get(i))) {
+                                        buffer[size++] = i;
+                                }
+                        }
+                        transactions[user] = Arrays.copyOf(buffer, size);
+                }
+                
+                TopListPlanner planner = new TopListPlanner(topListsMemoryBudget, topListsMinSupport);
+                topListPlan = planner.plan(transactions, topLists.toArray(new PostingList[topLists.size()]));
+                
+                List<Set<IndexedRatedRes>> sets = new ArrayList<Set<IndexedRatedRes>>(topListPlan.getSets().length);
+                for (int[] set: topListPlan.getSets()) {
+                        Set<IndexedRatedRes> resources = new HashSet<IndexedRatedRes>(set.length);
+                        for (int i: set) {
+                                resources.add(topResources.get(i));
+                        }
+                        sets.add(resources);
+                }
+                for (int user = 0; user < userIds.length; user++) {
+                        for (int set: topListPlan.getSetsOfUser()[user]) {
+                                replaceTopLists(userIds[user], sets.get(set));
+                        }
+                }
+        }
+        
         public void replaceTopLists(int userId, Set<IndexedRatedRes> topLists){
-                Set<IndexedRatedRes> userRatedRes = getIndexedRatedResOfUser(userId);
+                //The stored profile is read-only, we modify a copy.
+                Set<IndexedRatedRes> userRatedRes = new HashSet<IndexedRatedRes>(getIndexedRatedResOfUser(userId));
                 IndexedRatedRes keyRes = null;                
                 
                 if (topResKeyResMap.containsKey(topLists)) {
@@ -190,7 +393,7 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
                         int newResourceId = 0;
                         double newResourceRating = 0;
                         InvertedList dotProduct = null;
-                        InvertedList[] tempInvList = new InvertedList[topLists.size()];
+                        PostingList[] tempInvList = new PostingList[topLists.size()];
                         IndexedRatedRes newResource = null;
                         
                         int index = 0;
@@ -198,7 +401,7 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
                         for (IndexedRatedRes res: topLists) {       
                                 squareRatingSum = squareRatingSum
                                         + (res.getRating() * res.getRating());
-                                tempInvList[index] = oneRatInvLists.get(res);
+                                tempInvList[index] = getScaledList(res);
                                 index++;
                         }                                          
                         dotProduct = ListOperations.mergeLists(tempInvList);
@@ -206,7 +409,7 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
                         newResourceId = createIndex(newResourceURI);
                         newResourceRating = Math.sqrt(squareRatingSum);
                         newResource = new IndexedRatedRes(newResourceId, newResourceRating);
-                        oneRatInvLists.put(newResource, dotProduct);
+                        mergedTopLists.put(newResourceId, dotProduct);
                         topResKeyResMap.put(topLists, newResource);
                         replaceTopLists(userId, topLists);
                 }
@@ -219,13 +422,36 @@ public abstract class AbstractScaledInvListBasedStorage extends AbstractInvListB
                 removedLists = 0;
                 topRatedItems = new HashSet(100);
                 topResKeyResMap = new HashMap<Set<IndexedRatedRes>, IndexedRatedRes>(100);
-                oneRatInvLists = new HashMap<IndexedRatedRes, InvertedList>(10000);
+                scaledInvLists = new HashMap<Integer, ScaledInvertedList>(10000);
+                ratingQuantizer = null;
+                scaledTables = new double[maxScale][];
+                mergedTopLists = new HashMap<Integer, InvertedList>(100);
+                topInvLists = new HashMap<Integer, ScaledInvertedList>(100);
+                topQuantizer = null;
+                topTable = null;
+                topListPlan = null;
+                if (scaledListCache != null) {
+                        scaledListCache = new ScaledListCache(scaledListCache.getCapacityInBytes());
+                }
         }
         
         //SOME GETTERS FOR TEST PURPOSES
+        //Materializes all scaled lists, keyed by (item, scale) or by the 
+        //new resource in case of top lists.
         @Override
         public Map getResInvertedLists() {
-                return oneRatInvLists;
+                Map<IndexedRatedRes, InvertedList> resultMap
+                        = new HashMap<IndexedRatedRes, InvertedList>(maxScale * scaledInvLists.size());
+                for (Map.Entry<Integer, ScaledInvertedList> entry: scaledInvLists.entrySet()) {
+                        for (int scale = 1; scale <= maxScale; scale++) {
+                                resultMap.put(new IndexedRatedRes(entry.getKey(), scale), 
+                                        entry.getValue().toInvertedList(scale, scaledTables[scale - 1]));
+                        }
+                }
+                for (IndexedRatedRes topRes: topResKeyResMap.values()) {
+                        resultMap.put(topRes, materializeList(topRes));
+                }
+                return resultMap;
         }
         
 }
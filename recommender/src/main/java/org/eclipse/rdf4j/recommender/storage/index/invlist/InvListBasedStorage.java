@@ -7,6 +7,7 @@ package org.eclipse.rdf4j.recommender.storage.index.invlist;
 
 import java.util.Map;
 import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
 import org.eclipse.rdf4j.recommender.storage.IndexBasedStorage;
 /**
  * Interface of an inverted lists-based storage for a recommender.
@@ -14,12 +15,12 @@ import org.eclipse.rdf4j.recommender.storage.IndexBasedStorage;
 public interface InvListBasedStorage extends IndexBasedStorage {
         
         /**
-         * Returns an array of user ratings, i.e. pairs made of users' IDs and
-         * ratings (the rating given to the indexed item).
+         * Returns a list of user ratings, i.e. pairs made of users' IDs and
+         * ratings (the rating given to the indexed item), sorted by user ID.
          * @param indexOfItem The index of an Item
          * @return 
          */
-        public InvertedList getInvertedListOfItem(int indexOfItem);     
+        public PostingList getInvertedListOfItem(int indexOfItem);     
         
         /**
          * Returns an array of the inverted lists of a given user.
@@ -34,6 +35,19 @@ public interface InvListBasedStorage extends IndexBasedStorage {
          * @param currentUserId 
          */
         public void createInvertedListForUser(int currentUserId);
+        
+        /**
+         * Builds the inverted lists of all items from the ratings of all
+         * users. The lists are already compacted and sorted.
+         */
+        public void buildInvertedLists();
+        
+        /**
+         * Sets the number of threads used to build, compact and sort the
+         * inverted lists.
+         * @param parallelism 
+         */
+        public void setParallelism(int parallelism);
                 
         /**
          * Compacts and sorts each of the inverted lists.
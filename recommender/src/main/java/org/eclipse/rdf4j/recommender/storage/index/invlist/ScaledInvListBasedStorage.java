@@ -6,6 +6,9 @@
 package org.eclipse.rdf4j.recommender.storage.index.invlist;
 
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.ScaledListCache;
+import org.eclipse.rdf4j.recommender.util.TopListPlanner;
 
 /**
  * Interface of a scaled inverted lists-based storage for a recommender.
@@ -23,5 +26,66 @@ public interface ScaledInvListBasedStorage extends InvListBasedStorage{
          * separate data structure.
          */
         public void precomputeInvListsPartialDotProducts();    
+        
+        /**
+         * Sets the memory budget (in bytes) of the precomputed merged lists 
+         * of top rated resources and the minimum number of users who have 
+         * to share a set of top lists to merge them. With a negative budget
+         * every set of top lists a user has is merged.
+         * @param memoryBudget
+         * @param minSupport 
+         */
+        public void setTopListsBudget(long memoryBudget, int minSupport);
+        
+        /**
+         * Returns the plan of the merged top lists, null if they were not
+         * planned under a budget.
+         * @return 
+         */
+        public TopListPlanner.Plan getTopListPlan();
+        
+        /**
+         * Returns the scaled lists of a given user (one per rated item, or
+         * per precomputed top list) without copying them.
+         * @param userId
+         * @return 
+         */
+        public PostingList[] getPostingListsOfUser(int userId);
+        
+        /**
+         * Returns the list of an item with the original ratings, i.e. with
+         * scale 1, without copying it. Null if the item has no list.
+         * @param indexOfItem
+         * @return 
+         */
+        public PostingList getUnscaledListOfItem(int indexOfItem);
+        
+        /**
+         * Sets the maximum absolute error allowed when quantizing the 
+         * ratings stored in the lists. It has to be set before the lists 
+         * are compacted. 0 means that ratings are stored exactly.
+         * @param ratingQuantizationError 
+         */
+        public void setRatingQuantizationError(double ratingQuantizationError);
+        
+        /**
+         * Sets the size in bytes of the cache of materialized scaled lists.
+         * With 0 no list is materialized, all of them are scaled on the fly.
+         * @param cacheSizeInBytes 
+         */
+        public void setScaledListsCacheSize(long cacheSizeInBytes);
+        
+        /**
+         * Returns the cache of materialized scaled lists, null if there is
+         * no cache.
+         * @return 
+         */
+        public ScaledListCache getScaledListCache();
+        
+        /**
+         * Returns an estimation of the bytes used by the scaled lists.
+         * @return 
+         */
+        public long getSizeInBytes();
                  
 }
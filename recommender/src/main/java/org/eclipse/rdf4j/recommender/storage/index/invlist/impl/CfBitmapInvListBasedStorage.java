@@ -0,0 +1,107 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.storage.index.invlist.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.rdf4j.recommender.datamanager.model.BitmapPostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedListBuilder;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+
+/**
+ * Storage for implicit feedback (likes) whose posting lists are kept as
+ * bitmaps (see BitmapPostingList). Ratings are not stored, every posting
+ * has the rating LIKE_RATING. Lists are built as plain inverted lists and
+ * converted once all users have been inserted, i.e. when
+ * compactAndSortInvertedLists() is invoked.
+ */
+public class CfBitmapInvListBasedStorage extends CfInvListBasedStorage {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Rating of every posting.
+         */
+        public static final double LIKE_RATING = 1.0;
+
+        /*-----------------*
+	 * Data Structures *
+	 *-----------------*/
+
+        //Bitmaps of users. Key is an item ID.
+        private Map<Integer, BitmapPostingList> bitmapInvLists
+                = new HashMap<Integer, BitmapPostingList>(10000);
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        @Override
+        public PostingList getInvertedListOfItem(int indexOfItem) {
+                return bitmapInvLists.get(indexOfItem);
+        }
+
+        /**
+         * Returns the bitmap of the users who liked an item, null if nobody
+         * did.
+         * @param indexOfItem
+         * @return
+         */
+        public BitmapPostingList getBitmapOfItem(int indexOfItem) {
+                return bitmapInvLists.get(indexOfItem);
+        }
+
+        /**
+         * Sorts the lists and converts them into bitmaps. The plain lists are
+         * released afterwards.
+         */
+        @Override
+        public void compactAndSortInvertedLists() {
+                Map<Integer, InvertedList> invLists = getInvertedListsMap();
+                InvertedListBuilder.compactAndSort(invLists.values(), getParallelism());
+                for (Map.Entry<Integer, InvertedList> entry: invLists.entrySet()) {
+                        bitmapInvLists.put(entry.getKey(),
+                                BitmapPostingList.fromList(entry.getValue(), LIKE_RATING));
+                }
+                invLists.clear();
+        }
+
+        /**
+         * Returns the size in bytes of the bitmaps.
+         * @return
+         */
+        public long getSizeInBytes() {
+                long bytes = 0;
+                for (BitmapPostingList list: bitmapInvLists.values()) {
+                        bytes = bytes + list.getSizeInBytes();
+                }
+                return bytes;
+        }
+
+        @Override
+        public void resetStorage() {
+                super.resetStorage();
+                bitmapInvLists = new HashMap<Integer, BitmapPostingList>(10000);
+        }
+
+        //SOME GETTERS FOR TEST PURPOSES
+        @Override
+        public Map getResInvertedLists() {
+                //Before the conversion the lists are still in the superclass.
+                if (bitmapInvLists.isEmpty()) {
+                        return super.getResInvertedLists();
+                }
+                Map<Integer, InvertedList> resultMap
+                        = new HashMap<Integer, InvertedList>(bitmapInvLists.size());
+                for (Map.Entry<Integer, BitmapPostingList> entry: bitmapInvLists.entrySet()) {
+                        resultMap.put(entry.getKey(), entry.getValue().toInvertedList());
+                }
+                return resultMap;
+        }
+}
@@ -0,0 +1,86 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.storage.index.invlist.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.rdf4j.recommender.datamanager.model.CompressedInvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedListBuilder;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+
+/**
+ * Storage based on inverted lists whose posting lists are kept compressed
+ * (see CompressedInvertedList). Lists are built as plain inverted lists and
+ * compressed once all users have been inserted, i.e. when
+ * compactAndSortInvertedLists() is invoked.
+ */
+public class CfCompressedInvListBasedStorage extends CfInvListBasedStorage {
+
+        /*-----------------*
+	 * Data Structures *
+	 *-----------------*/
+
+        //Compressed inverted lists. Key is an item ID.
+        private Map<Integer, CompressedInvertedList> compressedInvLists
+                = new HashMap<Integer, CompressedInvertedList>(10000);
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        @Override
+        public PostingList getInvertedListOfItem(int indexOfItem) {
+                return compressedInvLists.get(indexOfItem);
+        }
+
+        /**
+         * Sorts the lists and compresses them. The uncompressed lists are
+         * released afterwards.
+         */
+        @Override
+        public void compactAndSortInvertedLists() {
+                Map<Integer, InvertedList> invLists = getInvertedListsMap();
+                InvertedListBuilder.compactAndSort(invLists.values(), getParallelism());
+                for (Map.Entry<Integer, InvertedList> entry: invLists.entrySet()) {
+                        compressedInvLists.put(entry.getKey(), CompressedInvertedList.compress(entry.getValue()));
+                }
+                invLists.clear();
+        }
+
+        /**
+         * Returns the size in bytes of the compressed lists.
+         * @return
+         */
+        public long getSizeInBytes() {
+                long bytes = 0;
+                for (CompressedInvertedList list: compressedInvLists.values()) {
+                        bytes = bytes + list.getSizeInBytes();
+                }
+                return bytes;
+        }
+
+        @Override
+        public void resetStorage() {
+                super.resetStorage();
+                compressedInvLists = new HashMap<Integer, CompressedInvertedList>(10000);
+        }
+
+        //SOME GETTERS FOR TEST PURPOSES
+        @Override
+        public Map getResInvertedLists() {
+                //Before compression the lists are still in the superclass.
+                if (compressedInvLists.isEmpty()) {
+                        return super.getResInvertedLists();
+                }
+                Map<Integer, InvertedList> resultMap
+                        = new HashMap<Integer, InvertedList>(compressedInvLists.size());
+                for (Map.Entry<Integer, CompressedInvertedList> entry: compressedInvLists.entrySet()) {
+                        resultMap.put(entry.getKey(), entry.getValue().decompress());
+                }
+                return resultMap;
+        }
+}
@@ -5,8 +5,8 @@
  */
 package org.eclipse.rdf4j.recommender.storage.index.invlist.impl;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.rdf4j.recommender.storage.index.CfIndexBasedStorage;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
 import org.eclipse.rdf4j.recommender.storage.index.invlist.AbstractInvListBasedStorage;
@@ -26,7 +26,7 @@ public class CfInvListBasedStorage extends AbstractInvListBasedStorage implement
          * Maps that stores neighborhoods. Key is a user or item ID.
          */ 
         private Map<Integer, IndexedRatedRes[]> neighborhoods 
-                = new HashMap<Integer, IndexedRatedRes[]>(10000);
+                = new ConcurrentHashMap<Integer, IndexedRatedRes[]>(10000);
 
         
         /*---------*
@@ -41,6 +41,7 @@ public class CfInvListBasedStorage extends AbstractInvListBasedStorage implement
         @Override
         public void storeNeighborhood(int index, IndexedRatedRes[] neighborhood) {
                 neighborhoods.put(index, neighborhood);
+                fireNeighborhoodChanged(index);
         }                       
         
         //SOME GETTERS FOR TEST PURPOSES        
@@ -52,6 +53,6 @@ public class CfInvListBasedStorage extends AbstractInvListBasedStorage implement
         @Override
         public void resetStorage() {
                 super.resetStorage();
-                neighborhoods = new HashMap<Integer, IndexedRatedRes[]>(10000);
+                neighborhoods = new ConcurrentHashMap<Integer, IndexedRatedRes[]>(10000);
         }
 }
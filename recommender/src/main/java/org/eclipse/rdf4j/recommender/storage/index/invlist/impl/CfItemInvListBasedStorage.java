@@ -0,0 +1,83 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.storage.index.invlist.impl;
+
+import java.util.Map;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+
+/**
+ * Storage for item-based collaborative filtering. The neighborhoods are the
+ * most similar items of each item, keyed by item id. The inverted lists of
+ * the items are the item vectors; once sorted they are copied into a matrix
+ * of item profiles (the transpose of the user profiles), so the
+ * neighborhoods are computed with the same machinery as the ones of users.
+ */
+public class CfItemInvListBasedStorage extends CfInvListBasedStorage {
+
+        /*-----------------*
+	 * Data Structures *
+	 *-----------------*/
+
+        //Users and ratings of each item, indexed by item id.
+        private UserProfileMatrix itemProfiles = new UserProfileMatrix();
+        //l2-norms of the items, indexed by item id.
+        private double[] itemsL2Norms = new double[0];
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Copies the sorted inverted lists into the item profiles and computes
+         * the l2-norm of every item.
+         */
+        public void buildItemProfiles() {
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                int maxItemId = -1;
+                for (Map.Entry<Integer, InvertedList> entry: getInvertedListsMap().entrySet()) {
+                        InvertedList list = entry.getValue();
+                        profiles.set(entry.getKey(), list.getUserIds(), list.getRatings(), list.size());
+                        maxItemId = Math.max(maxItemId, entry.getKey());
+                }
+                profiles.compact();
+                double[] norms = new double[maxItemId + 1];
+                double[] ratings = profiles.getRatings();
+                for (int itemId: profiles.getUserIds()) {
+                        double ratingSquareSum = 0.0;
+                        for (int i = profiles.getStart(itemId); i < profiles.getEnd(itemId); i++) {
+                                ratingSquareSum = ratingSquareSum + ratings[i] * ratings[i];
+                        }
+                        norms[itemId] = Math.sqrt(ratingSquareSum);
+                }
+                itemProfiles = profiles;
+                itemsL2Norms = norms;
+        }
+
+        /**
+         * Returns the profiles of the items: the users who rated an item and
+         * their ratings.
+         * @return
+         */
+        public UserProfileMatrix getItemProfiles() {
+                return itemProfiles;
+        }
+
+        /**
+         * Returns the l2-norms of the items, indexed by item id.
+         * @return
+         */
+        public double[] getItemsL2Norms() {
+                return itemsL2Norms;
+        }
+
+        @Override
+        public void resetStorage() {
+                super.resetStorage();
+                itemProfiles = new UserProfileMatrix();
+                itemsL2Norms = new double[0];
+        }
+}
@@ -0,0 +1,71 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.storage.index.invlist.impl;
+
+import org.eclipse.rdf4j.recommender.datamanager.model.SimHashIndex;
+
+/**
+ * Storage whose neighborhoods are computed from the candidates of a
+ * locality sensitive hashing index of the profiles (see SimHashIndex)
+ * instead of a merge of all the inverted lists of a user. Candidates are
+ * scored exactly, so only neighbors missed by the index make the
+ * neighborhoods approximate. The inverted lists are kept, the recall of the
+ * neighborhoods can be measured against the exact ones.
+ */
+public class CfLshInvListBasedStorage extends CfInvListBasedStorage {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Seed of the hyperplanes, fixed so that builds are reproducible.
+         */
+        public static final long HYPERPLANES_SEED = 0x5EED5EEDL;
+
+        /*-----------------*
+	 * Data Structures *
+	 *-----------------*/
+
+        private SimHashIndex simHashIndex = null;
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Builds the index from the current user profiles.
+         * @param numberOfBands
+         * @param rowsPerBand
+         */
+        public void buildSimHashIndex(int numberOfBands, int rowsPerBand) {
+                SimHashIndex index = new SimHashIndex(numberOfBands, rowsPerBand, HYPERPLANES_SEED);
+                index.build(getUserProfiles());
+                simHashIndex = index;
+        }
+
+        /**
+         * Returns the index, null if it has not been built yet.
+         * @return
+         */
+        public SimHashIndex getSimHashIndex() {
+                return simHashIndex;
+        }
+
+        /**
+         * Returns the size in bytes of the signatures and band tables.
+         * @return
+         */
+        public long getSizeInBytes() {
+                return simHashIndex == null ? 0 : simHashIndex.getSizeInBytes();
+        }
+
+        @Override
+        public void resetStorage() {
+                super.resetStorage();
+                simHashIndex = null;
+        }
+}
@@ -0,0 +1,114 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.storage.index.invlist.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedListBuilder;
+import org.eclipse.rdf4j.recommender.datamanager.model.MappedInvertedIndex;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+
+/**
+ * Storage based on inverted lists which are written into a file once they
+ * are built (see MappedInvertedIndex) and read through memory mapping. The
+ * lists returned by getInvertedListOfItem are views of the mapped file.
+ */
+public class CfMappedInvListBasedStorage extends CfInvListBasedStorage {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        //File of the index, a temporary file is used if it is null.
+        private File indexFile = null;
+        private boolean temporaryFile = false;
+
+        /*-----------------*
+	 * Data Structures *
+	 *-----------------*/
+
+        private MappedInvertedIndex mappedIndex = null;
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Sets the file in which the index is written. It has to be invoked
+         * before compactAndSortInvertedLists().
+         * @param indexFile
+         */
+        public void setIndexFile(File indexFile) {
+                this.indexFile = indexFile;
+        }
+
+        @Override
+        public PostingList getInvertedListOfItem(int indexOfItem) {
+                return mappedIndex.getList(indexOfItem);
+        }
+
+        /**
+         * Sorts the lists, writes them into the index file and maps it. The
+         * lists on the heap are released afterwards.
+         */
+        @Override
+        public void compactAndSortInvertedLists() {
+                Map<Integer, InvertedList> invLists = getInvertedListsMap();
+                InvertedListBuilder.compactAndSort(invLists.values(), getParallelism());
+                try {
+                        if (indexFile == null) {
+                                indexFile = File.createTempFile("invlists", ".idx");
+                                indexFile.deleteOnExit();
+                                temporaryFile = true;
+                        }
+                        MappedInvertedIndex.write(indexFile, invLists);
+                        mappedIndex = MappedInvertedIndex.open(indexFile);
+                } catch (IOException ex) {
+                        throw new RecommenderException(ex);
+                }
+                invLists.clear();
+        }
+
+        /**
+         * Returns the size in bytes of the index file.
+         * @return
+         */
+        public long getSizeInBytes() {
+                return mappedIndex == null ? 0 : mappedIndex.getSizeInBytes();
+        }
+
+        @Override
+        public void resetStorage() {
+                super.resetStorage();
+                mappedIndex = null;
+                if (temporaryFile) {
+                        indexFile.delete();
+                        indexFile = null;
+                        temporaryFile = false;
+                }
+        }
+
+        //SOME GETTERS FOR TEST PURPOSES
+        @Override
+        public Map getResInvertedLists() {
+                //Before writing the file the lists are still in the superclass.
+                if (mappedIndex == null) {
+                        return super.getResInvertedLists();
+                }
+                Map<Integer, InvertedList> resultMap = new HashMap<Integer, InvertedList>();
+                for (int itemId = 0; itemId < mappedIndex.getNumberOfItemSlots(); itemId++) {
+                        InvertedList list = mappedIndex.toInvertedList(itemId);
+                        if (list != null) {
+                                resultMap.put(itemId, list);
+                        }
+                }
+                return resultMap;
+        }
+}
@@ -5,8 +5,8 @@
  */
 package org.eclipse.rdf4j.recommender.storage.index.invlist.impl;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.rdf4j.recommender.storage.index.CfIndexBasedStorage;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
 import org.eclipse.rdf4j.recommender.storage.index.invlist.AbstractScaledInvListBasedStorage;
@@ -26,7 +26,7 @@ public class CfScaledInvListBasedStorage extends AbstractScaledInvListBasedStora
          * Maps that stores neighborhoods. Key is a user or item ID.
          */ 
         private Map<Integer, IndexedRatedRes[]> neighborhoods 
-                = new HashMap<Integer, IndexedRatedRes[]>(10000);
+                = new ConcurrentHashMap<Integer, IndexedRatedRes[]>(10000);
         
         /*---------*
 	 * Methods *
@@ -40,13 +40,14 @@ public class CfScaledInvListBasedStorage extends AbstractScaledInvListBasedStora
         @Override
         public void storeNeighborhood(int index, IndexedRatedRes[] neighborhood) {
                 neighborhoods.put(index, neighborhood);
+                fireNeighborhoodChanged(index);
         } 
         
                 
         @Override
         public void resetStorage() {
                 super.resetStorage();
-                neighborhoods = new HashMap<Integer, IndexedRatedRes[]>(10000);
+                neighborhoods = new ConcurrentHashMap<Integer, IndexedRatedRes[]>(10000);
         }
         
         //SOME GETTERS FOR TEST PURPOSES        
@@ -40,7 +40,7 @@ public class CfSparkStorage extends SparkStorage {
         return emptyList;
     }                
 
-    public void storeNeighborhood(int index, IndexedRatedRes[] neighborhood) {
+    public synchronized void storeNeighborhood(int index, IndexedRatedRes[] neighborhood) {
         
         List<Tuple2<Integer, IndexedRatedRes[]>> tempList = new ArrayList<>();
         Tuple2<Integer, IndexedRatedRes[]> tuple = new Tuple2(index,neighborhood); 
@@ -51,6 +51,23 @@ public class CfSparkStorage extends SparkStorage {
         neighborhoods = neighborhoods.union(tempNeighborhoddRDD);
     }                       
 
+    /**
+     * Stores many neighborhoods with a single union, instead of one union
+     * per neighborhood.
+     * @param newNeighborhoods 
+     */
+    public synchronized void storeNeighborhoods(Map<Integer, IndexedRatedRes[]> newNeighborhoods) {
+        
+        List<Tuple2<Integer, IndexedRatedRes[]>> tempList = new ArrayList<>(newNeighborhoods.size());
+        newNeighborhoods.entrySet().stream().forEach((entry) -> {
+            tempList.add(new Tuple2<>(entry.getKey(), entry.getValue()));
+        });
+        
+        JavaPairRDD<Integer, IndexedRatedRes[]> tempNeighborhoddRDD = sc.parallelizePairs(tempList);
+        
+        neighborhoods = neighborhoods.union(tempNeighborhoddRDD);
+    }
+
     //SOME GETTERS FOR TEST PURPOSES     
     public Map<Integer, IndexedRatedRes[]> getNeighborhoods() {
         
@@ -0,0 +1,219 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Arrays;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+
+/**
+ * Computes the neighborhoods of all users at once as the sparse product of
+ * the rating matrix with its transpose (all-pairs similarity). The product
+ * is symmetric, so only the pairs (u, v) with u < v are computed and every
+ * cosine is offered to the heaps of both users, i.e. each dot product is
+ * computed once instead of twice as with a search per user.
+ *
+ * Users are tiled by id into column blocks of blockSize users. For a block
+ * all users with a smaller id (and the users of the block itself, for the
+ * pairs above the diagonal) walk the part of their item columns which falls
+ * into the block, and the dot products are added into an array of
+ * blockSize cells which stays in cache.
+ *
+ * Scores are the ones of ListOperations.computeNeighborhood(...) for the
+ * user with the lower id. For the other user they are the same too, unless
+ * both users have rated an item more than once, where the additions can be
+ * rounded in a different order.
+ */
+public class BlockedAllPairsSearcher {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Default number of users of a block, 8 KB of scores.
+         */
+        public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final int blockSize;
+        //Scores of the users of the current block and which ones are set.
+        private final double[] scores;
+        private final int[] touched;
+        private final boolean[] isTouched;
+        private int numberOfTouched = 0;
+        private long numberOfPairs = 0;
+
+        //Columns of the matrix (users who rated an item, sorted by user id).
+        private int[] columnStarts;
+        private int[] columnUserIds;
+        private double[] columnRatings;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        public BlockedAllPairsSearcher() {
+                this(DEFAULT_BLOCK_SIZE);
+        }
+
+        public BlockedAllPairsSearcher(int blockSize) {
+                this.blockSize = blockSize;
+                this.scores = new double[blockSize];
+                this.touched = new int[blockSize];
+                this.isTouched = new boolean[blockSize];
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Returns the neighborhoods of all users with a profile, indexed by
+         * user id (null for the ids without profile).
+         * @param userProfiles
+         * @param usersL2Norms
+         * @param neighborhoodSize
+         * @return
+         */
+        public TopKHeap[] computeNeighborhoods(UserProfileMatrix userProfiles,
+                        double[] usersL2Norms, int neighborhoodSize) {
+                int[] userIds = userProfiles.getUserIds();
+                int numberOfUserSlots = userIds.length == 0 ? 0 : userIds[userIds.length - 1] + 1;
+                TopKHeap[] neighborhoods = new TopKHeap[numberOfUserSlots];
+                for (int userId: userIds) {
+                        neighborhoods[userId] = new TopKHeap(neighborhoodSize);
+                }
+                buildColumns(userProfiles);
+                int numberOfItemSlots = columnStarts.length - 1;
+                int[] itemIds = userProfiles.getItemIds();
+                double[] ratings = userProfiles.getRatings();
+                numberOfPairs = 0;
+
+                //Part of each column in the current block: [blockFrom, blockTo).
+                int[] blockFrom = new int[numberOfItemSlots];
+                int[] blockTo = Arrays.copyOf(columnStarts, numberOfItemSlots);
+                //First posting above the diagonal for the users of the block.
+                int[] diagonal = new int[numberOfItemSlots];
+                for (int blockStart = 0; blockStart < numberOfUserSlots; blockStart = blockStart + blockSize) {
+                        int blockEnd = (int)Math.min((long)blockStart + blockSize, numberOfUserSlots);
+                        for (int itemId = 0; itemId < numberOfItemSlots; itemId++) {
+                                int position = blockTo[itemId];
+                                blockFrom[itemId] = position;
+                                while (position < columnStarts[itemId + 1] && columnUserIds[position] < blockEnd) {
+                                        position++;
+                                }
+                                blockTo[itemId] = position;
+                        }
+
+                        //Users of the previous blocks, all of the block is above them.
+                        int u = 0;
+                        while (u < userIds.length && userIds[u] < blockStart) {
+                                int userId = userIds[u];
+                                for (int i = userProfiles.getStart(userId); i < userProfiles.getEnd(userId); i++) {
+                                        addColumn(blockStart, blockFrom[itemIds[i]], blockTo[itemIds[i]], ratings[i]);
+                                }
+                                offerScores(userId, blockStart, usersL2Norms, neighborhoods);
+                                u++;
+                        }
+
+                        //Users of the block, only the users with a higher id.
+                        System.arraycopy(blockFrom, 0, diagonal, 0, numberOfItemSlots);
+                        while (u < userIds.length && userIds[u] < blockEnd) {
+                                int userId = userIds[u];
+                                for (int i = userProfiles.getStart(userId); i < userProfiles.getEnd(userId); i++) {
+                                        int itemId = itemIds[i];
+                                        int position = diagonal[itemId];
+                                        while (position < blockTo[itemId] && columnUserIds[position] <= userId) {
+                                                position++;
+                                        }
+                                        diagonal[itemId] = position;
+                                        addColumn(blockStart, position, blockTo[itemId], ratings[i]);
+                                }
+                                offerScores(userId, blockStart, usersL2Norms, neighborhoods);
+                                u++;
+                        }
+                }
+                //Released, they are as large as the matrix.
+                columnStarts = null;
+                columnUserIds = null;
+                columnRatings = null;
+                return neighborhoods;
+        }
+
+        /**
+         * Returns the number of pairs of users with a common item found by
+         * the last computation, each pair counted once.
+         * @return
+         */
+        public long getNumberOfPairs() {
+                return numberOfPairs;
+        }
+
+        //Adds rating * weight of the postings [from, to) of a column.
+        private void addColumn(int blockStart, int from, int to, double weight) {
+                for (int position = from; position < to; position++) {
+                        int cell = columnUserIds[position] - blockStart;
+                        if (!isTouched[cell]) {
+                                isTouched[cell] = true;
+                                scores[cell] = 0;
+                                touched[numberOfTouched++] = cell;
+                        }
+                        scores[cell] = scores[cell] + (columnRatings[position] * weight);
+                }
+        }
+
+        //Offers the cosines of the touched users to both heaps and resets them.
+        private void offerScores(int userId, int blockStart, double[] usersL2Norms, TopKHeap[] neighborhoods) {
+                double userL2Norm = usersL2Norms[userId];
+                for (int i = 0; i < numberOfTouched; i++) {
+                        int cell = touched[i];
+                        int otherUserId = blockStart + cell;
+                        double cosine = scores[cell] / (userL2Norm * usersL2Norms[otherUserId]);
+                        neighborhoods[userId].offer(otherUserId, cosine);
+                        neighborhoods[otherUserId].offer(userId, cosine);
+                        isTouched[cell] = false;
+                }
+                numberOfPairs = numberOfPairs + numberOfTouched;
+                numberOfTouched = 0;
+        }
+
+        //Transposes the profiles into columns, filled by ascending user id
+        //so the postings are sorted as the ones of the inverted lists.
+        private void buildColumns(UserProfileMatrix userProfiles) {
+                int[] userIds = userProfiles.getUserIds();
+                int[] itemIds = userProfiles.getItemIds();
+                double[] ratings = userProfiles.getRatings();
+                int maxItemId = -1;
+                for (int userId: userIds) {
+                        for (int i = userProfiles.getStart(userId); i < userProfiles.getEnd(userId); i++) {
+                                maxItemId = Math.max(maxItemId, itemIds[i]);
+                        }
+                }
+                columnStarts = new int[maxItemId + 2];
+                for (int userId: userIds) {
+                        for (int i = userProfiles.getStart(userId); i < userProfiles.getEnd(userId); i++) {
+                                columnStarts[itemIds[i] + 1]++;
+                        }
+                }
+                for (int itemId = 0; itemId <= maxItemId; itemId++) {
+                        columnStarts[itemId + 1] = columnStarts[itemId + 1] + columnStarts[itemId];
+                }
+                int numberOfPostings = columnStarts[maxItemId + 1];
+                columnUserIds = new int[numberOfPostings];
+                columnRatings = new double[numberOfPostings];
+                int[] fill = Arrays.copyOf(columnStarts, maxItemId + 1);
+                for (int userId: userIds) {
+                        for (int i = userProfiles.getStart(userId); i < userProfiles.getEnd(userId); i++) {
+                                int position = fill[itemIds[i]]++;
+                                columnUserIds[position] = userId;
+                                columnRatings[position] = ratings[i];
+                        }
+                }
+        }
+}
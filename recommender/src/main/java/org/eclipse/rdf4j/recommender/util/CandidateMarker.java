@@ -0,0 +1,99 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Arrays;
+
+/**
+ * Dense array of flags indexed by item id, used to collect the candidate
+ * items of a user without repetitions. The ids of the marked items are 
+ * kept in a list, so the marker is reset in time proportional to them and
+ * can be reused for all users. A marker must not be shared by threads.
+ */
+public class CandidateMarker {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private boolean[] isMarked;
+        private int[] marked;
+        private int numberOfMarked = 0;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        /**
+         * Creates a marker for item ids lower than numberOfItems. It grows if
+         * greater ids are marked.
+         * @param numberOfItems 
+         */
+        public CandidateMarker(int numberOfItems) {
+                isMarked = new boolean[numberOfItems];
+                marked = new int[numberOfItems];
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Marks an item. Returns true if it was not marked yet.
+         * @param itemId
+         * @return 
+         */
+        public boolean mark(int itemId) {
+                if (itemId >= isMarked.length) {
+                        int newLength = Math.max(itemId + 1, isMarked.length + (isMarked.length >> 1));
+                        isMarked = Arrays.copyOf(isMarked, newLength);
+                        marked = Arrays.copyOf(marked, newLength);
+                }
+                if (isMarked[itemId]) {
+                        return false;
+                }
+                isMarked[itemId] = true;
+                marked[numberOfMarked++] = itemId;
+                return true;
+        }
+
+        /**
+         * Checks whether an item is marked.
+         * @param itemId
+         * @return 
+         */
+        public boolean isMarked(int itemId) {
+                return itemId < isMarked.length && isMarked[itemId];
+        }
+
+        /**
+         * Returns the number of marked items.
+         * @return 
+         */
+        public int getNumberOfMarked() {
+                return numberOfMarked;
+        }
+
+        /**
+         * Returns the ids of the marked items in ascending order.
+         * @return 
+         */
+        public int[] toSortedArray() {
+                int[] sortedIds = Arrays.copyOf(marked, numberOfMarked);
+                Arrays.sort(sortedIds);
+                return sortedIds;
+        }
+
+        /**
+         * Removes all marks.
+         */
+        public void reset() {
+                for (int i = 0; i < numberOfMarked; i++) {
+                        isMarked[marked[i]] = false;
+                }
+                numberOfMarked = 0;
+        }
+}
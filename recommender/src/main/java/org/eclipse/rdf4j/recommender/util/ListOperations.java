@@ -6,13 +6,15 @@
 package org.eclipse.rdf4j.recommender.util;
 
 import com.google.common.collect.MinMaxPriorityQueue;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
+import org.eclipse.rdf4j.recommender.datamanager.model.BitmapPostingList;
 import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
-import org.eclipse.rdf4j.recommender.datamanager.model.IndexedUserRating;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingCursor;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
 
 /**
  * Class responsible for performing list-based operations, like union of intersection
@@ -46,66 +48,74 @@ public class ListOperations {
         public static MinMaxPriorityQueue<IndexedRatedRes> computeNeighborhood(
                         int mainUserId, double[] userRatings,
                         Map<Integer, Double> usersL2Norms,
-                        InvertedList[] invList,
+                        PostingList[] invList,
                         int neighborhoodSize, int decimalPlaces) {
-            
-                MinMaxPriorityQueue<IndexedRatedRes> neighborhood = 
-                        MinMaxPriorityQueue.orderedBy(ratedResRatingComparator)
-                            .maximumSize(neighborhoodSize)
-                            .create();
+                return computeNeighborhood(mainUserId, userRatings, toNormsArray(usersL2Norms),
+                        invList, neighborhoodSize, decimalPlaces);
+        }
+        
+        /**
+         * Same as computeNeighborhood(...) but the l2-norms are read from an 
+         * array indexed by user id.
+         * @param mainUserId
+         * @param userRatings
+         * @param usersL2Norms
+         * @param invList
+         * @param neighborhoodSize
+         * @param decimalPlaces
+         * @return 
+         */
+        public static MinMaxPriorityQueue<IndexedRatedRes> computeNeighborhood(
+                        int mainUserId, double[] userRatings,
+                        double[] usersL2Norms,
+                        PostingList[] invList,
+                        int neighborhoodSize, int decimalPlaces) {
+                TopKHeap neighborhood = new TopKHeap(neighborhoodSize);
+                computeNeighborhood(mainUserId, userRatings, usersL2Norms, invList, neighborhood);
+                return toQueue(neighborhood);
+        }
+        
+        /**
+         * Same as computeNeighborhood(...) but the neighbors are offered to a
+         * bounded heap, so no object is created per candidate. The heap is
+         * not cleared.
+         * @param mainUserId
+         * @param userRatings
+         * @param usersL2Norms
+         * @param invList
+         * @param neighborhood 
+         */
+        public static void computeNeighborhood(
+                        int mainUserId, double[] userRatings,
+                        double[] usersL2Norms,
+                        PostingList[] invList,
+                        TopKHeap neighborhood) {
                                
-                //Wen need ot keep an array of positions.
-                int[] arrayOfPos = new int[invList.length]; //Automatically filled with 0s.
-                int currentUser = Integer.MAX_VALUE;
-                int nextValue = Integer.MAX_VALUE;
-                double dotProduct = 0;
-                int numberOfCompletedLists = 0;
-                int indexOfCurrentList = 0;
-                double mainUserL2Norm = usersL2Norms.get(mainUserId);
+                //We need to keep a cursor per list.
+                LoserTreeMerger merger = new LoserTreeMerger(invList);
+                int currentUser = merger.userId();
+                double dotProduct;
+                double mainUserL2Norm = usersL2Norms[mainUserId];
                 double currentUserL2Norm;
                 double denominator;
                 
-                //Initialization
-                //Get the user with min ID by searching the first cell of each array.
-                for (InvertedList dur: invList) {
-                        if (dur.get(0).getUserId() < currentUser) {
-                                currentUser = dur.get(0).getUserId();
-                        }
-                }                                                
-                while (numberOfCompletedLists < invList.length) {
-                        numberOfCompletedLists = 0;
-                        indexOfCurrentList = 0;
+                while (currentUser != PostingCursor.NO_MORE_USERS) {
                         dotProduct = 0;
-                        IndexedRatedRes neighbor = null;
                         
-                        //for each list
-                        for (InvertedList dur: invList) {
-                                if (arrayOfPos[indexOfCurrentList] < dur.size()) {
-                                        if (dur.get(arrayOfPos[indexOfCurrentList]).getUserId() == currentUser) {
-                                                dotProduct = dotProduct + 
-                                                        (dur.get(arrayOfPos[indexOfCurrentList]).getRating() * userRatings[indexOfCurrentList]);
-                                                arrayOfPos[indexOfCurrentList] = arrayOfPos[indexOfCurrentList] + 1;
-                                        }
-                                        if (arrayOfPos[indexOfCurrentList] < dur.size() 
-                                                        && dur.get(arrayOfPos[indexOfCurrentList]).getUserId() < nextValue) {
-                                                nextValue = dur.get(arrayOfPos[indexOfCurrentList]).getUserId();
-                                        }                                                                                
-                                } else numberOfCompletedLists++;
-                                
-                                indexOfCurrentList++;                                
-                        }
+                        //for each posting of the user, in the order of the lists
+                        do {
+                                dotProduct = dotProduct + (merger.rating() * userRatings[merger.list()]);
+                                merger.next();
+                        } while (merger.userId() == currentUser);
                         //we need to make sure that the user itslef is not added to the neighborhood.
-                        if (numberOfCompletedLists < invList.length && mainUserId != currentUser ) {
+                        if (mainUserId != currentUser) {
                                 //dotProduct = RoundingUtility.round( dotProduct, decimalPlaces ); 
-                                currentUserL2Norm = usersL2Norms.get(currentUser);
+                                currentUserL2Norm = usersL2Norms[currentUser];
                                 denominator =  mainUserL2Norm * currentUserL2Norm;
-                                neighbor = new IndexedRatedRes(currentUser, dotProduct / denominator);     
-                                neighborhood.add(neighbor);
+                                neighborhood.offer(currentUser, dotProduct / denominator);
                         }
-                        currentUser = nextValue;
-                        nextValue = Integer.MAX_VALUE;
-                }                                                                                
-                return neighborhood;
+                        currentUser = merger.userId();
+                }
         }
         
         /**
@@ -114,82 +124,288 @@ public class ListOperations {
          * are already scaled by the rating.
          * @param mainUserId
          * @param usersL2Norms
-         * @param invList
+         * @param scaledInvList
          * @param neighborhoodSize
          * @param decimalPlaces
          * @return 
          */
         public static MinMaxPriorityQueue<IndexedRatedRes> computeSilNeighborhood(
-                        //int mainUserId, double[] userRatings,
-                        //int mainUserId, double[] userRatings,
                         int mainUserId,
                         Map<Integer, Double> usersL2Norms,
-                        InvertedList[] scaledInvList,
+                        PostingList[] scaledInvList,
                         int neighborhoodSize, int decimalPlaces) {
-            
-                MinMaxPriorityQueue<IndexedRatedRes> neighborhood = 
-                        MinMaxPriorityQueue.orderedBy(ratedResRatingComparator)
-                            .maximumSize(neighborhoodSize)
-                            .create();
+                return computeSilNeighborhood(mainUserId, toNormsArray(usersL2Norms),
+                        scaledInvList, neighborhoodSize, decimalPlaces);
+        }
+        
+        /**
+         * Same as computeSilNeighborhood(...) but the l2-norms are read from
+         * an array indexed by user id.
+         * @param mainUserId
+         * @param usersL2Norms
+         * @param scaledInvList
+         * @param neighborhoodSize
+         * @param decimalPlaces
+         * @return 
+         */
+        public static MinMaxPriorityQueue<IndexedRatedRes> computeSilNeighborhood(
+                        int mainUserId,
+                        double[] usersL2Norms,
+                        PostingList[] scaledInvList,
+                        int neighborhoodSize, int decimalPlaces) {
+                TopKHeap neighborhood = new TopKHeap(neighborhoodSize);
+                computeSilNeighborhood(mainUserId, usersL2Norms, scaledInvList, neighborhood);
+                return toQueue(neighborhood);
+        }
+        
+        /**
+         * Same as computeSilNeighborhood(...) but the neighbors are offered to
+         * a bounded heap, so no object is created per candidate. The heap is
+         * not cleared.
+         * @param mainUserId
+         * @param usersL2Norms
+         * @param scaledInvList
+         * @param neighborhood 
+         */
+        public static void computeSilNeighborhood(
+                        int mainUserId,
+                        double[] usersL2Norms,
+                        PostingList[] scaledInvList,
+                        TopKHeap neighborhood) {
                                
-                //Wen need ot keep an array of positions.
-                int[] arrayOfPos = new int[scaledInvList.length]; //Automatically filled with 0s.
-                int currentUser = Integer.MAX_VALUE;
-                int nextValue = Integer.MAX_VALUE;
-                double dotProduct = 0;
-                int numberOfCompletedLists = 0;
-                int indexOfCurrentList = 0;
-                double mainUserL2Norm = usersL2Norms.get(mainUserId);
+                //We need to keep a cursor per list.
+                LoserTreeMerger merger = new LoserTreeMerger(scaledInvList);
+                int currentUser = merger.userId();
+                double dotProduct;
+                double mainUserL2Norm = usersL2Norms[mainUserId];
                 double currentUserL2Norm;
                 double denominator;
                 
-                //Initialization
-                //Get the user with min ID by searching the first cell of each array.
-                for (InvertedList dur: scaledInvList) {
-                        if (dur.get(0).getUserId() == 0) {
-                                //This is already the minimum Id
-                                currentUser = 0;
-                                break;
-                        }
-                        if (dur.get(0).getUserId() < currentUser) {
-                                currentUser = dur.get(0).getUserId();
-                        }
-                }                                                
-                while (numberOfCompletedLists < scaledInvList.length) {
-                                        
-                        numberOfCompletedLists = 0;
-                        indexOfCurrentList = 0;
+                while (currentUser != PostingCursor.NO_MORE_USERS) {
                         dotProduct = 0;
-                        IndexedRatedRes neighbor = null;
                         
-                        //for each list
-                        for (InvertedList dur: scaledInvList) {
-                                if (arrayOfPos[indexOfCurrentList] < dur.size()) {
-                                        if (dur.get(arrayOfPos[indexOfCurrentList]).getUserId() == currentUser) {
-                                                dotProduct = dotProduct + 
-                                                        (dur.get(arrayOfPos[indexOfCurrentList]).getRating());
-                                                arrayOfPos[indexOfCurrentList] = arrayOfPos[indexOfCurrentList] + 1;
-                                        }
-                                        if (arrayOfPos[indexOfCurrentList] < dur.size() 
-                                                        && dur.get(arrayOfPos[indexOfCurrentList]).getUserId() < nextValue) {
-                                                nextValue = dur.get(arrayOfPos[indexOfCurrentList]).getUserId();
-                                        }                                                                                
-                                } else numberOfCompletedLists++;
-                                
-                                indexOfCurrentList++;                                
-                        }
+                        //for each posting of the user, in the order of the lists
+                        do {
+                                dotProduct = dotProduct + merger.rating();
+                                merger.next();
+                        } while (merger.userId() == currentUser);
                         //we need to make sure that the user itslef is not added to the neighborhood.
-                        if (numberOfCompletedLists < scaledInvList.length && mainUserId != currentUser ) {
-                                currentUserL2Norm = usersL2Norms.get(currentUser);
+                        if (mainUserId != currentUser) {
+                                currentUserL2Norm = usersL2Norms[currentUser];
                                 denominator =  mainUserL2Norm * currentUserL2Norm;
                                 //dotProduct = RoundingUtility.round( dotProduct, decimalPlaces );                            
-                                neighbor = new IndexedRatedRes(currentUser, dotProduct / denominator);
-                                neighborhood.add(neighbor);
+                                neighborhood.offer(currentUser, dotProduct / denominator);
+                        }
+                        currentUser = merger.userId();
+                }
+        }
+        
+        /**
+         * A computation of the neighborhood with the Pearson correlation over
+         * the co-rated items. The number of co-rated items and the sums of 
+         * the ratings of both users, of their squares and of their products 
+         * are gathered in the same merge pass, so the co-rated vectors are 
+         * never materialized and no norm has to be precomputed. Users with a 
+         * correlation which is not defined (less than two co-rated items or 
+         * the same rating on all of them) are not added to the neighborhood.
+         * @param mainUserId
+         * @param userRatings rating of the main user for each list
+         * @param invList lists with the original ratings (not scaled)
+         * @param neighborhood the heap is not cleared
+         */
+        public static void computePearsonNeighborhood(
+                        int mainUserId, double[] userRatings,
+                        PostingList[] invList,
+                        TopKHeap neighborhood) {
+                               
+                //We need to keep a cursor per list.
+                LoserTreeMerger merger = new LoserTreeMerger(invList);
+                int currentUser = merger.userId();
+                int n;
+                double x, y, sumX, sumY, sumXY, sumXX, sumYY;
+                double covariance;
+                double denominator;
+                
+                while (currentUser != PostingCursor.NO_MORE_USERS) {
+                        n = 0;
+                        sumX = 0;
+                        sumY = 0;
+                        sumXY = 0;
+                        sumXX = 0;
+                        sumYY = 0;
+                        
+                        //for each posting of the user, in the order of the lists
+                        do {
+                                x = userRatings[merger.list()];
+                                y = merger.rating();
+                                n++;
+                                sumX = sumX + x;
+                                sumY = sumY + y;
+                                sumXY = sumXY + x * y;
+                                sumXX = sumXX + x * x;
+                                sumYY = sumYY + y * y;
+                                merger.next();
+                        } while (merger.userId() == currentUser);
+                        //we need to make sure that the user itslef is not added to the neighborhood.
+                        if (mainUserId != currentUser && n > 1) {
+                                covariance = n * sumXY - sumX * sumY;
+                                denominator = Math.sqrt((n * sumXX - sumX * sumX) * (n * sumYY - sumY * sumY));
+                                if (denominator > 0) {
+                                        neighborhood.offer(currentUser, covariance / denominator);
+                                }
                         }
-                        currentUser = nextValue;
-                        nextValue = Integer.MAX_VALUE;
-                }                                                                                
-                return neighborhood;
+                        currentUser = merger.userId();
+                }
+        }
+        
+        /**
+         * A computation of the neighborhood which walks each list on its own
+         * and adds rating * weight of its postings into an accumulator
+         * (score-at-a-time), instead of merging the lists. The neighborhood
+         * is the same as the one of computeNeighborhood(...) (or of
+         * computeSilNeighborhood(...) for scaled lists).
+         * @param mainUserId
+         * @param listWeights weight of each list (the ratings of the main
+         *        user), null for a weight of 1 (scaled lists)
+         * @param usersL2Norms
+         * @param invList
+         * @param accumulator reset on return
+         * @param neighborhood the heap is not cleared
+         */
+        public static void computeAccumulatedNeighborhood(
+                        int mainUserId, double[] listWeights,
+                        double[] usersL2Norms,
+                        PostingList[] invList,
+                        ScoreAccumulator accumulator,
+                        TopKHeap neighborhood) {
+                for (int i = 0; i < invList.length; i++) {
+                        accumulator.add(invList[i], listWeights == null ? 1.0 : listWeights[i]);
+                }
+                double mainUserL2Norm = usersL2Norms[mainUserId];
+                for (int i = 0; i < accumulator.getNumberOfTouched(); i++) {
+                        int currentUser = accumulator.getTouched(i);
+                        //we need to make sure that the user itslef is not added to the neighborhood.
+                        if (mainUserId != currentUser) {
+                                double denominator = mainUserL2Norm * usersL2Norms[currentUser];
+                                neighborhood.offer(currentUser, accumulator.getScore(currentUser) / denominator);
+                        }
+                }
+                accumulator.reset();
+        }
+
+        /**
+         * A computation of the neighborhood restricted to a set of candidates
+         * (e.g. the ones of a locality sensitive hashing index), scored
+         * exactly with the profiles. Candidates without a rated item in
+         * common with the main user are skipped, as the merge never meets
+         * them. The products of the common items are summed in the order of
+         * computeNeighborhood(...), so the scores are the same.
+         * @param mainUserId
+         * @param candidates
+         * @param numberOfCandidates
+         * @param userProfiles compacted
+         * @param usersL2Norms
+         * @param neighborhood the heap is not cleared
+         */
+        public static void computeCandidateNeighborhood(
+                        int mainUserId, int[] candidates, int numberOfCandidates,
+                        UserProfileMatrix userProfiles,
+                        double[] usersL2Norms,
+                        TopKHeap neighborhood) {
+                int[] itemIds = userProfiles.getItemIds();
+                double[] ratings = userProfiles.getRatings();
+                int mainStart = userProfiles.getStart(mainUserId);
+                int mainEnd = userProfiles.getEnd(mainUserId);
+                double mainUserL2Norm = usersL2Norms[mainUserId];
+
+                for (int c = 0; c < numberOfCandidates; c++) {
+                        int currentUser = candidates[c];
+                        if (currentUser == mainUserId) {
+                                continue;
+                        }
+                        int end = userProfiles.getEnd(currentUser);
+                        int j = userProfiles.getStart(currentUser);
+                        double dotProduct = 0;
+                        boolean hasCommonItem = false;
+                        //For each rating of the main user (each list of the
+                        //merge), the ratings of the candidate for the same item.
+                        for (int i = mainStart; i < mainEnd && j < end; i++) {
+                                int itemId = itemIds[i];
+                                while (j < end && itemIds[j] < itemId) {
+                                        j++;
+                                }
+                                for (int k = j; k < end && itemIds[k] == itemId; k++) {
+                                        dotProduct = dotProduct + (ratings[k] * ratings[i]);
+                                        hasCommonItem = true;
+                                }
+                        }
+                        if (hasCommonItem) {
+                                double denominator = mainUserL2Norm * usersL2Norms[currentUser];
+                                neighborhood.offer(currentUser, dotProduct / denominator);
+                        }
+                }
+        }
+
+        /**
+         * A computation of the neighborhood using bitmaps of likes (implicit
+         * feedback). The dot product of the main user and another user is
+         * the number of bitmaps containing the other user, which is counted
+         * by adding all bitmaps into counters (a weighted union) instead of
+         * merging them.
+         * @param mainUserId
+         * @param usersL2Norms
+         * @param bitmaps bitmaps of the items liked by the main user
+         * @param counters indexed by user id, all 0. They are 0 on return too.
+         * @param neighborhoodSize
+         * @param decimalPlaces
+         * @return 
+         */
+        public static MinMaxPriorityQueue<IndexedRatedRes> computeBitmapNeighborhood(
+                        int mainUserId,
+                        double[] usersL2Norms,
+                        BitmapPostingList[] bitmaps,
+                        int[] counters,
+                        int neighborhoodSize, int decimalPlaces) {
+                TopKHeap neighborhood = new TopKHeap(neighborhoodSize);
+                computeBitmapNeighborhood(mainUserId, usersL2Norms, bitmaps, counters, neighborhood);
+                return toQueue(neighborhood);
+        }
+        
+        /**
+         * Same as computeBitmapNeighborhood(...) but the neighbors are offered
+         * to a bounded heap. The heap is not cleared.
+         * @param mainUserId
+         * @param usersL2Norms
+         * @param bitmaps
+         * @param counters
+         * @param neighborhood 
+         */
+        public static void computeBitmapNeighborhood(
+                        int mainUserId,
+                        double[] usersL2Norms,
+                        BitmapPostingList[] bitmaps,
+                        int[] counters,
+                        TopKHeap neighborhood) {
+                long maxTouched = 0;
+                for (BitmapPostingList bitmap: bitmaps) {
+                        maxTouched = maxTouched + bitmap.size();
+                }
+                int[] touched = new int[(int)Math.min(maxTouched, counters.length)];
+                int numberOfTouched = 0;
+                for (BitmapPostingList bitmap: bitmaps) {
+                        numberOfTouched = bitmap.addTo(counters, touched, numberOfTouched);
+                }
+                
+                double mainUserL2Norm = usersL2Norms[mainUserId];
+                for (int i = 0; i < numberOfTouched; i++) {
+                        int currentUser = touched[i];
+                        //we need to make sure that the user itslef is not added to the neighborhood.
+                        if (mainUserId != currentUser) {
+                                double denominator = mainUserL2Norm * usersL2Norms[currentUser];
+                                neighborhood.offer(currentUser, counters[currentUser] / denominator);
+                        }
+                        counters[currentUser] = 0;
+                }
         }
         
         /**
@@ -198,68 +414,69 @@ public class ListOperations {
          * @return 
          */
         public static InvertedList mergeLists(
-                        InvertedList[] invList) {
+                        PostingList[] invList) {
             
-                /*        
-                MinMaxPriorityQueue<UserRating> dotProducts = 
-                        MinMaxPriorityQueue.orderedBy(urComparator)
-                            //.maximumSize(neighborhoodSize)
-                            .create();
-                */                               
-                List<IndexedUserRating> dotProducts = new ArrayList<IndexedUserRating>();
-                
+                //The merged list can't be longer than the sum of the lists.
+                int maxLength = 0;
+                for (PostingList dur: invList) {
+                        maxLength = maxLength + dur.size();
+                }
+                int[] mergedUserIds = new int[maxLength];
+                double[] mergedRatings = new double[maxLength];
+                int mergedSize = 0;
             
-                //Wen need ot keep an array of positions.
-                int[] arrayOfPos = new int[invList.length]; //Automatically filled with 0s.
-                int currentUser = Integer.MAX_VALUE;
-                int nextValue = Integer.MAX_VALUE;
-                double dotProduct = 0;
-                int numberOfCompletedLists = 0;
-                int indexOfCurrentList = 0;
+                //We need to keep a cursor per list.
+                LoserTreeMerger merger = new LoserTreeMerger(invList);
+                int currentUser = merger.userId();
+                double dotProduct;
                 
-                //Initialization
-                //Get the user with min ID by searching the first cell of each array.
-                for (InvertedList dur: invList) {
-                        if (dur.get(0).getUserId() < currentUser) {
-                                currentUser = dur.get(0).getUserId();
-                        }
-                }                                                
-                while (numberOfCompletedLists < invList.length) {
-                        numberOfCompletedLists = 0;
-                        indexOfCurrentList = 0;
+                while (currentUser != PostingCursor.NO_MORE_USERS) {
                         dotProduct = 0;
-                        IndexedUserRating neighbor = null;
                         
-                        //for each list
-                        for (InvertedList dur: invList) {
-                                if (arrayOfPos[indexOfCurrentList] < dur.size()) {
-                                        if (dur.get(arrayOfPos[indexOfCurrentList]).getUserId() == currentUser) {
-                                                dotProduct = dotProduct + 
-                                                        (dur.get(arrayOfPos[indexOfCurrentList]).getRating());
-                                                arrayOfPos[indexOfCurrentList] = arrayOfPos[indexOfCurrentList] + 1;
-                                        }
-                                        if (arrayOfPos[indexOfCurrentList] < dur.size() 
-                                                        && dur.get(arrayOfPos[indexOfCurrentList]).getUserId() < nextValue) {
-                                                nextValue = dur.get(arrayOfPos[indexOfCurrentList]).getUserId();
-                                        }                                                                                
-                                } else numberOfCompletedLists++;
-                                
-                                indexOfCurrentList++;                                
-                        }
-                        //we need to make sure that the user itslef is not added to the neighborhood.
-                        //if (numberOfCompletedLists < invList.length && mainUserId != currentUser ) {
-                        if (numberOfCompletedLists < invList.length ) {
-                                //dotProduct = RoundingUtility.round( dotProduct, decimalPlaces );                            
-                                neighbor = new IndexedUserRating(currentUser, dotProduct); 
-                                dotProducts.add(neighbor);
-                        }
-                        currentUser = nextValue;
-                        nextValue = Integer.MAX_VALUE;
+                        //for each posting of the user, in the order of the lists
+                        do {
+                                dotProduct = dotProduct + merger.rating();
+                                merger.next();
+                        } while (merger.userId() == currentUser);
+                        mergedUserIds[mergedSize] = currentUser;
+                        mergedRatings[mergedSize] = dotProduct;
+                        mergedSize++;
+                        currentUser = merger.userId();
                 }
                 return new InvertedList(
-                                (IndexedUserRating[]) dotProducts.toArray(new IndexedUserRating[dotProducts.size()]));
+                                Arrays.copyOf(mergedUserIds, mergedSize),
+                                Arrays.copyOf(mergedRatings, mergedSize),
+                                mergedSize);
+        }
+        
+        //Moves the content of a heap into a queue of the same capacity.
+        private static MinMaxPriorityQueue<IndexedRatedRes> toQueue(TopKHeap heap) {
+                MinMaxPriorityQueue<IndexedRatedRes> queue = 
+                        MinMaxPriorityQueue.orderedBy(ratedResRatingComparator)
+                            .maximumSize(heap.capacity())
+                            .create();
+                for (IndexedRatedRes neighbor: heap.toSortedArray()) {
+                        queue.add(neighbor);
+                }
+                return queue;
         }
        
+        /**
+         * Copies l2-norms kept in a map into an array indexed by user id.
+         * @param usersL2Norms
+         * @return 
+         */
+        public static double[] toNormsArray(Map<Integer, Double> usersL2Norms) {
+                int maxUserId = -1;
+                for (Integer userId: usersL2Norms.keySet()) {
+                        maxUserId = Math.max(maxUserId, userId);
+                }
+                double[] norms = new double[maxUserId + 1];
+                for (Map.Entry<Integer, Double> entry: usersL2Norms.entrySet()) {
+                        norms[entry.getKey()] = entry.getValue();
+                }
+                return norms;
+        }
         
         /**
          * Implements binary search on an ordered array of integers. As a second
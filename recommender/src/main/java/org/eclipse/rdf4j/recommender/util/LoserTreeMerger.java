@@ -0,0 +1,141 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingCursor;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+
+/**
+ * K-way merge of posting lists sorted by user id, based on a loser tree
+ * (tournament tree). The current posting is the one with the lowest user
+ * id and, for equal user ids, the one of the list with the lowest index,
+ * so the postings of a user are visited in the order of the lists. Moving
+ * to the next posting costs O(log k) comparisons instead of a scan of all
+ * k lists.
+ *
+ * Usage:
+ *   while (merger.userId() != PostingCursor.NO_MORE_USERS) {
+ *           ... merger.userId(), merger.list(), merger.rating() ...
+ *           merger.next();
+ *   }
+ */
+public class LoserTreeMerger {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final PostingCursor[] cursors;
+        //Current user id of each cursor, to avoid calls while comparing.
+        private final int[] userIds;
+        //tree[0] is the winner, tree[1..k-1] the losers of the inner nodes.
+        //Leaves are the virtual nodes k..2k-1.
+        private final int[] tree;
+        private final int k;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        public LoserTreeMerger(PostingList[] lists) {
+                this(openCursors(lists));
+        }
+
+        /**
+         * Merges cursors which may already have been moved. The cursors are
+         * advanced by next().
+         * @param cursors
+         */
+        public LoserTreeMerger(PostingCursor[] cursors) {
+                k = cursors.length;
+                this.cursors = cursors;
+                userIds = new int[k];
+                for (int i = 0; i < k; i++) {
+                        userIds[i] = cursors[i].userId();
+                }
+                tree = new int[Math.max(k, 1)];
+                if (k > 0) {
+                        //Winners of the nodes while building the tree.
+                        int[] winners = new int[2 * k];
+                        for (int i = 0; i < k; i++) {
+                                winners[k + i] = i;
+                        }
+                        for (int node = k - 1; node >= 1; node--) {
+                                int left = winners[2 * node];
+                                int right = winners[2 * node + 1];
+                                if (beats(left, right)) {
+                                        winners[node] = left;
+                                        tree[node] = right;
+                                } else {
+                                        winners[node] = right;
+                                        tree[node] = left;
+                                }
+                        }
+                        tree[0] = k == 1 ? 0 : winners[1];
+                }
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Returns the user id of the current posting, NO_MORE_USERS when all
+         * lists are exhausted.
+         * @return
+         */
+        public int userId() {
+                return k == 0 ? PostingCursor.NO_MORE_USERS : userIds[tree[0]];
+        }
+
+        /**
+         * Returns the index of the list of the current posting.
+         * @return
+         */
+        public int list() {
+                return tree[0];
+        }
+
+        /**
+         * Returns the rating of the current posting.
+         * @return
+         */
+        public double rating() {
+                return cursors[tree[0]].rating();
+        }
+
+        /**
+         * Moves to the next posting.
+         */
+        public void next() {
+                int winner = tree[0];
+                PostingCursor cursor = cursors[winner];
+                cursor.next();
+                userIds[winner] = cursor.userId();
+                //Replays the matches from the leaf of the winner to the root.
+                for (int node = (winner + k) >>> 1; node >= 1; node = node >>> 1) {
+                        if (beats(tree[node], winner)) {
+                                int loser = winner;
+                                winner = tree[node];
+                                tree[node] = loser;
+                        }
+                }
+                tree[0] = winner;
+        }
+
+        private static PostingCursor[] openCursors(PostingList[] lists) {
+                PostingCursor[] cursors = new PostingCursor[lists.length];
+                for (int i = 0; i < lists.length; i++) {
+                        cursors[i] = lists[i].cursor();
+                }
+                return cursors;
+        }
+
+        //True if list a goes before list b.
+        private boolean beats(int a, int b) {
+                return userIds[a] < userIds[b] || (userIds[a] == userIds[b] && a < b);
+        }
+}
@@ -0,0 +1,299 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingCursor;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+
+/**
+ * Computation of the neighborhood with MaxScore dynamic pruning. Every list
+ * has a bound, the largest |rating| / l2-norm of its users, so the cosine
+ * a user can get from a list is at most |weight| * bound / l2-norm of the
+ * main user. Lists are sorted by these bounds; once the heap is full, the
+ * lists with the lowest bounds whose sum is below the k-th best score are
+ * non-essential: a user which only appears in them cannot enter the
+ * neighborhood. Only the essential lists are merged, the others are probed
+ * with skipTo(...) for the users of the merge and a user is dropped as soon
+ * as its bound falls below the k-th best score.
+ *
+ * The result is the same as the one of ListOperations.computeNeighborhood:
+ * users are only dropped if their bound is strictly lower than the k-th
+ * best score (bounds are rounded up) and the dot products are summed in the
+ * order of the lists. A searcher keeps scratch arrays and must not be
+ * shared by threads.
+ */
+public class MaxScoreSearcher {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        //Relative margin added to the bounds, for rounding errors.
+        private static final double BOUND_TOLERANCE = 1e-9;
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        //Postings of the current user: list and rating * weight. A list can
+        //contain a user more than once.
+        private int[] touchedLists = new int[16];
+        private double[] contributions = new double[16];
+        private Integer[] order = new Integer[16];
+        private long numberOfScoredUsers = 0;
+        private long numberOfPrunedUsers = 0;
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Returns the bound of a list: the largest |rating| / l2-norm of its
+         * users (|ratings| are added if a user has several postings).
+         * Infinite if a user has a l2-norm of 0.
+         * @param list
+         * @param usersL2Norms
+         * @return 
+         */
+        public static double computeListBound(PostingList list, double[] usersL2Norms) {
+                double bound = 0;
+                PostingCursor cursor = list.cursor();
+                int userId = cursor.userId();
+                while (userId != PostingCursor.NO_MORE_USERS) {
+                        double absRatings = 0;
+                        int currentUser = userId;
+                        do {
+                                absRatings = absRatings + Math.abs(cursor.rating());
+                                cursor.next();
+                                userId = cursor.userId();
+                        } while (userId == currentUser);
+                        double normalizedRating = absRatings / usersL2Norms[currentUser];
+                        if (!(normalizedRating <= bound)) {
+                                bound = Double.isNaN(normalizedRating) ? Double.POSITIVE_INFINITY : normalizedRating;
+                        }
+                }
+                return bound;
+        }
+
+        /**
+         * Same as ListOperations.computeNeighborhood(...) with the bound of
+         * each list (see computeListBound). The heap is not cleared; if it
+         * already contains neighbors they raise the threshold from the start.
+         * @param mainUserId
+         * @param userRatings
+         * @param usersL2Norms
+         * @param invList
+         * @param listBounds
+         * @param neighborhood 
+         */
+        public void computeNeighborhood(
+                        int mainUserId, double[] userRatings,
+                        double[] usersL2Norms,
+                        PostingList[] invList,
+                        final double[] listBounds,
+                        TopKHeap neighborhood) {
+                int numberOfLists = invList.length;
+                double mainUserL2Norm = usersL2Norms[mainUserId];
+                ensureCapacity(numberOfLists);
+
+                //Lists by ascending bound of their contribution.
+                final double[] listMaxScores = new double[numberOfLists];
+                for (int i = 0; i < numberOfLists; i++) {
+                        //A weight of 0 contributes 0, even with an infinite bound.
+                        listMaxScores[i] = userRatings[i] == 0 ? 0 : Math.abs(userRatings[i]) * listBounds[i];
+                        order[i] = i;
+                }
+                Arrays.sort(order, 0, numberOfLists, new Comparator<Integer>() {
+                        @Override
+                        public int compare(Integer list1, Integer list2) {
+                                return Double.compare(listMaxScores[list1], listMaxScores[list2]);
+                        }
+                });
+                //prefixMaxScores[j] is the sum of the bounds of the first j lists.
+                double[] prefixMaxScores = new double[numberOfLists + 1];
+                for (int j = 0; j < numberOfLists; j++) {
+                        prefixMaxScores[j + 1] = prefixMaxScores[j] + listMaxScores[order[j]];
+                }
+                //Position of each list in the order.
+                int[] positions = new int[numberOfLists];
+                for (int j = 0; j < numberOfLists; j++) {
+                        positions[order[j]] = j;
+                }
+                PostingCursor[] cursors = new PostingCursor[numberOfLists];
+                for (int i = 0; i < numberOfLists; i++) {
+                        cursors[i] = invList[i].cursor();
+                }
+
+                //Lists order[0..firstEssential-1] are non-essential, the merge
+                //covers order[firstMerged..numberOfLists-1]. The merge is only
+                //rebuilt when enough lists became non-essential, merging a
+                //non-essential list is just more work.
+                int firstEssential = countNonEssential(prefixMaxScores, 0,
+                        mainUserL2Norm, neighborhood.threshold());
+                int firstMerged = 0;
+                int[] mergedLists = new int[numberOfLists];
+                LoserTreeMerger merger = null;
+
+                while (firstEssential < numberOfLists) {
+                        if (merger == null || firstEssential - firstMerged > (numberOfLists - firstMerged) / 8) {
+                                firstMerged = firstEssential;
+                                //Lists by index, so postings of a user come in list order.
+                                int numberOfMerged = 0;
+                                for (int i = 0; i < numberOfLists; i++) {
+                                        if (positions[i] >= firstMerged) {
+                                                mergedLists[numberOfMerged++] = i;
+                                        }
+                                }
+                                PostingCursor[] mergedCursors = new PostingCursor[numberOfMerged];
+                                for (int m = 0; m < numberOfMerged; m++) {
+                                        mergedCursors[m] = cursors[mergedLists[m]];
+                                }
+                                merger = new LoserTreeMerger(mergedCursors);
+                        }
+                        int currentUser = merger.userId();
+                        if (currentUser == PostingCursor.NO_MORE_USERS) {
+                                break;
+                        }
+
+                        //Postings of the user in the merged lists, in list order.
+                        //They are only kept if other lists may have to be probed.
+                        boolean isRecording = firstMerged > 0;
+                        int numberOfTouched = 0;
+                        double partialDotProduct = 0;
+                        do {
+                                int list = mergedLists[merger.list()];
+                                double contribution = merger.rating() * userRatings[list];
+                                if (isRecording) {
+                                        numberOfTouched = addPosting(numberOfTouched, list, contribution);
+                                }
+                                partialDotProduct = partialDotProduct + contribution;
+                                merger.next();
+                        } while (merger.userId() == currentUser);
+
+                        //we need to make sure that the user itslef is not added to the neighborhood.
+                        if (mainUserId == currentUser) {
+                                continue;
+                        }
+                        double currentUserL2Norm = usersL2Norms[currentUser];
+                        double denominator = mainUserL2Norm * currentUserL2Norm;
+                        double threshold = neighborhood.threshold();
+                        boolean isPruned = false;
+                        boolean isProbed = false;
+                        //Probes the other lists, highest bound first.
+                        for (int j = firstMerged - 1; j >= -1; j--) {
+                                if (isBelow(partialDotProduct, prefixMaxScores[j + 1] * currentUserL2Norm,
+                                                denominator, threshold)) {
+                                        isPruned = true;
+                                        break;
+                                }
+                                if (j < 0) {
+                                        break;
+                                }
+                                int list = order[j];
+                                PostingCursor cursor = cursors[list];
+                                cursor.skipTo(currentUser);
+                                while (cursor.userId() == currentUser) {
+                                        double contribution = cursor.rating() * userRatings[list];
+                                        numberOfTouched = addPosting(numberOfTouched, list, contribution);
+                                        partialDotProduct = partialDotProduct + contribution;
+                                        isProbed = true;
+                                        cursor.next();
+                                }
+                        }
+                        if (isPruned) {
+                                numberOfPrunedUsers++;
+                                continue;
+                        }
+
+                        double dotProduct = partialDotProduct;
+                        if (isProbed) {
+                                //Same sum as the merge, in the order of the lists.
+                                sortByList(numberOfTouched);
+                                dotProduct = 0;
+                                for (int t = 0; t < numberOfTouched; t++) {
+                                        dotProduct = dotProduct + contributions[t];
+                                }
+                        }
+                        numberOfScoredUsers++;
+                        if (neighborhood.offer(currentUser, dotProduct / denominator)) {
+                                firstEssential = countNonEssential(prefixMaxScores, firstEssential,
+                                        mainUserL2Norm, neighborhood.threshold());
+                        }
+                }
+        }
+
+        /**
+         * Returns the number of users whose dot product was computed.
+         * @return 
+         */
+        public long getNumberOfScoredUsers() {
+                return numberOfScoredUsers;
+        }
+
+        /**
+         * Returns the number of users dropped by their bound.
+         * @return 
+         */
+        public long getNumberOfPrunedUsers() {
+                return numberOfPrunedUsers;
+        }
+
+        //Number of lists, by ascending bound, which cannot give a score
+        //above the threshold to a user who only appears in them.
+        private static int countNonEssential(double[] prefixMaxScores, int from,
+                        double mainUserL2Norm, double threshold) {
+                int count = from;
+                while (count < prefixMaxScores.length - 1
+                        && isBelow(0, prefixMaxScores[count + 1], mainUserL2Norm, threshold)) {
+                        count++;
+                }
+                return count;
+        }
+
+        //True if (partial + maxScore) / denominator, rounded up, is strictly
+        //lower than the threshold.
+        private static boolean isBelow(double partial, double maxScore, double denominator, double threshold) {
+                double bound = (partial + maxScore) / denominator;
+                double margin = BOUND_TOLERANCE * (Math.abs(partial) + maxScore) / denominator;
+                return bound + margin < threshold;
+        }
+
+        //Appends a posting of the current user, returns the new number.
+        private int addPosting(int numberOfTouched, int list, double contribution) {
+                if (numberOfTouched == touchedLists.length) {
+                        touchedLists = Arrays.copyOf(touchedLists, 2 * numberOfTouched);
+                        contributions = Arrays.copyOf(contributions, 2 * numberOfTouched);
+                }
+                touchedLists[numberOfTouched] = list;
+                contributions[numberOfTouched] = contribution;
+                return numberOfTouched + 1;
+        }
+
+        //Stable insertion sort of the postings by list, they are almost
+        //sorted. Postings of the same list keep their order.
+        private void sortByList(int length) {
+                for (int i = 1; i < length; i++) {
+                        int list = touchedLists[i];
+                        double contribution = contributions[i];
+                        int j = i - 1;
+                        while (j >= 0 && touchedLists[j] > list) {
+                                touchedLists[j + 1] = touchedLists[j];
+                                contributions[j + 1] = contributions[j];
+                                j--;
+                        }
+                        touchedLists[j + 1] = list;
+                        contributions[j + 1] = contribution;
+                }
+        }
+
+        private void ensureCapacity(int numberOfLists) {
+                if (order.length < numberOfLists) {
+                        order = new Integer[numberOfLists];
+                }
+        }
+}
@@ -0,0 +1,64 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+/**
+ * Buffers of one thread which computes the recommendations of many users,
+ * e.g. a worker of UserPartitionExecutor. The accumulator of votes and the
+ * marker of candidates are created on first use with the given number of
+ * items and are reset after each user, so computing the recommendations of
+ * a user does not allocate arrays of the size of the dictionary. A scratch
+ * must not be shared by threads.
+ */
+public class RecommendationScratch {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final int numberOfItems;
+        private VoteAccumulator votes = null;
+        private CandidateMarker candidates = null;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        /**
+         * Creates buffers for item ids lower than numberOfItems. They grow if
+         * greater ids are used.
+         * @param numberOfItems 
+         */
+        public RecommendationScratch(int numberOfItems) {
+                this.numberOfItems = numberOfItems;
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Returns the accumulator of votes, which must be reset after use.
+         * @return 
+         */
+        public VoteAccumulator getVotes() {
+                if (votes == null) {
+                        votes = new VoteAccumulator(numberOfItems);
+                }
+                return votes;
+        }
+
+        /**
+         * Returns the marker of candidates, which must be reset after use.
+         * @return 
+         */
+        public CandidateMarker getCandidates() {
+                if (candidates == null) {
+                        candidates = new CandidateMarker(numberOfItems);
+                }
+                return candidates;
+        }
+}
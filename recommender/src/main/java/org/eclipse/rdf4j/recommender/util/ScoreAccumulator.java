@@ -0,0 +1,131 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Arrays;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingCursor;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+
+/**
+ * Dense array of scores indexed by user id, filled one list at a time
+ * (score-at-a-time). The ids of the users with a score are kept in a list,
+ * so the accumulator is reset in time proportional to them and can be
+ * reused for all users. An accumulator must not be shared by threads.
+ */
+public class ScoreAccumulator {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private double[] scores;
+        private boolean[] isTouched;
+        private int[] touched;
+        private int numberOfTouched = 0;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        /**
+         * Creates an accumulator for user ids lower than numberOfUsers. It
+         * grows if greater ids are added.
+         * @param numberOfUsers 
+         */
+        public ScoreAccumulator(int numberOfUsers) {
+                scores = new double[numberOfUsers];
+                isTouched = new boolean[numberOfUsers];
+                touched = new int[numberOfUsers];
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Adds rating * weight to the score of every user of the list.
+         * @param list
+         * @param weight 
+         */
+        public void add(PostingList list, double weight) {
+                if (list instanceof InvertedList) {
+                        //Reads the inner arrays, no cursor needed.
+                        InvertedList invList = (InvertedList)list;
+                        int[] userIds = invList.getUserIds();
+                        double[] ratings = invList.getRatings();
+                        int size = invList.size();
+                        if (size > 0) {
+                                ensureCapacity(userIds[size - 1]);
+                        }
+                        for (int i = 0; i < size; i++) {
+                                add(userIds[i], ratings[i] * weight);
+                        }
+                        return;
+                }
+                PostingCursor cursor = list.cursor();
+                for (int userId = cursor.userId(); userId != PostingCursor.NO_MORE_USERS; userId = cursor.userId()) {
+                        ensureCapacity(userId);
+                        add(userId, cursor.rating() * weight);
+                        cursor.next();
+                }
+        }
+
+        /**
+         * Returns the number of users with a score.
+         * @return 
+         */
+        public int getNumberOfTouched() {
+                return numberOfTouched;
+        }
+
+        /**
+         * Returns the id of the i-th user with a score (in order of first
+         * addition).
+         * @param i
+         * @return 
+         */
+        public int getTouched(int i) {
+                return touched[i];
+        }
+
+        /**
+         * Returns the score of a user, 0 if it has none.
+         * @param userId
+         * @return 
+         */
+        public double getScore(int userId) {
+                return userId < scores.length ? scores[userId] : 0;
+        }
+
+        /**
+         * Sets all scores to 0.
+         */
+        public void reset() {
+                for (int i = 0; i < numberOfTouched; i++) {
+                        scores[touched[i]] = 0;
+                        isTouched[touched[i]] = false;
+                }
+                numberOfTouched = 0;
+        }
+
+        private void add(int userId, double score) {
+                if (!isTouched[userId]) {
+                        isTouched[userId] = true;
+                        touched[numberOfTouched++] = userId;
+                }
+                scores[userId] = scores[userId] + score;
+        }
+
+        private void ensureCapacity(int userId) {
+                if (userId >= scores.length) {
+                        int newLength = Math.max(userId + 1, scores.length + (scores.length >> 1));
+                        scores = Arrays.copyOf(scores, newLength);
+                        isTouched = Arrays.copyOf(isTouched, newLength);
+                        touched = Arrays.copyOf(touched, newLength);
+                }
+        }
+}
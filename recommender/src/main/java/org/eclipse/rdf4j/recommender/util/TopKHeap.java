@@ -0,0 +1,213 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+
+/**
+ * Bounded collection of the k best (id, score) pairs, kept in a min-heap of
+ * parallel arrays whose root is the worst pair, so candidates which are not
+ * better than the root are rejected with one comparison and no allocation.
+ * Pairs are ranked as IndexedRatedResRatingComparator does: higher score
+ * first and, for equal scores, higher id first (see compareTies(...)). NaN
+ * scores rank below any other score. The heap can be reused with clear().
+ */
+public class TopKHeap {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final int capacity;
+        private final int[] ids;
+        private final double[] scores;
+        private int size = 0;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        public TopKHeap(int capacity) {
+                this.capacity = capacity;
+                this.ids = new int[capacity];
+                this.scores = new double[capacity];
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Adds a pair if there is room or if it is better than the worst
+         * pair, which is then removed. Returns true if the pair was added.
+         * @param id
+         * @param score
+         * @return
+         */
+        public boolean offer(int id, double score) {
+                if (size < capacity) {
+                        siftUp(size, id, score);
+                        size++;
+                        return true;
+                }
+                if (capacity == 0 || !isWorse(ids[0], scores[0], id, score)) {
+                        return false;
+                }
+                siftDown(0, id, score);
+                return true;
+        }
+
+        /**
+         * Returns the score a candidate has to reach to be considered, i.e.
+         * the score of the worst pair if the heap is full, negative infinity
+         * otherwise. Candidates with a lower score are rejected by offer.
+         * @return
+         */
+        public double threshold() {
+                return size < capacity || capacity == 0 ? Double.NEGATIVE_INFINITY : scores[0];
+        }
+
+        /**
+         * Checks whether the heap contains capacity pairs.
+         * @return
+         */
+        public boolean isFull() {
+                return size == capacity;
+        }
+
+        /**
+         * Returns the number of pairs.
+         * @return
+         */
+        public int size() {
+                return size;
+        }
+
+        /**
+         * Returns the maximum number of pairs.
+         * @return
+         */
+        public int capacity() {
+                return capacity;
+        }
+
+        /**
+         * Removes all pairs.
+         */
+        public void clear() {
+                size = 0;
+        }
+
+        /**
+         * Moves the pairs, best first, into the given arrays and empties the
+         * heap. Returns the number of pairs.
+         * @param sortedIds
+         * @param sortedScores
+         * @return
+         */
+        public int drainSorted(int[] sortedIds, double[] sortedScores) {
+                int numberOfPairs = size;
+                //The worst pair is removed first and written at the end.
+                while (size > 0) {
+                        sortedIds[size - 1] = ids[0];
+                        sortedScores[size - 1] = scores[0];
+                        size--;
+                        if (size > 0) {
+                                siftDown(0, ids[size], scores[size]);
+                        }
+                }
+                return numberOfPairs;
+        }
+
+        /**
+         * Returns the pairs as rated resources, best first, and empties the
+         * heap. The array has the given length (at least size()), positions
+         * after the last pair are null.
+         * @param length
+         * @return
+         */
+        public IndexedRatedRes[] toSortedArray(int length) {
+                int[] sortedIds = new int[size];
+                double[] sortedScores = new double[size];
+                int numberOfPairs = drainSorted(sortedIds, sortedScores);
+                IndexedRatedRes[] array = new IndexedRatedRes[Math.max(length, numberOfPairs)];
+                for (int i = 0; i < numberOfPairs; i++) {
+                        array[i] = new IndexedRatedRes(sortedIds[i], sortedScores[i]);
+                }
+                return array;
+        }
+
+        /**
+         * Same as toSortedArray(size()).
+         * @return
+         */
+        public IndexedRatedRes[] toSortedArray() {
+                return toSortedArray(size);
+        }
+
+        /**
+         * Ranks two ids with equal scores, a positive value if the first one
+         * is better. By default the higher id is better.
+         * @param id1
+         * @param id2
+         * @return
+         */
+        protected int compareTies(int id1, int id2) {
+                return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+
+        //True if the first pair ranks below the second one.
+        private boolean isWorse(int id1, double score1, int id2, double score2) {
+                if (score1 < score2) {
+                        return true;
+                }
+                if (score1 > score2) {
+                        return false;
+                }
+                if (score1 == score2) {
+                        return compareTies(id1, id2) < 0;
+                }
+                //At least one NaN
+                boolean isNaN1 = Double.isNaN(score1);
+                if (isNaN1 != Double.isNaN(score2)) {
+                        return isNaN1;
+                }
+                return compareTies(id1, id2) < 0;
+        }
+
+        private void siftUp(int position, int id, double score) {
+                while (position > 0) {
+                        int parent = (position - 1) >>> 1;
+                        if (!isWorse(id, score, ids[parent], scores[parent])) {
+                                break;
+                        }
+                        ids[position] = ids[parent];
+                        scores[position] = scores[parent];
+                        position = parent;
+                }
+                ids[position] = id;
+                scores[position] = score;
+        }
+
+        private void siftDown(int position, int id, double score) {
+                int half = size >>> 1;
+                while (position < half) {
+                        int child = 2 * position + 1;
+                        int right = child + 1;
+                        if (right < size && isWorse(ids[right], scores[right], ids[child], scores[child])) {
+                                child = right;
+                        }
+                        if (!isWorse(ids[child], scores[child], id, score)) {
+                                break;
+                        }
+                        ids[position] = ids[child];
+                        scores[position] = scores[child];
+                        position = child;
+                }
+                ids[position] = id;
+                scores[position] = score;
+        }
+}
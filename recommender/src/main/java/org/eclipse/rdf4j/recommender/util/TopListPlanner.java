@@ -0,0 +1,538 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingCursor;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+
+/**
+ * Chooses which merged lists of top rated resources are precomputed for the
+ * scaled inverted lists, under a memory budget.
+ *
+ * Every user is a transaction, the set of top lists the user has. The sets of top
+ * lists shared by at least minSupport users are mined with FP-growth (sets
+ * of up to maxSetSize lists). Replacing the lists of a set by their merged
+ * list saves, for every user who has the set, the postings of the lists 
+ * minus the postings of the merged list (users in more than one list are 
+ * visited once), and costs the merged list in memory. Sets are chosen 
+ * greedily by saved postings per byte. A user takes disjoint sets only, so
+ * the gain of a set shrinks as other sets are chosen and it is recomputed 
+ * lazily before the set is taken.
+ */
+public class TopListPlanner {
+
+        /*--------*
+	 * Static *
+	 *--------*/
+
+        /**
+         * Default largest number of top lists merged into one list.
+         */
+        public static final int DEFAULT_MAX_SET_SIZE = 4;
+        /**
+         * Estimation of the bytes of a posting of a merged list (user id and
+         * rating, before the lists are encoded).
+         */
+        public static final int BYTES_PER_POSTING = 12;
+        /**
+         * Largest number of mined sets which are evaluated. The ones with the
+         * best bound of saved postings are kept.
+         */
+        public static final int MAX_CANDIDATES = 10000;
+
+        //Worst bound first.
+        private static final Comparator<Candidate> BOUND_ORDER = new Comparator<Candidate>() {
+                @Override
+                public int compare(Candidate c1, Candidate c2) {
+                        return c1.bound < c2.bound ? -1 : (c1.bound == c2.bound ? 0 : 1);
+                }
+        };
+        //Most saved postings per byte first.
+        private static final Comparator<Candidate> GAIN_ORDER = new Comparator<Candidate>() {
+                @Override
+                public int compare(Candidate c1, Candidate c2) {
+                        return Double.compare((double)c2.gain * c1.bytes, (double)c1.gain * c2.bytes);
+                }
+        };
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final long memoryBudget;
+        private final int minSupport;
+        private final int maxSetSize;
+        //Input of the current plan.
+        private int[] listSizes;
+        //Position of each list in the FP-trees, most frequent lists first.
+        private int[] rankOfList;
+        private PriorityQueue<Candidate> candidates;
+        private int numberOfFrequentSets;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        public TopListPlanner(long memoryBudget, int minSupport) {
+                this(memoryBudget, minSupport, DEFAULT_MAX_SET_SIZE);
+        }
+
+        public TopListPlanner(long memoryBudget, int minSupport, int maxSetSize) {
+                this.memoryBudget = memoryBudget;
+                this.minSupport = Math.max(minSupport, 1);
+                this.maxSetSize = maxSetSize;
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Plans the merged lists.
+         * @param transactions for each user, the indexes of the top lists of the user 
+         *        sorted in ascending order
+         * @param lists the top lists
+         * @return 
+         */
+        public Plan plan(int[][] transactions, PostingList[] lists) {
+                int numberOfLists = lists.length;
+                listSizes = new int[numberOfLists];
+                for (int list = 0; list < numberOfLists; list++) {
+                        listSizes[list] = lists[list].size();
+                }
+                candidates = new PriorityQueue<Candidate>(16, BOUND_ORDER);
+                numberOfFrequentSets = 0;
+
+                //Support of each list, and users of each list.
+                int[] support = new int[numberOfLists];
+                long totalPostings = 0;
+                for (int[] transaction: transactions) {
+                        for (int list: transaction) {
+                                support[list]++;
+                                totalPostings = totalPostings + listSizes[list];
+                        }
+                }
+                int[][] usersOfList = new int[numberOfLists][];
+                for (int list = 0; list < numberOfLists; list++) {
+                        usersOfList[list] = new int[support[list]];
+                }
+                int[] fill = new int[numberOfLists];
+                for (int user = 0; user < transactions.length; user++) {
+                        for (int list: transactions[user]) {
+                                usersOfList[list][fill[list]++] = user;
+                        }
+                }
+
+                //Lists in the trees are ordered by descending support.
+                Integer[] order = new Integer[numberOfLists];
+                for (int list = 0; list < numberOfLists; list++) {
+                        order[list] = list;
+                }
+                final int[] globalSupport = support;
+                Arrays.sort(order, new Comparator<Integer>() {
+                        @Override
+                        public int compare(Integer l1, Integer l2) {
+                                if (globalSupport[l1] != globalSupport[l2]) {
+                                        return globalSupport[l1] > globalSupport[l2] ? -1 : 1;
+                                }
+                                return l1.compareTo(l2);
+                        }
+                });
+                rankOfList = new int[numberOfLists];
+                for (int rank = 0; rank < numberOfLists; rank++) {
+                        rankOfList[order[rank]] = rank;
+                }
+
+                //Mining
+                FpTree tree = new FpTree(numberOfLists);
+                int[] path = new int[numberOfLists];
+                for (int[] transaction: transactions) {
+                        int length = 0;
+                        for (int list: transaction) {
+                                if (support[list] >= minSupport) {
+                                        path[length++] = list;
+                                }
+                        }
+                        sortByRank(path, length);
+                        tree.insert(path, length, 1);
+                }
+                mine(tree, new int[0]);
+
+                //Exact gains of the candidates.
+                PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>(Math.max(candidates.size(), 1), GAIN_ORDER);
+                for (Candidate candidate: candidates) {
+                        candidate.savingPerUser = candidate.postings - unionSize(lists, candidate.lists);
+                        candidate.bytes = (long)(candidate.postings - candidate.savingPerUser) * BYTES_PER_POSTING;
+                        if (candidate.savingPerUser > 0 && candidate.bytes <= memoryBudget) {
+                                candidate.users = intersect(usersOfList, candidate.lists);
+                                candidate.gain = (long)candidate.savingPerUser * candidate.users.length;
+                                queue.add(candidate);
+                        }
+                }
+                int numberOfCandidates = candidates.size();
+                candidates = null;
+
+                //Greedy choice, the gain of a candidate is recomputed before
+                //it is taken since it only decreases.
+                boolean[][] covered = new boolean[transactions.length][];
+                List<Candidate> chosen = new ArrayList<Candidate>();
+                List<List<Integer>> assignments = new ArrayList<List<Integer>>(transactions.length);
+                for (int user = 0; user < transactions.length; user++) {
+                        covered[user] = new boolean[transactions[user].length];
+                        assignments.add(null);
+                }
+                long usedBytes = 0;
+                long savedPostings = 0;
+                while (!queue.isEmpty()) {
+                        Candidate candidate = queue.poll();
+                        if (usedBytes + candidate.bytes > memoryBudget) {
+                                continue;
+                        }
+                        int numberOfUsers = 0;
+                        for (int user: candidate.users) {
+                                if (canTake(transactions[user], covered[user], candidate.lists)) {
+                                        numberOfUsers++;
+                                }
+                        }
+                        long gain = (long)candidate.savingPerUser * numberOfUsers;
+                        if (gain == 0) {
+                                continue;
+                        }
+                        if (gain < candidate.gain) {
+                                candidate.gain = gain;
+                                if (!queue.isEmpty() && GAIN_ORDER.compare(candidate, queue.peek()) > 0) {
+                                        queue.add(candidate);
+                                        continue;
+                                }
+                        }
+                        int index = chosen.size();
+                        chosen.add(candidate);
+                        usedBytes = usedBytes + candidate.bytes;
+                        savedPostings = savedPostings + gain;
+                        for (int user: candidate.users) {
+                                if (canTake(transactions[user], covered[user], candidate.lists)) {
+                                        for (int list: candidate.lists) {
+                                                covered[user][Arrays.binarySearch(transactions[user], list)] = true;
+                                        }
+                                        if (assignments.get(user) == null) {
+                                                assignments.set(user, new ArrayList<Integer>(2));
+                                        }
+                                        assignments.get(user).add(index);
+                                }
+                        }
+                }
+
+                int[][] sets = new int[chosen.size()][];
+                for (int i = 0; i < sets.length; i++) {
+                        sets[i] = chosen.get(i).lists;
+                }
+                int[][] setsOfUser = new int[transactions.length][];
+                for (int user = 0; user < transactions.length; user++) {
+                        List<Integer> assigned = assignments.get(user);
+                        setsOfUser[user] = new int[assigned == null ? 0 : assigned.size()];
+                        for (int i = 0; i < setsOfUser[user].length; i++) {
+                                setsOfUser[user][i] = assigned.get(i);
+                        }
+                }
+                return new Plan(sets, setsOfUser, usedBytes, savedPostings, totalPostings,
+                        numberOfFrequentSets, numberOfCandidates);
+        }
+
+        //FP-growth: the sets ending with each list are mined from the
+        //conditional tree of the list.
+        private void mine(FpTree tree, int[] suffix) {
+                int[] conditionalSupport = new int[listSizes.length];
+                int[] path = new int[listSizes.length];
+                for (int list = 0; list < listSizes.length; list++) {
+                        if (tree.supportOfList[list] < minSupport) {
+                                continue;
+                        }
+                        int[] set = Arrays.copyOf(suffix, suffix.length + 1);
+                        set[suffix.length] = list;
+                        if (set.length >= 2) {
+                                addCandidate(set, tree.supportOfList[list]);
+                        }
+                        if (set.length == maxSetSize) {
+                                continue;
+                        }
+                        //Conditional pattern base: the prefix paths of the list.
+                        Arrays.fill(conditionalSupport, 0);
+                        boolean isFrequent = false;
+                        for (int node = tree.headOfList[list]; node >= 0; node = tree.nextOfList[node]) {
+                                for (int parent = tree.parents[node]; parent > 0; parent = tree.parents[parent]) {
+                                        conditionalSupport[tree.lists[parent]] += tree.counts[node];
+                                        isFrequent = isFrequent
+                                                || conditionalSupport[tree.lists[parent]] >= minSupport;
+                                }
+                        }
+                        if (!isFrequent) {
+                                continue;
+                        }
+                        FpTree conditionalTree = new FpTree(listSizes.length);
+                        for (int node = tree.headOfList[list]; node >= 0; node = tree.nextOfList[node]) {
+                                int length = 0;
+                                for (int parent = tree.parents[node]; parent > 0; parent = tree.parents[parent]) {
+                                        if (conditionalSupport[tree.lists[parent]] >= minSupport) {
+                                                path[length++] = tree.lists[parent];
+                                        }
+                                }
+                                //From the root to the leaf.
+                                for (int i = 0, j = length - 1; i < j; i++, j--) {
+                                        int swap = path[i];
+                                        path[i] = path[j];
+                                        path[j] = swap;
+                                }
+                                conditionalTree.insert(path, length, tree.counts[node]);
+                        }
+                        mine(conditionalTree, set);
+                }
+        }
+
+        private void addCandidate(int[] set, int support) {
+                numberOfFrequentSets++;
+                long postings = 0;
+                int largestList = 0;
+                for (int list: set) {
+                        postings = postings + listSizes[list];
+                        largestList = Math.max(largestList, listSizes[list]);
+                }
+                //The merged list has at least the postings of the largest list.
+                long bound = support * (postings - largestList);
+                if (bound <= 0) {
+                        return;
+                }
+                if (candidates.size() == MAX_CANDIDATES) {
+                        if (candidates.peek().bound >= bound) {
+                                return;
+                        }
+                        candidates.poll();
+                }
+                int[] sortedSet = set.clone();
+                Arrays.sort(sortedSet);
+                candidates.add(new Candidate(sortedSet, (int)postings, bound));
+        }
+
+        //Insertion sort, paths are short.
+        private void sortByRank(int[] path, int length) {
+                for (int i = 1; i < length; i++) {
+                        int list = path[i];
+                        int j = i - 1;
+                        while (j >= 0 && rankOfList[path[j]] > rankOfList[list]) {
+                                path[j + 1] = path[j];
+                                j--;
+                        }
+                        path[j + 1] = list;
+                }
+        }
+
+        //Number of distinct users of the lists.
+        private static int unionSize(PostingList[] lists, int[] set) {
+                PostingList[] listsOfSet = new PostingList[set.length];
+                for (int i = 0; i < set.length; i++) {
+                        listsOfSet[i] = lists[set[i]];
+                }
+                LoserTreeMerger merger = new LoserTreeMerger(listsOfSet);
+                int size = 0;
+                int previousUser = PostingCursor.NO_MORE_USERS;
+                while (merger.userId() != PostingCursor.NO_MORE_USERS) {
+                        if (merger.userId() != previousUser) {
+                                previousUser = merger.userId();
+                                size++;
+                        }
+                        merger.next();
+                }
+                return size;
+        }
+
+        //Users who have all the lists of the set.
+        private static int[] intersect(int[][] usersOfList, int[] set) {
+                int[] users = usersOfList[set[0]];
+                for (int i = 1; i < set.length; i++) {
+                        int[] other = usersOfList[set[i]];
+                        int[] common = new int[Math.min(users.length, other.length)];
+                        int size = 0;
+                        int j = 0;
+                        int k = 0;
+                        while (j < users.length && k < other.length) {
+                                if (users[j] < other[k]) {
+                                        j++;
+                                } else if (users[j] > other[k]) {
+                                        k++;
+                                } else {
+                                        common[size++] = users[j];
+                                        j++;
+                                        k++;
+                                }
+                        }
+                        users = Arrays.copyOf(common, size);
+                }
+                return users;
+        }
+
+        //True if none of the lists of the set is already replaced for the user.
+        private static boolean canTake(int[] transaction, boolean[] covered, int[] set) {
+                for (int list: set) {
+                        if (covered[Arrays.binarySearch(transaction, list)]) {
+                                return false;
+                        }
+                }
+                return true;
+        }
+
+        /**
+         * Merged lists chosen by the planner.
+         */
+        public static class Plan {
+                private final int[][] sets;
+                private final int[][] setsOfUser;
+                private final long sizeInBytes;
+                private final long savedPostings;
+                private final long totalPostings;
+                private final int numberOfFrequentSets;
+                private final int numberOfCandidates;
+
+                private Plan(int[][] sets, int[][] setsOfUser, long sizeInBytes,
+                                long savedPostings, long totalPostings,
+                                int numberOfFrequentSets, int numberOfCandidates) {
+                        this.sets = sets;
+                        this.setsOfUser = setsOfUser;
+                        this.sizeInBytes = sizeInBytes;
+                        this.savedPostings = savedPostings;
+                        this.totalPostings = totalPostings;
+                        this.numberOfFrequentSets = numberOfFrequentSets;
+                        this.numberOfCandidates = numberOfCandidates;
+                }
+
+                /**
+                 * Returns the sets of lists to merge, each one sorted.
+                 * @return 
+                 */
+                public int[][] getSets() {
+                        return sets;
+                }
+
+                /**
+                 * Returns, for each transaction, the indexes of the sets (in 
+                 * getSets()) which replace its lists. They are disjoint.
+                 * @return 
+                 */
+                public int[][] getSetsOfUser() {
+                        return setsOfUser;
+                }
+
+                /**
+                 * Returns the estimated size of the merged lists.
+                 * @return 
+                 */
+                public long getSizeInBytes() {
+                        return sizeInBytes;
+                }
+
+                /**
+                 * Returns the number of postings which are not visited anymore
+                 * when computing the neighborhoods of all users.
+                 * @return 
+                 */
+                public long getSavedPostings() {
+                        return savedPostings;
+                }
+
+                /**
+                 * Returns the number of postings of top lists visited when
+                 * computing the neighborhoods of all users without merged lists.
+                 * @return 
+                 */
+                public long getTotalPostings() {
+                        return totalPostings;
+                }
+
+                /**
+                 * Returns the number of mined sets of at least two lists.
+                 * @return 
+                 */
+                public int getNumberOfFrequentSets() {
+                        return numberOfFrequentSets;
+                }
+
+                /**
+                 * Returns the number of mined sets which were evaluated.
+                 * @return 
+                 */
+                public int getNumberOfCandidates() {
+                        return numberOfCandidates;
+                }
+        }
+
+        private static final class Candidate {
+                private final int[] lists;
+                private final int postings;
+                private final long bound;
+                private int savingPerUser;
+                private long bytes;
+                private long gain;
+                private int[] users;
+
+                private Candidate(int[] lists, int postings, long bound) {
+                        this.lists = lists;
+                        this.postings = postings;
+                        this.bound = bound;
+                }
+        }
+
+        //Prefix tree of the transactions. Node 0 is the root.
+        private static final class FpTree {
+                private int[] lists = new int[16];
+                private int[] counts = new int[16];
+                private int[] parents = new int[16];
+                //Next node of the same list.
+                private int[] nextOfList = new int[16];
+                private int size = 1;
+                private final int[] headOfList;
+                private final int[] supportOfList;
+                private final Map<Long, Integer> children = new HashMap<Long, Integer>();
+
+                private FpTree(int numberOfLists) {
+                        headOfList = new int[numberOfLists];
+                        Arrays.fill(headOfList, -1);
+                        supportOfList = new int[numberOfLists];
+                        lists[0] = -1;
+                        parents[0] = -1;
+                }
+
+                private void insert(int[] path, int length, int count) {
+                        int node = 0;
+                        for (int i = 0; i < length; i++) {
+                                int list = path[i];
+                                Long key = ((long)node << 32) | list;
+                                Integer child = children.get(key);
+                                if (child == null) {
+                                        if (size == lists.length) {
+                                                lists = Arrays.copyOf(lists, 2 * size);
+                                                counts = Arrays.copyOf(counts, 2 * size);
+                                                parents = Arrays.copyOf(parents, 2 * size);
+                                                nextOfList = Arrays.copyOf(nextOfList, 2 * size);
+                                        }
+                                        child = size++;
+                                        lists[child] = list;
+                                        parents[child] = node;
+                                        nextOfList[child] = headOfList[list];
+                                        headOfList[list] = child;
+                                        children.put(key, child);
+                                }
+                                node = child;
+                                counts[node] += count;
+                                supportOfList[list] += count;
+                        }
+                }
+        }
+}
@@ -0,0 +1,241 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes users independently on a fixed number of threads. Every thread
+ * creates its own worker, so workers can keep scratch buffers (heaps,
+ * accumulators, counters) which are reused for all the users it processes
+ * without synchronization. Users are handed out in small partitions of
+ * consecutive ids, so threads which get heavy users take fewer partitions.
+ * Workers which implement PartitionWorker are notified after each partition.
+ * The progress is printed every 10% of the users.
+ */
+public class UserPartitionExecutor {
+        
+        /*--------*
+	 * Static *
+	 *--------*/
+        
+        /**
+         * Number of users of a partition.
+         */
+        public static final int PARTITION_SIZE = 64;
+        
+        /**
+         * Processes the users handed out to one thread.
+         */
+        public interface Worker {
+                
+                /**
+                 * Processes one user.
+                 * @param userId 
+                 */
+                public void process(int userId);
+        }
+        
+        /**
+         * Creates the worker of each thread.
+         */
+        public interface WorkerFactory {
+                
+                /**
+                 * Creates a worker, invoked once by every thread.
+                 * @return 
+                 */
+                public Worker createWorker();
+        }
+        
+        /**
+         * Worker which is also notified when it has processed all the users
+         * of a partition.
+         */
+        public interface PartitionWorker extends Worker {
+                
+                /**
+                 * Invoked after the users userIds[start..end-1] have been
+                 * processed by this worker.
+                 * @param userIds
+                 * @param start
+                 * @param end 
+                 */
+                public void partitionProcessed(int[] userIds, int start, int end);
+        }
+        
+        /*--------*
+	 * Fields *
+	 *--------*/
+        
+        private final int parallelism;
+        private final int partitionSize;
+        //Name of the task in the progress messages, no messages if null.
+        private final String taskName;
+        private final AtomicInteger processedUsers = new AtomicInteger();
+        private int numberOfUsers;
+        //Last reported decile of the progress.
+        private int reportedDecile;
+        private long startTime;
+        
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+        
+        /**
+         * Creates an executor with the given number of threads (1 runs the
+         * workers on the calling thread).
+         * @param parallelism
+         * @param taskName name of the task in the progress messages, null to
+         *        disable them
+         */
+        public UserPartitionExecutor(int parallelism, String taskName) {
+                this(parallelism, PARTITION_SIZE, taskName);
+        }
+        
+        /**
+         * Creates an executor which hands out partitions of the given number
+         * of users.
+         * @param parallelism
+         * @param partitionSize
+         * @param taskName 
+         */
+        public UserPartitionExecutor(int parallelism, int partitionSize, String taskName) {
+                this.parallelism = Math.max(1, parallelism);
+                this.partitionSize = Math.max(1, partitionSize);
+                this.taskName = taskName;
+        }
+        
+        /*---------*
+	 * Methods *
+	 *---------*/
+        
+        /**
+         * Processes all the given users and returns when all of them have been
+         * processed. The first runtime exception of a worker stops the other
+         * threads and is thrown again once all of them have stopped, so no worker 
+         * runs after this method has returned.
+         * @param userIds
+         * @param factory 
+         */
+        public void execute(final int[] userIds, final WorkerFactory factory) {
+                numberOfUsers = userIds.length;
+                processedUsers.set(0);
+                reportedDecile = 0;
+                startTime = System.currentTimeMillis();
+                
+                final AtomicInteger nextPartition = new AtomicInteger();
+                int numberOfThreads = (int)Math.min(parallelism,
+                        ((long)userIds.length + partitionSize - 1) / partitionSize);
+                if (numberOfThreads <= 1) {
+                        processPartitions(userIds, nextPartition, factory.createWorker());
+                        return;
+                }
+                
+                ExecutorService pool = Executors.newFixedThreadPool(numberOfThreads);
+                //Threads are waited for in the order they finish, so the first
+                //failure is thrown without waiting for the other threads.
+                CompletionService<Void> completionService = new ExecutorCompletionService<Void>(pool);
+                try {
+                        for (int thread = 0; thread < numberOfThreads; thread++) {
+                                completionService.submit(new Runnable() {
+                                        @Override
+                                        public void run() {
+                                                processPartitions(userIds, nextPartition, factory.createWorker());
+                                        }
+                                }, null);
+                        }
+                        for (int thread = 0; thread < numberOfThreads; thread++) {
+                                completionService.take().get();
+                        }
+                } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("PROCESSING OF USERS WAS INTERRUPTED", ex);
+                } catch (ExecutionException ex) {
+                        if (ex.getCause() instanceof RuntimeException) {
+                                throw (RuntimeException)ex.getCause();
+                        }
+                        if (ex.getCause() instanceof Error) {
+                                throw (Error)ex.getCause();
+                        }
+                        throw new IllegalStateException(ex.getCause());
+                } finally {
+                        //Stops the other threads if one of them failed.
+                        pool.shutdownNow();
+                        awaitTermination(pool);
+                }
+        }
+        
+        /**
+         * Returns the number of users processed by the current or last
+         * execution.
+         * @return 
+         */
+        public int getProcessedUsers() {
+                return processedUsers.get();
+        }
+        
+        private void processPartitions(int[] userIds, AtomicInteger nextPartition, Worker worker) {
+                int start;
+                while ((start = nextPartition.getAndAdd(partitionSize)) < userIds.length) {
+                        if (Thread.currentThread().isInterrupted()) {
+                                return;
+                        }
+                        int end = (int)Math.min((long)start + partitionSize, userIds.length);
+                        for (int i = start; i < end; i++) {
+                                //A partition which was not finished is not notified.
+                                if (Thread.currentThread().isInterrupted()) {
+                                        return;
+                                }
+                                worker.process(userIds[i]);
+                        }
+                        if (worker instanceof PartitionWorker) {
+                                ((PartitionWorker)worker).partitionProcessed(userIds, start, end);
+                        }
+                        reportProgress(processedUsers.addAndGet(end - start));
+                }
+        }
+        
+        //Waits until the workers have finished their current user, also if
+        //the calling thread is interrupted (the flag is set again).
+        private static void awaitTermination(ExecutorService pool) {
+                boolean isInterrupted = false;
+                while (true) {
+                        try {
+                                if (pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                                        break;
+                                }
+                        } catch (InterruptedException ex) {
+                                isInterrupted = true;
+                        }
+                }
+                if (isInterrupted) {
+                        Thread.currentThread().interrupt();
+                }
+        }
+        
+        private void reportProgress(int processed) {
+                if (taskName == null) {
+                        return;
+                }
+                int decile = (int)(10L * processed / numberOfUsers);
+                synchronized (this) {
+                        if (decile <= reportedDecile) {
+                                return;
+                        }
+                        reportedDecile = decile;
+                }
+                long time = System.currentTimeMillis() - startTime;
+                System.out.println(taskName + ": " + (decile * 10) + "% of " + numberOfUsers
+                        + " users in " + time + "ms (ca. " + time / 1000 + " secs).");
+        }
+}
@@ -0,0 +1,126 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Arrays;
+
+/**
+ * Dense arrays of votes indexed by item id, used to score all candidate
+ * items of a user at once: every vote adds a weight and a weighted vote to
+ * its item and is counted. The ids of the items with votes are kept in a
+ * list, so the accumulator is reset in time proportional to them and can
+ * be reused. An accumulator must not be shared by threads.
+ */
+public class VoteAccumulator {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private double[] sumsOfWeights;
+        private double[] sumsOfVotes;
+        private int[] numbersOfVotes;
+        private int[] touched;
+        private int numberOfTouched = 0;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        /**
+         * Creates an accumulator for item ids lower than numberOfItems. It
+         * grows if greater ids are added.
+         * @param numberOfItems 
+         */
+        public VoteAccumulator(int numberOfItems) {
+                sumsOfWeights = new double[numberOfItems];
+                sumsOfVotes = new double[numberOfItems];
+                numbersOfVotes = new int[numberOfItems];
+                touched = new int[numberOfItems];
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Adds a vote to an item.
+         * @param itemId
+         * @param weight
+         * @param vote 
+         */
+        public void add(int itemId, double weight, double vote) {
+                if (itemId >= numbersOfVotes.length) {
+                        int newLength = Math.max(itemId + 1, numbersOfVotes.length + (numbersOfVotes.length >> 1));
+                        sumsOfWeights = Arrays.copyOf(sumsOfWeights, newLength);
+                        sumsOfVotes = Arrays.copyOf(sumsOfVotes, newLength);
+                        numbersOfVotes = Arrays.copyOf(numbersOfVotes, newLength);
+                        touched = Arrays.copyOf(touched, newLength);
+                }
+                if (numbersOfVotes[itemId] == 0) {
+                        touched[numberOfTouched++] = itemId;
+                }
+                sumsOfWeights[itemId] = sumsOfWeights[itemId] + weight;
+                sumsOfVotes[itemId] = sumsOfVotes[itemId] + vote;
+                numbersOfVotes[itemId]++;
+        }
+
+        /**
+         * Returns the sum of the weights of the votes of an item.
+         * @param itemId
+         * @return 
+         */
+        public double getSumOfWeights(int itemId) {
+                return itemId < sumsOfWeights.length ? sumsOfWeights[itemId] : 0;
+        }
+
+        /**
+         * Returns the sum of the votes of an item.
+         * @param itemId
+         * @return 
+         */
+        public double getSumOfVotes(int itemId) {
+                return itemId < sumsOfVotes.length ? sumsOfVotes[itemId] : 0;
+        }
+
+        /**
+         * Returns the number of votes of an item.
+         * @param itemId
+         * @return 
+         */
+        public int getNumberOfVotes(int itemId) {
+                return itemId < numbersOfVotes.length ? numbersOfVotes[itemId] : 0;
+        }
+
+        /**
+         * Returns the number of items with votes.
+         * @return 
+         */
+        public int getNumberOfTouched() {
+                return numberOfTouched;
+        }
+
+        /**
+         * Returns the id of the i-th item with votes (in order of first vote).
+         * @param i
+         * @return 
+         */
+        public int getTouched(int i) {
+                return touched[i];
+        }
+
+        /**
+         * Removes all votes.
+         */
+        public void reset() {
+                for (int i = 0; i < numberOfTouched; i++) {
+                        sumsOfWeights[touched[i]] = 0;
+                        sumsOfVotes[touched[i]] = 0;
+                        numbersOfVotes[touched[i]] = 0;
+                }
+                numberOfTouched = 0;
+        }
+}
@@ -0,0 +1,240 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.parameter.RecOutput;
+import org.eclipse.rdf4j.recommender.parameter.RecStorage;
+import org.eclipse.rdf4j.recommender.repository.SailRecommenderRepository;
+import org.eclipse.rdf4j.recommender.util.TestRepositoryInstantiator;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for BatchRecommendationJob.
+ */
+public class BatchRecommendationJobTest {
+        /**
+         * Error tolerance.
+         */
+        private static final double DELTA = 1e-9;
+
+        /**
+         * The batch has to write the same recommendations as
+         * getTopRecommendations(...) for every user, once.
+         */
+        @Test
+        public void testAllUsersSameAsTopRecommendations() throws RecommenderException {
+                SailRecommenderRepository recRepository = TestRepositoryInstantiator
+                        .createBookUbCfRecAndPreprocess(RecStorage.INVERTED_LISTS, 3, 0);
+                
+                for (int parallelism: new int[]{1, 3}) {
+                        BatchRecommendationJob job = new BatchRecommendationJob(recRepository, 3);
+                        job.setParallelism(parallelism);
+                        job.setChunkSize(2);
+                        final Map<String, RatedResource[]> written = new HashMap<String, RatedResource[]>();
+                        BatchMetrics metrics = job.run(new CallbackRecommendationSink(
+                                new CallbackRecommendationSink.Callback() {
+                                        @Override
+                                        public void recommendationsComputed(UserRecommendations recommendations) {
+                                                Assert.assertNull(written.put(recommendations.getUserURI(),
+                                                        recommendations.getRecommendations()));
+                                        }
+                                }));
+                        
+                        int[] userIndexes = recRepository.getUserIndexes();
+                        Assert.assertEquals(5, userIndexes.length);
+                        Assert.assertEquals(userIndexes.length, written.size());
+                        Assert.assertEquals(userIndexes.length, metrics.getProcessedUsers());
+                        Assert.assertEquals(0, metrics.getSkippedUsers());
+                        Assert.assertEquals(3, metrics.getNumberOfChunks());
+                        Assert.assertEquals(3, metrics.getCompletedChunks());
+                        long numberOfRecommendations = 0;
+                        for (int indexOfUser: userIndexes) {
+                                String userURI = recRepository.getURI(indexOfUser);
+                                assertSameRecommendations(recRepository.getTopRecommendations(userURI, 3, false),
+                                        written.get(userURI));
+                                numberOfRecommendations = numberOfRecommendations + written.get(userURI).length;
+                        }
+                        Assert.assertEquals(numberOfRecommendations, metrics.getRecommendations());
+                }
+        }
+
+        /**
+         * The iterator has to return the recommendations of all the users of
+         * the batch. Unknown users and users without profile are skipped.
+         */
+        @Test
+        public void testIteratorWithUserSet() throws RecommenderException {
+                SailRecommenderRepository recRepository = TestRepositoryInstantiator
+                        .createBookUbCfRecAndPreprocess(RecStorage.SCALED_INVERTED_LISTS, 3, 0);
+                Set<String> userURIs = new HashSet<String>();
+                userURIs.add("http://example.org/movies#Alice");
+                userURIs.add("http://example.org/movies#User3");
+                userURIs.add("http://example.org/movies#Nobody");
+                //Indexed, but without profile.
+                userURIs.add("http://example.org/movies#Item1");
+                
+                BatchRecommendationJob job = new BatchRecommendationJob(recRepository, 5);
+                job.setUsers(userURIs);
+                job.setIncludeConsumedItems(true);
+                job.setChunkSize(1);
+                IteratorRecommendationSink iterator = job.iterator();
+                Set<String> iteratedUsers = new HashSet<String>();
+                while (iterator.hasNext()) {
+                        UserRecommendations recommendations = iterator.next();
+                        Assert.assertTrue(iteratedUsers.add(recommendations.getUserURI()));
+                        assertSameRecommendations(recRepository.getTopRecommendations(
+                                recommendations.getUserURI(), 5, true), recommendations.getRecommendations());
+                }
+                Assert.assertEquals(2, iteratedUsers.size());
+                Assert.assertTrue(iteratedUsers.contains("http://example.org/movies#Alice"));
+                Assert.assertTrue(iteratedUsers.contains("http://example.org/movies#User3"));
+                Assert.assertEquals(2, job.getMetrics().getSkippedUsers());
+        }
+
+        /**
+         * A job which failed has to be resumed from the first chunk which was
+         * not completed, and the recommendations have to be appended to the
+         * file of the first run.
+         */
+        @Test
+        public void testResumeWithProgressFile() throws IOException, RecommenderException {
+                SailRecommenderRepository recRepository = TestRepositoryInstantiator
+                        .createBookUbCfRecAndPreprocess(RecStorage.INVERTED_LISTS, 3, 0);
+                File outputFile = File.createTempFile("recommendations", ".tsv");
+                outputFile.deleteOnExit();
+                File progressFile = File.createTempFile("recommendations", ".progress");
+                progressFile.deleteOnExit();
+                progressFile.delete();
+                
+                //The first run fails at the third user, after the first chunk.
+                BatchRecommendationJob job = new BatchRecommendationJob(recRepository, 2);
+                job.setParallelism(1);
+                job.setChunkSize(2);
+                job.setIncludeConsumedItems(true);
+                job.setProgressFile(progressFile.getPath());
+                final RecommendationSink fileSink = new OutputRecommendationSink(
+                        RecOutput.EXTERNAL_FILE, outputFile.getPath(), false);
+                try {
+                        job.run(new CallbackRecommendationSink(new CallbackRecommendationSink.Callback() {
+                                private int numberOfUsers = 0;
+
+                                @Override
+                                public void recommendationsComputed(UserRecommendations recommendations) {
+                                        numberOfUsers++;
+                                        if (numberOfUsers == 3) {
+                                                throw new IllegalStateException("DISK FULL");
+                                        }
+                                        fileSink.write(recommendations);
+                                }
+                        }));
+                        Assert.fail("The exception of the sink was lost");
+                } catch (IllegalStateException ex) {
+                        Assert.assertEquals("DISK FULL", ex.getMessage());
+                } finally {
+                        fileSink.close();
+                }
+                Assert.assertEquals(1, job.getMetrics().getCompletedChunks());
+                
+                RecommendationSink appendingSink = new OutputRecommendationSink(
+                        RecOutput.EXTERNAL_FILE, outputFile.getPath(), true);
+                BatchMetrics metrics;
+                try {
+                        metrics = job.run(appendingSink);
+                } finally {
+                        appendingSink.close();
+                }
+                Assert.assertEquals(1, metrics.getResumedChunks());
+                Assert.assertEquals(2, metrics.getCompletedChunks());
+                Assert.assertEquals(3, metrics.getProcessedUsers());
+                
+                //Every user once, with the rank, resource and rating.
+                List<String> lines = Files.readAllLines(outputFile.toPath(), StandardCharsets.UTF_8);
+                Map<String, Integer> recommendationsPerUser = new HashMap<String, Integer>();
+                for (String line: lines) {
+                        String[] fields = line.split("\t");
+                        Assert.assertEquals(4, fields.length);
+                        RatedResource[] expected = recRepository.getTopRecommendations(fields[0], 2, true);
+                        int rank = Integer.parseInt(fields[1]);
+                        Assert.assertEquals(expected[rank - 1].getResource(), fields[2]);
+                        Assert.assertEquals(expected[rank - 1].getRating(), Double.parseDouble(fields[3]), DELTA);
+                        Integer count = recommendationsPerUser.get(fields[0]);
+                        recommendationsPerUser.put(fields[0], count == null ? 1 : count + 1);
+                }
+                Assert.assertEquals(5, recommendationsPerUser.size());
+                for (Map.Entry<String, Integer> entry: recommendationsPerUser.entrySet()) {
+                        Assert.assertEquals(countRecommendations(recRepository.getTopRecommendations(
+                                entry.getKey(), 2, true)), entry.getValue().intValue());
+                }
+                
+                //Nothing is left to do.
+                metrics = job.run(new CallbackRecommendationSink(new CallbackRecommendationSink.Callback() {
+                        @Override
+                        public void recommendationsComputed(UserRecommendations recommendations) {
+                                Assert.fail("The batch was completed");
+                        }
+                }));
+                Assert.assertEquals(3, metrics.getResumedChunks());
+                Assert.assertEquals(0, metrics.getProcessedUsers());
+        }
+
+        /**
+         * A progress file of a different batch must not be used.
+         */
+        @Test(expected=RecommenderException.class)
+        public void testProgressFileOfAnotherBatch() throws IOException, RecommenderException {
+                SailRecommenderRepository recRepository = TestRepositoryInstantiator
+                        .createBookUbCfRecAndPreprocess(RecStorage.INVERTED_LISTS, 3, 0);
+                File progressFile = File.createTempFile("recommendations", ".progress");
+                progressFile.deleteOnExit();
+                Files.write(progressFile.toPath(), "5\t2\t1234\n0\n".getBytes(StandardCharsets.UTF_8));
+                
+                BatchRecommendationJob job = new BatchRecommendationJob(recRepository, 2);
+                job.setChunkSize(2);
+                job.setProgressFile(progressFile.getPath());
+                job.run(new IteratorRecommendationSink(10));
+        }
+
+        /**
+         * A chunk cannot be recorded once the progress has been closed.
+         */
+        @Test(expected=RecommenderException.class)
+        public void testMarkCompletedAfterClose() throws IOException, RecommenderException {
+                File progressFile = File.createTempFile("recommendations", ".progress");
+                progressFile.deleteOnExit();
+                BatchProgress progress = BatchProgress.open(progressFile.getPath(), 5, 2, 1234);
+                progress.markCompleted(0);
+                progress.close();
+                progress.markCompleted(1);
+        }
+
+        private static void assertSameRecommendations(RatedResource[] expected, RatedResource[] actual) {
+                Assert.assertEquals(countRecommendations(expected), actual.length);
+                for (int i = 0; i < actual.length; i++) {
+                        Assert.assertEquals(expected[i].getResource(), actual[i].getResource());
+                        Assert.assertEquals(expected[i].getRating(), actual[i].getRating(), DELTA);
+                }
+        }
+
+        private static int countRecommendations(RatedResource[] topK) {
+                int length = 0;
+                while (length < topK.length && topK[length] != null) {
+                        length++;
+                }
+                return length;
+        }
+}
@@ -0,0 +1,124 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for BitmapPostingList.
+ */
+public class BitmapPostingListTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * Cursors have to return every id once, in ascending order, both
+         * for sparse (array) and dense (bitmap) containers.
+         */
+        @Test
+        public void testCursor() {
+                TreeSet<Integer> ids = randomIds(new Random(7));
+                BitmapPostingList bitmap = BitmapPostingList.fromSortedIds(
+                        withDuplicates(ids), ids.size() * 2, 1.0);
+                Assert.assertEquals(ids.size(), bitmap.size());
+
+                PostingCursor cursor = bitmap.cursor();
+                for (int id: ids) {
+                        Assert.assertEquals(id, cursor.userId());
+                        Assert.assertEquals(1.0, cursor.rating(), DELTA);
+                        cursor.next();
+                }
+                Assert.assertEquals(PostingCursor.NO_MORE_USERS, cursor.userId());
+                Assert.assertEquals(ids.size(), bitmap.toInvertedList().size());
+        }
+
+        /**
+         * skipTo has to position the cursor on the first id greater or equal
+         * than the target, also across containers.
+         */
+        @Test
+        public void testSkipTo() {
+                Random random = new Random(9);
+                TreeSet<Integer> ids = randomIds(random);
+                BitmapPostingList bitmap = BitmapPostingList.fromSortedIds(
+                        toArray(ids), ids.size(), 1.0);
+                PostingCursor cursor = bitmap.cursor();
+                int target = 0;
+                while (target < 400000) {
+                        target = target + random.nextInt(3000);
+                        cursor.skipTo(target);
+                        Integer expected = ids.ceiling(target);
+                        Assert.assertEquals(expected == null ? PostingCursor.NO_MORE_USERS : expected.intValue(),
+                                cursor.userId());
+                        Assert.assertEquals(expected != null && expected == target, bitmap.contains(target));
+                }
+        }
+
+        /**
+         * The cardinality of the intersection has to be the number of common
+         * ids, and adding bitmaps into counters has to count every id once
+         * per bitmap.
+         */
+        @Test
+        public void testAndCardinalityAndAddTo() {
+                Random random = new Random(21);
+                TreeSet<Integer> ids1 = randomIds(random);
+                TreeSet<Integer> ids2 = randomIds(random);
+                BitmapPostingList bitmap1 = BitmapPostingList.fromSortedIds(toArray(ids1), ids1.size(), 1.0);
+                BitmapPostingList bitmap2 = BitmapPostingList.fromSortedIds(toArray(ids2), ids2.size(), 1.0);
+                TreeSet<Integer> common = new TreeSet<Integer>(ids1);
+                common.retainAll(ids2);
+                Assert.assertEquals(common.size(), bitmap1.andCardinality(bitmap2));
+                Assert.assertEquals(common.size(), bitmap2.andCardinality(bitmap1));
+                Assert.assertEquals(ids1.size(), bitmap1.andCardinality(bitmap1));
+
+                int[] counters = new int[400000];
+                int[] touched = new int[ids1.size() + ids2.size()];
+                int numberOfTouched = bitmap1.addTo(counters, touched, 0);
+                numberOfTouched = bitmap2.addTo(counters, touched, numberOfTouched);
+                Assert.assertEquals(ids1.size() + ids2.size() - common.size(), numberOfTouched);
+                for (int id: common) {
+                        Assert.assertEquals(2, counters[id]);
+                }
+        }
+
+        //Ids in a sparse range, a dense range and a few single ones.
+        private static TreeSet<Integer> randomIds(Random random) {
+                TreeSet<Integer> ids = new TreeSet<Integer>();
+                for (int i = 0; i < 3000; i++) {
+                        ids.add(random.nextInt(65536));
+                }
+                for (int i = 0; i < 30000; i++) {
+                        ids.add(131072 + random.nextInt(65536));
+                }
+                for (int i = 0; i < 20; i++) {
+                        ids.add(random.nextInt(400000));
+                }
+                return ids;
+        }
+
+        private static int[] toArray(TreeSet<Integer> ids) {
+                int[] array = new int[ids.size()];
+                int i = 0;
+                for (int id: ids) {
+                        array[i++] = id;
+                }
+                return array;
+        }
+
+        private static int[] withDuplicates(TreeSet<Integer> ids) {
+                int[] array = new int[ids.size() * 2];
+                int i = 0;
+                for (int id: ids) {
+                        array[i++] = id;
+                        array[i++] = id;
+                }
+                return array;
+        }
+}
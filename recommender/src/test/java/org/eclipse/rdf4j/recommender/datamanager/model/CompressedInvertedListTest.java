@@ -0,0 +1,95 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.Random;
+import org.eclipse.rdf4j.recommender.util.ListOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for CompressedInvertedList.
+ */
+public class CompressedInvertedListTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * Compressing and decompressing a list has to return the original
+         * list, with few and with many distinct ratings.
+         */
+        @Test
+        public void testCompressAndDecompress() {
+                Random random = new Random(11);
+                InvertedList fewRatings = new InvertedList();
+                InvertedList manyRatings = new InvertedList();
+                int userId = 0;
+                for (int i = 0; i < 1000; i++) {
+                        userId = userId + 1 + random.nextInt(i % 10 == 0 ? 100000 : 5);
+                        fewRatings.insert(userId, random.nextInt(5) + 1);
+                        manyRatings.insert(userId, random.nextDouble());
+                }
+                fewRatings.compactAndSortArray();
+                manyRatings.compactAndSortArray();
+
+                CompressedInvertedList compressed = CompressedInvertedList.compress(fewRatings);
+                Assert.assertEquals(1000, compressed.size());
+                Assert.assertEquals(8, compressed.getNumberOfBlocks());
+                Assert.assertEquals(fewRatings, compressed.decompress());
+                Assert.assertEquals(manyRatings, CompressedInvertedList.compress(manyRatings).decompress());
+                Assert.assertEquals(0, CompressedInvertedList.compress(new InvertedList().compactAndSortArray()).size());
+        }
+
+        /**
+         * skipTo has to position the cursor on the first posting whose user
+         * id is greater or equal than the target, also across blocks.
+         */
+        @Test
+        public void testSkipTo() {
+                InvertedList list = new InvertedList();
+                for (int i = 0; i < 1000; i++) {
+                        list.insert(i * 3, i);
+                }
+                list.compactAndSortArray();
+                PostingList[] lists = {list, CompressedInvertedList.compress(list)};
+
+                for (PostingList postings: lists) {
+                        PostingCursor cursor = postings.cursor();
+                        cursor.skipTo(301);
+                        Assert.assertEquals(303, cursor.userId());
+                        Assert.assertEquals(101, cursor.rating(), DELTA);
+                        cursor.skipTo(303);
+                        Assert.assertEquals(303, cursor.userId());
+                        cursor.skipTo(2400);
+                        Assert.assertEquals(2400, cursor.userId());
+                        cursor.next();
+                        Assert.assertEquals(2403, cursor.userId());
+                        cursor.skipTo(5000);
+                        Assert.assertEquals(PostingCursor.NO_MORE_USERS, cursor.userId());
+                }
+        }
+
+        /**
+         * Merging compressed lists gives the same result as merging the
+         * plain lists.
+         */
+        @Test
+        public void testMergeCompressedLists() {
+                Random random = new Random(3);
+                InvertedList[] lists = new InvertedList[5];
+                PostingList[] compressedLists = new PostingList[lists.length];
+                for (int i = 0; i < lists.length; i++) {
+                        lists[i] = new InvertedList();
+                        for (int j = 0; j < 300; j++) {
+                                lists[i].insert(random.nextInt(2000), random.nextInt(5) + 1);
+                        }
+                        lists[i].compactAndSortArray();
+                        compressedLists[i] = CompressedInvertedList.compress(lists[i]);
+                }
+                Assert.assertEquals(ListOperations.mergeLists(lists),
+                        ListOperations.mergeLists(compressedLists));
+        }
+}
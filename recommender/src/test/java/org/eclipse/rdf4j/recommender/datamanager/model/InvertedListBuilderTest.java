@@ -0,0 +1,124 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for InvertedListBuilder.
+ */
+public class InvertedListBuilderTest {
+
+        /**
+         * The lists built in two passes have to be equal to the lists built
+         * by inserting the ratings user by user, and they have to be exact
+         * sized.
+         */
+        @Test
+        public void testBuildEqualsIncrementalBuild() {
+                Random random = new Random(11);
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                //Users are added in random order
+                for (int i = 0; i < 20000; i++) {
+                        profiles.add(random.nextInt(700), random.nextInt(400), 1 + random.nextInt(5));
+                }
+                profiles.compact();
+
+                Map<Integer, InvertedList> expected = new HashMap<Integer, InvertedList>();
+                for (int userId: profiles.getUserIds()) {
+                        for (int i = profiles.getStart(userId); i < profiles.getEnd(userId); i++) {
+                                InvertedList list = expected.get(profiles.getItemIds()[i]);
+                                if (list == null) {
+                                        list = new InvertedList();
+                                        expected.put(profiles.getItemIds()[i], list);
+                                }
+                                list.insert(userId, profiles.getRatings()[i]);
+                        }
+                }
+                for (InvertedList list: expected.values()) {
+                        list.compactAndSortArray();
+                }
+
+                Map<Integer, InvertedList> invLists = InvertedListBuilder.build(profiles);
+                Assert.assertEquals(expected, invLists);
+                for (InvertedList list: invLists.values()) {
+                        Assert.assertEquals(list.size(), list.getUserIds().length);
+                        Assert.assertEquals(list.size(), list.getRatings().length);
+                }
+        }
+
+        /**
+         * The lists built with several threads have to be identical to the
+         * lists built by one thread, for any parallelism.
+         */
+        @Test
+        public void testParallelBuildEqualsSequentialBuild() {
+                Random random = new Random(13);
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                for (int i = 0; i < 30000; i++) {
+                        profiles.add(random.nextInt(1000), random.nextInt(600), random.nextDouble());
+                }
+                profiles.compact();
+
+                Map<Integer, InvertedList> expected = InvertedListBuilder.build(profiles);
+                for (int parallelism: new int[] {2, 3, 8, 2000}) {
+                        Map<Integer, InvertedList> invLists = InvertedListBuilder.build(profiles, parallelism);
+                        Assert.assertEquals(expected.keySet(), invLists.keySet());
+                        for (Map.Entry<Integer, InvertedList> entry: expected.entrySet()) {
+                                assertIdentical(entry.getValue(), invLists.get(entry.getKey()));
+                        }
+                }
+        }
+
+        /**
+         * Lists compacted and sorted by several threads have to be identical
+         * to lists compacted and sorted one by one.
+         */
+        @Test
+        public void testParallelCompactAndSort() {
+                Random random = new Random(17);
+                Map<Integer, InvertedList> expected = new HashMap<Integer, InvertedList>();
+                Map<Integer, InvertedList> invLists = new HashMap<Integer, InvertedList>();
+                for (int itemId = 0; itemId < 200; itemId++) {
+                        InvertedList list = new InvertedList();
+                        InvertedList copy = new InvertedList();
+                        for (int i = random.nextInt(300); i > 0; i--) {
+                                int userId = random.nextInt(1000);
+                                double rating = random.nextInt(5);
+                                list.insert(userId, rating);
+                                copy.insert(userId, rating);
+                        }
+                        expected.put(itemId, list.compactAndSortArray());
+                        invLists.put(itemId, copy);
+                }
+                InvertedListBuilder.compactAndSort(invLists.values(), 4);
+                for (int itemId = 0; itemId < 200; itemId++) {
+                        assertIdentical(expected.get(itemId), invLists.get(itemId));
+                }
+        }
+
+        /**
+         * An empty matrix gives no lists.
+         */
+        @Test
+        public void testEmptyProfiles() {
+                Assert.assertEquals(0, InvertedListBuilder.build(new UserProfileMatrix()).size());
+                Assert.assertEquals(0, InvertedListBuilder.build(new UserProfileMatrix(), 4).size());
+        }
+
+        private static void assertIdentical(InvertedList expected, InvertedList list) {
+                Assert.assertEquals(expected.size(), list.size());
+                Assert.assertArrayEquals(expected.getUserIds(), list.getUserIds());
+                for (int i = 0; i < expected.size(); i++) {
+                        Assert.assertEquals(Double.doubleToLongBits(expected.getRating(i)),
+                                Double.doubleToLongBits(list.getRating(i)));
+                }
+        }
+}
@@ -0,0 +1,83 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for InvertedList.
+ */
+public class InvertedListTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * Inserted postings have to be accessible by position, also after
+         * the inner arrays have been resized.
+         */
+        @Test
+        public void testInsertAndResize() {
+                InvertedList list = new InvertedList();
+                for (int i = 0; i < 1000; i++) {
+                        list.insert(i, i / 2.0);
+                }
+                Assert.assertEquals(1000, list.size());
+                Assert.assertEquals(999, list.getUserId(999));
+                Assert.assertEquals(499.5, list.getRating(999), DELTA);
+
+                list.insert(new IndexedUserRating(1000, 3.0));
+                IndexedUserRating ur = list.get(1000);
+                Assert.assertEquals(1000, ur.getUserId());
+                Assert.assertEquals(3.0, ur.getRating(), DELTA);
+        }
+
+        /**
+         * After compacting and sorting, the list is ordered by user id and
+         * then by rating, and the arrays have exactly the size of the list.
+         */
+        @Test
+        public void testCompactAndSortArray() {
+                Random random = new Random(7);
+                InvertedList list = new InvertedList();
+                for (int i = 0; i < 500; i++) {
+                        list.insert(random.nextInt(100), random.nextInt(5) + 1);
+                }
+                list.compactAndSortArray();
+
+                Assert.assertEquals(500, list.getUserIds().length);
+                Assert.assertEquals(500, list.getRatings().length);
+                Assert.assertEquals(500, list.getInnerArray().length);
+                for (int i = 1; i < list.size(); i++) {
+                        Assert.assertTrue(list.getUserId(i - 1) <= list.getUserId(i));
+                        if (list.getUserId(i - 1) == list.getUserId(i)) {
+                                Assert.assertTrue(list.getRating(i - 1) <= list.getRating(i));
+                        }
+                }
+        }
+
+        /**
+         * Two lists are equal if they contain the same postings in the same
+         * order.
+         */
+        @Test
+        public void testEquals() {
+                InvertedList list1 = new InvertedList();
+                list1.insert(new IndexedUserRating(2, 4.0));
+                list1.insert(new IndexedUserRating(1, 3.0));
+                list1.compactAndSortArray();
+
+                InvertedList list2 = new InvertedList(
+                        new IndexedUserRating[] {
+                                new IndexedUserRating(1, 3.0),
+                                new IndexedUserRating(2, 4.0)});
+                Assert.assertEquals(list1, list2);
+
+                list2.insert(3, 1.0);
+                Assert.assertFalse(list1.equals(list2));
+        }
+}
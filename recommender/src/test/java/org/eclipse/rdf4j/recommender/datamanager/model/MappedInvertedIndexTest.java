@@ -0,0 +1,119 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.eclipse.rdf4j.recommender.util.ListOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for MappedInvertedIndex.
+ */
+public class MappedInvertedIndexTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * The lists read from the mapped file have to be equal to the lists
+         * written, and merging them has to give the same result.
+         * @throws IOException
+         */
+        @Test
+        public void testWriteAndRead() throws IOException {
+                Random random = new Random(3);
+                Map<Integer, InvertedList> invLists = new HashMap<Integer, InvertedList>();
+                for (int itemId = 0; itemId < 300; itemId = itemId + 1 + random.nextInt(3)) {
+                        InvertedList list = new InvertedList();
+                        int userId = 0;
+                        for (int i = random.nextInt(500); i > 0; i--) {
+                                userId = userId + 1 + random.nextInt(20);
+                                list.insert(userId, random.nextDouble());
+                        }
+                        invLists.put(itemId, list.compactAndSortArray());
+                }
+
+                File file = File.createTempFile("invlists", ".idx");
+                file.deleteOnExit();
+                MappedInvertedIndex.write(file, invLists);
+                MappedInvertedIndex index = MappedInvertedIndex.open(file);
+
+                long numberOfPostings = 0;
+                PostingList[] mappedLists = new PostingList[10];
+                InvertedList[] lists = new InvertedList[10];
+                int numberOfLists = 0;
+                for (int itemId = 0; itemId < 300; itemId++) {
+                        InvertedList list = invLists.get(itemId);
+                        if (list == null || list.size() == 0) {
+                                Assert.assertNull(index.getList(itemId));
+                                continue;
+                        }
+                        numberOfPostings = numberOfPostings + list.size();
+                        Assert.assertEquals(list.size(), index.getList(itemId).size());
+                        Assert.assertEquals(list, index.toInvertedList(itemId));
+                        if (numberOfLists < 10) {
+                                mappedLists[numberOfLists] = index.getList(itemId);
+                                lists[numberOfLists] = list;
+                                numberOfLists++;
+                        }
+                }
+                Assert.assertEquals(numberOfPostings, index.getNumberOfPostings());
+                Assert.assertEquals(file.length(), index.getSizeInBytes());
+                Assert.assertNull(index.getList(100000));
+                Assert.assertEquals(ListOperations.mergeLists(lists), ListOperations.mergeLists(mappedLists));
+        }
+
+        /**
+         * skipTo has to position the cursor on the first posting whose user
+         * id is greater or equal than the target.
+         * @throws IOException
+         */
+        @Test
+        public void testSkipTo() throws IOException {
+                InvertedList list = new InvertedList();
+                for (int userId = 0; userId < 1000; userId = userId + 3) {
+                        list.insert(userId, userId / 2.0);
+                }
+                Map<Integer, InvertedList> invLists = new HashMap<Integer, InvertedList>();
+                invLists.put(7, list.compactAndSortArray());
+                File file = File.createTempFile("invlists", ".idx");
+                file.deleteOnExit();
+                MappedInvertedIndex.write(file, invLists);
+
+                PostingCursor cursor = MappedInvertedIndex.open(file).getList(7).cursor();
+                cursor.skipTo(301);
+                Assert.assertEquals(303, cursor.userId());
+                Assert.assertEquals(151.5, cursor.rating(), DELTA);
+                cursor.skipTo(303);
+                Assert.assertEquals(303, cursor.userId());
+                cursor.skipTo(1000);
+                Assert.assertEquals(PostingCursor.NO_MORE_USERS, cursor.userId());
+        }
+
+        /**
+         * Files which are not an index cannot be opened.
+         * @throws IOException
+         */
+        @Test
+        public void testInvalidFile() throws IOException {
+                File file = File.createTempFile("invlists", ".idx");
+                file.deleteOnExit();
+                FileOutputStream out = new FileOutputStream(file);
+                out.write(new byte[64]);
+                out.close();
+                try {
+                        MappedInvertedIndex.open(file);
+                        Assert.fail("An invalid file was opened");
+                } catch (IOException ex) {
+                        Assert.assertTrue(ex.getMessage().startsWith("NOT AN INVERTED INDEX FILE"));
+                }
+        }
+}
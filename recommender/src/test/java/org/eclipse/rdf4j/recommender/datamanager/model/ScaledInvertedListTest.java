@@ -0,0 +1,81 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for ScaledInvertedList and RatingQuantizer.
+ */
+public class ScaledInvertedListTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * With few distinct ratings the scaled views contain exactly the 
+         * products of the ratings and the scale.
+         */
+        @Test
+        public void testExactScaledViews() {
+                InvertedList list = new InvertedList();
+                list.insert(4, 2.0);
+                list.insert(1, 5.0);
+                list.insert(7, 3.0);
+                list.compactAndSortArray();
+                
+                RatingQuantizer quantizer = RatingQuantizer.create(Arrays.asList(list), 0);
+                Assert.assertTrue(quantizer.isExact());
+                Assert.assertEquals(3, quantizer.size());
+                
+                ScaledInvertedList scaledList = new ScaledInvertedList(list, quantizer);
+                for (int scale = 1; scale <= 5; scale++) {
+                        InvertedList expected = new InvertedList();
+                        expected.insert(1, 5.0 * scale);
+                        expected.insert(4, 2.0 * scale);
+                        expected.insert(7, 3.0 * scale);
+                        Assert.assertEquals(expected, 
+                                scaledList.toInvertedList(scale, quantizer.getScaledTable(scale)));
+                }
+        }
+        
+        /**
+         * With many distinct ratings each product differs from the exact one
+         * at most by the error bound times the scale.
+         */
+        @Test
+        public void testQuantizedScaledViews() {
+                Random random = new Random(5);
+                InvertedList list = new InvertedList();
+                for (int i = 0; i < 100000; i++) {
+                        list.insert(i, 1 + 4 * random.nextDouble());
+                }
+                list.compactAndSortArray();
+                double errorBound = 0.001;
+                
+                Assert.assertNull(RatingQuantizer.create(Arrays.asList(list), 0));
+                RatingQuantizer quantizer = RatingQuantizer.create(Arrays.asList(list), errorBound);
+                Assert.assertFalse(quantizer.isExact());
+                
+                ScaledInvertedList scaledList = new ScaledInvertedList(list, quantizer);
+                Assert.assertEquals(6L * list.size(), scaledList.getSizeInBytes());
+                PostingCursor cursor = scaledList.scaled(5, quantizer.getScaledTable(5)).cursor();
+                for (int i = 0; i < list.size(); i++) {
+                        Assert.assertEquals(list.getUserId(i), cursor.userId());
+                        Assert.assertEquals(list.getRating(i) * 5, cursor.rating(), errorBound * 5 + DELTA);
+                        cursor.next();
+                }
+                Assert.assertEquals(PostingCursor.NO_MORE_USERS, cursor.userId());
+                
+                //Without quantizer ratings are kept as they are.
+                ScaledInvertedList rawList = new ScaledInvertedList(list, null);
+                Assert.assertEquals(12L * list.size(), rawList.getSizeInBytes());
+                Assert.assertEquals(list.getRating(10) * 3, 
+                        rawList.toInvertedList(3, null).getRating(10), DELTA);
+        }
+}
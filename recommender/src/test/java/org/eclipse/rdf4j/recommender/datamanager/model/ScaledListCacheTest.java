@@ -0,0 +1,85 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for ScaledListCache.
+ */
+public class ScaledListCacheTest {
+
+        /**
+         * Room for two lists: the least recently used one is dropped and the
+         * cached lists are the scaled ones.
+         */
+        @Test
+        public void testLeastRecentlyUsedLists() {
+                ScaledInvertedList[] lists = new ScaledInvertedList[3];
+                RatingQuantizer quantizer = null;
+                for (int i = 0; i < lists.length; i++) {
+                        InvertedList list = new InvertedList();
+                        for (int userId = 0; userId < 10; userId++) {
+                                list.insert(userId, 1 + (userId + i) % 5);
+                        }
+                        list.compactAndSortArray();
+                        if (quantizer == null) {
+                                quantizer = RatingQuantizer.create(Arrays.asList(list), 0);
+                        }
+                        lists[i] = new ScaledInvertedList(list, quantizer);
+                }
+                double[] table = quantizer.getScaledTable(3);
+                long bytesOfList = 10 * ScaledListCache.BYTES_PER_POSTING;
+                ScaledListCache cache = new ScaledListCache(2 * bytesOfList + 10);
+                
+                Assert.assertEquals(lists[0].toInvertedList(3, table), cache.get(0, 3, lists[0], table));
+                Assert.assertEquals(lists[0].toInvertedList(3, table), cache.get(0, 3, lists[0], table));
+                Assert.assertEquals(1, cache.getHits());
+                Assert.assertEquals(1, cache.getMisses());
+                
+                cache.get(1, 3, lists[1], table);
+                //List 0 is used again, list 1 is the least recently used one.
+                cache.get(0, 3, lists[0], table);
+                cache.get(2, 3, lists[2], table);
+                Assert.assertEquals(1, cache.getEvictions());
+                Assert.assertEquals(2, cache.getNumberOfLists());
+                Assert.assertEquals(2 * bytesOfList, cache.getSizeInBytes());
+                
+                cache.get(0, 3, lists[0], table);
+                Assert.assertEquals(3, cache.getHits());
+                cache.get(1, 3, lists[1], table);
+                Assert.assertEquals(4, cache.getMisses());
+                Assert.assertEquals(2, cache.getEvictions());
+                
+                //Another scale is another list.
+                double[] otherTable = quantizer.getScaledTable(5);
+                Assert.assertEquals(lists[0].toInvertedList(5, otherTable), cache.get(0, 5, lists[0], otherTable));
+                Assert.assertEquals(5, cache.getMisses());
+                Assert.assertTrue(cache.getSizeInBytes() <= cache.getCapacityInBytes());
+        }
+        
+        /**
+         * A list larger than the cache is scaled on the fly and not kept.
+         */
+        @Test
+        public void testListLargerThanCache() {
+                InvertedList list = new InvertedList();
+                for (int userId = 0; userId < 100; userId++) {
+                        list.insert(userId, 2.0);
+                }
+                list.compactAndSortArray();
+                ScaledInvertedList scaledList = new ScaledInvertedList(list, null);
+                ScaledListCache cache = new ScaledListCache(100);
+                PostingList result = cache.get(7, 4, scaledList, null);
+                Assert.assertEquals(100, result.size());
+                Assert.assertEquals(8.0, result.cursor().rating(), 0);
+                Assert.assertEquals(0, cache.getNumberOfLists());
+                Assert.assertEquals(0, cache.getSizeInBytes());
+                Assert.assertEquals(1, cache.getMisses());
+        }
+}
@@ -0,0 +1,82 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for SimHashIndex.
+ */
+public class SimHashIndexTest {
+
+        /**
+         * The candidates of a user are exactly the other users with the same
+         * key in at least one band, each one reported once, and the scratch
+         * array is left clean.
+         */
+        @Test
+        public void testCollectCandidates() {
+                Random random = new Random(31);
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                for (int i = 0; i < 4000; i++) {
+                        profiles.add(random.nextInt(400), random.nextInt(60), 1 + random.nextInt(5));
+                }
+                SimHashIndex index = new SimHashIndex(6, 4, 7);
+                index.build(profiles);
+                Assert.assertTrue(index.getSizeInBytes() > 0);
+
+                boolean[] isCandidate = new boolean[index.getNumberOfUserSlots()];
+                int[] candidates = new int[index.getNumberOfUserSlots()];
+                for (int userId: profiles.getUserIds()) {
+                        int numberOfCandidates = index.collectCandidates(userId, isCandidate, candidates);
+                        boolean[] expected = new boolean[index.getNumberOfUserSlots()];
+                        int numberOfExpected = 0;
+                        for (int otherUserId: profiles.getUserIds()) {
+                                for (int band = 0; band < index.getNumberOfBands(); band++) {
+                                        if (otherUserId != userId && !expected[otherUserId]
+                                                && index.getBandKey(userId, band) == index.getBandKey(otherUserId, band)) {
+                                                expected[otherUserId] = true;
+                                                numberOfExpected++;
+                                        }
+                                }
+                        }
+                        Assert.assertEquals(numberOfExpected, numberOfCandidates);
+                        for (int i = 0; i < numberOfCandidates; i++) {
+                                Assert.assertTrue(expected[candidates[i]]);
+                        }
+                        for (int i = 0; i < isCandidate.length; i++) {
+                                Assert.assertFalse(isCandidate[i]);
+                        }
+                }
+        }
+
+        /**
+         * Users with proportional profiles have the same signature, users
+         * with opposite profiles have complementary signatures.
+         */
+        @Test
+        public void testSignatures() {
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                Random random = new Random(37);
+                for (int itemId = 0; itemId < 50; itemId++) {
+                        double rating = random.nextDouble() - 0.5;
+                        profiles.add(0, itemId, rating);
+                        profiles.add(1, itemId, 3 * rating);
+                        profiles.add(2, itemId, -rating);
+                }
+                SimHashIndex index = new SimHashIndex(5, 20, 11);
+                index.build(profiles);
+                Assert.assertEquals(100, index.getNumberOfEqualBits(0, 1));
+                Assert.assertEquals(0, index.getNumberOfEqualBits(0, 2));
+
+                int[] candidates = new int[index.getNumberOfUserSlots()];
+                int numberOfCandidates = index.collectCandidates(0, new boolean[index.getNumberOfUserSlots()], candidates);
+                Assert.assertEquals(1, numberOfCandidates);
+                Assert.assertEquals(1, candidates[0]);
+        }
+}
@@ -0,0 +1,85 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for UriDictionary.
+ */
+public class UriDictionaryTest {
+
+        /**
+         * Ids have to be consecutive, adding a URI twice has to return the
+         * same id and every URI has to be decoded exactly, before and after
+         * freezing the dictionary.
+         */
+        @Test
+        public void testAddAndLookup() {
+                Random random = new Random(5);
+                String[] namespaces = {"http://example.org/movies#", "http://dbpedia.org/resource/",
+                        "urn:isbn:", "", "http://example.org/a/very/long/path/"};
+                List<String> uris = new ArrayList<String>();
+                UriDictionary dictionary = new UriDictionary();
+                for (int i = 0; i < 50000; i++) {
+                        String uri = namespaces[random.nextInt(namespaces.length)]
+                                + (random.nextBoolean() ? "User" : "Item_\u00e9\u4e2d") + random.nextInt(40000);
+                        if (i % 9973 == 0) {
+                                //Local names longer than a page
+                                StringBuilder longName = new StringBuilder();
+                                for (int j = 0; j < 70000; j++) {
+                                        longName.append((char)('a' + j % 26));
+                                }
+                                uri = uri + longName;
+                        }
+                        int id = dictionary.add(uri);
+                        if (id == uris.size()) {
+                                uris.add(uri);
+                        } else {
+                                Assert.assertEquals(uris.get(id), uri);
+                        }
+                }
+                Assert.assertEquals(uris.size(), dictionary.size());
+                Assert.assertEquals(namespaces.length, dictionary.getNumberOfNamespaces());
+                assertContainsAll(dictionary, uris);
+                long sizeBeforeFreezing = dictionary.getSizeInBytes();
+
+                dictionary.freeze();
+                Assert.assertTrue(dictionary.isFrozen());
+                Assert.assertTrue(dictionary.getSizeInBytes() <= sizeBeforeFreezing);
+                assertContainsAll(dictionary, uris);
+                Assert.assertEquals(3, dictionary.add(uris.get(3)));
+                Assert.assertEquals(-1, dictionary.getId("http://example.org/movies#Unknown"));
+                Assert.assertNull(dictionary.getUri(uris.size()));
+        }
+
+        /**
+         * New URIs cannot be added to a frozen dictionary.
+         */
+        @Test
+        public void testFrozenDictionaryIsReadOnly() {
+                UriDictionary dictionary = new UriDictionary();
+                dictionary.add("http://example.org/movies#Alice");
+                dictionary.freeze();
+                try {
+                        dictionary.add("http://example.org/movies#Bob");
+                        Assert.fail("A URI was added to a frozen dictionary");
+                } catch (IllegalStateException ex) {
+                        Assert.assertEquals(1, dictionary.size());
+                }
+        }
+
+        private static void assertContainsAll(UriDictionary dictionary, List<String> uris) {
+                for (int id = 0; id < uris.size(); id++) {
+                        Assert.assertEquals(uris.get(id), dictionary.getUri(id));
+                        Assert.assertEquals(id, dictionary.getId(uris.get(id)));
+                }
+        }
+}
@@ -0,0 +1,100 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for UserProfileMatrix.
+ */
+public class UserProfileMatrixTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * Added ratings have to be stored sorted by item id, without repeated
+         * pairs item, rating, and the set views have to contain the same
+         * ratings as a HashSet built with the same calls.
+         */
+        @Test
+        public void testAddAndRead() {
+                Random random = new Random(17);
+                UserProfileMatrix matrix = new UserProfileMatrix();
+                Map<Integer, Set<IndexedRatedRes>> expected = new HashMap<Integer, Set<IndexedRatedRes>>();
+                for (int i = 0; i < 20000; i++) {
+                        int userId = random.nextInt(300) * 50;
+                        IndexedRatedRes ratRes = new IndexedRatedRes(random.nextInt(200), random.nextInt(5) + 1);
+                        matrix.add(userId, ratRes.getResourceId(), ratRes.getRating());
+                        if (!expected.containsKey(userId)) {
+                                expected.put(userId, new HashSet<IndexedRatedRes>());
+                        }
+                        expected.get(userId).add(ratRes);
+                }
+
+                Assert.assertEquals(expected.keySet(), matrix.getUserIdSet());
+                Assert.assertEquals(expected.size(), matrix.getNumberOfUsers());
+                int numberOfRatings = 0;
+                for (int userId: matrix.getUserIds()) {
+                        Assert.assertEquals(expected.get(userId), matrix.getProfile(userId));
+                        Assert.assertEquals(expected.get(userId), new HashSet<IndexedRatedRes>(matrix.getProfile(userId)));
+                        for (int i = matrix.getStart(userId) + 1; i < matrix.getEnd(userId); i++) {
+                                Assert.assertTrue(matrix.getItemIds()[i - 1] <= matrix.getItemIds()[i]);
+                        }
+                        numberOfRatings = numberOfRatings + expected.get(userId).size();
+                }
+                Assert.assertEquals(numberOfRatings, matrix.getNumberOfRatings());
+                Assert.assertFalse(matrix.hasProfile(1));
+                Assert.assertEquals(0, matrix.size(1));
+        }
+
+        /**
+         * Replacing profiles, with more or with fewer ratings, must not
+         * change the other profiles.
+         */
+        @Test
+        public void testSet() {
+                UserProfileMatrix matrix = new UserProfileMatrix();
+                matrix.add(0, 7, 1.0);
+                matrix.add(0, 3, 2.0);
+                matrix.add(1, 4, 5.0);
+                matrix.add(2, 9, 4.0);
+
+                matrix.set(1, new int[] {8, 2, 8}, new double[] {3.0, 1.0, 3.0}, 3);
+                Assert.assertEquals(2, matrix.size(1));
+                Assert.assertEquals(2, matrix.getItemIds()[matrix.getStart(1)]);
+                Assert.assertEquals(3.0, matrix.getRatings()[matrix.getStart(1) + 1], DELTA);
+                Assert.assertEquals(1, matrix.indexOf(1, 8) - matrix.getStart(1));
+                Assert.assertEquals(-1, matrix.indexOf(1, 4));
+
+                matrix.set(0, new int[] {5}, new double[] {2.5}, 1);
+                Assert.assertEquals(1, matrix.size(0));
+                Assert.assertTrue(matrix.getProfile(0).contains(new IndexedRatedRes(5, 2.5)));
+                Assert.assertFalse(matrix.getProfile(0).contains(new IndexedRatedRes(5, 2.0)));
+                Assert.assertEquals(1, matrix.size(2));
+                Assert.assertTrue(matrix.getProfile(2).contains(new IndexedRatedRes(9, 4.0)));
+                Assert.assertEquals(4, matrix.getNumberOfRatings());
+
+                //Profiles of new users can be set directly
+                matrix.set(20000, new int[] {1}, new double[] {1.0}, 1);
+                Assert.assertEquals(4, matrix.getNumberOfUsers());
+                Assert.assertArrayEquals(new int[] {0, 1, 2, 20000}, matrix.getUserIds());
+        }
+
+        /**
+         * Equal ratings have to produce equal hash codes, also 0.0 and -0.0.
+         */
+        @Test
+        public void testIndexedRatedResHashCode() {
+                Assert.assertEquals(new IndexedRatedRes(3, 0.0).hashCode(), new IndexedRatedRes(3, -0.0).hashCode());
+                Assert.assertTrue(new IndexedRatedRes(3, 0.25).hashCode() != new IndexedRatedRes(3, 0.5).hashCode());
+        }
+}
@@ -0,0 +1,84 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.datamanager.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for UserStatistics.
+ */
+public class UserStatisticsTest {
+        //For double comparisons
+        private static final double DELTA = 1e-12;
+
+        /**
+         * Statistics of the book example: Alice has ratings 5, 3, 4, 4 and 
+         * User1 has ratings 3, 1, 2, 3, 3. Users without profile have none.
+         */
+        @Test
+        public void testUpdateAll() {
+                UserProfileMatrix matrix = new UserProfileMatrix();
+                addRatings(matrix, 0, new double[] {5.0, 3.0, 4.0, 4.0});
+                addRatings(matrix, 20000, new double[] {3.0, 1.0, 2.0, 3.0, 3.0});
+                UserStatistics statistics = new UserStatistics(10);
+                statistics.updateAll(matrix);
+
+                Assert.assertEquals(4, statistics.getCount(0));
+                Assert.assertEquals(4.0, statistics.getMean(0), DELTA);
+                Assert.assertEquals(Math.sqrt(2.0 / 4), statistics.getStandardDeviation(0), DELTA);
+                Assert.assertEquals(Math.sqrt(25.0 + 9.0 + 16.0 + 16.0), statistics.getL2Norm(0), DELTA);
+
+                Assert.assertEquals(5, statistics.getCount(20000));
+                Assert.assertEquals(2.4, statistics.getMean(20000), DELTA);
+                Assert.assertEquals(Math.sqrt((0.36 + 1.96 + 0.16 + 0.36 + 0.36) / 5), 
+                        statistics.getStandardDeviation(20000), DELTA);
+                Assert.assertEquals(Math.sqrt(9.0 + 1.0 + 4.0 + 9.0 + 9.0), statistics.getL2Norm(20000), DELTA);
+                Assert.assertEquals(2.4, statistics.getMeans()[20000], DELTA);
+
+                Assert.assertEquals(0, statistics.getCount(1));
+                Assert.assertEquals(0.0, statistics.getMean(1), DELTA);
+                Assert.assertEquals(0, statistics.getCount(50000));
+                Assert.assertEquals(0.0, statistics.getL2Norm(50000), DELTA);
+        }
+
+        /**
+         * A stale user keeps the old statistics until it is updated.
+         */
+        @Test
+        public void testInvalidateAndUpdate() {
+                UserProfileMatrix matrix = new UserProfileMatrix();
+                addRatings(matrix, 3, new double[] {2.0, 4.0});
+                UserStatistics statistics = new UserStatistics();
+                statistics.update(matrix, 3);
+                Assert.assertFalse(statistics.isStale(3));
+                Assert.assertEquals(3.0, statistics.getMean(3), DELTA);
+
+                matrix.add(3, 10, 6.0);
+                statistics.invalidate(3);
+                Assert.assertTrue(statistics.isStale(3));
+                Assert.assertEquals(3.0, statistics.getMean(3), DELTA);
+
+                statistics.update(matrix, 3);
+                Assert.assertFalse(statistics.isStale(3));
+                Assert.assertEquals(3, statistics.getCount(3));
+                Assert.assertEquals(4.0, statistics.getMean(3), DELTA);
+                Assert.assertEquals(Math.sqrt(8.0 / 3), statistics.getStandardDeviation(3), DELTA);
+
+                //An explicit l2-norm is kept until the next update.
+                statistics.setL2Norm(3, 1.0);
+                Assert.assertEquals(1.0, statistics.getL2Norm(3), DELTA);
+                statistics.update(matrix, 3);
+                Assert.assertEquals(Math.sqrt(4.0 + 16.0 + 36.0), statistics.getL2Norm(3), DELTA);
+        }
+
+        //Ratings of a user on the items 0, 1, 2...
+        private static void addRatings(UserProfileMatrix matrix, int userId, double[] ratings) {
+                for (int itemId = 0; itemId < ratings.length; itemId++) {
+                        matrix.add(userId, itemId, ratings[itemId]);
+                }
+        }
+}
@@ -5,12 +5,21 @@
  */
 package org.eclipse.rdf4j.recommender.paradigm.collaborative;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Test;
+import org.eclipse.rdf4j.recommender.datamanager.DataManager;
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
 import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.parameter.RecSimMetric;
 import org.eclipse.rdf4j.recommender.parameter.RecStorage;
 import org.eclipse.rdf4j.recommender.repository.SailRecommenderRepository;
+import org.eclipse.rdf4j.recommender.util.RatedResourceRatingComparator;
 import org.eclipse.rdf4j.recommender.util.TestRepositoryInstantiator;
 
 /**
@@ -158,6 +167,196 @@ public class CfRecWithRatingsTest {
                 Assert.assertEquals(expectedPredictedRating, actualPredictedRating, DELTA);                             
         }                
         
+        /**
+         * This method tests the method to predict the rating of an item for the
+         * collaborative filtering approach with the Pearson correlation, as in
+         * the example of the book.
+         */
+        @Test
+        public void testPredictRatingBasedOnPearsonCfSd() throws RecommenderException {
+                int neighborhoodSize = 2;
+                int numberOfTopRatings = 0;
+                //Alice has ratings 5, 3, 4, 4 (average 4.0)
+                //User1 has ratings 3, 1, 2, 3, 3 (average 2.4)
+                //User2 has ratings 4, 3, 4, 3, 5 (average 3.8)
+                //PEARSON(Alice, User1) = 0.8528
+                //PEARSON(Alice, User2) = 0.7071
+                //PEARSON(Alice, User3) = 0.0
+                //PEARSON(Alice, User4) = -0.7921
+                Double expectedPredictedRating = new Double(4.0 
+                        + (0.852803 * (3.0 - 2.4) + 0.707107 * (5.0 - 3.8)) / (0.852803 + 0.707107));
+                
+                for (RecStorage stor: new RecStorage[] {RecStorage.INVERTED_LISTS, RecStorage.SCALED_INVERTED_LISTS}) {
+                        SailRecommenderRepository recRepository 
+                                = TestRepositoryInstantiator.createBookUbCfRecAndPreprocess(stor, 
+                                        neighborhoodSize, numberOfTopRatings, RecSimMetric.PEARSON_CORRELATION);
+                        Double actualPredictedRating 
+                                = recRepository.predictRating("http://example.org/movies#Alice", 
+                                        "http://example.org/movies#Item5");
+                        
+                        Assert.assertEquals(expectedPredictedRating, actualPredictedRating, DELTA);
+                }
+        }
+        
+        /**
+         * The top-k list computed in one pass over the neighbors has to 
+         * contain the ratings predicted for each candidate, for all storages
+         * which keep the neighborhoods by index.
+         */
+        @Test
+        public void testTopKRecommendationsSameAsPredictRating() throws RecommenderException {
+                int neighborhoodSize = 3;
+                int numberOfTopRatings = 0;
+                String userURI = "http://example.org/movies#Alice";
+                
+                for (RecStorage stor: new RecStorage[] {RecStorage.INVERTED_LISTS, RecStorage.SCALED_INVERTED_LISTS}) {
+                        SailRecommenderRepository recRepository 
+                                = TestRepositoryInstantiator.createBookUbCfRecAndPreprocess(stor, 
+                                        neighborhoodSize, numberOfTopRatings);
+                        RatedResource[] actualtopK = recRepository.getTopRecommendations(userURI, 5, true);
+                        
+                        Assert.assertEquals(5, actualtopK.length);
+                        for (int i = 0; i < actualtopK.length; i++) {
+                                Assert.assertNotNull(actualtopK[i]);
+                                Assert.assertEquals(recRepository.predictRating(userURI, actualtopK[i].getResource()), 
+                                        actualtopK[i].getRating(), DELTA);
+                                if (i > 0) {
+                                        Assert.assertTrue(actualtopK[i - 1].getRating() >= actualtopK[i].getRating());
+                                }
+                        }
+                }
+        }
+
+        /**
+         * This method tests that the recommendations computed with the indexes
+         * of the resources are the same as the ones of the generic methods 
+         * with URIs (see AbstractRecommender and predictRating(...) for 
+         * recommenders which are not index-based), computed here from the
+         * neighbors and the rated resources of the data manager.
+         */
+        @Test
+        public void testTopKRecommendationsWithIndexes() throws RecommenderException {
+                int neighborhoodSize = 3;
+                int numberOfTopRatings = 0;
+                int size = 5;
+
+                for (RecStorage stor: new RecStorage[] {RecStorage.INVERTED_LISTS, RecStorage.SCALED_INVERTED_LISTS}) {
+                        SailRecommenderRepository recRepository
+                                = TestRepositoryInstantiator.createBookUbCfRecAndPreprocess(stor,
+                                        neighborhoodSize, numberOfTopRatings);
+                        Assert.assertTrue(recRepository.isIndexBased());
+                        DataManager dataManager = recRepository.getRecommender().getDataManager();
+                        
+                        for (int indexOfUser: recRepository.getUserIndexes()) {
+                                String userURI = recRepository.getURI(indexOfUser);
+                                for (boolean includeConsumedItems: new boolean[]{true, false}) {
+                                        RatedResource[] expectedTopK = getExpectedTopRecommendations(
+                                                dataManager, userURI, size, includeConsumedItems);
+                                        assertSameRecommendations(expectedTopK, 
+                                                recRepository.getTopRecommendations(userURI, size, includeConsumedItems));
+                                        
+                                        IndexedRatedRes[] actualTopK = recRepository.getTopRecommendations(
+                                                indexOfUser, size, includeConsumedItems);
+                                        Assert.assertEquals(expectedTopK.length, actualTopK.length);
+                                        for (int i = 0; i < actualTopK.length; i++) {
+                                                if (expectedTopK[i] == null) {
+                                                        Assert.assertNull(actualTopK[i]);
+                                                        continue;
+                                                }
+                                                Assert.assertEquals(expectedTopK[i].getResource(),
+                                                        recRepository.getURI(actualTopK[i].getResourceId()));
+                                                Assert.assertEquals(expectedTopK[i].getRating(), actualTopK[i].getRating(), DELTA);
+                                                Assert.assertEquals(expectedTopK[i].getRating(), recRepository.predictRating(
+                                                        indexOfUser, actualTopK[i].getResourceId()), DELTA);
+                                                Assert.assertEquals(expectedTopK[i].getRating(), recRepository.predictRating(
+                                                        userURI, expectedTopK[i].getResource()), DELTA);
+                                        }
+                                }
+                        }
+                        //Alice has not rated Item5, so there is at least one 
+                        //recommendation without the consumed items.
+                        RatedResource[] topK = recRepository.getTopRecommendations(
+                                "http://example.org/movies#Alice", size, false);
+                        Assert.assertEquals("http://example.org/movies#Item5", topK[0].getResource());
+                        Assert.assertNull(topK[1]);
+                }
+        }
+
+        /**
+         * This method tests that candidates which have not been indexed are
+         * predicted 0.0 and ranked with the indexed ones.
+         */
+        @Test
+        public void testTopKRecommendationsWithUnindexedCandidates() throws RecommenderException {
+                SailRecommenderRepository recRepository
+                        = TestRepositoryInstantiator.createBookUbCfRecAndPreprocess(
+                                RecStorage.INVERTED_LISTS, 3, 0);
+                DataManager dataManager = recRepository.getRecommender().getDataManager();
+                String userURI = "http://example.org/movies#Alice";
+                String unknownURI = "http://example.org/movies#Item0";
+                Set<String> candidates = new HashSet<String>();
+                candidates.add("http://example.org/movies#Item5");
+                candidates.add("http://example.org/movies#Item2");
+                candidates.add(unknownURI);
+                Assert.assertEquals(-1, recRepository.getIndexOf(unknownURI));
+                
+                for (int size = 1; size <= 4; size++) {
+                        List<RatedResource> expected = new ArrayList<RatedResource>();
+                        for (String candidate: candidates) {
+                                expected.add(new RatedResource(candidate, 
+                                        getExpectedRating(dataManager, userURI, candidate)));
+                        }
+                        Collections.sort(expected, new RatedResourceRatingComparator());
+                        RatedResource[] expectedTopK = new RatedResource[size];
+                        for (int i = 0; i < size && i < expected.size(); i++) {
+                                expectedTopK[i] = expected.get(i);
+                        }
+                        RatedResource[] actualTopK = recRepository.getTopRecommendations(userURI, size, candidates);
+                        assertSameRecommendations(expectedTopK, actualTopK);
+                }
+                RatedResource[] topK = recRepository.getTopRecommendations(userURI, 3, candidates);
+                Assert.assertEquals(unknownURI, topK[2].getResource());
+                Assert.assertEquals(0.0, topK[2].getRating(), DELTA);
+        }
+
+        /**
+         * This method tests the method to predict the rating of an item for the
+         * item-based collaborative filtering approach.
+         */
+        @Test
+        public void testPredictRatingBasedOnItemCfSd() throws RecommenderException {
+                int neighborhoodSize = 2;
+                SailRecommenderRepository recRepository 
+                        = TestRepositoryInstantiator.createBookIbCfRecAndPreprocess(neighborhoodSize);
+                
+                //Items as vectors of the ratings of Alice, User1, ..., User4
+                //SIM(Item5, Item1) = 0.7593
+                //SIM(Item5, Item2) = 0.6732
+                //SIM(Item5, Item3) = 0.6224
+                //SIM(Item5, Item4) = 0.8115
+                //SIM(Item2, Item1) = 0.7803
+                //SIM(Item2, Item3) = 0.9420
+                //SIM(Item2, Item4) = 0.8480
+                
+                //Neighbors of Item5: Item4 and Item1, rated 4 and 5 by Alice
+                Double expectedPredictedRating = new Double(
+                        (0.811526 * 4.0 + 0.759257 * 5.0) / (0.811526 + 0.759257));
+                Double actualPredictedRating 
+                        = recRepository.predictRating("http://example.org/movies#Alice", 
+                                "http://example.org/movies#Item5");
+                
+                Assert.assertEquals(expectedPredictedRating, actualPredictedRating, DELTA);
+                
+                //Neighbors of Item2: Item3 and Item4, rated 2 and 3 by User1
+                expectedPredictedRating = new Double(
+                        (0.942020 * 2.0 + 0.847984 * 3.0) / (0.942020 + 0.847984));
+                actualPredictedRating 
+                        = recRepository.predictRating("http://example.org/movies#User1", 
+                                "http://example.org/movies#Item2");
+                
+                Assert.assertEquals(expectedPredictedRating, actualPredictedRating, DELTA);
+        }
+        
         @Test
         public void testTopKRecommendationsBasedOnCfSd() throws RecommenderException {
                 int neighborhoodSize = 2;
@@ -268,4 +467,63 @@ public class CfRecWithRatingsTest {
                 }
                 Assert.assertEquals(expectedTopK.length, actualtopK.length);
         }
-}        
\ No newline at end of file
+
+        //Top-k list of the generic method with URIs: the candidates are the 
+        //resources rated by the neighbors, ranked by predicted rating and, 
+        //for equal ratings, by URI.
+        private static RatedResource[] getExpectedTopRecommendations(DataManager dataManager, 
+                        String userURI, int size, boolean includeConsumedItems) throws RecommenderException {
+                Set<String> candidates = new HashSet<String>();
+                for (RatedResource neighbor: dataManager.getNeighbors(userURI)) {
+                        for (RatedResource rr: dataManager.getRatedResources(neighbor.getResource())) {
+                                candidates.add(rr.getResource());
+                        }
+                }
+                if (!includeConsumedItems) {
+                        for (RatedResource rr: dataManager.getRatedResources(userURI)) {
+                                candidates.remove(rr.getResource());
+                        }
+                }
+                List<RatedResource> predictions = new ArrayList<RatedResource>();
+                for (String candidate: candidates) {
+                        predictions.add(new RatedResource(candidate, getExpectedRating(dataManager, userURI, candidate)));
+                }
+                Collections.sort(predictions, new RatedResourceRatingComparator());
+                RatedResource[] topK = new RatedResource[size];
+                for (int i = 0; i < size && i < predictions.size(); i++) {
+                        topK[i] = predictions.get(i);
+                }
+                return topK;
+        }
+
+        //Prediction of user-based collaborative filtering with ratings, as
+        //computed by CfRecommender for storages which are not index-based.
+        private static double getExpectedRating(DataManager dataManager, String userURI, 
+                        String itemURI) throws RecommenderException {
+                double sumOfNbSim = 0.0;
+                double sumWeightedVotes = 0.0;
+                for (RatedResource neighbor: dataManager.getNeighbors(userURI)) {
+                        double ratAvgOfNeighbor = dataManager.getRatingAverageOfUser(neighbor.getResource());
+                        for (RatedResource nbRr: dataManager.getRatedResources(neighbor.getResource())) {
+                                if (nbRr.getResource().equals(itemURI)) {
+                                        sumOfNbSim += Math.abs(neighbor.getRating());
+                                        sumWeightedVotes += neighbor.getRating() * (nbRr.getRating() - ratAvgOfNeighbor);
+                                }
+                        }
+                }
+                if (sumWeightedVotes == 0.0 || sumOfNbSim == 0.0) return 0.0;
+                return dataManager.getRatingAverageOfUser(userURI) + (sumWeightedVotes / sumOfNbSim);
+        }
+
+        private static void assertSameRecommendations(RatedResource[] expected, RatedResource[] actual) {
+                Assert.assertEquals(expected.length, actual.length);
+                for (int i = 0; i < actual.length; i++) {
+                        if (expected[i] == null) {
+                                Assert.assertNull(actual[i]);
+                                continue;
+                        }
+                        Assert.assertEquals(expected[i].getResource(), actual[i].getResource());
+                        Assert.assertEquals(expected[i].getRating(), actual[i].getRating(), DELTA);
+                }
+        }
+}
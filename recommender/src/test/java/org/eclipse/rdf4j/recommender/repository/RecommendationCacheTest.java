@@ -0,0 +1,150 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.repository;
+
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for RecommendationCache.
+ */
+public class RecommendationCacheTest {
+        /**
+         * Error tolerance.
+         */
+        private static final double DELTA = 1e-9;
+
+        /**
+         * Lists are found by user, size and flag, and are copied.
+         */
+        @Test
+        public void testGetAndPut() {
+                RecommendationCache cache = new RecommendationCache(1 << 20, true);
+                RatedResource[] list = {new RatedResource("http://example.org/Item1", 4.5), null};
+                cache.put(1, 2, false, list, new int[]{1, 2}, cache.getVersion());
+                list[0].setRating(0.0);
+                
+                Assert.assertNull(cache.get(1, 2, true));
+                Assert.assertNull(cache.get(1, 3, false));
+                Assert.assertNull(cache.getIndexed(1, 2, false));
+                RatedResource[] cachedList = cache.get(1, 2, false);
+                Assert.assertEquals(2, cachedList.length);
+                Assert.assertEquals("http://example.org/Item1", cachedList[0].getResource());
+                Assert.assertEquals(4.5, cachedList[0].getRating(), DELTA);
+                Assert.assertNull(cachedList[1]);
+                cachedList[0].setRating(0.0);
+                Assert.assertEquals(4.5, cache.get(1, 2, false)[0].getRating(), DELTA);
+                
+                Assert.assertEquals(2, cache.getHits());
+                Assert.assertEquals(3, cache.getMisses());
+                Assert.assertEquals(0.4, cache.getHitRatio(), DELTA);
+                Assert.assertEquals(1, cache.getNumberOfLists());
+                Assert.assertTrue(cache.getSizeInBytes() > 0);
+        }
+
+        /**
+         * A change of a profile drops the lists computed from it, a change of
+         * the neighborhood of a user drops only the lists of the user.
+         */
+        @Test
+        public void testInvalidationUserBased() {
+                RecommendationCache cache = new RecommendationCache(1 << 20, true);
+                //User 1 with neighbors 2 and 3, user 2 with neighbors 1 and 4.
+                cache.putIndexed(1, 5, false, new IndexedRatedRes[]{new IndexedRatedRes(10, 1.0)}, 
+                        new int[]{1, 2, 3}, cache.getVersion());
+                cache.putIndexed(2, 5, false, new IndexedRatedRes[]{new IndexedRatedRes(11, 1.0)}, 
+                        new int[]{2, 1, 4}, cache.getVersion());
+                cache.putIndexed(2, 5, true, new IndexedRatedRes[]{new IndexedRatedRes(12, 1.0)}, 
+                        new int[]{2, 1, 4}, cache.getVersion());
+                
+                cache.profileChanged(5);
+                Assert.assertEquals(3, cache.getNumberOfLists());
+                cache.profileChanged(4);
+                Assert.assertNotNull(cache.getIndexed(1, 5, false));
+                Assert.assertNull(cache.getIndexed(2, 5, false));
+                Assert.assertNull(cache.getIndexed(2, 5, true));
+                Assert.assertEquals(2, cache.getInvalidations());
+                
+                cache.putIndexed(2, 5, false, new IndexedRatedRes[]{new IndexedRatedRes(11, 1.0)}, 
+                        new int[]{2, 1, 4}, cache.getVersion());
+                //User 1 is a neighbor of user 2, but only its own list depends on
+                //its neighborhood.
+                cache.neighborhoodChanged(1);
+                Assert.assertNull(cache.getIndexed(1, 5, false));
+                Assert.assertNotNull(cache.getIndexed(2, 5, false));
+                cache.profileChanged(1);
+                Assert.assertNull(cache.getIndexed(2, 5, false));
+                Assert.assertEquals(0, cache.getNumberOfLists());
+                Assert.assertEquals(0, cache.getSizeInBytes());
+        }
+
+        /**
+         * For item-based filtering a new neighborhood drops all lists, as a 
+         * reset of the storage does.
+         */
+        @Test
+        public void testInvalidationItemBased() {
+                RecommendationCache cache = new RecommendationCache(1 << 20, false);
+                for (int indexOfUser = 0; indexOfUser < 10; indexOfUser++) {
+                        cache.putIndexed(indexOfUser, 5, false, new IndexedRatedRes[]{new IndexedRatedRes(20, 1.0)}, 
+                                new int[]{indexOfUser}, cache.getVersion());
+                }
+                cache.profileChanged(3);
+                Assert.assertEquals(9, cache.getNumberOfLists());
+                cache.neighborhoodChanged(20);
+                Assert.assertEquals(0, cache.getNumberOfLists());
+                
+                cache.putIndexed(0, 5, false, new IndexedRatedRes[0], new int[]{0}, cache.getVersion());
+                cache.storageReset();
+                Assert.assertEquals(0, cache.getNumberOfLists());
+                Assert.assertEquals(11, cache.getInvalidations());
+        }
+
+        /**
+         * A list computed while the cache was invalidated must not be put.
+         */
+        @Test
+        public void testListComputedDuringInvalidation() {
+                RecommendationCache cache = new RecommendationCache(1 << 20, true);
+                long version = cache.getVersion();
+                cache.profileChanged(7);
+                cache.putIndexed(1, 5, false, new IndexedRatedRes[0], new int[]{1, 2}, version);
+                Assert.assertNull(cache.getIndexed(1, 5, false));
+                cache.putIndexed(1, 5, false, new IndexedRatedRes[0], new int[]{1, 2}, cache.getVersion());
+                Assert.assertNotNull(cache.getIndexed(1, 5, false));
+        }
+
+        /**
+         * The least recently used lists are dropped when the capacity is 
+         * exceeded.
+         */
+        @Test
+        public void testEviction() {
+                long bytesPerList = RecommendationCache.BYTES_PER_ENTRY 
+                        + RecommendationCache.BYTES_PER_DEPENDENCY 
+                        + RecommendationCache.BYTES_PER_RECOMMENDATION;
+                RecommendationCache cache = new RecommendationCache(3 * bytesPerList, true);
+                for (int indexOfUser = 0; indexOfUser < 3; indexOfUser++) {
+                        cache.putIndexed(indexOfUser, 1, false, new IndexedRatedRes[]{new IndexedRatedRes(9, 1.0)}, 
+                                new int[]{indexOfUser}, cache.getVersion());
+                }
+                Assert.assertEquals(3 * bytesPerList, cache.getSizeInBytes());
+                //User 0 is used, user 1 is the least recently used one.
+                Assert.assertNotNull(cache.getIndexed(0, 1, false));
+                cache.putIndexed(3, 1, false, new IndexedRatedRes[]{new IndexedRatedRes(9, 1.0)}, 
+                        new int[]{3}, cache.getVersion());
+                Assert.assertEquals(1, cache.getEvictions());
+                Assert.assertNull(cache.getIndexed(1, 1, false));
+                Assert.assertNotNull(cache.getIndexed(0, 1, false));
+                Assert.assertNotNull(cache.getIndexed(3, 1, false));
+                //The dependencies of the evicted list are dropped too.
+                cache.profileChanged(1);
+                Assert.assertEquals(0, cache.getInvalidations());
+                Assert.assertEquals(3, cache.getNumberOfLists());
+        }
+}
@@ -5,6 +5,17 @@
  */
 package org.eclipse.rdf4j.recommender.repository;
 
+import org.eclipse.rdf4j.recommender.config.CfRecConfig;
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.datamanager.model.RatedResource;
+import org.eclipse.rdf4j.recommender.exception.RecommenderException;
+import org.eclipse.rdf4j.recommender.parameter.RecStorage;
+import org.eclipse.rdf4j.recommender.storage.IndexBasedStorage;
+import org.eclipse.rdf4j.recommender.util.RecommendationScratch;
+import org.eclipse.rdf4j.recommender.util.TestRepositoryInstantiator;
+import org.junit.Assert;
+import org.junit.Test;
+
 /**
  * Test class for SailRecommenderRepository.
  */
@@ -12,4 +23,105 @@ public class SailRecommenderRepositoryTest {
         
         private static final ClassLoader classLoader = Thread.currentThread()
                 .getContextClassLoader();             
+        
+        /**
+         * Error tolerance.
+         */
+        private static final double DELTA = 1e-9;
+        
+        /**
+         * Cached top-k lists have to be the same as the computed ones, also
+         * after the profile of a neighbor has changed.
+         */
+        @Test
+        public void testRecommendationCache() throws RecommenderException {
+                SailRecommenderRepository recRepository = TestRepositoryInstantiator
+                        .createBookUbCfRecAndPreprocess(RecStorage.INVERTED_LISTS, 2, 0);
+                Assert.assertNull(recRepository.getRecommendationCache());
+                String aliceURI = "http://example.org/movies#Alice";
+                RatedResource[] expectedTopK = recRepository.getTopRecommendations(aliceURI, 3, true);
+                
+                CfRecConfig config = (CfRecConfig)recRepository.getCurrentLoadedConfig();
+                config.setRecommendationCacheSize(1 << 20);
+                recRepository.loadRecConfiguration(config);
+                RecommendationCache cache = recRepository.getRecommendationCache();
+                Assert.assertNotNull(cache);
+                Assert.assertEquals(0, cache.getNumberOfLists());
+                //Not notified while the model was built.
+                Assert.assertEquals(0, cache.getVersion());
+                
+                for (int i = 0; i < 3; i++) {
+                        assertSameRecommendations(expectedTopK, 
+                                recRepository.getTopRecommendations(aliceURI, 3, true));
+                }
+                Assert.assertEquals(1, cache.getMisses());
+                Assert.assertEquals(2, cache.getHits());
+                int indexOfAlice = recRepository.getIndexOf(aliceURI);
+                IndexedRatedRes[] topK = recRepository.getTopRecommendations(indexOfAlice, 3, true);
+                Assert.assertEquals(expectedTopK[0].getResource(), recRepository.getURI(topK[0].getResourceId()));
+                Assert.assertEquals(2, cache.getNumberOfLists());
+                
+                //A new rating of a neighbor of Alice (User1, see CfRecWithRatingsTest)
+                //changes her predictions.
+                IndexBasedStorage storage = (IndexBasedStorage)recRepository.getRecommender()
+                        .getDataManager().getStorage();
+                int indexOfUser3 = recRepository.getIndexOf("http://example.org/movies#User3");
+                storage.addIndexedRatedRes(indexOfUser3, new IndexedRatedRes(
+                        recRepository.getIndexOf("http://example.org/movies#Item1"), 1.0));
+                Assert.assertEquals(2, cache.getNumberOfLists());
+                int indexOfUser1 = recRepository.getIndexOf("http://example.org/movies#User1");
+                storage.addIndexedRatedRes(indexOfUser1, new IndexedRatedRes(
+                        recRepository.getIndexOf("http://example.org/movies#Item1"), 1.0));
+                Assert.assertEquals(0, cache.getNumberOfLists());
+                Assert.assertEquals(2, cache.getInvalidations());
+                
+                RatedResource[] actualTopK = recRepository.getTopRecommendations(aliceURI, 3, true);
+                recRepository.loadRecConfiguration(config);
+                Assert.assertEquals(0, recRepository.getRecommendationCache().getNumberOfLists());
+                storage = (IndexBasedStorage)recRepository.getRecommender().getDataManager().getStorage();
+                storage.addIndexedRatedRes(indexOfUser1, new IndexedRatedRes(
+                        recRepository.getIndexOf("http://example.org/movies#Item1"), 1.0));
+                assertSameRecommendations(recRepository.getRecommender()
+                        .getTopRecommendations(aliceURI, 3, true), actualTopK);
+        }
+        
+        /**
+         * Top-k lists computed with a scratch reused for all users have to 
+         * be the same as those computed with new buffers.
+         */
+        @Test
+        public void testTopRecommendationsWithScratch() throws RecommenderException {
+                SailRecommenderRepository recRepository = TestRepositoryInstantiator
+                        .createBookUbCfRecAndPreprocess(RecStorage.INVERTED_LISTS, 2, 0);
+                RecommendationScratch scratch = new RecommendationScratch(1);
+                for (int round = 0; round < 2; round++) {
+                        for (int indexOfUser: recRepository.getUserIndexes()) {
+                                for (boolean includeConsumedItems: new boolean[]{false, true}) {
+                                        IndexedRatedRes[] expected = recRepository.getTopRecommendations(
+                                                indexOfUser, 4, includeConsumedItems);
+                                        IndexedRatedRes[] actual = recRepository.getTopRecommendations(
+                                                indexOfUser, 4, includeConsumedItems, scratch);
+                                        Assert.assertEquals(expected.length, actual.length);
+                                        for (int i = 0; i < actual.length; i++) {
+                                                if (expected[i] == null) {
+                                                        Assert.assertNull(actual[i]);
+                                                        continue;
+                                                }
+                                                Assert.assertEquals(expected[i].getResourceId(), actual[i].getResourceId());
+                                                Assert.assertEquals(expected[i].getRating(), actual[i].getRating(), DELTA);
+                                        }
+                                }
+                        }
+                }
+                Assert.assertEquals(0, scratch.getVotes().getNumberOfTouched());
+                Assert.assertEquals(0, scratch.getCandidates().getNumberOfMarked());
+        }
+        
+        private static void assertSameRecommendations(RatedResource[] expected, RatedResource[] actual) {
+                Assert.assertEquals(expected.length, actual.length);
+                for (int i = 0; i < actual.length; i++) {
+                        Assert.assertEquals(expected[i].getResource(), actual[i].getResource());
+                        Assert.assertEquals(expected[i].getRating(), actual[i].getRating(), DELTA);
+                }
+        }
 }
@@ -147,11 +147,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 InvertedList[] durAlice = storage.getInvertedListsOfUser(indexOfAlice);
                 Assert.assertEquals(new Integer(4), new Integer(durAlice.length));
                 
-                //This could be given in any order.
-                InvertedList actualAliceItem1_5 = durAlice[3];
-                InvertedList actualAliceItem2_3 = durAlice[1];
-                InvertedList actualAliceItem3_4 = durAlice[2];
-                InvertedList actualAliceItem4_4 = durAlice[0];                
+                //The lists of a user could be given in any order.
                                 
                 InvertedList expectedAliceItem1_5 = new InvertedList();
                 expectedAliceItem1_5.insert(new IndexedUserRating(indexOfAlice, 25));
@@ -160,7 +156,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedAliceItem1_5.insert(new IndexedUserRating(indexOfUser3, 15));
                 expectedAliceItem1_5.insert(new IndexedUserRating(indexOfUser4, 5));
                 expectedAliceItem1_5.compactAndSortArray();
-                Assert.assertEquals(expectedAliceItem1_5, actualAliceItem1_5);
+                assertContainsList(durAlice, expectedAliceItem1_5);
                 
                 
                 InvertedList expectedAliceItem2_3 = new InvertedList();
@@ -169,7 +165,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedAliceItem2_3.insert(new IndexedUserRating(indexOfUser2, 9));
                 expectedAliceItem2_3.insert(new IndexedUserRating(indexOfUser3, 9));
                 expectedAliceItem2_3.insert(new IndexedUserRating(indexOfUser4, 15));                                      
-                Assert.assertEquals(expectedAliceItem2_3, actualAliceItem2_3);
+                assertContainsList(durAlice, expectedAliceItem2_3);
                 
                 InvertedList expectedAliceItem3_4 = new InvertedList();
                 expectedAliceItem3_4.insert(new IndexedUserRating(indexOfAlice, 16));
@@ -177,7 +173,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedAliceItem3_4.insert(new IndexedUserRating(indexOfUser2, 16));
                 expectedAliceItem3_4.insert(new IndexedUserRating(indexOfUser3, 4));
                 expectedAliceItem3_4.insert(new IndexedUserRating(indexOfUser4, 20));                                      
-                Assert.assertEquals(expectedAliceItem3_4, actualAliceItem3_4);
+                assertContainsList(durAlice, expectedAliceItem3_4);
                 
                 InvertedList expectedAliceItem4_4 = new InvertedList();
                 expectedAliceItem4_4.insert(new IndexedUserRating(indexOfAlice, 16));
@@ -185,19 +181,14 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedAliceItem4_4.insert(new IndexedUserRating(indexOfUser2, 12));
                 expectedAliceItem4_4.insert(new IndexedUserRating(indexOfUser3, 20));
                 expectedAliceItem4_4.insert(new IndexedUserRating(indexOfUser4, 8));                                      
-                Assert.assertEquals(expectedAliceItem4_4, actualAliceItem4_4);
+                assertContainsList(durAlice, expectedAliceItem4_4);
                 
                 //-----------USER 1------------- 
                 InvertedList[] durUser1 = storage.getInvertedListsOfUser(indexOfUser1);
                 Assert.assertEquals(new Integer(5), new Integer(durUser1.length));
                 
                 //(Item2,3),(Item1,3) will be merged.
-                //This could be given in any order.
-                InvertedList actualUser1Item1_3 = durUser1[3];
-                InvertedList actualUser1Item2_1 = durUser1[0];
-                InvertedList actualUser1Item3_2 = durUser1[1];
-                InvertedList actualUser1Item4_3 = durUser1[2];
-                InvertedList actualUser1Item5_3 = durUser1[4];
+                //The lists of a user could be given in any order.
                                 
                 InvertedList expectedUser1Item1_3 = new InvertedList();
                 expectedUser1Item1_3.insert(new IndexedUserRating(indexOfAlice, 15));
@@ -206,7 +197,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item1_3.insert(new IndexedUserRating(indexOfUser3, 9));
                 expectedUser1Item1_3.insert(new IndexedUserRating(indexOfUser4, 3));
                 expectedUser1Item1_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item1_3, actualUser1Item1_3);
+                assertContainsList(durUser1, expectedUser1Item1_3);
                 
                 InvertedList expectedUser1Item2_1 = new InvertedList();
                 expectedUser1Item2_1.insert(new IndexedUserRating(indexOfAlice, 3));
@@ -215,7 +206,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item2_1.insert(new IndexedUserRating(indexOfUser3, 3));
                 expectedUser1Item2_1.insert(new IndexedUserRating(indexOfUser4, 5));
                 expectedUser1Item2_1.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item2_1, actualUser1Item2_1);
+                assertContainsList(durUser1, expectedUser1Item2_1);
                 
                 InvertedList expectedUser1Item3_2 = new InvertedList();
                 expectedUser1Item3_2.insert(new IndexedUserRating(indexOfAlice, 8));
@@ -224,7 +215,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item3_2.insert(new IndexedUserRating(indexOfUser3, 2));
                 expectedUser1Item3_2.insert(new IndexedUserRating(indexOfUser4, 10));
                 expectedUser1Item3_2.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item3_2, actualUser1Item3_2);
+                assertContainsList(durUser1, expectedUser1Item3_2);
                 
                 InvertedList expectedUser1Item4_3 = new InvertedList();
                 expectedUser1Item4_3.insert(new IndexedUserRating(indexOfAlice, 12));
@@ -233,7 +224,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item4_3.insert(new IndexedUserRating(indexOfUser3, 15));
                 expectedUser1Item4_3.insert(new IndexedUserRating(indexOfUser4, 6));
                 expectedUser1Item4_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item4_3, actualUser1Item4_3);
+                assertContainsList(durUser1, expectedUser1Item4_3);
                 
                 InvertedList expectedUser1Item5_3 = new InvertedList();
                 expectedUser1Item5_3.insert(new IndexedUserRating(indexOfUser1, 9));
@@ -241,18 +232,13 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item5_3.insert(new IndexedUserRating(indexOfUser3, 12));
                 expectedUser1Item5_3.insert(new IndexedUserRating(indexOfUser4, 3));
                 expectedUser1Item5_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item5_3, actualUser1Item5_3);                
+                assertContainsList(durUser1, expectedUser1Item5_3);                
                 
                 //-----------USER 3-------------                 
                 InvertedList[] durUser3 = storage.getInvertedListsOfUser(indexOfUser3);
                 Assert.assertEquals(new Integer(5), new Integer(durUser3.length));
                 
-                //This could be given in any order.
-                InvertedList actualUser3Item1_3 = durUser3[2];
-                InvertedList actualUser3Item2_3 = durUser3[0];
-                InvertedList actualUser3Item3_1 = durUser3[3];
-                InvertedList actualUser3Item4_5 = durUser3[1];
-                InvertedList actualUser3Item5_4 = durUser3[4];
+                //The lists of a user could be given in any order.
                 
                 InvertedList expectedUser3Item1_3 = new InvertedList();
                 expectedUser3Item1_3.insert(new IndexedUserRating(indexOfAlice, 15));
@@ -261,7 +247,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item1_3.insert(new IndexedUserRating(indexOfUser3, 9));
                 expectedUser3Item1_3.insert(new IndexedUserRating(indexOfUser4, 3));
                 expectedUser3Item1_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item1_3, actualUser3Item1_3);
+                assertContainsList(durUser3, expectedUser3Item1_3);
                 
                 InvertedList expectedUser3Item2_3 = new InvertedList();
                 expectedUser3Item2_3.insert(new IndexedUserRating(indexOfAlice, 9));
@@ -270,7 +256,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item2_3.insert(new IndexedUserRating(indexOfUser3, 9));
                 expectedUser3Item2_3.insert(new IndexedUserRating(indexOfUser4, 15));
                 expectedUser3Item2_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item2_3, actualUser3Item2_3);
+                assertContainsList(durUser3, expectedUser3Item2_3);
                 
                 InvertedList expectedUser3Item3_1 = new InvertedList();
                 expectedUser3Item3_1.insert(new IndexedUserRating(indexOfAlice, 4));
@@ -279,7 +265,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item3_1.insert(new IndexedUserRating(indexOfUser3, 1));
                 expectedUser3Item3_1.insert(new IndexedUserRating(indexOfUser4, 5));
                 expectedUser3Item3_1.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item3_1, actualUser3Item3_1);
+                assertContainsList(durUser3, expectedUser3Item3_1);
                 
                 InvertedList expectedUser3Item4_5 = new InvertedList();
                 expectedUser3Item4_5.insert(new IndexedUserRating(indexOfAlice, 20));
@@ -288,7 +274,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item4_5.insert(new IndexedUserRating(indexOfUser3, 25));
                 expectedUser3Item4_5.insert(new IndexedUserRating(indexOfUser4, 10));
                 expectedUser3Item4_5.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item4_5, actualUser3Item4_5);
+                assertContainsList(durUser3, expectedUser3Item4_5);
                 
                 InvertedList expectedUser3Item5_4 = new InvertedList();
                 expectedUser3Item5_4.insert(new IndexedUserRating(indexOfUser1, 12));
@@ -296,19 +282,14 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item5_4.insert(new IndexedUserRating(indexOfUser3, 16));
                 expectedUser3Item5_4.insert(new IndexedUserRating(indexOfUser4, 4));
                 expectedUser3Item5_4.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item5_4, actualUser3Item5_4);                                
+                assertContainsList(durUser3, expectedUser3Item5_4);                                
                 
                 //-----------USER 4------------- 
                 InvertedList[] durUser4 = storage.getInvertedListsOfUser(indexOfUser4);
                 Assert.assertEquals(new Integer(5), new Integer(durUser4.length));
                 
                 //(Item2,3),(Item1,3) will be merged.
-                //This could be given in any order.
-                InvertedList actualUser4Item1_1 = durUser4[0];
-                InvertedList actualUser4Item2_5 = durUser4[2];
-                InvertedList actualUser4Item3_5 = durUser4[1];
-                InvertedList actualUser4Item4_2 = durUser4[4];
-                InvertedList actualUser4Item5_1 = durUser4[3];
+                //The lists of a user could be given in any order.
                                 
                 InvertedList expectedUser4Item1_1 = new InvertedList();
                 expectedUser4Item1_1.insert(new IndexedUserRating(indexOfAlice, 5));
@@ -317,7 +298,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item1_1.insert(new IndexedUserRating(indexOfUser3, 3));
                 expectedUser4Item1_1.insert(new IndexedUserRating(indexOfUser4, 1));
                 expectedUser4Item1_1.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item1_1, actualUser4Item1_1);
+                assertContainsList(durUser4, expectedUser4Item1_1);
                 
                 InvertedList expectedUser4Item2_5 = new InvertedList();
                 expectedUser4Item2_5.insert(new IndexedUserRating(indexOfAlice, 15));
@@ -326,7 +307,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item2_5.insert(new IndexedUserRating(indexOfUser3, 15));
                 expectedUser4Item2_5.insert(new IndexedUserRating(indexOfUser4, 25));
                 expectedUser4Item2_5.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item2_5, actualUser4Item2_5);
+                assertContainsList(durUser4, expectedUser4Item2_5);
                 
                 InvertedList expectedUser4Item3_5 = new InvertedList();
                 expectedUser4Item3_5.insert(new IndexedUserRating(indexOfAlice, 20));
@@ -335,7 +316,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item3_5.insert(new IndexedUserRating(indexOfUser3, 5));
                 expectedUser4Item3_5.insert(new IndexedUserRating(indexOfUser4, 25));
                 expectedUser4Item3_5.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item3_5, actualUser4Item3_5);
+                assertContainsList(durUser4, expectedUser4Item3_5);
                 
                 InvertedList expectedUser4Item4_2 = new InvertedList();
                 expectedUser4Item4_2.insert(new IndexedUserRating(indexOfAlice, 8));
@@ -344,7 +325,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item4_2.insert(new IndexedUserRating(indexOfUser3, 10));
                 expectedUser4Item4_2.insert(new IndexedUserRating(indexOfUser4, 4));
                 expectedUser4Item4_2.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item4_2, actualUser4Item4_2);
+                assertContainsList(durUser4, expectedUser4Item4_2);
                 
                 InvertedList expectedUser4Item5_1 = new InvertedList();
                 expectedUser4Item5_1.insert(new IndexedUserRating(indexOfUser1, 3));
@@ -352,7 +333,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item5_1.insert(new IndexedUserRating(indexOfUser3, 4));
                 expectedUser4Item5_1.insert(new IndexedUserRating(indexOfUser4, 1));
                 expectedUser4Item5_1.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item5_1, actualUser4Item5_1);
+                assertContainsList(durUser4, expectedUser4Item5_1);
         }
         
         /**
@@ -393,10 +374,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 Assert.assertEquals(new Integer(3), new Integer(durAlice.length));
                 
                 //(Item2,3),(Item3,4) will be merged.
-                //This could be given in any order.
-                InvertedList actualAliceItem1_5 = durAlice[1];
-                InvertedList actualAliceItem2_3_Item3_4 = durAlice[2];
-                InvertedList actualAliceItem4_4 = durAlice[0];                
+                //The lists of a user could be given in any order.
                                 
                 InvertedList expectedAliceItem1_5 = new InvertedList();
                 expectedAliceItem1_5.insert(new IndexedUserRating(indexOfAlice, 25));
@@ -405,7 +383,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedAliceItem1_5.insert(new IndexedUserRating(indexOfUser3, 15));
                 expectedAliceItem1_5.insert(new IndexedUserRating(indexOfUser4, 5));
                 expectedAliceItem1_5.compactAndSortArray();
-                Assert.assertEquals(expectedAliceItem1_5, actualAliceItem1_5);                
+                assertContainsList(durAlice, expectedAliceItem1_5);                
                 
                 InvertedList expectedAliceItem2_3_Item3_4 = new InvertedList();
                 expectedAliceItem2_3_Item3_4.insert(new IndexedUserRating(indexOfAlice, 9 + 16));
@@ -413,7 +391,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedAliceItem2_3_Item3_4.insert(new IndexedUserRating(indexOfUser2, 9 + 16));
                 expectedAliceItem2_3_Item3_4.insert(new IndexedUserRating(indexOfUser3, 9 + 4));
                 expectedAliceItem2_3_Item3_4.insert(new IndexedUserRating(indexOfUser4, 15 + 20));                                      
-                Assert.assertEquals(expectedAliceItem2_3_Item3_4, actualAliceItem2_3_Item3_4);
+                assertContainsList(durAlice, expectedAliceItem2_3_Item3_4);
                 
                 InvertedList expectedAliceItem4_4 = new InvertedList();
                 expectedAliceItem4_4.insert(new IndexedUserRating(indexOfAlice, 16));
@@ -421,18 +399,14 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedAliceItem4_4.insert(new IndexedUserRating(indexOfUser2, 12));
                 expectedAliceItem4_4.insert(new IndexedUserRating(indexOfUser3, 20));
                 expectedAliceItem4_4.insert(new IndexedUserRating(indexOfUser4, 8));                                      
-                Assert.assertEquals(expectedAliceItem4_4, actualAliceItem4_4);                                                                                          
+                assertContainsList(durAlice, expectedAliceItem4_4);                                                                                          
                 
                 //-----------USER 3-------------                 
                 InvertedList[] durUser3 = storage.getInvertedListsOfUser(indexOfUser3);
                 Assert.assertEquals(new Integer(4), new Integer(durUser3.length));
                 
                 //(Item2,3),(Item1,3) will be merged.
-                //This could be given in any order.
-                InvertedList actualUser3Item3_1 = durUser3[2];
-                InvertedList actualUser3Item4_5 = durUser3[0];
-                InvertedList actualUser3Item5_4 = durUser3[3];
-                InvertedList actualUser3Item1_3_Item2_3 = durUser3[1];
+                //The lists of a user could be given in any order.
                 
                 
                 InvertedList expectedUser3Item3_1 = new InvertedList();
@@ -442,7 +416,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item3_1.insert(new IndexedUserRating(indexOfUser3, 1));
                 expectedUser3Item3_1.insert(new IndexedUserRating(indexOfUser4, 5));
                 expectedUser3Item3_1.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item3_1, actualUser3Item3_1);
+                assertContainsList(durUser3, expectedUser3Item3_1);
                 
                 InvertedList expectedUser3Item4_5 = new InvertedList();
                 expectedUser3Item4_5.insert(new IndexedUserRating(indexOfAlice, 20));
@@ -451,7 +425,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item4_5.insert(new IndexedUserRating(indexOfUser3, 25));
                 expectedUser3Item4_5.insert(new IndexedUserRating(indexOfUser4, 10));
                 expectedUser3Item4_5.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item4_5, actualUser3Item4_5);  
+                assertContainsList(durUser3, expectedUser3Item4_5);  
                 
                 InvertedList expectedUser3Item5_4 = new InvertedList();
                 expectedUser3Item5_4.insert(new IndexedUserRating(indexOfUser1, 12));
@@ -459,7 +433,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item5_4.insert(new IndexedUserRating(indexOfUser3, 16));
                 expectedUser3Item5_4.insert(new IndexedUserRating(indexOfUser4, 4));
                 expectedUser3Item5_4.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item5_4, actualUser3Item5_4);
+                assertContainsList(durUser3, expectedUser3Item5_4);
                 
                 InvertedList expectedUser3Item1_3_Item2_3 = new InvertedList();
                 expectedUser3Item1_3_Item2_3.insert(new IndexedUserRating(indexOfAlice, 15 + 9));
@@ -468,7 +442,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser3Item1_3_Item2_3.insert(new IndexedUserRating(indexOfUser3, 9 + 9));
                 expectedUser3Item1_3_Item2_3.insert(new IndexedUserRating(indexOfUser4, 3 + 15));
                 expectedUser3Item1_3_Item2_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser3Item1_3_Item2_3, actualUser3Item1_3_Item2_3);
+                assertContainsList(durUser3, expectedUser3Item1_3_Item2_3);
                 
                 //Two User for which there are no changes:
                 //-----------USER 1------------- 
@@ -476,12 +450,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 Assert.assertEquals(new Integer(5), new Integer(durUser1.length));
                 
                 //(Item2,3),(Item1,3) will be merged.
-                //This could be given in any order.
-                InvertedList actualUser1Item1_3 = durUser1[3];
-                InvertedList actualUser1Item2_1 = durUser1[0];
-                InvertedList actualUser1Item3_2 = durUser1[1];
-                InvertedList actualUser1Item4_3 = durUser1[2];
-                InvertedList actualUser1Item5_3 = durUser1[4];
+                //The lists of a user could be given in any order.
                                 
                 InvertedList expectedUser1Item1_3 = new InvertedList();
                 expectedUser1Item1_3.insert(new IndexedUserRating(indexOfAlice, 15));
@@ -490,7 +459,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item1_3.insert(new IndexedUserRating(indexOfUser3, 9));
                 expectedUser1Item1_3.insert(new IndexedUserRating(indexOfUser4, 3));
                 expectedUser1Item1_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item1_3, actualUser1Item1_3);
+                assertContainsList(durUser1, expectedUser1Item1_3);
                 
                 InvertedList expectedUser1Item2_1 = new InvertedList();
                 expectedUser1Item2_1.insert(new IndexedUserRating(indexOfAlice, 3));
@@ -499,7 +468,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item2_1.insert(new IndexedUserRating(indexOfUser3, 3));
                 expectedUser1Item2_1.insert(new IndexedUserRating(indexOfUser4, 5));
                 expectedUser1Item2_1.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item2_1, actualUser1Item2_1);
+                assertContainsList(durUser1, expectedUser1Item2_1);
                 
                 InvertedList expectedUser1Item3_2 = new InvertedList();
                 expectedUser1Item3_2.insert(new IndexedUserRating(indexOfAlice, 8));
@@ -508,7 +477,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item3_2.insert(new IndexedUserRating(indexOfUser3, 2));
                 expectedUser1Item3_2.insert(new IndexedUserRating(indexOfUser4, 10));
                 expectedUser1Item3_2.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item3_2, actualUser1Item3_2);
+                assertContainsList(durUser1, expectedUser1Item3_2);
                 
                 InvertedList expectedUser1Item4_3 = new InvertedList();
                 expectedUser1Item4_3.insert(new IndexedUserRating(indexOfAlice, 12));
@@ -517,7 +486,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item4_3.insert(new IndexedUserRating(indexOfUser3, 15));
                 expectedUser1Item4_3.insert(new IndexedUserRating(indexOfUser4, 6));
                 expectedUser1Item4_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item4_3, actualUser1Item4_3);
+                assertContainsList(durUser1, expectedUser1Item4_3);
                 
                 InvertedList expectedUser1Item5_3 = new InvertedList();
                 expectedUser1Item5_3.insert(new IndexedUserRating(indexOfUser1, 9));
@@ -525,19 +494,14 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser1Item5_3.insert(new IndexedUserRating(indexOfUser3, 12));
                 expectedUser1Item5_3.insert(new IndexedUserRating(indexOfUser4, 3));
                 expectedUser1Item5_3.compactAndSortArray();
-                Assert.assertEquals(expectedUser1Item5_3, actualUser1Item5_3);
+                assertContainsList(durUser1, expectedUser1Item5_3);
                 
                 //-----------USER 4------------- 
                 InvertedList[] durUser4 = storage.getInvertedListsOfUser(indexOfUser4);
                 Assert.assertEquals(new Integer(5), new Integer(durUser4.length));
                 
                 //(Item2,3),(Item1,3) will be merged.
-                //This could be given in any order.
-                InvertedList actualUser4Item1_1 = durUser4[0];
-                InvertedList actualUser4Item2_5 = durUser4[2];
-                InvertedList actualUser4Item3_5 = durUser4[1];
-                InvertedList actualUser4Item4_2 = durUser4[4];
-                InvertedList actualUser4Item5_1 = durUser4[3];
+                //The lists of a user could be given in any order.
                                 
                 InvertedList expectedUser4Item1_1 = new InvertedList();
                 expectedUser4Item1_1.insert(new IndexedUserRating(indexOfAlice, 5));
@@ -546,7 +510,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item1_1.insert(new IndexedUserRating(indexOfUser3, 3));
                 expectedUser4Item1_1.insert(new IndexedUserRating(indexOfUser4, 1));
                 expectedUser4Item1_1.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item1_1, actualUser4Item1_1);
+                assertContainsList(durUser4, expectedUser4Item1_1);
                 
                 InvertedList expectedUser4Item2_5 = new InvertedList();
                 expectedUser4Item2_5.insert(new IndexedUserRating(indexOfAlice, 15));
@@ -555,7 +519,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item2_5.insert(new IndexedUserRating(indexOfUser3, 15));
                 expectedUser4Item2_5.insert(new IndexedUserRating(indexOfUser4, 25));
                 expectedUser4Item2_5.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item2_5, actualUser4Item2_5);
+                assertContainsList(durUser4, expectedUser4Item2_5);
                 
                 InvertedList expectedUser4Item3_5 = new InvertedList();
                 expectedUser4Item3_5.insert(new IndexedUserRating(indexOfAlice, 20));
@@ -564,7 +528,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item3_5.insert(new IndexedUserRating(indexOfUser3, 5));
                 expectedUser4Item3_5.insert(new IndexedUserRating(indexOfUser4, 25));
                 expectedUser4Item3_5.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item3_5, actualUser4Item3_5);
+                assertContainsList(durUser4, expectedUser4Item3_5);
                 
                 InvertedList expectedUser4Item4_2 = new InvertedList();
                 expectedUser4Item4_2.insert(new IndexedUserRating(indexOfAlice, 8));
@@ -573,7 +537,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item4_2.insert(new IndexedUserRating(indexOfUser3, 10));
                 expectedUser4Item4_2.insert(new IndexedUserRating(indexOfUser4, 4));
                 expectedUser4Item4_2.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item4_2, actualUser4Item4_2);
+                assertContainsList(durUser4, expectedUser4Item4_2);
                 
                 InvertedList expectedUser4Item5_1 = new InvertedList();
                 expectedUser4Item5_1.insert(new IndexedUserRating(indexOfUser1, 3));
@@ -581,7 +545,7 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 expectedUser4Item5_1.insert(new IndexedUserRating(indexOfUser3, 4));
                 expectedUser4Item5_1.insert(new IndexedUserRating(indexOfUser4, 1));
                 expectedUser4Item5_1.compactAndSortArray();
-                Assert.assertEquals(expectedUser4Item5_1, actualUser4Item5_1);
+                assertContainsList(durUser4, expectedUser4Item5_1);
         }
 
         
@@ -621,4 +585,14 @@ public class CfScaledInvListBasedStorageWithRatingsTest {
                 Assert.assertEquals(normalizationForUser3, storage.getL2NormOfUser(indexOfUser3), DELTA);
                 Assert.assertEquals(normalizationForUser4, storage.getL2NormOfUser(indexOfUser4), DELTA);
         }
+        
+        //Checks that one of the lists of a user is equal to the expected list.
+        private static void assertContainsList(InvertedList[] lists, InvertedList expected) {
+                for (InvertedList list: lists) {
+                        if (expected.equals(list)) {
+                                return;
+                        }
+                }
+                Assert.fail("Expected list not found: " + expected);
+        }
 }
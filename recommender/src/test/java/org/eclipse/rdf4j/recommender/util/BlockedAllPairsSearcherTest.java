@@ -0,0 +1,66 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Random;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for BlockedAllPairsSearcher.
+ */
+public class BlockedAllPairsSearcherTest {
+
+        /**
+         * For any block size the neighborhoods have to be the ones of the
+         * merge of the inverted lists of each user. Ratings are integers, so
+         * the scores are the same whatever the order of the additions.
+         */
+        @Test
+        public void testComputeNeighborhoods() {
+                Random random = new Random(41);
+                int numberOfUsers = 250;
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                for (int i = 0; i < 2500; i++) {
+                        //Ids with gaps, some users without profile.
+                        profiles.add(2 * random.nextInt(numberOfUsers), random.nextInt(50), 1 + random.nextInt(5));
+                }
+                profiles.compact();
+                NeighborhoodFixture fixture = new NeighborhoodFixture(profiles, 2 * numberOfUsers);
+                double[] usersL2Norms = fixture.getUsersL2Norms();
+
+                for (int blockSize: new int[] {1, 7, 64, 10000}) {
+                        BlockedAllPairsSearcher searcher = new BlockedAllPairsSearcher(blockSize);
+                        TopKHeap[] neighborhoods = searcher.computeNeighborhoods(profiles, usersL2Norms, 10);
+                        TopKHeap expected = new TopKHeap(10);
+                        long numberOfPairs = 0;
+                        for (int userId = 0; userId < neighborhoods.length; userId++) {
+                                if (!profiles.hasProfile(userId)) {
+                                        Assert.assertNull(neighborhoods[userId]);
+                                        continue;
+                                }
+                                PostingList[] lists = fixture.getLists(userId);
+                                //Pairs counted from the user with the lower id.
+                                InvertedList merged = ListOperations.mergeLists(lists);
+                                int previous = -1;
+                                for (int i = 0; i < merged.size(); i++) {
+                                        int otherUserId = merged.getUserIds()[i];
+                                        if (otherUserId > userId && otherUserId != previous) {
+                                                numberOfPairs++;
+                                        }
+                                        previous = otherUserId;
+                                }
+                                ListOperations.computeNeighborhood(userId, fixture.getRatings(userId), 
+                                        usersL2Norms, lists, expected);
+                                NeighborhoodFixture.assertSameHeaps(expected, neighborhoods[userId]);
+                        }
+                        Assert.assertEquals(numberOfPairs, searcher.getNumberOfPairs());
+                }
+        }
+}
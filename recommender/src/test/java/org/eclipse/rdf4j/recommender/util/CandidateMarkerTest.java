@@ -0,0 +1,52 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for CandidateMarker.
+ */
+public class CandidateMarkerTest {
+
+        /**
+         * Items are marked once and returned in ascending order, also those
+         * beyond the initial size.
+         */
+        @Test
+        public void testMark() {
+                CandidateMarker marker = new CandidateMarker(4);
+                Assert.assertTrue(marker.mark(3));
+                Assert.assertTrue(marker.mark(0));
+                Assert.assertFalse(marker.mark(3));
+                Assert.assertTrue(marker.mark(10));
+                
+                Assert.assertEquals(3, marker.getNumberOfMarked());
+                Assert.assertTrue(marker.isMarked(0));
+                Assert.assertFalse(marker.isMarked(1));
+                Assert.assertTrue(marker.isMarked(10));
+                Assert.assertFalse(marker.isMarked(100));
+                Assert.assertArrayEquals(new int[]{0, 3, 10}, marker.toSortedArray());
+        }
+
+        /**
+         * After a reset no item is marked and the marker can be reused.
+         */
+        @Test
+        public void testReset() {
+                CandidateMarker marker = new CandidateMarker(0);
+                marker.mark(5);
+                marker.mark(2);
+                marker.reset();
+                Assert.assertEquals(0, marker.getNumberOfMarked());
+                Assert.assertFalse(marker.isMarked(5));
+                Assert.assertEquals(0, marker.toSortedArray().length);
+                
+                Assert.assertTrue(marker.mark(5));
+                Assert.assertArrayEquals(new int[]{5}, marker.toSortedArray());
+        }
+}
@@ -10,11 +10,17 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
+import org.eclipse.rdf4j.recommender.datamanager.model.BitmapPostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.CompressedInvertedList;
 import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedListBuilder;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
 import org.eclipse.rdf4j.recommender.datamanager.model.IndexedUserRating;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
 
 /**
  * Test class for ListOperations.
@@ -380,4 +386,255 @@ public class ListOperationsTest {
                 Assert.assertEquals(neighbor2, neighborhoodArray[1]);
                 Assert.assertEquals(neighbor1, neighborhoodArray[2]);                
         }
+        
+        /**
+         * Test of ListOperations.computeBitmapNeighborhood(...). With likes it
+         * has to give the same neighborhood as computeNeighborhood(...).
+         */
+        @Test
+        public void testComputeBitmapNeighborhood() {
+                Comparator<IndexedRatedRes> ratedResRatingComparator = new IndexedRatedResRatingComparator();
+                Random random = new Random(19);
+                int numberOfUsers = 300;
+                int numberOfItems = 40;
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                for (int i = 0; i < 3000; i++) {
+                        profiles.add(random.nextInt(numberOfUsers), random.nextInt(numberOfItems), 1.0);
+                }
+                profiles.compact();
+                Map<Integer, InvertedList> invLists = InvertedListBuilder.build(profiles);
+                double[] usersL2Norms = new double[numberOfUsers];
+                for (int userId: profiles.getUserIds()) {
+                        usersL2Norms[userId] = Math.sqrt(profiles.size(userId));
+                }
+                int[] counters = new int[numberOfUsers];
+                
+                for (int userId: profiles.getUserIds()) {
+                        int start = profiles.getStart(userId);
+                        int numberOfLists = profiles.getEnd(userId) - start;
+                        PostingList[] lists = new PostingList[numberOfLists];
+                        BitmapPostingList[] bitmaps = new BitmapPostingList[numberOfLists];
+                        double[] userRatings = new double[numberOfLists];
+                        for (int i = 0; i < numberOfLists; i++) {
+                                InvertedList list = invLists.get(profiles.getItemIds()[start + i]);
+                                lists[i] = list;
+                                bitmaps[i] = BitmapPostingList.fromList(list, 1.0);
+                                userRatings[i] = 1.0;
+                        }
+                        IndexedRatedRes[] expected = toSortedArray(ListOperations.computeNeighborhood(
+                                userId, userRatings, usersL2Norms, lists, 10, 4), ratedResRatingComparator);
+                        IndexedRatedRes[] actual = toSortedArray(ListOperations.computeBitmapNeighborhood(
+                                userId, usersL2Norms, bitmaps, counters, 10, 4), ratedResRatingComparator);
+                        Assert.assertEquals(expected.length, actual.length);
+                        for (int i = 0; i < expected.length; i++) {
+                                Assert.assertEquals(expected[i].getResourceId(), actual[i].getResourceId());
+                                Assert.assertEquals(expected[i].getRating(), actual[i].getRating(), DELTA);
+                        }
+                }
+                //Counters are left clean.
+                for (int counter: counters) {
+                        Assert.assertEquals(0, counter);
+                }
+        }
+        
+        /**
+         * Test of ListOperations.computeAccumulatedNeighborhood(...). It has
+         * to give exactly the neighborhoods of computeNeighborhood(...) and
+         * computeSilNeighborhood(...), also with compressed lists and with a
+         * single accumulator reused for all users.
+         */
+        @Test
+        public void testComputeAccumulatedNeighborhood() {
+                int numberOfUsers = 300;
+                NeighborhoodFixture fixture = NeighborhoodFixture.createRandom(new Random(23), numberOfUsers, 40, 3000);
+                double[] usersL2Norms = fixture.getUsersL2Norms();
+                //Smaller than the number of users, so it has to grow.
+                ScoreAccumulator accumulator = new ScoreAccumulator(10);
+                TopKHeap expected = new TopKHeap(10);
+                TopKHeap actual = new TopKHeap(10);
+                
+                for (int userId: fixture.getProfiles().getUserIds()) {
+                        PostingList[] lists = fixture.getLists(userId);
+                        double[] userRatings = fixture.getRatings(userId);
+                        PostingList[] compressedLists = new PostingList[lists.length];
+                        for (int i = 0; i < lists.length; i++) {
+                                compressedLists[i] = CompressedInvertedList.compress((InvertedList)lists[i]);
+                        }
+                        ListOperations.computeNeighborhood(userId, userRatings, usersL2Norms, lists, expected);
+                        ListOperations.computeAccumulatedNeighborhood(userId, userRatings, usersL2Norms,
+                                lists, accumulator, actual);
+                        NeighborhoodFixture.assertSameHeaps(expected, actual);
+                        
+                        ListOperations.computeNeighborhood(userId, userRatings, usersL2Norms, compressedLists, expected);
+                        ListOperations.computeAccumulatedNeighborhood(userId, userRatings, usersL2Norms,
+                                compressedLists, accumulator, actual);
+                        NeighborhoodFixture.assertSameHeaps(expected, actual);
+                        
+                        ListOperations.computeSilNeighborhood(userId, usersL2Norms, lists, expected);
+                        ListOperations.computeAccumulatedNeighborhood(userId, null, usersL2Norms,
+                                lists, accumulator, actual);
+                        NeighborhoodFixture.assertSameHeaps(expected, actual);
+                }
+                //The accumulator is left clean.
+                Assert.assertEquals(0, accumulator.getNumberOfTouched());
+                for (int userId = 0; userId < numberOfUsers; userId++) {
+                        Assert.assertEquals(0, accumulator.getScore(userId), 0);
+                }
+        }
+        
+        /**
+         * Scoring all users as candidates has to give the neighborhood of the
+         * merge, with the same scores.
+         */
+        @Test
+        public void testComputeCandidateNeighborhood() {
+                NeighborhoodFixture fixture = NeighborhoodFixture.createRandom(new Random(29), 300, 40, 3000);
+                UserProfileMatrix profiles = fixture.getProfiles();
+                double[] usersL2Norms = fixture.getUsersL2Norms();
+                int[] candidates = profiles.getUserIds();
+                TopKHeap expected = new TopKHeap(10);
+                TopKHeap actual = new TopKHeap(10);
+                
+                for (int userId: profiles.getUserIds()) {
+                        ListOperations.computeNeighborhood(userId, fixture.getRatings(userId), usersL2Norms, 
+                                fixture.getLists(userId), expected);
+                        ListOperations.computeCandidateNeighborhood(userId, candidates, candidates.length,
+                                profiles, usersL2Norms, actual);
+                        NeighborhoodFixture.assertSameHeaps(expected, actual);
+                }
+        }
+        
+        /**
+         * Test of ListOperations.computePearsonNeighborhood(...) with the
+         * example of the book (Alice and four users, five items) and against
+         * a computation with the means of the co-rated vectors.
+         */
+        @Test
+        public void testComputePearsonNeighborhood() {
+                //Users 0 (Alice) to 4, items 0 to 4, Alice has not rated item 4.
+                double[][] bookRatings = {
+                        {5, 3, 4, 4, 0},
+                        {3, 1, 2, 3, 3},
+                        {4, 3, 4, 3, 5},
+                        {3, 3, 1, 5, 4},
+                        {1, 5, 5, 2, 1}};
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                for (int userId = 0; userId < bookRatings.length; userId++) {
+                        for (int itemId = 0; itemId < bookRatings[userId].length; itemId++) {
+                                if (bookRatings[userId][itemId] > 0) {
+                                        profiles.add(userId, itemId, bookRatings[userId][itemId]);
+                                }
+                        }
+                }
+                profiles.compact();
+                Map<Integer, InvertedList> invLists = InvertedListBuilder.build(profiles);
+                TopKHeap neighborhood = new TopKHeap(4);
+                double[] ratingsOfAlice = Arrays.copyOfRange(profiles.getRatings(), 
+                        profiles.getStart(0), profiles.getEnd(0));
+                ListOperations.computePearsonNeighborhood(0, ratingsOfAlice, 
+                        toListsOfUser(0, profiles, invLists), neighborhood);
+                IndexedRatedRes[] neighbors = neighborhood.toSortedArray();
+                Assert.assertEquals(4, neighbors.length);
+                Assert.assertEquals(1, neighbors[0].getResourceId());
+                Assert.assertEquals(0.852803, neighbors[0].getRating(), 1e-6);
+                Assert.assertEquals(2, neighbors[1].getResourceId());
+                Assert.assertEquals(0.707107, neighbors[1].getRating(), 1e-6);
+                Assert.assertEquals(3, neighbors[2].getResourceId());
+                Assert.assertEquals(0.0, neighbors[2].getRating(), 1e-12);
+                Assert.assertEquals(4, neighbors[3].getResourceId());
+                Assert.assertEquals(-0.792118, neighbors[3].getRating(), 1e-6);
+                
+                //Random profiles, without repeated items.
+                Random random = new Random(31);
+                int numberOfUsers = 200;
+                int numberOfItems = 30;
+                double[][] ratings = new double[numberOfUsers][numberOfItems];
+                profiles = new UserProfileMatrix();
+                for (int i = 0; i < 2000; i++) {
+                        int userId = random.nextInt(numberOfUsers);
+                        int itemId = random.nextInt(numberOfItems);
+                        if (ratings[userId][itemId] == 0) {
+                                ratings[userId][itemId] = 1 + random.nextInt(5);
+                                profiles.add(userId, itemId, ratings[userId][itemId]);
+                        }
+                }
+                profiles.compact();
+                invLists = InvertedListBuilder.build(profiles);
+                neighborhood = new TopKHeap(numberOfUsers);
+                for (int userId: profiles.getUserIds()) {
+                        int start = profiles.getStart(userId);
+                        double[] userRatings = Arrays.copyOfRange(profiles.getRatings(), 
+                                start, profiles.getEnd(userId));
+                        ListOperations.computePearsonNeighborhood(userId, userRatings,
+                                toListsOfUser(userId, profiles, invLists), neighborhood);
+                        int numberOfNeighbors = neighborhood.size();
+                        int[] ids = new int[numberOfNeighbors];
+                        double[] scores = new double[numberOfNeighbors];
+                        neighborhood.drainSorted(ids, scores);
+                        
+                        int expectedNumberOfNeighbors = 0;
+                        for (int otherUserId = 0; otherUserId < numberOfUsers; otherUserId++) {
+                                double expected = twoPassPearson(ratings[userId], ratings[otherUserId]);
+                                if (otherUserId != userId && !Double.isNaN(expected)) {
+                                        expectedNumberOfNeighbors++;
+                                }
+                        }
+                        Assert.assertEquals(expectedNumberOfNeighbors, numberOfNeighbors);
+                        for (int i = 0; i < numberOfNeighbors; i++) {
+                                Assert.assertEquals(twoPassPearson(ratings[userId], ratings[ids[i]]), scores[i], 1e-9);
+                        }
+                }
+        }
+        
+        //Inverted lists of the items rated by a user, in the order of the profile.
+        private static PostingList[] toListsOfUser(int userId, UserProfileMatrix profiles, 
+                        Map<Integer, InvertedList> invLists) {
+                int start = profiles.getStart(userId);
+                PostingList[] lists = new PostingList[profiles.getEnd(userId) - start];
+                for (int i = 0; i < lists.length; i++) {
+                        lists[i] = invLists.get(profiles.getItemIds()[start + i]);
+                }
+                return lists;
+        }
+        
+        //Pearson correlation of the co-rated items (0 means not rated), NaN
+        //if it is not defined.
+        private static double twoPassPearson(double[] ratings1, double[] ratings2) {
+                int n = 0;
+                double mean1 = 0;
+                double mean2 = 0;
+                for (int i = 0; i < ratings1.length; i++) {
+                        if (ratings1[i] > 0 && ratings2[i] > 0) {
+                                n++;
+                                mean1 = mean1 + ratings1[i];
+                                mean2 = mean2 + ratings2[i];
+                        }
+                }
+                if (n < 2) {
+                        return Double.NaN;
+                }
+                mean1 = mean1 / n;
+                mean2 = mean2 / n;
+                double covariance = 0;
+                double variance1 = 0;
+                double variance2 = 0;
+                for (int i = 0; i < ratings1.length; i++) {
+                        if (ratings1[i] > 0 && ratings2[i] > 0) {
+                                covariance = covariance + (ratings1[i] - mean1) * (ratings2[i] - mean2);
+                                variance1 = variance1 + (ratings1[i] - mean1) * (ratings1[i] - mean1);
+                                variance2 = variance2 + (ratings2[i] - mean2) * (ratings2[i] - mean2);
+                        }
+                }
+                if (variance1 == 0 || variance2 == 0) {
+                        return Double.NaN;
+                }
+                return covariance / Math.sqrt(variance1 * variance2);
+        }
+        
+        private static IndexedRatedRes[] toSortedArray(MinMaxPriorityQueue<IndexedRatedRes> neighborhood,
+                        Comparator<IndexedRatedRes> comparator) {
+                IndexedRatedRes[] array = neighborhood.toArray(new IndexedRatedRes[neighborhood.size()]);
+                Arrays.sort(array, comparator);
+                return array;
+        }
 }
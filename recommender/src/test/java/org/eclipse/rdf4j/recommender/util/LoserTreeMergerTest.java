@@ -0,0 +1,77 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingCursor;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+
+/**
+ * Test class for LoserTreeMerger.
+ */
+public class LoserTreeMergerTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * Postings have to be returned by user id and, for equal user ids,
+         * by index of the list, for any number of lists.
+         */
+        @Test
+        public void testMergeOrder() {
+                Random random = new Random(29);
+                for (int k = 0; k <= 17; k++) {
+                        InvertedList[] lists = new InvertedList[k];
+                        int numberOfPostings = 0;
+                        for (int i = 0; i < k; i++) {
+                                lists[i] = new InvertedList();
+                                int userId = random.nextInt(5);
+                                for (int j = random.nextInt(30); j > 0; j--) {
+                                        lists[i].insert(userId, i + userId / 1000.0);
+                                        userId = userId + 1 + random.nextInt(4);
+                                        numberOfPostings++;
+                                }
+                                lists[i].compactAndSortArray();
+                        }
+
+                        LoserTreeMerger merger = new LoserTreeMerger(lists);
+                        int previousUserId = -1;
+                        int previousList = -1;
+                        int mergedPostings = 0;
+                        while (merger.userId() != PostingCursor.NO_MORE_USERS) {
+                                int userId = merger.userId();
+                                int list = merger.list();
+                                Assert.assertTrue(userId > previousUserId
+                                        || (userId == previousUserId && list > previousList));
+                                Assert.assertEquals(list + userId / 1000.0, merger.rating(), DELTA);
+                                previousUserId = userId;
+                                previousList = list;
+                                mergedPostings++;
+                                merger.next();
+                        }
+                        Assert.assertEquals(numberOfPostings, mergedPostings);
+                }
+        }
+
+        /**
+         * Merging lists sums the ratings of each user.
+         */
+        @Test
+        public void testMergeLists() {
+                InvertedList list1 = new InvertedList();
+                list1.insert(1, 1.0);
+                list1.insert(4, 2.0);
+                InvertedList list2 = new InvertedList();
+                list2.insert(4, 0.5);
+                list2.insert(7, 3.0);
+                InvertedList merged = ListOperations.mergeLists(new PostingList[] {list1, list2});
+                Assert.assertArrayEquals(new int[] {1, 4, 7}, merged.getUserIds());
+                Assert.assertEquals(2.5, merged.getRating(1), DELTA);
+        }
+}
@@ -0,0 +1,101 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Map;
+import java.util.Random;
+import org.eclipse.rdf4j.recommender.datamanager.model.CompressedInvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for MaxScoreSearcher.
+ */
+public class MaxScoreSearcherTest {
+
+        /**
+         * With positive ratings the neighborhoods have to be the ones of the
+         * merge, and users have to be pruned.
+         */
+        @Test
+        public void testSameNeighborhoodsAsMerge() {
+                MaxScoreSearcher searcher = checkAgainstMerge(new Random(41), false);
+                Assert.assertTrue(searcher.getNumberOfPrunedUsers() > 0);
+        }
+
+        /**
+         * Same with ratings centered on the mean, i.e. negative ratings and
+         * negative similarities.
+         */
+        @Test
+        public void testSameNeighborhoodsWithNegativeRatings() {
+                checkAgainstMerge(new Random(43), true);
+        }
+
+        /**
+         * The bound of a list is the largest |rating| / l2-norm, adding the
+         * ratings of a user with several postings.
+         */
+        @Test
+        public void testComputeListBound() {
+                InvertedList list = new InvertedList();
+                list.insert(0, 4.0);
+                list.insert(1, -3.0);
+                list.insert(2, 1.0);
+                list.compactAndSortArray();
+                Assert.assertEquals(3.0, MaxScoreSearcher.computeListBound(list, new double[]{2.0, 1.0, 1.0}), 0);
+                list.insert(1, 2.0);
+                list.compactAndSortArray();
+                Assert.assertEquals(5.0, MaxScoreSearcher.computeListBound(list, new double[]{2.0, 1.0, 1.0}), 0);
+                Assert.assertEquals(Double.POSITIVE_INFINITY,
+                        MaxScoreSearcher.computeListBound(list, new double[]{2.0, 1.0, 0.0}), 0);
+        }
+
+        private static MaxScoreSearcher checkAgainstMerge(Random random, boolean isCentered) {
+                int numberOfUsers = 400;
+                int numberOfItems = 200;
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                for (int i = 0; i < 6000; i++) {
+                        //Long tail: few popular items, many rare ones.
+                        int itemId = (int)(numberOfItems * Math.pow(random.nextDouble(), 3));
+                        double rating = 1 + random.nextInt(5);
+                        profiles.add(random.nextInt(numberOfUsers), itemId, isCentered ? rating - 3 : rating);
+                }
+                profiles.compact();
+                NeighborhoodFixture fixture = new NeighborhoodFixture(profiles, numberOfUsers);
+                double[] usersL2Norms = fixture.getUsersL2Norms();
+                double[] itemBounds = new double[numberOfItems];
+                for (Map.Entry<Integer, InvertedList> entry: fixture.getInvertedLists().entrySet()) {
+                        itemBounds[entry.getKey()] = MaxScoreSearcher.computeListBound(entry.getValue(), usersL2Norms);
+                }
+
+                MaxScoreSearcher searcher = new MaxScoreSearcher();
+                TopKHeap expected = new TopKHeap(10);
+                TopKHeap actual = new TopKHeap(10);
+                for (int userId: profiles.getUserIds()) {
+                        PostingList[] lists = fixture.getLists(userId);
+                        double[] userRatings = fixture.getRatings(userId);
+                        PostingList[] compressedLists = new PostingList[lists.length];
+                        double[] listBounds = new double[lists.length];
+                        for (int i = 0; i < lists.length; i++) {
+                                int itemId = profiles.getItemIds()[profiles.getStart(userId) + i];
+                                compressedLists[i] = CompressedInvertedList.compress((InvertedList)lists[i]);
+                                listBounds[i] = itemBounds[itemId];
+                        }
+                        ListOperations.computeNeighborhood(userId, userRatings, usersL2Norms, lists, expected);
+                        searcher.computeNeighborhood(userId, userRatings, usersL2Norms, lists, listBounds, actual);
+                        NeighborhoodFixture.assertSameHeaps(expected, actual);
+
+                        ListOperations.computeNeighborhood(userId, userRatings, usersL2Norms, compressedLists, expected);
+                        searcher.computeNeighborhood(userId, userRatings, usersL2Norms, compressedLists, listBounds, actual);
+                        NeighborhoodFixture.assertSameHeaps(expected, actual);
+                }
+                return searcher;
+        }
+}
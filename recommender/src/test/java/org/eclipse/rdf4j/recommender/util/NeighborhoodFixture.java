@@ -0,0 +1,134 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Map;
+import java.util.Random;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedListBuilder;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.eclipse.rdf4j.recommender.datamanager.model.UserProfileMatrix;
+import org.junit.Assert;
+
+/**
+ * Profiles with their inverted lists and L2-norms, for the tests which
+ * compare a computation of neighborhoods with the merge of the inverted 
+ * lists (ListOperations.computeNeighborhood(...)).
+ */
+class NeighborhoodFixture {
+
+        /*--------*
+	 * Fields *
+	 *--------*/
+
+        private final UserProfileMatrix profiles;
+        private final Map<Integer, InvertedList> invLists;
+        private final double[] usersL2Norms;
+
+        /*--------------*
+	 * Constructors *
+	 *--------------*/
+
+        /**
+         * Builds the inverted lists and the L2-norms of compacted profiles.
+         * @param profiles
+         * @param numberOfUserIds length of the array of L2-norms, greater 
+         *        than the highest user id
+         */
+        NeighborhoodFixture(UserProfileMatrix profiles, int numberOfUserIds) {
+                this.profiles = profiles;
+                this.invLists = InvertedListBuilder.build(profiles);
+                this.usersL2Norms = new double[numberOfUserIds];
+                for (int userId: profiles.getUserIds()) {
+                        double norm = 0;
+                        for (int i = profiles.getStart(userId); i < profiles.getEnd(userId); i++) {
+                                norm = norm + profiles.getRatings()[i] * profiles.getRatings()[i];
+                        }
+                        usersL2Norms[userId] = Math.sqrt(norm);
+                }
+        }
+
+        /*---------*
+	 * Methods *
+	 *---------*/
+
+        /**
+         * Random profiles with integer ratings from 1 to 5, so that scores do
+         * not depend on the order of the additions.
+         * @param random
+         * @param numberOfUsers
+         * @param numberOfItems
+         * @param numberOfRatings
+         * @return 
+         */
+        static NeighborhoodFixture createRandom(Random random, int numberOfUsers, 
+                        int numberOfItems, int numberOfRatings) {
+                UserProfileMatrix profiles = new UserProfileMatrix();
+                for (int i = 0; i < numberOfRatings; i++) {
+                        profiles.add(random.nextInt(numberOfUsers), random.nextInt(numberOfItems), 1 + random.nextInt(5));
+                }
+                profiles.compact();
+                return new NeighborhoodFixture(profiles, numberOfUsers);
+        }
+
+        UserProfileMatrix getProfiles() {
+                return profiles;
+        }
+
+        Map<Integer, InvertedList> getInvertedLists() {
+                return invLists;
+        }
+
+        double[] getUsersL2Norms() {
+                return usersL2Norms;
+        }
+
+        /**
+         * Returns the inverted lists of the items rated by a user, in the 
+         * order of the profile.
+         * @param userId
+         * @return 
+         */
+        PostingList[] getLists(int userId) {
+                int start = profiles.getStart(userId);
+                PostingList[] lists = new PostingList[profiles.getEnd(userId) - start];
+                for (int i = 0; i < lists.length; i++) {
+                        lists[i] = invLists.get(profiles.getItemIds()[start + i]);
+                }
+                return lists;
+        }
+
+        /**
+         * Returns the ratings of a user, in the order of getLists(...).
+         * @param userId
+         * @return 
+         */
+        double[] getRatings(int userId) {
+                int start = profiles.getStart(userId);
+                double[] userRatings = new double[profiles.getEnd(userId) - start];
+                System.arraycopy(profiles.getRatings(), start, userRatings, 0, userRatings.length);
+                return userRatings;
+        }
+
+        /**
+         * Compares and empties both heaps. Scores have to be bit-identical.
+         * @param expected
+         * @param actual 
+         */
+        static void assertSameHeaps(TopKHeap expected, TopKHeap actual) {
+                Assert.assertEquals(expected.size(), actual.size());
+                int[] expectedIds = new int[expected.size()];
+                double[] expectedScores = new double[expected.size()];
+                int[] actualIds = new int[actual.size()];
+                double[] actualScores = new double[actual.size()];
+                expected.drainSorted(expectedIds, expectedScores);
+                actual.drainSorted(actualIds, actualScores);
+                Assert.assertArrayEquals(expectedIds, actualIds);
+                for (int i = 0; i < expectedScores.length; i++) {
+                        Assert.assertEquals(expectedScores[i], actualScores[i], 0);
+                }
+        }
+}
@@ -0,0 +1,140 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Random;
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingCursor;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+
+/**
+ * Benchmark of the merge used to compute neighborhoods: the loser tree of
+ * ListOperations against the former loop, which scans all lists to find the
+ * next user, against the score accumulator (score-at-a-time) and against
+ * MaxScore pruning. Not a unit test, it is run by hand:
+ *   java ... NeighborhoodMergeBenchmark [numberOfLists] [numberOfUsers]
+ * All neighborhoods are checked to be identical.
+ */
+public class NeighborhoodMergeBenchmark {
+
+        public static void main(String[] args) {
+                int numberOfLists = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+                int numberOfUsers = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+                int repetitions = 5;
+                Random random = new Random(31);
+
+                //A heavy user: numberOfLists rated items with popular and rare items.
+                PostingList[] lists = new PostingList[numberOfLists];
+                double[] userRatings = new double[numberOfLists];
+                for (int i = 0; i < numberOfLists; i++) {
+                        InvertedList list = new InvertedList();
+                        int step = 1 + random.nextInt(2000);
+                        for (int userId = random.nextInt(step); userId < numberOfUsers; userId += 1 + random.nextInt(step)) {
+                                list.insert(userId, 1 + random.nextInt(5));
+                        }
+                        lists[i] = list.compactAndSortArray();
+                        userRatings[i] = 1 + random.nextInt(5);
+                }
+                double[] usersL2Norms = new double[numberOfUsers];
+                for (int userId = 0; userId < numberOfUsers; userId++) {
+                        usersL2Norms[userId] = 1 + random.nextDouble();
+                }
+                long numberOfPostings = 0;
+                for (PostingList list: lists) {
+                        numberOfPostings = numberOfPostings + list.size();
+                }
+                System.out.println("Lists: " + numberOfLists + ", postings: " + numberOfPostings + ".");
+
+                TopKHeap expected = new TopKHeap(50);
+                TopKHeap actual = new TopKHeap(50);
+                TopKHeap accumulated = new TopKHeap(50);
+                ScoreAccumulator accumulator = new ScoreAccumulator(numberOfUsers);
+                TopKHeap pruned = new TopKHeap(50);
+                MaxScoreSearcher searcher = new MaxScoreSearcher();
+                double[] listBounds = new double[numberOfLists];
+                for (int i = 0; i < numberOfLists; i++) {
+                        listBounds[i] = MaxScoreSearcher.computeListBound(lists[i], usersL2Norms);
+                }
+                long scanTime = Long.MAX_VALUE;
+                long loserTreeTime = Long.MAX_VALUE;
+                long accumulatorTime = Long.MAX_VALUE;
+                long maxScoreTime = Long.MAX_VALUE;
+                for (int repetition = 0; repetition < repetitions; repetition++) {
+                        expected.clear();
+                        long start = System.currentTimeMillis();
+                        scanNeighborhood(0, userRatings, usersL2Norms, lists, expected);
+                        scanTime = Math.min(scanTime, System.currentTimeMillis() - start);
+
+                        actual.clear();
+                        start = System.currentTimeMillis();
+                        ListOperations.computeNeighborhood(0, userRatings, usersL2Norms, lists, actual);
+                        loserTreeTime = Math.min(loserTreeTime, System.currentTimeMillis() - start);
+
+                        accumulated.clear();
+                        start = System.currentTimeMillis();
+                        ListOperations.computeAccumulatedNeighborhood(0, userRatings, usersL2Norms,
+                                lists, accumulator, accumulated);
+                        accumulatorTime = Math.min(accumulatorTime, System.currentTimeMillis() - start);
+
+                        pruned.clear();
+                        start = System.currentTimeMillis();
+                        searcher.computeNeighborhood(0, userRatings, usersL2Norms, lists, listBounds, pruned);
+                        maxScoreTime = Math.min(maxScoreTime, System.currentTimeMillis() - start);
+                }
+                IndexedRatedRes[] expectedArray = expected.toSortedArray();
+                IndexedRatedRes[] actualArray = actual.toSortedArray();
+                IndexedRatedRes[] accumulatedArray = accumulated.toSortedArray();
+                IndexedRatedRes[] prunedArray = pruned.toSortedArray();
+                for (int i = 0; i < expectedArray.length; i++) {
+                        if (expectedArray[i].getResourceId() != actualArray[i].getResourceId()
+                                || expectedArray[i].getRating() != actualArray[i].getRating()
+                                || expectedArray[i].getResourceId() != accumulatedArray[i].getResourceId()
+                                || expectedArray[i].getRating() != accumulatedArray[i].getRating()
+                                || expectedArray[i].getResourceId() != prunedArray[i].getResourceId()
+                                || expectedArray[i].getRating() != prunedArray[i].getRating()) {
+                                throw new IllegalStateException("NEIGHBORHOODS DIFFER AT " + i);
+                        }
+                }
+                System.out.println("Time to merge by scanning all lists: " + scanTime + "ms.");
+                System.out.println("Time to merge with the loser tree: " + loserTreeTime + "ms.");
+                System.out.println("Time to accumulate scores: " + accumulatorTime + "ms.");
+                System.out.println("Time to merge with MaxScore pruning: " + maxScoreTime + "ms ("
+                        + searcher.getNumberOfScoredUsers() / repetitions + " users scored, "
+                        + searcher.getNumberOfPrunedUsers() / repetitions + " pruned).");
+                System.out.println("NEIGHBORHOODS ARE IDENTICAL");
+        }
+
+        //Former merge of ListOperations.computeNeighborhood(...).
+        private static void scanNeighborhood(int mainUserId, double[] userRatings,
+                        double[] usersL2Norms, PostingList[] invList, TopKHeap neighborhood) {
+                PostingCursor[] cursors = new PostingCursor[invList.length];
+                int currentUser = PostingCursor.NO_MORE_USERS;
+                for (int i = 0; i < invList.length; i++) {
+                        cursors[i] = invList[i].cursor();
+                        currentUser = Math.min(currentUser, cursors[i].userId());
+                }
+                while (currentUser != PostingCursor.NO_MORE_USERS) {
+                        int nextValue = PostingCursor.NO_MORE_USERS;
+                        double dotProduct = 0;
+                        for (int i = 0; i < cursors.length; i++) {
+                                PostingCursor cursor = cursors[i];
+                                if (cursor.userId() == currentUser) {
+                                        dotProduct = dotProduct + (cursor.rating() * userRatings[i]);
+                                        cursor.next();
+                                }
+                                if (cursor.userId() < nextValue) {
+                                        nextValue = cursor.userId();
+                                }
+                        }
+                        if (mainUserId != currentUser) {
+                                neighborhood.offer(currentUser,
+                                        dotProduct / (usersL2Norms[mainUserId] * usersL2Norms[currentUser]));
+                        }
+                        currentUser = nextValue;
+                }
+        }
+}
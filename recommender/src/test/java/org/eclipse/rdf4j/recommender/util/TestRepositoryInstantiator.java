@@ -12,6 +12,7 @@ import org.eclipse.rdf4j.recommender.config.LinkAnalysisRecConfig;
 import org.eclipse.rdf4j.recommender.config.SilVsmCfConfigWithRatingsTest;
 import org.eclipse.rdf4j.recommender.config.SilVsmUcfRecConfig;
 import org.eclipse.rdf4j.recommender.config.VsmCfRecConfig;
+import org.eclipse.rdf4j.recommender.config.VsmIcfRecConfig;
 import org.eclipse.rdf4j.recommender.exception.RecommenderException;
 import org.eclipse.rdf4j.recommender.paradigm.collaborative.CfRecWithRatingsTest;
 import org.eclipse.rdf4j.recommender.parameter.RecEdgeDistribution;
@@ -96,6 +97,23 @@ public final class TestRepositoryInstantiator {
          */        
         public static SailRecommenderRepository createBookUbCfRecAndPreprocess(
                         RecStorage stor, int sizeOfNeighborhood, int topRatingsNumber){
+                return createBookUbCfRecAndPreprocess(stor, sizeOfNeighborhood, 
+                        topRatingsNumber, RecSimMetric.COSINE);
+        }
+        
+        /**
+         * Creates a repository with a collaborative approach and the given
+         * similarity metric.
+         * Dataset: Book
+         * @param sizeOfNeighborhood
+         * @param stor
+         * @param topRatingsNumber
+         * @param simMetric
+         * @return 
+         */        
+        public static SailRecommenderRepository createBookUbCfRecAndPreprocess(
+                        RecStorage stor, int sizeOfNeighborhood, int topRatingsNumber,
+                        RecSimMetric simMetric){
                 RepositoryConnection con = null;
                 SailRecommenderRepository recRepository = null;
                 int numberOfDecimalPlaces = 3;
@@ -137,7 +155,7 @@ public final class TestRepositoryInstantiator {
 
                         configuration.setRecParadigm(RecParadigm.USER_COLLABORATIVE_FILTERING);                        
                         configuration.preprocessBeforeRecommending(true);
-                        configuration.setSimMetric(RecSimMetric.COSINE);
+                        configuration.setSimMetric(simMetric);
                         configuration.setRecStorage(stor);
                         configuration.setDecimalPlaces(numberOfDecimalPlaces);
                         configuration.setNeighborhoodSize(sizeOfNeighborhood);
@@ -161,6 +179,58 @@ public final class TestRepositoryInstantiator {
                 return recRepository;
         }
         
+        /**
+         * Creates a repository with an item-based collaborative approach.
+         * Dataset: Book
+         * @param sizeOfNeighborhood
+         * @return 
+         */        
+        public static SailRecommenderRepository createBookIbCfRecAndPreprocess(int sizeOfNeighborhood){
+                RepositoryConnection con = null;
+                SailRecommenderRepository recRepository = null;
+                int numberOfDecimalPlaces = 3;
+                try {
+                        recRepository = new SailRecommenderRepository(
+                            new MemoryStore());
+                        recRepository.initialize();    
+                        con = recRepository.getConnection();
+                    
+                        String resource = "testcases/moviesFromBook.ttl";
+                        String baseURI = "http://example.org/movies#";                 
+                        
+                        con.add(classLoader.getResource(resource), baseURI, RDFFormat.TURTLE);
+                        
+                        VsmIcfRecConfig configuration = new VsmIcfRecConfig("config1");
+                        configuration.setRatGraphPattern(
+                                    "?user <http://example.org/movies#hasRated> ?intermNode . \n "
+                                    + "?intermNode <http://example.org/movies#ratedMovie> ?movie ."
+                                    + "?intermNode <http://example.org/movies#hasRating> ?rating"
+                        );
+
+                        configuration.setRecEntity(RecEntity.USER, "?user");
+                        configuration.setRecEntity(RecEntity.RAT_ITEM, "?movie");
+                        configuration.setRecEntity(RecEntity.RATING, "?rating");
+
+                        configuration.setRecParadigm(RecParadigm.ITEM_COLLABORATIVE_FILTERING);                        
+                        configuration.preprocessBeforeRecommending(true);
+                        configuration.setSimMetric(RecSimMetric.COSINE);
+                        configuration.setRecStorage(RecStorage.INVERTED_LISTS);
+                        configuration.setDecimalPlaces(numberOfDecimalPlaces);
+                        configuration.setNeighborhoodSize(sizeOfNeighborhood);
+
+                        recRepository.loadRecConfiguration(configuration);
+                } catch (IOException ex) { 
+                        Logger.getLogger(CfRecWithRatingsTest.class.getName()).log(Level.SEVERE, null, ex);
+                } catch (RDFParseException ex) {
+                        Logger.getLogger(CfRecWithRatingsTest.class.getName()).log(Level.SEVERE, null, ex);
+                } catch (RepositoryException ex) {
+                        Logger.getLogger(CfRecWithRatingsTest.class.getName()).log(Level.SEVERE, null, ex);
+                } catch (RecommenderException ex) { 
+                        Logger.getLogger(CfRecWithRatingsTest.class.getName()).log(Level.SEVERE, null, ex);
+                } 
+                return recRepository;
+        }
+        
         /**
          * Creates a repository with a collaborative approach.
          * Dataset: RecSPARQL
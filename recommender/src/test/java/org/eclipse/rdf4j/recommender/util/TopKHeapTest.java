@@ -0,0 +1,83 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import com.google.common.collect.MinMaxPriorityQueue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.eclipse.rdf4j.recommender.datamanager.model.IndexedRatedRes;
+
+/**
+ * Test class for TopKHeap.
+ */
+public class TopKHeapTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * The heap has to keep the same pairs, in the same order, as a
+         * bounded MinMaxPriorityQueue with IndexedRatedResRatingComparator,
+         * also with many equal scores. The heap is reused after draining.
+         */
+        @Test
+        public void testSameResultAsQueue() {
+                Comparator<IndexedRatedRes> comparator = new IndexedRatedResRatingComparator();
+                Random random = new Random(23);
+                TopKHeap heap = new TopKHeap(10);
+                for (int round = 0; round < 50; round++) {
+                        MinMaxPriorityQueue<IndexedRatedRes> queue = MinMaxPriorityQueue
+                                .orderedBy(comparator).maximumSize(10).create();
+                        int numberOfPairs = random.nextInt(40);
+                        for (int id = 0; id < numberOfPairs; id++) {
+                                //Few distinct scores, so that ties are frequent.
+                                double score = random.nextInt(5) / 4.0;
+                                queue.add(new IndexedRatedRes(id, score));
+                                heap.offer(id, score);
+                        }
+                        IndexedRatedRes[] expected = queue.toArray(new IndexedRatedRes[queue.size()]);
+                        Arrays.sort(expected, comparator);
+                        IndexedRatedRes[] actual = heap.toSortedArray();
+                        Assert.assertEquals(expected.length, actual.length);
+                        for (int i = 0; i < expected.length; i++) {
+                                Assert.assertEquals(expected[i].getResourceId(), actual[i].getResourceId());
+                                Assert.assertEquals(expected[i].getRating(), actual[i].getRating(), DELTA);
+                        }
+                        Assert.assertEquals(0, heap.size());
+                }
+        }
+
+        /**
+         * Once the heap is full, the threshold is the worst score and worse
+         * candidates are rejected.
+         */
+        @Test
+        public void testThreshold() {
+                TopKHeap heap = new TopKHeap(3);
+                Assert.assertTrue(heap.threshold() == Double.NEGATIVE_INFINITY);
+                heap.offer(1, 0.5);
+                heap.offer(2, 0.9);
+                heap.offer(3, 0.1);
+                Assert.assertTrue(heap.isFull());
+                Assert.assertEquals(0.1, heap.threshold(), DELTA);
+                Assert.assertFalse(heap.offer(4, 0.05));
+                //Equal score, lower id ranks lower
+                Assert.assertFalse(heap.offer(0, 0.1));
+                Assert.assertTrue(heap.offer(5, 0.1));
+                Assert.assertTrue(heap.offer(6, 0.7));
+                Assert.assertEquals(0.5, heap.threshold(), DELTA);
+                //NaN ranks below everything
+                Assert.assertFalse(heap.offer(7, Double.NaN));
+
+                int[] ids = new int[3];
+                double[] scores = new double[3];
+                Assert.assertEquals(3, heap.drainSorted(ids, scores));
+                Assert.assertArrayEquals(new int[] {2, 6, 1}, ids);
+                Assert.assertEquals(4, heap.toSortedArray(4).length);
+        }
+}
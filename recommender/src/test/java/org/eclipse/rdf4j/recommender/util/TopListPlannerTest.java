@@ -0,0 +1,156 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.eclipse.rdf4j.recommender.datamanager.model.InvertedList;
+import org.eclipse.rdf4j.recommender.datamanager.model.PostingList;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for TopListPlanner.
+ */
+public class TopListPlannerTest {
+
+        /**
+         * Two identical lists and a disjoint one, all users have the three
+         * of them: only the identical lists are worth merging.
+         */
+        @Test
+        public void testPlanOfIdenticalLists() {
+                PostingList[] lists = {createList(0, 100), createList(0, 100), createList(100, 150)};
+                int[][] transactions = new int[10][];
+                for (int user = 0; user < transactions.length; user++) {
+                        transactions[user] = new int[] {0, 1, 2};
+                }
+                TopListPlanner.Plan plan = new TopListPlanner(100000, 2).plan(transactions, lists);
+                Assert.assertEquals(1, plan.getSets().length);
+                Assert.assertArrayEquals(new int[] {0, 1}, plan.getSets()[0]);
+                Assert.assertEquals(10 * 100, plan.getSavedPostings());
+                Assert.assertEquals(10 * 250, plan.getTotalPostings());
+                Assert.assertEquals(100 * TopListPlanner.BYTES_PER_POSTING, plan.getSizeInBytes());
+                //Sets {0, 1}, {0, 2}, {1, 2} and {0, 1, 2}
+                Assert.assertEquals(4, plan.getNumberOfFrequentSets());
+                
+                //Without budget nothing is merged.
+                plan = new TopListPlanner(0, 2).plan(transactions, lists);
+                Assert.assertEquals(0, plan.getSets().length);
+                Assert.assertEquals(0, plan.getSavedPostings());
+        }
+        
+        /**
+         * FP-growth has to find every set shared by enough users, and the 
+         * plan has to fit into the budget and save the postings it claims.
+         */
+        @Test
+        public void testPlanOfRandomTransactions() {
+                Random random = new Random(43);
+                int numberOfLists = 8;
+                int minSupport = 5;
+                PostingList[] lists = new PostingList[numberOfLists];
+                for (int list = 0; list < numberOfLists; list++) {
+                        int start = random.nextInt(50);
+                        lists[list] = createList(start, start + 20 + random.nextInt(80));
+                }
+                int[][] transactions = new int[300][];
+                for (int user = 0; user < transactions.length; user++) {
+                        Set<Integer> set = new HashSet<Integer>();
+                        int size = random.nextInt(5);
+                        while (set.size() < size) {
+                                //Lists with a small index are more frequent.
+                                set.add(Math.min(random.nextInt(numberOfLists), random.nextInt(numberOfLists)));
+                        }
+                        transactions[user] = new int[size];
+                        int i = 0;
+                        for (int list: set) {
+                                transactions[user][i++] = list;
+                        }
+                        Arrays.sort(transactions[user]);
+                }
+                
+                //Sets of 2 to 4 lists shared by minSupport users.
+                int expectedFrequentSets = 0;
+                for (int mask = 0; mask < (1 << numberOfLists); mask++) {
+                        int size = Integer.bitCount(mask);
+                        if (size < 2 || size > TopListPlanner.DEFAULT_MAX_SET_SIZE) {
+                                continue;
+                        }
+                        int support = 0;
+                        for (int[] transaction: transactions) {
+                                int maskOfUser = 0;
+                                for (int list: transaction) {
+                                        maskOfUser = maskOfUser | (1 << list);
+                                }
+                                if ((maskOfUser & mask) == mask) {
+                                        support++;
+                                }
+                        }
+                        if (support >= minSupport) {
+                                expectedFrequentSets++;
+                        }
+                }
+                
+                for (long budget: new long[] {0, 1000, 5000, Long.MAX_VALUE / 2}) {
+                        TopListPlanner.Plan plan = new TopListPlanner(budget, minSupport).plan(transactions, lists);
+                        Assert.assertEquals(expectedFrequentSets, plan.getNumberOfFrequentSets());
+                        Assert.assertTrue(plan.getSizeInBytes() <= budget);
+                        
+                        long bytes = 0;
+                        for (int[] set: plan.getSets()) {
+                                bytes = bytes + unionSize(lists, set) * TopListPlanner.BYTES_PER_POSTING;
+                        }
+                        Assert.assertEquals(plan.getSizeInBytes(), bytes);
+                        
+                        long savedPostings = 0;
+                        for (int user = 0; user < transactions.length; user++) {
+                                Set<Integer> replaced = new HashSet<Integer>();
+                                for (int index: plan.getSetsOfUser()[user]) {
+                                        int[] set = plan.getSets()[index];
+                                        long postings = 0;
+                                        for (int list: set) {
+                                                //Disjoint sets of lists of the user.
+                                                Assert.assertTrue(Arrays.binarySearch(transactions[user], list) >= 0);
+                                                Assert.assertTrue(replaced.add(list));
+                                                postings = postings + lists[list].size();
+                                        }
+                                        savedPostings = savedPostings + postings - unionSize(lists, set);
+                                }
+                        }
+                        Assert.assertEquals(plan.getSavedPostings(), savedPostings);
+                        if (budget == 0) {
+                                Assert.assertEquals(0, savedPostings);
+                        } else {
+                                Assert.assertTrue(savedPostings > 0);
+                        }
+                }
+        }
+        
+        //List of the users start, ..., end - 1.
+        private static InvertedList createList(int start, int end) {
+                int[] userIds = new int[end - start];
+                double[] ratings = new double[end - start];
+                for (int i = 0; i < userIds.length; i++) {
+                        userIds[i] = start + i;
+                        ratings[i] = 1.0;
+                }
+                return new InvertedList(userIds, ratings, userIds.length);
+        }
+        
+        private static long unionSize(PostingList[] lists, int[] set) {
+                Set<Integer> users = new HashSet<Integer>();
+                for (int list: set) {
+                        InvertedList invList = (InvertedList)lists[list];
+                        for (int i = 0; i < invList.size(); i++) {
+                                users.add(invList.getUserIds()[i]);
+                        }
+                }
+                return users.size();
+        }
+}
@@ -0,0 +1,176 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for UserPartitionExecutor.
+ */
+public class UserPartitionExecutorTest {
+
+        /**
+         * Every user has to be processed exactly once, by at most parallelism
+         * workers, each one used by a single thread.
+         */
+        @Test
+        public void testAllUsersProcessedOnce() {
+                int numberOfUsers = 10000;
+                final int[] userIds = new int[numberOfUsers];
+                for (int i = 0; i < numberOfUsers; i++) {
+                        userIds[i] = 3 * i;
+                }
+                final AtomicIntegerArray visits = new AtomicIntegerArray(3 * numberOfUsers);
+                final AtomicInteger numberOfWorkers = new AtomicInteger();
+                final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+                
+                for (int parallelism: new int[]{1, 4}) {
+                        UserPartitionExecutor executor = new UserPartitionExecutor(parallelism, null);
+                        numberOfWorkers.set(0);
+                        executor.execute(userIds, new UserPartitionExecutor.WorkerFactory() {
+                                @Override
+                                public UserPartitionExecutor.Worker createWorker() {
+                                        numberOfWorkers.incrementAndGet();
+                                        final Thread owner = Thread.currentThread();
+                                        threads.add(owner);
+                                        return new UserPartitionExecutor.Worker() {
+                                                @Override
+                                                public void process(int userId) {
+                                                        Assert.assertTrue(owner == Thread.currentThread());
+                                                        visits.incrementAndGet(userId);
+                                                }
+                                        };
+                                }
+                        });
+                        Assert.assertEquals(numberOfUsers, executor.getProcessedUsers());
+                        Assert.assertTrue(numberOfWorkers.get() <= parallelism);
+                }
+                for (int i = 0; i < visits.length(); i++) {
+                        Assert.assertEquals(i % 3 == 0 ? 2 : 0, visits.get(i));
+                }
+                Assert.assertTrue(threads.contains(Thread.currentThread()));
+        }
+
+        /**
+         * An exception of a worker has to be thrown by execute.
+         */
+        @Test
+        public void testExceptionOfWorker() {
+                int[] userIds = new int[1000];
+                for (int i = 0; i < userIds.length; i++) {
+                        userIds[i] = i;
+                }
+                UserPartitionExecutor executor = new UserPartitionExecutor(4, null);
+                try {
+                        executor.execute(userIds, new UserPartitionExecutor.WorkerFactory() {
+                                @Override
+                                public UserPartitionExecutor.Worker createWorker() {
+                                        return new UserPartitionExecutor.Worker() {
+                                                @Override
+                                                public void process(int userId) {
+                                                        if (userId == 500) {
+                                                                throw new IllegalArgumentException("USER 500");
+                                                        }
+                                                }
+                                        };
+                                }
+                        });
+                        Assert.fail("The exception of the worker was lost");
+                } catch (IllegalArgumentException ex) {
+                        Assert.assertEquals("USER 500", ex.getMessage());
+                }
+        }
+
+        /**
+         * When a worker fails, execute must return only after the other 
+         * workers have stopped.
+         */
+        @Test
+        public void testNoWorkerRunsAfterException() throws InterruptedException {
+                int[] userIds = new int[1000];
+                for (int i = 0; i < userIds.length; i++) {
+                        userIds[i] = i;
+                }
+                final AtomicInteger runningWorkers = new AtomicInteger();
+                final AtomicInteger processedUsers = new AtomicInteger();
+                UserPartitionExecutor executor = new UserPartitionExecutor(4, 8, null);
+                try {
+                        executor.execute(userIds, new UserPartitionExecutor.WorkerFactory() {
+                                @Override
+                                public UserPartitionExecutor.Worker createWorker() {
+                                        return new UserPartitionExecutor.Worker() {
+                                                @Override
+                                                public void process(int userId) {
+                                                        if (userId == 20) {
+                                                                throw new IllegalArgumentException("USER 20");
+                                                        }
+                                                        runningWorkers.incrementAndGet();
+                                                        try {
+                                                                Thread.sleep(2);
+                                                        } catch (InterruptedException ex) {
+                                                                //Finishes the user as a slow worker would.
+                                                                Thread.currentThread().interrupt();
+                                                        }
+                                                        processedUsers.incrementAndGet();
+                                                        runningWorkers.decrementAndGet();
+                                                }
+                                        };
+                                }
+                        });
+                        Assert.fail("The exception of the worker was lost");
+                } catch (IllegalArgumentException ex) {
+                        Assert.assertEquals("USER 20", ex.getMessage());
+                }
+                Assert.assertEquals(0, runningWorkers.get());
+                int processed = processedUsers.get();
+                Thread.sleep(50);
+                Assert.assertEquals(processed, processedUsers.get());
+                Assert.assertTrue(processed < userIds.length);
+        }
+
+        /**
+         * The first failure has to be thrown without waiting for the threads
+         * which are still working, which are interrupted.
+         */
+        @Test
+        public void testFirstFailureFailsFast() {
+                int[] userIds = {0, 1};
+                final AtomicInteger interruptedWorkers = new AtomicInteger();
+                UserPartitionExecutor executor = new UserPartitionExecutor(2, 1, null);
+                long startTime = System.currentTimeMillis();
+                try {
+                        executor.execute(userIds, new UserPartitionExecutor.WorkerFactory() {
+                                @Override
+                                public UserPartitionExecutor.Worker createWorker() {
+                                        return new UserPartitionExecutor.Worker() {
+                                                @Override
+                                                public void process(int userId) {
+                                                        if (userId == 1) {
+                                                                throw new IllegalArgumentException("USER 1");
+                                                        }
+                                                        try {
+                                                                Thread.sleep(60000);
+                                                        } catch (InterruptedException ex) {
+                                                                interruptedWorkers.incrementAndGet();
+                                                        }
+                                                }
+                                        };
+                                }
+                        });
+                        Assert.fail("The exception of the worker was lost");
+                } catch (IllegalArgumentException ex) {
+                        Assert.assertEquals("USER 1", ex.getMessage());
+                }
+                Assert.assertTrue(System.currentTimeMillis() - startTime < 30000);
+                Assert.assertEquals(1, interruptedWorkers.get());
+        }
+}
@@ -0,0 +1,73 @@
+/* 
+ * Zohair Aashiq
+ * Albert-Ludwigs-Universitaet Freiburg
+ * Institut fuer Informatik
+ */
+package org.eclipse.rdf4j.recommender.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for VoteAccumulator.
+ */
+public class VoteAccumulatorTest {
+        //For double comparisons
+        private static final double DELTA = 1e-15;
+
+        /**
+         * Votes of the same item are added and counted, items without votes
+         * (also those beyond the initial size) have none.
+         */
+        @Test
+        public void testAdd() {
+                VoteAccumulator votes = new VoteAccumulator(4);
+                votes.add(2, 0.5, 1.0);
+                votes.add(0, 0.25, -2.0);
+                votes.add(2, 0.75, 0.5);
+
+                Assert.assertEquals(1.25, votes.getSumOfWeights(2), DELTA);
+                Assert.assertEquals(1.5, votes.getSumOfVotes(2), DELTA);
+                Assert.assertEquals(2, votes.getNumberOfVotes(2));
+                Assert.assertEquals(0.25, votes.getSumOfWeights(0), DELTA);
+                Assert.assertEquals(-2.0, votes.getSumOfVotes(0), DELTA);
+                Assert.assertEquals(1, votes.getNumberOfVotes(0));
+                Assert.assertEquals(0, votes.getNumberOfVotes(1));
+                Assert.assertEquals(0, votes.getNumberOfVotes(10));
+                Assert.assertEquals(0.0, votes.getSumOfWeights(10), DELTA);
+
+                //Touched in order of first vote
+                Assert.assertEquals(2, votes.getNumberOfTouched());
+                Assert.assertEquals(2, votes.getTouched(0));
+                Assert.assertEquals(0, votes.getTouched(1));
+
+                //Grows for greater ids
+                votes.add(100, 1.0, 3.0);
+                Assert.assertEquals(1, votes.getNumberOfVotes(100));
+                Assert.assertEquals(3.0, votes.getSumOfVotes(100), DELTA);
+                Assert.assertEquals(1.25, votes.getSumOfWeights(2), DELTA);
+                Assert.assertEquals(3, votes.getNumberOfTouched());
+        }
+
+        /**
+         * After a reset the accumulator has no votes and can be reused.
+         */
+        @Test
+        public void testReset() {
+                VoteAccumulator votes = new VoteAccumulator(0);
+                votes.add(3, 1.0, 1.0);
+                votes.add(7, 2.0, 2.0);
+                votes.reset();
+
+                Assert.assertEquals(0, votes.getNumberOfTouched());
+                Assert.assertEquals(0, votes.getNumberOfVotes(3));
+                Assert.assertEquals(0.0, votes.getSumOfWeights(7), DELTA);
+                Assert.assertEquals(0.0, votes.getSumOfVotes(7), DELTA);
+
+                votes.add(7, 0.5, 0.25);
+                Assert.assertEquals(1, votes.getNumberOfTouched());
+                Assert.assertEquals(7, votes.getTouched(0));
+                Assert.assertEquals(0.5, votes.getSumOfWeights(7), DELTA);
+                Assert.assertEquals(0.25, votes.getSumOfVotes(7), DELTA);
+        }
+}